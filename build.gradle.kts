@@ -218,6 +218,26 @@ dependencies {
   testImplementation(docgen.output)
 }
 
+tasks.register<JavaExec>("minimizerBenchmark") {
+  group = "verification"
+  description = "Compares the exact and the heuristic minimizer on truth tables with 16 to 20 inputs."
+  dependsOn(tasks.testClasses)
+
+  classpath = sourceSets["test"].runtimeClasspath
+  mainClass.set("com.cburch.logisim.analyze.model.MinimizerBenchmark")
+  jvmArgs("-Djava.awt.headless=true")
+}
+
+tasks.register<JavaExec>("socMemoryBenchmark") {
+  group = "verification"
+  description = "Compares the paged SoC memory with its former linked list storage on RV32 loads and stores."
+  dependsOn(tasks.testClasses)
+
+  classpath = sourceSets["test"].runtimeClasspath
+  mainClass.set("com.cburch.logisim.soc.memory.SocMemoryBenchmark")
+  jvmArgs("-Djava.awt.headless=true")
+}
+
 tasks.register<JavaExec>("generateDocumentationPrototype") {
   group = "documentation"
   description = "Generates the prototype English and German JavaHelp memory trees."
@@ -15,7 +15,9 @@ import com.cburch.logisim.analyze.data.CsvInterpretor;
 import com.cburch.logisim.analyze.data.CsvParameter;
 import com.cburch.logisim.analyze.gui.CsvReadParameterDialog;
 import com.cburch.logisim.analyze.model.AnalyzerModel;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import javax.swing.JFrame;
@@ -32,7 +34,8 @@ public class TruthtableCsvFile {
     final var inputs = model.getInputs();
     final var outputs = model.getOutputs();
     if (inputs.vars.isEmpty() || outputs.vars.isEmpty()) return;
-    try (PrintStream out = new PrintStream(file)) {
+    try (PrintStream out =
+        new PrintStream(new BufferedOutputStream(new FileOutputStream(file)))) {
       final var tt = model.getTruthTable();
       tt.compactVisibleRows();
       for (var i = 0; i < inputs.vars.size(); i++) {
@@ -50,18 +53,18 @@ public class TruthtableCsvFile {
         for (var j = 1; j < cur.width; j++) out.print(DEFAULT_SEPARATOR);
       }
       out.println();
+      // the rows are written straight from the table, one line at a time
+      final var line = new StringBuilder();
       for (var row = 0; row < tt.getVisibleRowCount(); row++) {
+        line.setLength(0);
         for (var i = 0; i < inputs.bits.size(); i++) {
-          final var entry = tt.getVisibleInputEntry(row, i);
-          out.print(entry.getDescription() + DEFAULT_SEPARATOR);
+          line.append(tt.getVisibleInputEntry(row, i).getDescription()).append(DEFAULT_SEPARATOR);
         }
-        out.print(DEFAULT_QUOTE + "|" + DEFAULT_QUOTE);
+        line.append(DEFAULT_QUOTE).append('|').append(DEFAULT_QUOTE);
         for (var i = 0; i < outputs.bits.size(); i++) {
-          out.print(DEFAULT_SEPARATOR);
-          final var entry = tt.getVisibleOutputEntry(row, i);
-          out.print(entry.getDescription());
+          line.append(DEFAULT_SEPARATOR).append(tt.getVisibleOutputEntry(row, i).getDescription());
         }
-        out.println();
+        out.println(line);
       }
     }
   }
@@ -16,7 +16,9 @@ import com.cburch.logisim.analyze.model.Entry;
 import com.cburch.logisim.analyze.model.Var;
 import com.cburch.logisim.analyze.model.VariableList;
 import com.cburch.logisim.gui.generic.OptionPane;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -76,7 +78,8 @@ public class TruthtableTextFile {
   }
 
   public static void doSave(File file, AnalyzerModel model) throws IOException {
-    try (PrintStream out = new PrintStream(file)) {
+    try (PrintStream out =
+        new PrintStream(new BufferedOutputStream(new FileOutputStream(file)))) {
       out.println(S.get("tableRemark1"));
       final var c = model.getCurrentCircuit();
       if (c != null) out.println(S.get("tableRemark2", c.getName()));
@@ -39,12 +39,21 @@ public class MinimizeButton  extends JButton {
   }
 
   void doOptimize() {
-    final var choice = OptionPane.showConfirmDialog(
+    final Object[] options = {
+      S.get("minimizedExact"), S.get("minimizedHeuristic"), S.get("minimizeCancel")
+    };
+    final var choice = OptionPane.showOptionDialog(
           parent,
-          S.get("OptimizeLongTimeWarning"),
+          S.get("OptimizeMethodQuestion"),
           S.get("minimizeFunctionTitle"),
-          OptionPane.YES_NO_OPTION);
-    if (choice != OptionPane.YES_OPTION) return;
+          OptionPane.YES_NO_CANCEL_OPTION,
+          OptionPane.WARNING_MESSAGE,
+          null,
+          options,
+          options[1]);
+    if (choice != 0 && choice != 1) return;
+    final var minimizer =
+        choice == 0 ? AnalyzerModel.MINIMIZER_EXACT : AnalyzerModel.MINIMIZER_HEURISTIC;
     final var info = new JTextArea(20, 80);
     info.setEditable(false);
     info.setFont(new Font("monospaced", Font.PLAIN, 12));
@@ -82,7 +91,7 @@ public class MinimizeButton  extends JButton {
     final var optimizeThread = new Thread(
         new Runnable() {
             public void run() {
-                model.getOutputExpressions().forcedOptimize(info, format);
+                model.getOutputExpressions().forcedOptimize(info, format, minimizer);
                 doneButton.setVisible(true);
             }
         }
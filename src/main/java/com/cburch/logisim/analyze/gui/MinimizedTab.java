@@ -114,6 +114,54 @@ class MinimizedTab extends AnalyzerTab {
     }
   }
 
+  @SuppressWarnings("rawtypes")
+  private static class MinimizerModel extends AbstractListModel implements ComboBoxModel {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] choices;
+    private int selected;
+
+    private MinimizerModel() {
+      selected = AnalyzerModel.MINIMIZER_EXACT;
+      choices = new String[2];
+      localeChanged();
+    }
+
+    @Override
+    public Object getElementAt(int index) {
+      return choices[index];
+    }
+
+    int getSelectedMinimizer() {
+      return selected;
+    }
+
+    @Override
+    public Object getSelectedItem() {
+      return choices[selected];
+    }
+
+    @Override
+    public int getSize() {
+      return choices.length;
+    }
+
+    void localeChanged() {
+      choices[AnalyzerModel.MINIMIZER_EXACT] = S.get("minimizedExact");
+      choices[AnalyzerModel.MINIMIZER_HEURISTIC] = S.get("minimizedHeuristic");
+      fireContentsChanged(this, 0, choices.length);
+    }
+
+    @Override
+    public void setSelectedItem(Object value) {
+      for (var i = 0; i < choices.length; i++) {
+        if (choices[i].equals(value)) {
+          selected = i;
+        }
+      }
+    }
+  }
+
   @SuppressWarnings("rawtypes")
   private static class StyleModel extends AbstractListModel implements ComboBoxModel {
     private static final long serialVersionUID = 1L;
@@ -230,6 +278,7 @@ class MinimizedTab extends AnalyzerTab {
       setAsExpr.setEnabled(output != null && !outputExprs.isExpressionMinimal(output));
       int format = outputExprs.getMinimizedFormat(output);
       formatChoice.setSelectedIndex(FormatModel.getFormatIndex(format));
+      minimizerChoice.setSelectedIndex(outputExprs.getMinimizer(output));
     }
 
     @Override
@@ -239,6 +288,10 @@ class MinimizedTab extends AnalyzerTab {
         final var model = (FormatModel) formatChoice.getModel();
         outputExprs.setMinimizedFormat(output, model.getSelectedFormat());
         karnaughMap.setFormat(model.getSelectedFormat());
+      } else if (event.getSource() == minimizerChoice) {
+        final var output = getCurrentVariable();
+        final var model = (MinimizerModel) minimizerChoice.getModel();
+        if (output != null) outputExprs.setMinimizer(output, model.getSelectedMinimizer());
       } else if (event.getSource() == formatStyle) {
         final var model = (StyleModel) formatStyle.getModel();
         model.setStyle(karnaughMap);
@@ -257,12 +310,16 @@ class MinimizedTab extends AnalyzerTab {
   private final OutputSelector selector;
   private final KarnaughMapPanel karnaughMap;
   private final JLabel formatLabel = new JLabel();
+  private final JLabel minimizerLabel = new JLabel();
   private final JLabel styleLabel = new JLabel();
   private final JLabel notationLabel = new JLabel();
 
   @SuppressWarnings({"rawtypes", "unchecked"})
   private final JComboBox formatChoice = new JComboBox<>(new FormatModel());
 
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private final JComboBox minimizerChoice = new JComboBox<>(new MinimizerModel());
+
   @SuppressWarnings({"rawtypes", "unchecked"})
   private final JComboBox formatStyle = new JComboBox<>(new StyleModel());
 
@@ -286,6 +343,7 @@ class MinimizedTab extends AnalyzerTab {
     karnaughMap = new KarnaughMapPanel(model, minimizedExpr);
     setAsExpr.addActionListener(myListener);
     formatChoice.addItemListener(myListener);
+    minimizerChoice.addItemListener(myListener);
     formatStyle.addItemListener(myListener);
     notationChoice.addItemListener(myListener);
 
@@ -393,6 +451,9 @@ class MinimizedTab extends AnalyzerTab {
     gbl.setConstraints(formatLabel, gbc);
     control.add(formatLabel);
     gbc.gridy++;
+    gbl.setConstraints(minimizerLabel, gbc);
+    control.add(minimizerLabel);
+    gbc.gridy++;
     gbl.setConstraints(styleLabel, gbc);
     control.add(styleLabel);
     gbc.gridy++;
@@ -407,6 +468,9 @@ class MinimizedTab extends AnalyzerTab {
     gbl.setConstraints(formatChoice, gbc);
     control.add(formatChoice);
     gbc.gridy++;
+    gbl.setConstraints(minimizerChoice, gbc);
+    control.add(minimizerChoice);
+    gbc.gridy++;
     gbl.setConstraints(formatStyle, gbc);
     control.add(formatStyle);
     gbc.gridy++;
@@ -425,9 +489,11 @@ class MinimizedTab extends AnalyzerTab {
     karnaughMap.localeChanged();
     setAsExpr.setText(S.get("minimizedSetButton"));
     formatLabel.setText(S.get("minimizedFormat"));
+    minimizerLabel.setText(S.get("minimizedMethod"));
     styleLabel.setText(S.get("KmapStyle"));
     notationLabel.setText(S.get("ExpressionNotation"));
     ((FormatModel) formatChoice.getModel()).localeChanged();
+    ((MinimizerModel) minimizerChoice.getModel()).localeChanged();
     ((StyleModel) formatStyle.getModel()).localeChanged();
     ((NotationModel) notationChoice.getModel()).localeChanged();
   }
@@ -448,6 +514,7 @@ class MinimizedTab extends AnalyzerTab {
     karnaughMap.setOutput(output);
     final var format = outputExprs.getMinimizedFormat(output);
     formatChoice.setSelectedIndex(FormatModel.getFormatIndex(format));
+    minimizerChoice.setSelectedIndex(outputExprs.getMinimizer(output));
     minimizedExpr.setExpression(outputExprs.getMinimalExpression(output));
     setAsExpr.setEnabled(output != null && !outputExprs.isExpressionMinimal(output));
   }
@@ -20,6 +20,9 @@ public class AnalyzerModel {
   public static final int FORMAT_SUM_OF_PRODUCTS = 0;
   public static final int FORMAT_PRODUCT_OF_SUMS = 1;
 
+  public static final int MINIMIZER_EXACT = 0;
+  public static final int MINIMIZER_HEURISTIC = 1;
+
   private final VariableList inputs = new VariableList(MAX_INPUTS);
   private final VariableList outputs = new VariableList(MAX_OUTPUTS);
   private final TruthTable table;
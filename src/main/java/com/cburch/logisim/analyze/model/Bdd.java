@@ -0,0 +1,444 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reduced ordered binary decision diagrams over a fixed number of variables. A function is an int
+ * naming the root node of its diagram; since the diagrams are reduced and share all their nodes,
+ * two functions are equal if and only if their nodes are, whatever the number of variables.
+ *
+ * <p>The nodes are kept in primitive arrays, with a unique table per variable and a cache of
+ * computed results. Nodes that are no longer needed are only reclaimed by {@link
+ * #collectGarbage()} and {@link #reorder()}, which keep the nodes that were passed to {@link
+ * #ref(int)} and everything below them; node numbers that are not referenced must not be used
+ * after calling either. Reordering keeps the numbers of the referenced nodes, and the functions
+ * they stand for.
+ */
+public final class Bdd {
+
+  public static final int ZERO = 0;
+  public static final int ONE = 1;
+
+  private static final int FREE = -1; // the variable of the terminals and of unused nodes
+  private static final int MIN_CACHE_SIZE = 1 << 12;
+  private static final int MAX_CACHE_SIZE = 1 << 22;
+  private static final double MAX_GROWTH = 1.2; // while sifting a variable
+
+  private final int variableCount;
+  private final int[] levels; // by variable
+  private final int[] variables; // by level
+  private final int[][] subtables; // unique table of each variable, chained through nextNodes
+  private final int[] subtableSizes;
+
+  private int[] nodeVariables;
+  private int[] lowNodes;
+  private int[] highNodes;
+  private int[] nextNodes; // in the chain of a unique table, or of the free nodes
+  private int[] internalRefs; // from other nodes, exact after collecting garbage
+  private int[] externalRefs;
+  private int nodeCount = 2; // the nodes up to here have been used
+  private int liveCount;
+  private int freeNodes; // head of the free nodes, or 0 (a terminal) if none
+
+  private int[] cacheF;
+  private int[] cacheG;
+  private int[] cacheH;
+  private int[] cacheResults;
+
+  public Bdd(int variableCount) {
+    this.variableCount = variableCount;
+    levels = new int[variableCount];
+    variables = new int[variableCount];
+    subtables = new int[variableCount][];
+    subtableSizes = new int[variableCount];
+    for (var v = 0; v < variableCount; v++) {
+      levels[v] = v;
+      variables[v] = v;
+      subtables[v] = new int[16];
+    }
+    final var capacity = 1024;
+    nodeVariables = new int[capacity];
+    lowNodes = new int[capacity];
+    highNodes = new int[capacity];
+    nextNodes = new int[capacity];
+    internalRefs = new int[capacity];
+    externalRefs = new int[capacity];
+    nodeVariables[ZERO] = FREE;
+    nodeVariables[ONE] = FREE;
+    setCacheSize(MIN_CACHE_SIZE);
+  }
+
+  public int getVariableCount() {
+    return variableCount;
+  }
+
+  /** Returns the variables from the top of the diagrams to the bottom. */
+  public int[] getVariableOrder() {
+    return variables.clone();
+  }
+
+  /** Returns the number of nodes in use, including the terminals and unreferenced nodes. */
+  public int getNodeCount() {
+    return liveCount + 2;
+  }
+
+  /** Returns the number of nodes of the given functions, including the terminals. */
+  public int getNodeCount(int... roots) {
+    return mark(roots).cardinality();
+  }
+
+  public int variable(int v) {
+    return node(v, ZERO, ONE);
+  }
+
+  public int not(int f) {
+    return ite(f, ZERO, ONE);
+  }
+
+  public int and(int f, int g) {
+    return ite(f, g, ZERO);
+  }
+
+  public int or(int f, int g) {
+    return ite(f, ONE, g);
+  }
+
+  public int xor(int f, int g) {
+    return ite(f, not(g), g);
+  }
+
+  public int xnor(int f, int g) {
+    return ite(f, g, not(g));
+  }
+
+  /** Returns the function that is g where f is one and h where f is zero. */
+  public int ite(int f, int g, int h) {
+    if (f == ONE) return g;
+    if (f == ZERO) return h;
+    if (g == f) g = ONE;
+    if (h == f) h = ZERO;
+    if (g == h) return g;
+    if (g == ONE && h == ZERO) return f;
+
+    final var slot = cacheSlot(f, g, h);
+    if (cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h) return cacheResults[slot];
+
+    final var top = Math.min(level(f), Math.min(level(g), level(h)));
+    final var low = ite(cofactor(f, top, false), cofactor(g, top, false), cofactor(h, top, false));
+    final var high = ite(cofactor(f, top, true), cofactor(g, top, true), cofactor(h, top, true));
+    final var result = node(variables[top], low, high);
+    cacheF[slot] = f;
+    cacheG[slot] = g;
+    cacheH[slot] = h;
+    cacheResults[slot] = result;
+    return result;
+  }
+
+  /** Returns the value of a function, given the value of each variable. */
+  public boolean evaluate(int f, boolean[] values) {
+    while (f > ONE) f = values[nodeVariables[f]] ? highNodes[f] : lowNodes[f];
+    return f == ONE;
+  }
+
+  /**
+   * Returns the value of each variable, 0, 1 or -1 if either will do, on an assignment for which
+   * the function is one, or null if there is none.
+   */
+  public int[] getSatisfyingAssignment(int f) {
+    if (f == ZERO) return null;
+    final var values = new int[variableCount];
+    Arrays.fill(values, -1);
+    // in a reduced diagram, every node but ZERO leads to ONE
+    while (f != ONE) {
+      final var low = lowNodes[f];
+      values[nodeVariables[f]] = low != ZERO ? 0 : 1;
+      f = low != ZERO ? low : highNodes[f];
+    }
+    return values;
+  }
+
+  /** Keeps a function through garbage collection and reordering, and returns it. */
+  public int ref(int f) {
+    externalRefs[f]++;
+    return f;
+  }
+
+  /** Undoes a call of {@link #ref(int)}. */
+  public void deref(int f) {
+    if (externalRefs[f] == 0) throw new IllegalStateException("node " + f + " is not referenced");
+    externalRefs[f]--;
+  }
+
+  /** Reclaims the nodes that cannot be reached from a referenced node. */
+  public void collectGarbage() {
+    final var roots = new int[nodeCount];
+    var rootCount = 0;
+    for (var n = 2; n < nodeCount; n++) {
+      if (nodeVariables[n] != FREE && externalRefs[n] > 0) roots[rootCount++] = n;
+    }
+    final var reachable = mark(Arrays.copyOf(roots, rootCount));
+    for (var v = 0; v < variableCount; v++) {
+      Arrays.fill(subtables[v], 0);
+      subtableSizes[v] = 0;
+    }
+    Arrays.fill(internalRefs, 0, nodeCount, 0);
+    for (var n = 2; n < nodeCount; n++) {
+      if (nodeVariables[n] == FREE) continue;
+      if (reachable.get(n)) {
+        insert(n);
+        internalRefs[lowNodes[n]]++;
+        internalRefs[highNodes[n]]++;
+      } else {
+        free(n);
+      }
+    }
+    clearCache();
+  }
+
+  /**
+   * Reorders the variables to make the referenced functions smaller, by sifting each variable in
+   * turn, the most used ones first, to the level where the diagrams have the fewest nodes.
+   */
+  public void reorder() {
+    collectGarbage();
+    final var order = new Integer[variableCount];
+    for (var v = 0; v < variableCount; v++) order[v] = v;
+    final var sizes = subtableSizes.clone();
+    Arrays.sort(order, (a, b) -> Integer.compare(sizes[b], sizes[a]));
+    for (final var v : order) sift(v);
+    clearCache();
+  }
+
+  private void sift(int v) {
+    var bestSize = liveCount;
+    var bestLevel = levels[v];
+    var limit = (int) (MAX_GROWTH * bestSize);
+    while (levels[v] < variableCount - 1 && liveCount <= limit) {
+      swap(levels[v]);
+      if (liveCount < bestSize) {
+        bestSize = liveCount;
+        bestLevel = levels[v];
+        limit = (int) (MAX_GROWTH * bestSize);
+      }
+    }
+    while (levels[v] > 0 && (liveCount <= limit || levels[v] > bestLevel)) {
+      swap(levels[v] - 1);
+      if (liveCount < bestSize) {
+        bestSize = liveCount;
+        bestLevel = levels[v];
+        limit = (int) (MAX_GROWTH * bestSize);
+      }
+    }
+    while (levels[v] < bestLevel) swap(levels[v]);
+  }
+
+  /**
+   * Swaps the variables at the given level and the level below, rewriting the nodes of the upper
+   * variable in place so that their numbers keep standing for the same functions.
+   */
+  private void swap(int level) {
+    final var x = variables[level];
+    final var y = variables[level + 1];
+    variables[level] = y;
+    variables[level + 1] = x;
+    levels[y] = level;
+    levels[x] = level + 1;
+
+    // take out the nodes of x, and put back the ones that do not depend on y
+    var nodes = 0;
+    final var table = subtables[x];
+    for (var slot = 0; slot < table.length; slot++) {
+      for (var n = table[slot]; n != 0; ) {
+        final var next = nextNodes[n];
+        nextNodes[n] = nodes;
+        nodes = n;
+        n = next;
+      }
+      table[slot] = 0;
+    }
+    subtableSizes[x] = 0;
+    var dependent = 0;
+    for (var n = nodes; n != 0; ) {
+      final var next = nextNodes[n];
+      if (nodeVariables[lowNodes[n]] == y || nodeVariables[highNodes[n]] == y) {
+        nextNodes[n] = dependent;
+        dependent = n;
+      } else {
+        insert(n);
+      }
+      n = next;
+    }
+
+    // the others become nodes of y with nodes of x below
+    for (var n = dependent; n != 0; ) {
+      final var next = nextNodes[n];
+      final var f0 = lowNodes[n];
+      final var f1 = highNodes[n];
+      final var f0y = nodeVariables[f0] == y;
+      final var f1y = nodeVariables[f1] == y;
+      final var low = node(x, f0y ? lowNodes[f0] : f0, f1y ? lowNodes[f1] : f1);
+      final var high = node(x, f0y ? highNodes[f0] : f0, f1y ? highNodes[f1] : f1);
+      internalRefs[low]++;
+      internalRefs[high]++;
+      nodeVariables[n] = y;
+      lowNodes[n] = low;
+      highNodes[n] = high;
+      insert(n);
+      release(f0);
+      release(f1);
+      n = next;
+    }
+  }
+
+  // Drops an internal reference, and frees the node if nothing else refers to it.
+  private void release(int n) {
+    if (n <= ONE || --internalRefs[n] > 0 || externalRefs[n] > 0) return;
+    final var table = subtables[nodeVariables[n]];
+    final var slot = hash(lowNodes[n], highNodes[n]) & (table.length - 1);
+    if (table[slot] == n) {
+      table[slot] = nextNodes[n];
+    } else {
+      var prev = table[slot];
+      while (nextNodes[prev] != n) prev = nextNodes[prev];
+      nextNodes[prev] = nextNodes[n];
+    }
+    subtableSizes[nodeVariables[n]]--;
+    final var low = lowNodes[n];
+    final var high = highNodes[n];
+    free(n);
+    release(low);
+    release(high);
+  }
+
+  private BitSet mark(int[] roots) {
+    final var reachable = new BitSet(nodeCount);
+    final var stack = new int[2 * variableCount + 2];
+    reachable.set(ZERO);
+    reachable.set(ONE);
+    for (final var root : roots) {
+      var top = 0;
+      stack[top++] = root;
+      while (top > 0) {
+        final var n = stack[--top];
+        if (reachable.get(n)) continue;
+        reachable.set(n);
+        // the children are further down, so the stack holds at most two nodes per level
+        if (!reachable.get(lowNodes[n])) stack[top++] = lowNodes[n];
+        if (!reachable.get(highNodes[n])) stack[top++] = highNodes[n];
+      }
+    }
+    return reachable;
+  }
+
+  private int level(int f) {
+    return f <= ONE ? Integer.MAX_VALUE : levels[nodeVariables[f]];
+  }
+
+  private int cofactor(int f, int level, boolean value) {
+    if (level(f) != level) return f;
+    return value ? highNodes[f] : lowNodes[f];
+  }
+
+  private static int hash(int low, int high) {
+    final var h = low * 0x9E3779B1 + high * 0x85EBCA6B;
+    return h ^ (h >>> 15);
+  }
+
+  // Returns the node of variable v, creating it if there is none yet.
+  private int node(int v, int low, int high) {
+    if (low == high) return low;
+    final var table = subtables[v];
+    final var slot = hash(low, high) & (table.length - 1);
+    for (var n = table[slot]; n != 0; n = nextNodes[n]) {
+      if (lowNodes[n] == low && highNodes[n] == high) return n;
+    }
+    final var n = allocate();
+    nodeVariables[n] = v;
+    lowNodes[n] = low;
+    highNodes[n] = high;
+    internalRefs[low]++;
+    internalRefs[high]++;
+    insert(n);
+    return n;
+  }
+
+  private void insert(int n) {
+    final var v = nodeVariables[n];
+    var table = subtables[v];
+    if (subtableSizes[v] >= 2 * table.length) {
+      // rehash into a table twice as large
+      final var larger = new int[2 * table.length];
+      for (final var head : table) {
+        for (var m = head; m != 0; ) {
+          final var next = nextNodes[m];
+          final var slot = hash(lowNodes[m], highNodes[m]) & (larger.length - 1);
+          nextNodes[m] = larger[slot];
+          larger[slot] = m;
+          m = next;
+        }
+      }
+      subtables[v] = table = larger;
+    }
+    final var slot = hash(lowNodes[n], highNodes[n]) & (table.length - 1);
+    nextNodes[n] = table[slot];
+    table[slot] = n;
+    subtableSizes[v]++;
+  }
+
+  private int allocate() {
+    liveCount++;
+    if (freeNodes != 0) {
+      final var n = freeNodes;
+      freeNodes = nextNodes[n];
+      internalRefs[n] = 0;
+      externalRefs[n] = 0;
+      return n;
+    }
+    if (nodeCount == nodeVariables.length) {
+      final var capacity = 2 * nodeCount;
+      nodeVariables = Arrays.copyOf(nodeVariables, capacity);
+      lowNodes = Arrays.copyOf(lowNodes, capacity);
+      highNodes = Arrays.copyOf(highNodes, capacity);
+      nextNodes = Arrays.copyOf(nextNodes, capacity);
+      internalRefs = Arrays.copyOf(internalRefs, capacity);
+      externalRefs = Arrays.copyOf(externalRefs, capacity);
+      if (cacheF.length < Math.min(capacity, MAX_CACHE_SIZE)) setCacheSize(capacity);
+    }
+    return nodeCount++;
+  }
+
+  private void free(int n) {
+    nodeVariables[n] = FREE;
+    nextNodes[n] = freeNodes;
+    freeNodes = n;
+    liveCount--;
+  }
+
+  private int cacheSlot(int f, int g, int h) {
+    final var hash = (f * 0x9E3779B1) ^ (g * 0x85EBCA6B) ^ (h * 0xC2B2AE35);
+    return (hash ^ (hash >>> 16)) & (cacheF.length - 1);
+  }
+
+  // Grows the cache, which throws away the results it holds; they are only an optimization.
+  private void setCacheSize(int size) {
+    cacheF = new int[size];
+    cacheG = new int[size];
+    cacheH = new int[size];
+    cacheResults = new int[size];
+    clearCache();
+  }
+
+  private void clearCache() {
+    Arrays.fill(cacheF, FREE);
+  }
+}
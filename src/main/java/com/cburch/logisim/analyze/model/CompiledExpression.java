@@ -0,0 +1,143 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.Arrays;
+
+/**
+ * An expression compiled into a flat postfix program over the inputs of a truth table, to fill an
+ * output column without walking the expression tree for each row. The program is run on 64 rows
+ * at once: each input is a long holding its value in each of the rows, one bit per row, so the
+ * operators become single bitwise operations.
+ */
+final class CompiledExpression {
+
+  private static final int CONSTANT = 0; // argument: 0 or -1
+  private static final int VARIABLE = 1; // argument: bit of the row index, or -1 if not an input
+  private static final int NOT = 2;
+  private static final int AND = 3;
+  private static final int OR = 4;
+  private static final int XOR = 5;
+  private static final int XNOR = 6;
+
+  // the value of bit b of the row index in 64 consecutive rows, for the bits below 6
+  private static final long[] LANES = {
+    0xAAAAAAAAAAAAAAAAL,
+    0xCCCCCCCCCCCCCCCCL,
+    0xF0F0F0F0F0F0F0F0L,
+    0xFF00FF00FF00FF00L,
+    0xFFFF0000FFFF0000L,
+    0xFFFFFFFF00000000L,
+  };
+
+  private int[] ops = new int[16];
+  private int[] args = new int[16];
+  private int length;
+  private int depth;
+  private int maxDepth;
+
+  private CompiledExpression() {}
+
+  /** Compiles an expression over the inputs of the given table. */
+  static CompiledExpression compile(Expression expr, TruthTable table) {
+    final var program = new CompiledExpression();
+    final var inputs = table.getInputColumnCount();
+    expr.visit(
+        new Expression.Visitor<Void>() {
+          @Override
+          public Void visitVariable(String name) {
+            final var col = table.getInputIndex(name);
+            program.emit(VARIABLE, col < 0 ? -1 : inputs - 1 - col);
+            return null;
+          }
+
+          @Override
+          public Void visitConstant(int value) {
+            program.emit(CONSTANT, (value & 1) != 0 ? -1 : 0);
+            return null;
+          }
+
+          @Override
+          public Void visitNot(Expression a) {
+            a.visit(this);
+            program.emit(NOT, 0);
+            return null;
+          }
+
+          @Override
+          public Void visitBinary(Expression a, Expression b, Expression.Op op) {
+            a.visit(this);
+            b.visit(this);
+            program.emit(
+                switch (op) {
+                  case AND -> AND;
+                  case OR -> OR;
+                  case XOR -> XOR;
+                  case XNOR, EQ -> XNOR;
+                  default -> throw new IllegalArgumentException("unexpected operator " + op);
+                },
+                0);
+            return null;
+          }
+        });
+    return program;
+  }
+
+  private void emit(int op, int arg) {
+    if (length == ops.length) {
+      ops = Arrays.copyOf(ops, 2 * length);
+      args = Arrays.copyOf(args, 2 * length);
+    }
+    ops[length] = op;
+    args[length++] = arg;
+    depth += switch (op) {
+      case CONSTANT, VARIABLE -> 1;
+      case NOT -> 0;
+      default -> -1;
+    };
+    maxDepth = Math.max(maxDepth, depth);
+  }
+
+  /** Evaluates the 64 rows starting at the given multiple of 64, one bit per row. */
+  long evaluate(int firstRow, long[] stack) {
+    var top = -1;
+    for (var i = 0; i < length; i++) {
+      switch (ops[i]) {
+        case CONSTANT -> stack[++top] = args[i];
+        case VARIABLE -> {
+          final var bit = args[i];
+          stack[++top] =
+              bit < 0 ? 0 : bit < LANES.length ? LANES[bit] : -((firstRow >>> bit) & 1L);
+        }
+        case NOT -> stack[top] = ~stack[top];
+        default -> {
+          final var b = stack[top--];
+          final var a = stack[top];
+          stack[top] =
+              switch (ops[i]) {
+                case AND -> a & b;
+                case OR -> a | b;
+                case XOR -> a ^ b;
+                default -> ~(a ^ b);
+              };
+        }
+      }
+    }
+    return stack[0];
+  }
+
+  /** Computes the output column of the expression, with a one or a zero in each row. */
+  PackedColumn computeColumn(int rows) {
+    final var column = new PackedColumn(rows);
+    final var stack = new long[Math.max(1, maxDepth)];
+    for (var row = 0; row < rows; row += 64) column.setDefined(row, evaluate(row, stack));
+    return column;
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import static com.cburch.logisim.analyze.Strings.S;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import javax.swing.JTextArea;
+
+/**
+ * A heuristic two-level minimizer in the style of Espresso. Starting from the desired terms, the
+ * cover is improved by a loop of three steps until it no longer gets cheaper: each cube is
+ * expanded as far as the skipped terms allow, the redundant cubes are dropped, and each cube is
+ * reduced to the smallest cube holding the terms only it covers, so the next expansion can grow it
+ * in another direction. The result need not be minimal, but unlike the exact method its run time
+ * stays modest for tables with many inputs.
+ *
+ * <p>The truth table gives the desired terms and the don't cares explicitly, so the cubes are
+ * checked against bitsets over all rows instead of against a cover of the skipped terms. Cubes
+ * are packed into longs as in {@link Implicant}.
+ */
+final class Espresso {
+
+  private final int nrOfInputs;
+  private final int nrOfRows;
+  private final long[] desired; // rows that must be covered
+  private final long[] allowed; // rows that may be covered: the desired rows and the don't cares
+  private final int[] coverCount; // for each desired row, the number of cubes covering it
+  private final long[] covered;
+
+  Espresso(int nrOfInputs, int[] terms, int[] candidates) {
+    this.nrOfInputs = nrOfInputs;
+    nrOfRows = 1 << nrOfInputs;
+    final var words = (nrOfRows + 63) >> 6;
+    desired = new long[words];
+    allowed = new long[words];
+    for (final var term : terms) desired[term >> 6] |= 1L << term;
+    for (final var term : candidates) allowed[term >> 6] |= 1L << term;
+    coverCount = new int[nrOfRows];
+    covered = new long[words];
+  }
+
+  private static boolean contains(long[] set, int row) {
+    return (set[row >> 6] & (1L << row)) != 0;
+  }
+
+  private static int size(long cube) {
+    return Integer.bitCount(Implicant.unknownsOf(cube));
+  }
+
+  private long cost(List<Long> cover) {
+    var literals = 0L;
+    for (final var cube : cover) literals += nrOfInputs - size(cube);
+    return ((long) cover.size() << 32) + literals;
+  }
+
+  /** Returns a cover of the desired terms by cubes that hold no skipped terms. */
+  List<Implicant> minimize(JTextArea outputArea) {
+    final var cover = new ArrayList<Long>();
+    for (var word = 0; word < desired.length; word++) {
+      for (var bits = desired[word]; bits != 0; bits &= bits - 1) {
+        cover.add(Implicant.pack(0, (word << 6) + Long.numberOfTrailingZeros(bits)));
+      }
+    }
+    var best = irredundant(expand(cover));
+    var bestCost = cost(best);
+    report(outputArea, 1, best);
+    for (var pass = 2; ; pass++) {
+      final var next = irredundant(expand(reduce(new ArrayList<>(best))));
+      final var nextCost = cost(next);
+      report(outputArea, pass, next);
+      if (nextCost >= bestCost) break;
+      best = next;
+      bestCost = nextCost;
+    }
+    final var result = new ArrayList<Implicant>(best.size());
+    for (final var cube : best) {
+      result.add(new Implicant(Implicant.unknownsOf(cube), Implicant.valuesOf(cube)));
+    }
+    return result;
+  }
+
+  private void report(JTextArea outputArea, int pass, List<Long> cover) {
+    if (outputArea == null) return;
+    final var cost = cost(cover);
+    outputArea.append(
+        String.format("\n%s", S.fmt("implicantHeuristicPass", pass, cost >>> 32, cost & 0xFFFFFFFFL)));
+  }
+
+  /*
+   * Expands the cubes, largest first. A cube is grown one unknown at a time, each time picking
+   * the direction that adds most desired rows not covered by the cubes expanded before; cubes
+   * whose desired rows are all covered by then are dropped.
+   */
+  private List<Long> expand(List<Long> cover) {
+    cover.sort(Comparator.comparingInt(Espresso::size).reversed());
+    Arrays.fill(covered, 0);
+    final var result = new ArrayList<Long>();
+    final var mask = nrOfRows - 1;
+    for (long cube : cover) {
+      if (!addsDesiredRows(cube)) continue;
+      while (true) {
+        final var unknowns = Implicant.unknownsOf(cube);
+        final var values = Implicant.valuesOf(cube);
+        var bestBit = 0;
+        var bestGain = -1;
+        for (var free = mask & ~unknowns; free != 0; free &= free - 1) {
+          final var bit = free & -free;
+          final var gain = gain(unknowns, values ^ bit);
+          if (gain > bestGain) {
+            bestGain = gain;
+            bestBit = bit;
+          }
+        }
+        if (bestGain < 0) break;
+        cube = Implicant.pack(unknowns | bestBit, values);
+      }
+      result.add(cube);
+      forEachRow(cube, row -> covered[row >> 6] |= 1L << row);
+    }
+    return result;
+  }
+
+  private boolean addsDesiredRows(long cube) {
+    final var unknowns = Implicant.unknownsOf(cube);
+    final var values = Implicant.valuesOf(cube);
+    var sub = 0;
+    do {
+      final var row = values | sub;
+      if (contains(desired, row) && !contains(covered, row)) return true;
+      sub = (sub - unknowns) & unknowns;
+    } while (sub != 0);
+    return false;
+  }
+
+  // Number of uncovered desired rows in the given cube, or -1 if it holds a skipped row.
+  private int gain(int unknowns, int values) {
+    var gain = 0;
+    var sub = 0;
+    do {
+      final var row = values | sub;
+      if (!contains(allowed, row)) return -1;
+      if (contains(desired, row) && !contains(covered, row)) gain++;
+      sub = (sub - unknowns) & unknowns;
+    } while (sub != 0);
+    return gain;
+  }
+
+  private interface RowAction {
+    void apply(int row);
+  }
+
+  private static void forEachRow(long cube, RowAction action) {
+    final var unknowns = Implicant.unknownsOf(cube);
+    final var values = Implicant.valuesOf(cube);
+    var sub = 0;
+    do {
+      action.apply(values | sub);
+      sub = (sub - unknowns) & unknowns;
+    } while (sub != 0);
+  }
+
+  private void countCover(List<Long> cover) {
+    Arrays.fill(coverCount, 0);
+    for (final var cube : cover) {
+      forEachRow(
+          cube,
+          row -> {
+            if (contains(desired, row)) coverCount[row]++;
+          });
+    }
+  }
+
+  private boolean isRedundant(long cube) {
+    final var unknowns = Implicant.unknownsOf(cube);
+    final var values = Implicant.valuesOf(cube);
+    var sub = 0;
+    do {
+      final var row = values | sub;
+      if (coverCount[row] == 1 && contains(desired, row)) return false;
+      sub = (sub - unknowns) & unknowns;
+    } while (sub != 0);
+    return true;
+  }
+
+  // Drops the cubes whose desired rows are all covered by other cubes, smallest first.
+  private List<Long> irredundant(List<Long> cover) {
+    countCover(cover);
+    cover.sort(Comparator.comparingInt(Espresso::size));
+    final var result = new ArrayList<Long>(cover.size());
+    for (final var cube : cover) {
+      if (isRedundant(cube)) {
+        forEachRow(cube, row -> coverCount[row]--);
+      } else {
+        result.add(cube);
+      }
+    }
+    return result;
+  }
+
+  /*
+   * Shrinks each cube, largest first, to the smallest cube holding the desired rows that no other
+   * cube covers; cubes without such rows are dropped.
+   */
+  private List<Long> reduce(List<Long> cover) {
+    countCover(cover);
+    cover.sort(Comparator.comparingInt(Espresso::size).reversed());
+    final var result = new ArrayList<Long>(cover.size());
+    for (final var cube : cover) {
+      final var unknowns = Implicant.unknownsOf(cube);
+      final var values = Implicant.valuesOf(cube);
+      var and = -1;
+      var or = 0;
+      var sub = 0;
+      do {
+        final var row = values | sub;
+        if (coverCount[row] == 1 && contains(desired, row)) {
+          and &= row;
+          or |= row;
+        }
+        sub = (sub - unknowns) & unknowns;
+      } while (sub != 0);
+      final var keep = and != -1; // there is at least one such row
+      final var reducedUnknowns = and ^ or;
+      sub = 0;
+      do {
+        final var row = values | sub;
+        if (!keep || (row & ~reducedUnknowns) != and) coverCount[row]--;
+        sub = (sub - unknowns) & unknowns;
+      } while (sub != 0);
+      if (keep) result.add(Implicant.pack(reducedUnknowns, and));
+    }
+    return result;
+  }
+}
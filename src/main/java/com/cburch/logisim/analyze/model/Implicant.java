@@ -12,6 +12,7 @@ package com.cburch.logisim.analyze.model;
 import static com.cburch.logisim.analyze.Strings.S;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -20,6 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.stream.IntStream;
 
 import javax.swing.JTextArea;
 
@@ -61,16 +63,6 @@ public class Implicant implements Comparable<Implicant> {
     }
   }
 
-  private static int getNrOfOnes(int value, int nrOfBits) {
-    var nrOfOnes = 0;
-    var mask = 1;
-    for (var bitIndex = 0; bitIndex < nrOfBits; bitIndex++) {
-      if ((value & mask) != 0) nrOfOnes++;
-      mask <<= 1;
-    }
-    return nrOfOnes;
-  }
-
   private static void report(JTextArea out, String info) {
     if (out != null) out.append(info);
   }
@@ -90,300 +82,481 @@ public class Implicant implements Comparable<Implicant> {
   }
 
   static List<Implicant> computeMinimal(int format, AnalyzerModel model, String variable, JTextArea outputArea) {
+    return computeMinimal(format, AnalyzerModel.MINIMIZER_EXACT, model, variable, outputArea);
+  }
+
+  static List<Implicant> computeMinimal(int format, int minimizer, AnalyzerModel model, String variable,
+      JTextArea outputArea) {
     final var table = model.getTruthTable();
     final var outputVariableIndex = model.getOutputs().bits.indexOf(variable);
     if (outputVariableIndex < 0) return Collections.emptyList();
     // first we do some house keeping
-    final var desiredTerm = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE : Entry.ZERO;
-    final var skippedTerm = desiredTerm == Entry.ONE ? Entry.ZERO : Entry.ONE;
+    final var sumOfProducts = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS;
     final var nrOfInputs = table.getInputColumnCount();
-    final var oneHotTable = new HashSet<Integer>();
-    var mask = 1;
-    for (var bitIndex = 0; bitIndex < nrOfInputs; bitIndex++) {
-      oneHotTable.add(mask);
-      mask <<= 1;
-    }
-
-    // Here we define the first table with all desired terms (minterms or maxterms) and we add also the don´t cares
-    // for the primes we have the group (key) and the min/maxterms in this group (HashSet)
-    final var primes = new HashMap<Implicant, HashSet<Implicant>>();
-    final var essentialPrimes = new ArrayList<Implicant>();
-    // for the currentTable and the nextTable the key is the number of ones in the min/maxterms (groupid)
-    // the HashMap keeps track of the group (key) implicant and the number of min/max terms in this group (HashSet)
-    final var currentTable = new HashMap<Integer, HashMap<Implicant, HashSet<Implicant>>>();
-    final var newTable = new HashMap<Integer, HashMap<Implicant, HashSet<Implicant>>>();
-    // for terms to cover is the "key" the min/maxterms that need to be covered, and the ArrayList
-    // the set of prime covers that cover the key
-    final var termsToCover = new HashMap<Implicant, ArrayList<Implicant>>();
+    final var column = table.getPackedOutputColumn(outputVariableIndex);
+    if (column == null) return Collections.emptyList();
+
+    // Here we collect all desired terms (minterms or maxterms), and all terms that may be covered,
+    // being the desired terms and the don´t cares
+    final var desired = new int[column.length()];
+    final var candidates = new int[column.length()];
+    var nrOfDesired = 0;
+    var nrOfCandidates = 0;
     var allDontCare = true;
-    for (var inputCombination = 0; inputCombination < table.getRowCount(); inputCombination++) {
-      final var term = table.getOutputEntry(inputCombination, outputVariableIndex);
-      if (term == skippedTerm) {
+    for (var inputCombination = 0; inputCombination < column.length(); inputCombination++) {
+      final var isOne = column.isOne(inputCombination);
+      final var isZero = column.isZero(inputCombination);
+      if (sumOfProducts ? isZero : isOne) {
         allDontCare = false;
         continue;
       }
-      final var nrOfOnes = getNrOfOnes(inputCombination, nrOfInputs);
-      final var isDontCare = term != desiredTerm;
-      final var implicant = new Implicant(inputCombination, isDontCare);
-      final var implicantsSet = new HashSet<Implicant>();
-      if (!isDontCare) {
-        termsToCover.put(implicant, new ArrayList<>());
-        implicantsSet.add(implicant);
+      if (sumOfProducts ? isOne : isZero) {
+        desired[nrOfDesired++] = inputCombination;
         allDontCare = false;
       }
-      if (!newTable.containsKey(nrOfOnes)) {
-        newTable.put(nrOfOnes, new HashMap<>());
-      }
-      newTable.get(nrOfOnes).put(implicant, implicantsSet);
+      candidates[nrOfCandidates++] = inputCombination;
     }
 
     if (allDontCare) return Collections.emptyList();
-    // In case the number of inputs is bigger than approx. 8 inputs, this
+    // In case the number of inputs is bigger than approx. 12 inputs, this
     // algorithm takes a long time. To prevent "freezing" of logisim, we
-    // only perform an optimization for systems with more than 6 inputs on
-    // user request. Otherwise we exit here and return the set of min/maxterms
-    if ((nrOfInputs > MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM) && (outputArea == null)) {
+    // only perform an optimization for such systems on user request.
+    // Otherwise we exit here and return the set of min/maxterms. The heuristic
+    // minimizer stays fast for such systems, so the limit only holds for the exact one.
+    if ((minimizer == AnalyzerModel.MINIMIZER_EXACT)
+        && (nrOfInputs > MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM) && (outputArea == null)) {
       return Collections.emptyList();
     }
     report(outputArea, String.format("\n%s\n", S.fmt("implicantOutputName", variable)));
-    // Here the real work starts, we determine all primes
-    var couldMerge = false;
+    final var terms = Arrays.copyOf(desired, nrOfDesired);
+    if (minimizer == AnalyzerModel.MINIMIZER_HEURISTIC) {
+      return new Espresso(nrOfInputs, terms, Arrays.copyOf(candidates, nrOfCandidates)).minimize(outputArea);
+    }
+    // Here the real work starts, we determine all primes, and for each prime the terms it covers
+    final var levels = computePrimes(Arrays.copyOf(candidates, nrOfCandidates), nrOfInputs);
+    final var primes = new ArrayList<Long>();
+    final var covers = new ArrayList<long[]>();
     var groupSize = 2;
-    do {
+    for (final var level : levels) {
       report(outputArea, String.format("\n%s", S.fmt("implicantGroupSize", groupSize)));
+      final var levelCovers = computeCovers(level, terms);
       var nrOfPrimes = 0L;
-      couldMerge = false;
-      currentTable.clear();
-      currentTable.putAll(newTable);
-      newTable.clear();
-      var minimalKey = Integer.MAX_VALUE;
-      var maximalKey = 0;
-      for (var key : currentTable.keySet()) {
-        if (key < minimalKey) minimalKey = key;
-        if (key > maximalKey) maximalKey = key;
-      }
-      for (var key = minimalKey; key < maximalKey; key++) {
-        if (currentTable.containsKey(key) && currentTable.containsKey(key + 1)) {
-          // we see if we can merge terms
-          for (var termGroup1 : currentTable.get(key).keySet()) {
-            for (var termGroup2 : currentTable.get(key + 1).keySet()) {
-              if (termGroup1.unknowns != termGroup2.unknowns) continue;
-              final var differenceMask = termGroup1.values ^ termGroup2.values;
-              if (oneHotTable.contains(differenceMask)) {
-                final var dontCareMask = termGroup1.unknowns | differenceMask;
-                final var newValue = (termGroup1.values & differenceMask) == 0 ? termGroup1.values : termGroup2.values;
-                final var isDontCareGroup = termGroup1.isDontCare && termGroup2.isDontCare;
-                final var newImplicant = new Implicant(dontCareMask, newValue, isDontCareGroup);
-                final var newImplicantTerms = new HashSet<Implicant>();
-                couldMerge = true;
-                termGroup1.isPrime = termGroup2.isPrime = false;
-                newImplicantTerms.addAll(currentTable.get(key).get(termGroup1));
-                newImplicantTerms.addAll(currentTable.get(key + 1).get(termGroup2));
-                var found = false;
-                if (newTable.containsKey(key)) {
-                  // see if the new implicant already is in the set
-                  for (final var implicant : newTable.get(key).keySet()) {
-                    found |= (implicant.values == newValue) && (implicant.unknowns == dontCareMask);
-                  }
-                  if (!found) newTable.get(key).put(newImplicant, newImplicantTerms);
-                } else {
-                  newTable.put(key, new HashMap<>());
-                  newTable.get(key).put(newImplicant, newImplicantTerms);
-                }
-              }
-            }
-          }
-        }
-      }
-      // now we add the primes to the set
-      for (final var key : currentTable.keySet()) {
-        for (final var implicant : currentTable.get(key).keySet()) {
-          if (implicant.isPrime && !implicant.isDontCare) {
-            primes.put(implicant, currentTable.get(key).get(implicant));
-            if ((nrOfPrimes % 16L) == 0L) report(outputArea, "\n");
-            report(outputArea, String.format("%s ",
-                  getGroupRepresentation(implicant.values, implicant.unknowns, nrOfInputs)));
-            nrOfPrimes++;
-          }
-        }
+      for (var i = 0; i < level.length; i++) {
+        // primes covering only don't cares are of no use
+        if (levelCovers[i] == null) continue;
+        primes.add(level[i]);
+        covers.add(levelCovers[i]);
+        if ((nrOfPrimes % 16L) == 0L) report(outputArea, "\n");
+        report(outputArea, String.format("%s ", getGroupRepresentation(level[i], nrOfInputs)));
+        nrOfPrimes++;
       }
       if (nrOfPrimes == 0) report(outputArea, String.format("\n%s", S.get("implicantNoneFound")));
       groupSize <<= 1;
-    } while (couldMerge);
-
-    // we build now the table, with for each term which prime it covers
-    for (final var prime : primes.keySet()) {
-      for (final var term : termsToCover.keySet()) {
-        if (primes.get(prime).contains(term)) termsToCover.get(term).add(prime);
-      }
     }
-    // finally we have to find the essential primes
-    var couldDoRowReduction = false;
-    var couldDoColumnReduction = false;
 
     report(outputArea, String.format("\n%s", S.get("implicantColumRowReduction")));
-    var nrEssentialPrimes = 0L;
-    do {
-      couldDoRowReduction = false;
-      couldDoColumnReduction = false;
-      final var termsToRemove = new ArrayList<Implicant>();
-      // we first try a column reduction
-      for (final var term : termsToCover.keySet()) {
-        final var termInfo = termsToCover.get(term);
-        if (termInfo.size() == 1) {
-          // we found a prime cover, as this cover only covers this term
-          final var prime = termInfo.get(0);
-          if (!primes.containsKey(prime)) continue;
-          for (final var terms : primes.get(prime)) {
-            for (final var currentPrime : primes.keySet()) {
-              if (currentPrime.equals(prime)) continue;
-              couldDoColumnReduction |= primes.get(currentPrime).contains(terms);
-              primes.get(currentPrime).remove(terms);
-            }
-            termsToRemove.add(terms);
-          }
-          essentialPrimes.add(prime);
-          primes.remove(prime);
-          if ((nrEssentialPrimes++ % 16L) == 0) report(outputArea, "\n");
-          report(outputArea, String.format(" %s", getGroupRepresentation(prime.values, prime.unknowns, nrOfInputs)));
-        }
+    final var cover = new CoverTable(primes, covers, terms.length);
+    final var selected = cover.reduce(outputArea, nrOfInputs);
+    // It is possible that we still have multiple covers left.
+    // The cheapest one is found by a branch and bound search
+    if (!cover.isCovered()) selected.addAll(cover.search());
+    final var result = new ArrayList<Implicant>(selected.size());
+    for (final var prime : selected) result.add(new Implicant(unknownsOf(prime), valuesOf(prime)));
+    return result;
+  }
+
+  /*
+   * During the minimization an implicant is packed into a long, with its unknowns in the upper half
+   * and its values in the lower half. The values have zeros at the unknown positions, so equal
+   * implicants have equal packings.
+   */
+  static long pack(int unknowns, int values) {
+    return ((long) unknowns << 32) | (values & ~unknowns & 0xFFFFFFFFL);
+  }
+
+  static int unknownsOf(long implicant) {
+    return (int) (implicant >>> 32);
+  }
+
+  static int valuesOf(long implicant) {
+    return (int) implicant;
+  }
+
+  private static String getGroupRepresentation(long implicant, int nrOfBits) {
+    return getGroupRepresentation(valuesOf(implicant), unknownsOf(implicant), nrOfBits);
+  }
+
+  /*
+   * Determines the prime implicants of the given terms, which are sorted. Starting from the terms,
+   * each pass merges the implicants with the same unknowns whose values differ in a single bit
+   * into implicants with one unknown more; the ones that cannot be merged are prime. Only
+   * implicants whose number of ones differs by one can merge, so the implicants are grouped by
+   * their number of ones and each group is handled by its own task on the common ForkJoinPool.
+   * The result holds the primes found in each pass.
+   */
+  private static List<long[]> computePrimes(int[] terms, int nrOfInputs) {
+    final var levels = new ArrayList<long[]>();
+    var current = new long[terms.length];
+    for (var i = 0; i < terms.length; i++) current[i] = pack(0, terms[i]);
+    final var inputMask = (int) ((1L << nrOfInputs) - 1);
+    while (current.length > 0) {
+      // the implicants are sorted, so each group stays sorted for the lookups
+      final var groups = new long[nrOfInputs + 1][];
+      final var groupSizes = new int[nrOfInputs + 1];
+      for (final var implicant : current) groupSizes[Integer.bitCount(valuesOf(implicant))]++;
+      for (var ones = 0; ones <= nrOfInputs; ones++) groups[ones] = new long[groupSizes[ones]];
+      Arrays.fill(groupSizes, 0);
+      for (final var implicant : current) {
+        final var ones = Integer.bitCount(valuesOf(implicant));
+        groups[ones][groupSizes[ones]++] = implicant;
       }
-      // we do the cleanup
-      for (final var term : termsToRemove) termsToCover.remove(term);
-      // now we perform the row reduction
-      // first we look for empty primes
-      final var primesToRemove = new HashSet<Implicant>();
-      final var primeHierarchy = new HashMap<Integer, HashSet<Implicant>>();
-      final var nrOfElementGroups = new ArrayList<Integer>();
-      for (final var prime : primes.keySet()) {
-        final var primeElements = primes.get(prime);
-        if (primeElements.isEmpty()) {
-          primesToRemove.add(prime);
-          couldDoRowReduction = true;
-        } else {
-          final var nrOfElements = primeElements.size();
-          if (!primeHierarchy.containsKey(nrOfElements)) {
-            primeHierarchy.put(nrOfElements, new HashSet<>());
-          }
-          primeHierarchy.get(nrOfElements).add(prime);
-          if (!nrOfElementGroups.contains(nrOfElements)) {
-            nrOfElementGroups.add(nrOfElements);
+      final var merged =
+          IntStream.rangeClosed(0, nrOfInputs)
+              .parallel()
+              .mapToObj(ones -> mergeGroup(groups, ones, inputMask))
+              .toList();
+      final var primes = new LongList();
+      final var next = new LongList();
+      for (final var result : merged) {
+        primes.addAll(result[0]);
+        next.addAll(result[1]);
+      }
+      levels.add(primes.toArray());
+      current = next.toSortedSet();
+    }
+    return levels;
+  }
+
+  /*
+   * Merges the implicants with the given number of ones with their neighbours having one more.
+   * Returns the primes of the group, and the merged implicants.
+   */
+  private static LongList[] mergeGroup(long[][] groups, int ones, int inputMask) {
+    final var primes = new LongList();
+    final var merged = new LongList();
+    final var lower = ones > 0 ? groups[ones - 1] : null;
+    final var upper = ones + 1 < groups.length ? groups[ones + 1] : null;
+    for (final var implicant : groups[ones]) {
+      final var unknowns = unknownsOf(implicant);
+      final var values = valuesOf(implicant);
+      var isPrime = true;
+      for (var free = inputMask & ~unknowns; free != 0; free &= free - 1) {
+        final var bit = free & -free;
+        if ((values & bit) == 0) {
+          if (upper != null && Arrays.binarySearch(upper, pack(unknowns, values | bit)) >= 0) {
+            merged.add(pack(unknowns | bit, values));
+            isPrime = false;
           }
+        } else if (isPrime
+            && lower != null
+            && Arrays.binarySearch(lower, pack(unknowns, values & ~bit)) >= 0) {
+          isPrime = false;
         }
       }
-      Collections.sort(nrOfElementGroups);
-      if (!nrOfElementGroups.isEmpty()) {
-        for (var mergeGroupId = nrOfElementGroups.size() - 1; mergeGroupId > 0; mergeGroupId--) {
-          for (final var bigPrime : primeHierarchy.get(nrOfElementGroups.get(mergeGroupId))) {
-            if (primesToRemove.contains(bigPrime)) continue;
-            for (var checkGroupId = mergeGroupId - 1; checkGroupId >= 0; checkGroupId--) {
-              for (final var smallPrime : primeHierarchy.get(nrOfElementGroups.get(checkGroupId))) {
-                if (primesToRemove.contains(smallPrime)) continue;
-                if (primes.get(bigPrime).containsAll(primes.get(smallPrime))) {
-                  couldDoRowReduction = true;
-                  primesToRemove.add(smallPrime);
+      if (isPrime) primes.add(implicant);
+    }
+    return new LongList[] {primes, merged};
+  }
+
+  /*
+   * Determines for each implicant the set of terms it covers, as a bitset over the indexes in the
+   * sorted terms; null if it covers none.
+   */
+  private static long[][] computeCovers(long[] implicants, int[] terms) {
+    final var covers = new long[implicants.length][];
+    IntStream.range(0, implicants.length)
+        .parallel()
+        .forEach(
+            i -> {
+              final var unknowns = unknownsOf(implicants[i]);
+              final var values = valuesOf(implicants[i]);
+              final var set = new long[(terms.length + 63) >> 6];
+              var empty = true;
+              if (Integer.bitCount(unknowns) < 31 && (1 << Integer.bitCount(unknowns)) < terms.length) {
+                // look up the terms of the implicant
+                var sub = 0;
+                do {
+                  final var index = Arrays.binarySearch(terms, values | sub);
+                  if (index >= 0) {
+                    set[index >> 6] |= 1L << index;
+                    empty = false;
+                  }
+                  sub = (sub - unknowns) & unknowns;
+                } while (sub != 0);
+              } else {
+                for (var index = 0; index < terms.length; index++) {
+                  if ((terms[index] & ~unknowns) == values) {
+                    set[index >> 6] |= 1L << index;
+                    empty = false;
+                  }
                 }
               }
-            }
-          }
-        }
+              if (!empty) covers[i] = set;
+            });
+    return covers;
+  }
+
+  /** A growable array of longs. */
+  private static final class LongList {
+    private long[] data = new long[16];
+    private int size;
+
+    void add(long value) {
+      if (size == data.length) data = Arrays.copyOf(data, 2 * size);
+      data[size++] = value;
+    }
+
+    void addAll(LongList other) {
+      if (size + other.size > data.length) {
+        data = Arrays.copyOf(data, Math.max(2 * data.length, size + other.size));
       }
-      for (final var prime : primesToRemove) {
-        primes.remove(prime);
-        for (final var element : termsToCover.keySet()) termsToCover.get(element).remove(prime);
+      System.arraycopy(other.data, 0, data, size, other.size);
+      size += other.size;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+
+    // the values sorted, without duplicates
+    long[] toSortedSet() {
+      Arrays.sort(data, 0, size);
+      var unique = 0;
+      for (var i = 0; i < size; i++) {
+        if (unique == 0 || data[unique - 1] != data[i]) data[unique++] = data[i];
       }
-    } while (couldDoRowReduction || couldDoColumnReduction);
+      return Arrays.copyOf(data, unique);
+    }
+  }
 
-    // It is possible that we still have multiple covers left.
-    // The minimal cover can be found using Petrick's method
-    if (!termsToCover.isEmpty()) {
-      final var simplificationExpression = new ArrayList<HashSet<HashSet<Implicant>>>();
-
-      // Populate the HashSet in order to begin Petrick's method
-      for (final var term : termsToCover.keySet()) {
-        final var group = new HashSet<HashSet<Implicant>>();
-        for (final var impl : termsToCover.get(term)) {
-          final var impli = new HashSet<Implicant>();
-          impli.add(impl);
-          group.add(impli);
+  /*
+   * The prime implicant chart: for each prime the terms it covers, and for each term the primes
+   * covering it, both as bitsets. Primes and terms are dropped from the chart as the cover is built.
+   */
+  private static final class CoverTable {
+    // upper bound on the number of choices explored when searching a cover
+    private static final int SEARCH_LIMIT = 1 << 13;
+
+    private final long[] primes;
+    private final long[][] covers;
+    private final long[][] coveredBy;
+    private final long[] remainingTerms;
+    private final long[] activePrimes;
+    private int searchSteps;
+    private int[] nrOfCovers; // number of active primes covering each term
+    private long[] bestCover;
+    private int bestCount;
+    private int bestUnknowns;
+
+    CoverTable(List<Long> primes, List<long[]> covers, int nrOfTerms) {
+      this.primes = new long[primes.size()];
+      for (var i = 0; i < this.primes.length; i++) this.primes[i] = primes.get(i);
+      this.covers = covers.toArray(new long[0][]);
+      final var termWords = (nrOfTerms + 63) >> 6;
+      final var primeWords = (this.primes.length + 63) >> 6;
+      coveredBy = new long[nrOfTerms][primeWords];
+      for (var prime = 0; prime < this.primes.length; prime++) {
+        final var set = this.covers[prime];
+        for (var term = nextBit(set, 0); term >= 0; term = nextBit(set, term + 1)) {
+          coveredBy[term][prime >> 6] |= 1L << prime;
         }
-        simplificationExpression.add(group);
       }
+      remainingTerms = new long[termWords];
+      for (var term = 0; term < nrOfTerms; term++) remainingTerms[term >> 6] |= 1L << term;
+      activePrimes = new long[primeWords];
+      for (var prime = 0; prime < this.primes.length; prime++) {
+        activePrimes[prime >> 6] |= 1L << prime;
+      }
+    }
 
-      do {
-        for (int i = 0; i < simplificationExpression.size(); i++) {
-          final var first = simplificationExpression.get(i);
-          if (i + 1 >= simplificationExpression.size()) { // If there is only one left, skip it
-            break;
-          }
-          final var second = simplificationExpression.remove(i + 1);
-
-          // If there are two elements left, then combine them
-          final var group = new HashSet<HashSet<Implicant>>();
-          for (final var firstConj : first) {
-            for (final var secondConj : second) {
-              final var conj = new HashSet<Implicant>();
-              conj.addAll(firstConj);
-              conj.addAll(secondConj);
-              group.add(conj);
-            }
-          }
-          simplificationExpression.set(i, group);
-        }
+    private static int nextBit(long[] set, int from) {
+      var word = from >> 6;
+      if (word >= set.length) return -1;
+      var bits = set[word] & (-1L << from);
+      while (bits == 0) {
+        if (++word == set.length) return -1;
+        bits = set[word];
+      }
+      return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
 
-        // After combining elements, apply reductions
-        for (final var group : simplificationExpression) {
-          final var implGrpToRemove = new ArrayList<HashSet<Implicant>>();
-          for (final var conj1 : group) {
-            if (implGrpToRemove.contains(conj1)) continue;
-            for (final var conj2 : group) {
-              if (conj1 == conj2 || implGrpToRemove.contains(conj2)) continue;
-              if (conj2.containsAll(conj1)) {
-                implGrpToRemove.add(conj2);
-                continue;
-              }
-              if (conj1.containsAll(conj2)) {
-                implGrpToRemove.add(conj1);
-                break;
-              }
-            }
-          }
-          if (!implGrpToRemove.isEmpty()) {
-            group.removeAll(implGrpToRemove);
-          }
-        }
-      } while (simplificationExpression.size() > 1);
+    private static int countAnd(long[] a, long[] b) {
+      var count = 0;
+      for (var i = 0; i < a.length; i++) count += Long.bitCount(a[i] & b[i]);
+      return count;
+    }
 
-      // Get the possible covers, only one can element can be left in the ArrayList here
-      final var resGroup = simplificationExpression.get(0);
+    private static boolean isEmpty(long[] set) {
+      for (final var word : set) {
+        if (word != 0) return false;
+      }
+      return true;
+    }
 
-      final var results = new HashMap<Integer, ArrayList<HashSet<Implicant>>>();
-      for (final var grp : resGroup) {
-        if (results.get(grp.size()) == null) {
-          results.put(grp.size(), new ArrayList<>());
+    boolean isCovered() {
+      return isEmpty(remainingTerms);
+    }
+
+    private int unknowns(int prime) {
+      return Integer.bitCount(unknownsOf(primes[prime]));
+    }
+
+    /*
+     * Repeatedly selects the essential primes, being the only primes covering some term, and drops
+     * the primes whose remaining terms are all covered by a better prime as well. Returns the
+     * selected primes.
+     */
+    List<Long> reduce(JTextArea outputArea, int nrOfInputs) {
+      final var selected = new ArrayList<Long>();
+      var changed = true;
+      while (changed && !isCovered()) {
+        changed = false;
+        // we first look for the essential primes
+        for (var term = nextBit(remainingTerms, 0); term >= 0; term = nextBit(remainingTerms, term + 1)) {
+          if (countAnd(coveredBy[term], activePrimes) != 1) continue;
+          final var set = coveredBy[term].clone();
+          for (var i = 0; i < set.length; i++) set[i] &= activePrimes[i];
+          final var prime = nextBit(set, 0);
+          select(prime);
+          selected.add(primes[prime]);
+          changed = true;
+          if (((selected.size() - 1) % 16) == 0) report(outputArea, "\n");
+          report(outputArea, String.format(" %s", getGroupRepresentation(primes[prime], nrOfInputs)));
         }
-        results.get(grp.size()).add(grp);
+        if (isCovered()) break;
+        // now we drop the dominated primes
+        final var remaining = new long[primes.length][];
+        final var counts = new int[primes.length];
+        for (var prime = nextBit(activePrimes, 0); prime >= 0; prime = nextBit(activePrimes, prime + 1)) {
+          remaining[prime] = covers[prime].clone();
+          for (var i = 0; i < remainingTerms.length; i++) remaining[prime][i] &= remainingTerms[i];
+          counts[prime] = countAnd(remaining[prime], remaining[prime]);
+        }
+        final var dominated =
+            IntStream.range(0, primes.length)
+                .parallel()
+                .filter(prime -> remaining[prime] != null && isDominated(prime, remaining, counts))
+                .toArray();
+        for (final var prime : dominated) activePrimes[prime >> 6] &= ~(1L << prime);
+        changed |= dominated.length > 0;
       }
+      return selected;
+    }
 
-      final var minimumPrimes = results.get(Collections.min(results.keySet()));
-      // Select cheapest prime covers now, meaning the ones with most total unknowns
-      final var costMap = new HashMap<Integer, ArrayList<HashSet<Implicant>>>();
+    private boolean isActive(int prime) {
+      return (activePrimes[prime >> 6] & (1L << prime)) != 0;
+    }
 
-      for (final var cover : minimumPrimes) {
-        final var unknown = cover.stream().mapToInt(i -> i.getUnknownCount()).sum();
-        if (!costMap.keySet().contains(unknown)) {
-          costMap.put(unknown, new ArrayList<>());
-        }
-        costMap.get(unknown).add(cover);
+    private void select(int prime) {
+      activePrimes[prime >> 6] &= ~(1L << prime);
+      final var set = covers[prime];
+      for (var i = 0; i < remainingTerms.length; i++) remainingTerms[i] &= ~set[i];
+    }
+
+    /*
+     * A prime is dominated by another one if that one covers at least the same remaining terms.
+     * Of primes covering the same terms, the one with most unknowns is kept, or else the first one.
+     * Only the primes covering the first term of this one can dominate it.
+     */
+    private boolean isDominated(int prime, long[][] remaining, int[] counts) {
+      final var set = remaining[prime];
+      final var first = nextBit(set, 0);
+      if (first < 0) return true;
+      final var candidates = coveredBy[first];
+      for (var other = nextBit(candidates, 0); other >= 0; other = nextBit(candidates, other + 1)) {
+        if (other == prime || remaining[other] == null || counts[other] < counts[prime]) continue;
+        final var otherSet = remaining[other];
+        var subset = true;
+        for (var i = 0; i < set.length && subset; i++) subset = (set[i] & ~otherSet[i]) == 0;
+        if (!subset) continue;
+        if (counts[other] > counts[prime]) return true;
+        final var diff = unknowns(other) - unknowns(prime);
+        if (diff > 0 || (diff == 0 && other < prime)) return true;
       }
+      return false;
+    }
 
-      final var cheapestCovers = costMap.get(Collections.max(costMap.keySet()));
-      // TODO: Return all possible covers.
-      essentialPrimes.addAll(cheapestCovers.get(0));
+    /*
+     * Finds a cover of the remaining terms with the fewest primes, and of those the one with the
+     * most unknowns. A greedy cover is the first candidate; the search stops looking for a better
+     * one after a fixed number of steps, so cyclic charts of large functions stay fast.
+     */
+    List<Long> search() {
+      final var active = IntStream.range(0, primes.length).filter(this::isActive).toArray();
+      greedyCover(active);
+      nrOfCovers = new int[coveredBy.length];
+      for (var term = nextBit(remainingTerms, 0); term >= 0; term = nextBit(remainingTerms, term + 1)) {
+        nrOfCovers[term] = countAnd(coveredBy[term], activePrimes);
+      }
+      searchSteps = 0;
+      search(remainingTerms.clone(), new int[primes.length], 0, 0);
+      final var result = new ArrayList<Long>(bestCount);
+      for (var i = 0; i < bestCount; i++) result.add(bestCover[i]);
+      return result;
     }
 
-    // TODO: Return multiple minimal covers if present (Petrick's method)
-    return essentialPrimes;
+    // Repeatedly takes the prime covering most of the remaining terms.
+    private void greedyCover(int[] active) {
+      final var remaining = remainingTerms.clone();
+      final var gains = new int[primes.length];
+      for (final var prime : active) gains[prime] = countAnd(covers[prime], remaining);
+      final var cover = new LongList();
+      bestUnknowns = 0;
+      while (!isEmpty(remaining)) {
+        var best = -1;
+        for (final var prime : active) {
+          if (best < 0
+              || gains[prime] > gains[best]
+              || (gains[prime] == gains[best] && unknowns(prime) > unknowns(best))) {
+            best = prime;
+          }
+        }
+        cover.add(primes[best]);
+        bestUnknowns += unknowns(best);
+        final var set = covers[best];
+        for (var term = nextBit(set, 0); term >= 0; term = nextBit(set, term + 1)) {
+          if ((remaining[term >> 6] & (1L << term)) == 0) continue;
+          remaining[term >> 6] &= ~(1L << term);
+          final var candidates = coveredBy[term];
+          for (var prime = nextBit(candidates, 0); prime >= 0; prime = nextBit(candidates, prime + 1)) {
+            gains[prime]--;
+          }
+        }
+      }
+      bestCover = cover.toArray();
+      bestCount = bestCover.length;
+    }
+
+    private void search(long[] remaining, int[] chosen, int count, int unknowns) {
+      if (isEmpty(remaining)) {
+        // count cannot exceed bestCount here
+        if (count < bestCount || unknowns > bestUnknowns) {
+          bestCount = count;
+          bestUnknowns = unknowns;
+          bestCover = new long[count];
+          for (var i = 0; i < count; i++) bestCover[i] = primes[chosen[i]];
+        }
+        return;
+      }
+      if (count >= bestCount || ++searchSteps > SEARCH_LIMIT) return;
+      // branch on the term with the fewest primes left to cover it
+      var branchTerm = -1;
+      var fewest = Integer.MAX_VALUE;
+      for (var term = nextBit(remaining, 0); term >= 0 && fewest > 1; term = nextBit(remaining, term + 1)) {
+        if (nrOfCovers[term] < fewest) {
+          fewest = nrOfCovers[term];
+          branchTerm = term;
+        }
+      }
+      final var candidates = coveredBy[branchTerm];
+      for (var prime = nextBit(candidates, 0); prime >= 0; prime = nextBit(candidates, prime + 1)) {
+        if (!isActive(prime)) continue;
+        final var next = new long[remaining.length];
+        for (var i = 0; i < remaining.length; i++) next[i] = remaining[i] & ~covers[prime][i];
+        chosen[count] = prime;
+        search(next, chosen, count + 1, unknowns + unknowns(prime));
+      }
+    }
   }
 
   public static Expression toExpression(int format, AnalyzerModel model, List<Implicant> implicants) {
@@ -406,29 +579,14 @@ public class Implicant implements Comparable<Implicant> {
 
   static final Implicant MINIMAL_IMPLICANT = new Implicant(0, -1);
   static final List<Implicant> MINIMAL_LIST = Collections.singletonList(MINIMAL_IMPLICANT);
-  public static final int MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM = 6;
+  public static final int MAXIMAL_NR_OF_INPUTS_FOR_AUTO_MINIMAL_FORM = 12;
 
   final int unknowns;
   final int values;
-  final boolean isDontCare;
-  boolean isPrime = true;
-
-  private Implicant(int unknowns, int values) {
-    this.unknowns = unknowns;
-    this.values = values;
-    isDontCare = false;
-  }
 
-  private Implicant(int unknowns, int values, boolean dontCareTerm) {
+  Implicant(int unknowns, int values) {
     this.unknowns = unknowns;
     this.values = values;
-    isDontCare = dontCareTerm;
-  }
-
-  private Implicant(int values, boolean dontCareTerm) {
-    this.unknowns = 0;
-    this.values = values;
-    isDontCare = dontCareTerm;
   }
 
   @Override
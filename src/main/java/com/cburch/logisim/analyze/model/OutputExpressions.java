@@ -11,7 +11,6 @@ package com.cburch.logisim.analyze.model;
 
 import com.cburch.logisim.util.CollectionUtil;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -108,6 +107,7 @@ public class OutputExpressions {
   private class OutputData {
     String output;
     int format;
+    int minimizer;
     Expression expr = null;
     String exprString = null;
     List<Implicant> minimalImplicants = null;
@@ -145,13 +145,17 @@ public class OutputExpressions {
       return format;
     }
 
+    int getMinimizer() {
+      return minimizer;
+    }
+
     private void invalidate(boolean initializing, boolean formatChanged, JTextArea outputArea) {
       if (invalidating) return;
       invalidating = true;
       try {
         final var oldImplicants = minimalImplicants;
         final var oldMinExpr = minimalExpr;
-        minimalImplicants = Implicant.computeMinimal(format, model, output, outputArea);
+        minimalImplicants = Implicant.computeMinimal(format, minimizer, model, output, outputArea);
         minimalExpr = Implicant.toExpression(format, model, minimalImplicants);
         final var minChanged = !implicantsSame(oldImplicants, minimalImplicants);
 
@@ -161,9 +165,9 @@ public class OutputExpressions {
           final var table = model.getTruthTable();
           final var outputColumn = computeColumn(model.getTruthTable(), expr);
           final var outputIndex = model.getOutputs().bits.indexOf(output);
-          final var currentColumn = table.getOutputColumn(outputIndex);
-          if (!columnsMatch(currentColumn, outputColumn)
-              || isAllUndefined(outputColumn)
+          final var currentColumn = table.getPackedOutputColumn(outputIndex);
+          if ((currentColumn != null && !currentColumn.agreesWith(outputColumn))
+              || !outputColumn.hasDefinedEntries()
               || formatChanged) {
             // if not, then we need to change the expression to
             // maintain consistency
@@ -257,36 +261,19 @@ public class OutputExpressions {
         this.invalidate(false, true, null);
       }
     }
-  }
 
-  private static boolean columnsMatch(Entry[] a, Entry[] b) {
-    if (a.length != b.length) return false;
-    for (var i = 0; i < a.length; i++) {
-      if (a[i] != b[i]) {
-        final var bothDefined =
-            (a[i] == Entry.ZERO || a[i] == Entry.ONE) && (b[i] == Entry.ZERO || b[i] == Entry.ONE);
-        if (bothDefined) return false;
+    void setMinimizer(int value) {
+      if (minimizer != value) {
+        minimizer = value;
+        this.invalidate(false, false, null);
       }
     }
-    return true;
   }
 
-  private static Entry[] computeColumn(TruthTable table, Expression expr) {
+  private static PackedColumn computeColumn(TruthTable table, Expression expr) {
     final var rows = table.getRowCount();
-    final var cols = table.getInputColumnCount();
-    final var values = new Entry[rows];
-    if (expr == null) {
-      Arrays.fill(values, Entry.DONT_CARE);
-    } else {
-      final var assn = new Assignments();
-      for (var i = 0; i < rows; i++) {
-        for (var j = 0; j < cols; j++) {
-          assn.put(table.getInputHeader(j), TruthTable.isInputSet(i, j, cols));
-        }
-        values[i] = expr.evaluate(assn) ? Entry.ONE : Entry.ZERO;
-      }
-    }
-    return values;
+    if (expr == null) return new PackedColumn(rows);
+    return CompiledExpression.compile(expr, table).computeColumn(rows);
   }
 
   private static boolean implicantsSame(List<Implicant> a, List<Implicant> b) {
@@ -302,13 +289,6 @@ public class OutputExpressions {
     return true;
   }
 
-  private static boolean isAllUndefined(Entry[] a) {
-    for (final var entry : a) {
-      if (entry == Entry.ZERO || entry == Entry.ONE) return false;
-    }
-    return true;
-  }
-
   private final MyListener myListener = new MyListener();
 
   private final AnalyzerModel model;
@@ -326,10 +306,11 @@ public class OutputExpressions {
     model.getTruthTable().addTruthTableListener(myListener);
   }
 
-  public void forcedOptimize(JTextArea outtextArea, int format) {
+  public void forcedOptimize(JTextArea outtextArea, int format, int minimizer) {
     for (final var output : outputData.keySet()) {
       final var data = outputData.get(output);
       data.setMinimizedFormat(format);
+      data.minimizer = minimizer;
       data.invalidate(false, false, outtextArea);
     }
   }
@@ -404,6 +385,15 @@ public class OutputExpressions {
     }
   }
 
+  public int getMinimizer(String output) {
+    if (output == null) return AnalyzerModel.MINIMIZER_EXACT;
+    try {
+      return getOutputData(output, true).getMinimizer();
+    } catch (Exception e) {
+      return AnalyzerModel.MINIMIZER_EXACT;
+    }
+  }
+
   private OutputData getOutputData(String output, boolean create) {
     if (output == null) throw new IllegalArgumentException("null output name");
     var ret = outputData.get(output);
@@ -463,6 +453,12 @@ public class OutputExpressions {
     }
   }
 
+  public void setMinimizer(String output, int minimizer) {
+    if (minimizer != getMinimizer(output)) {
+      getOutputData(output, true).setMinimizer(minimizer);
+    }
+  }
+
   private boolean allowUpdates = false;
 
   public void enableUpdates() {
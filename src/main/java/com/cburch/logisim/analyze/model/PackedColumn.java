@@ -0,0 +1,158 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.BitSet;
+
+/**
+ * An output column of a truth table, packed into two bits per entry so that a column of a table
+ * with 20 inputs takes 256 KB. The codes are don't care (0, so a new column is all don't cares),
+ * zero, one and error. Oscillation errors are rare, so the rows holding one are kept in a separate
+ * set, and all other error codes stand for bus errors.
+ */
+final class PackedColumn {
+
+  private static final int DONT_CARE = 0;
+  private static final int ZERO = 1;
+  private static final int ONE = 2;
+  private static final int ERROR = 3;
+  private static final Entry[] ENTRIES = {Entry.DONT_CARE, Entry.ZERO, Entry.ONE, Entry.BUS_ERROR};
+
+  private final int length;
+  private final long[] bits; // 32 entries per long, entry i at bits 2i and 2i+1
+  private BitSet oscillating; // null as long as there are no oscillation errors
+
+  PackedColumn(int length) {
+    this.length = length;
+    bits = new long[(length + 31) >> 5];
+  }
+
+  static PackedColumn of(Entry[] values) {
+    final var column = new PackedColumn(values.length);
+    for (var i = 0; i < values.length; i++) column.set(i, values[i]);
+    return column;
+  }
+
+  private static int codeOf(Entry value) {
+    if (value == Entry.DONT_CARE) return DONT_CARE;
+    if (value == Entry.ZERO) return ZERO;
+    if (value == Entry.ONE) return ONE;
+    if (value != null && value.isError()) return ERROR;
+    throw new IllegalArgumentException("invalid output entry");
+  }
+
+  private int code(int idx) {
+    return (int) (bits[idx >> 5] >>> ((idx & 31) << 1)) & 3;
+  }
+
+  int length() {
+    return length;
+  }
+
+  Entry get(int idx) {
+    final var code = code(idx);
+    if (code == ERROR && oscillating != null && oscillating.get(idx)) return Entry.OSCILLATE_ERROR;
+    return ENTRIES[code];
+  }
+
+  /** Sets an entry, and returns whether it changed. */
+  boolean set(int idx, Entry value) {
+    final var code = codeOf(value);
+    if (code != ERROR && code == code(idx)) return false;
+    if (code == ERROR && get(idx) == value) return false;
+    final var shift = (idx & 31) << 1;
+    bits[idx >> 5] = (bits[idx >> 5] & ~(3L << shift)) | ((long) code << shift);
+    if (value == Entry.OSCILLATE_ERROR) {
+      if (oscillating == null) oscillating = new BitSet();
+      oscillating.set(idx);
+    } else if (oscillating != null) {
+      oscillating.clear(idx);
+    }
+    return true;
+  }
+
+  /** Returns whether two entries are the same. */
+  boolean same(int idx1, int idx2) {
+    final var code = code(idx1);
+    return code == code(idx2) && (code != ERROR || get(idx1) == get(idx2));
+  }
+
+  /** Returns whether the entry is a one. */
+  boolean isOne(int idx) {
+    return code(idx) == ONE;
+  }
+
+  /** Returns whether the entry is a zero. */
+  boolean isZero(int idx) {
+    return code(idx) == ZERO;
+  }
+
+  private static final long LOW_BITS = 0x5555555555555555L;
+
+  // Spreads the 32 bits of value to the even bits of a long.
+  private static long spread(long value) {
+    value &= 0xFFFFFFFFL;
+    value = (value | (value << 16)) & 0x0000FFFF0000FFFFL;
+    value = (value | (value << 8)) & 0x00FF00FF00FF00FFL;
+    value = (value | (value << 4)) & 0x0F0F0F0F0F0F0F0FL;
+    value = (value | (value << 2)) & 0x3333333333333333L;
+    return (value | (value << 1)) & LOW_BITS;
+  }
+
+  /**
+   * Sets the (up to) 64 entries starting at the given multiple of 64 to one or zero, as given by
+   * the bits of ones, the lowest bit for the first entry.
+   */
+  void setDefined(int firstRow, long ones) {
+    final var count = Math.min(64, length - firstRow);
+    if (count < 64) {
+      for (var i = 0; i < count; i++) {
+        set(firstRow + i, ((ones >>> i) & 1) != 0 ? Entry.ONE : Entry.ZERO);
+      }
+      return;
+    }
+    for (var half = 0; half < 2; half++) {
+      final var spread = spread(ones >>> (32 * half));
+      bits[(firstRow >> 5) + half] = (spread << 1) | (~spread & LOW_BITS); // ONE is 10, ZERO 01
+    }
+    if (oscillating != null) oscillating.clear(firstRow, firstRow + 64);
+  }
+
+  // The lanes of a word holding a one or a zero.
+  private static long defined(long word) {
+    return (word ^ (word >>> 1)) & LOW_BITS;
+  }
+
+  /** Returns whether some entry is a one or a zero. */
+  boolean hasDefinedEntries() {
+    for (final var word : bits) {
+      if (defined(word) != 0) return true;
+    }
+    return false;
+  }
+
+  /** Returns whether no entry is a one in this column and a zero in the other, or the reverse. */
+  boolean agreesWith(PackedColumn other) {
+    if (other.length != length) return false;
+    for (var i = 0; i < bits.length; i++) {
+      final var a = bits[i];
+      final var b = other.bits[i];
+      final var diff = a ^ b;
+      if ((defined(a) & defined(b) & diff & (diff >>> 1)) != 0) return false;
+    }
+    return true;
+  }
+
+  Entry[] toArray() {
+    final var values = new Entry[length];
+    for (var i = 0; i < length; i++) values[i] = get(i);
+    return values;
+  }
+}
@@ -11,10 +11,10 @@ package com.cburch.logisim.analyze.model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 public class TruthTable {
 
@@ -24,131 +24,100 @@ public class TruthTable {
   private final List<TruthTableListener> listeners = new ArrayList<>();
 
   private final AnalyzerModel model;
-  private ArrayList<Row> rows = new ArrayList<>(); // visible input rows
-  private final ArrayList<Entry[]> columns = new ArrayList<>(); // output columns
-  private static final CompareInputs sortByInputs = new CompareInputs();
-
-  private static class Row implements Iterable<Integer> {
-    // TODO: probably more efficient to store this in baseIdx/dcMask format.
-    final Entry[] inputs;
-
-    Row(int idx, int numInputs, int mask) {
-      inputs = new Entry[numInputs];
-      for (var i = numInputs - 1; i >= 0; i--) {
-        inputs[i] = (mask & 1) == 0 ? (idx & 1) == 0 ? Entry.ZERO : Entry.ONE : Entry.DONT_CARE;
-        idx = idx >> 1;
-        mask = mask >> 1;
-      }
+  // visible input rows, packed as base index << 32 | don't care mask and sorted by base index
+  private long[] rows = new long[0];
+  private int rowCount;
+  private final ArrayList<PackedColumn> columns = new ArrayList<>(); // output columns
+
+  private record Row(int baseIndex, int dcMask) implements Iterable<Integer> {
+    Row {
+      baseIndex &= ~dcMask;
     }
 
-    Row(Entry[] entries, int numInputs) {
-      inputs = new Entry[numInputs];
-      System.arraycopy(entries, 0, inputs, 0, numInputs);
+    Row(long packed) {
+      this((int) (packed >>> 32), (int) packed);
     }
 
-    public int baseIndex() {
+    static Row of(Entry[] entries, int numInputs) {
       var idx = 0;
-      for (final var input : inputs) idx = (idx << 1) | (input == Entry.ONE ? 1 : 0);
-      return idx;
+      var mask = 0;
+      for (var i = 0; i < numInputs; i++) {
+        idx = (idx << 1) | (entries[i] == Entry.ONE ? 1 : 0);
+        mask = (mask << 1) | (entries[i] == Entry.DONT_CARE ? 1 : 0);
+      }
+      return new Row(idx, mask);
     }
 
-    public int dcMask() {
-      var mask = 0;
-      for (final var input : inputs) mask = (mask << 1) | (input == Entry.DONT_CARE ? 1 : 0);
-      return mask;
+    long packed() {
+      return ((long) baseIndex << 32) | (dcMask & 0xFFFFFFFFL);
+    }
+
+    Entry input(int bit) {
+      if ((dcMask & bit) != 0) return Entry.DONT_CARE;
+      return (baseIndex & bit) != 0 ? Entry.ONE : Entry.ZERO;
     }
 
     public int duplicity() {
-      int count = 1;
-      for (Entry input : inputs) count *= (input == Entry.DONT_CARE ? 2 : 1);
-      return count;
+      return 1 << Integer.bitCount(dcMask);
     }
 
     @Override
     public String toString() {
-      final var s = new StringBuilder("row[");
-      for (var i = 0; i < inputs.length; i++) {
-        if (i != 0) s.append(" ");
-        s.append(inputs[i].getDescription());
-      }
-      s.append("]");
-      s.append(" dup=").append(duplicity());
-      s.append(String.format(" base=%x dcmask=%x", baseIndex(), dcMask()));
-      return s.toString();
+      return String.format("row[base=%x dcmask=%x dup=%d]", baseIndex, dcMask, duplicity());
     }
 
     public String toBitString(List<Var> vars) {
       final var s = new StringBuilder();
-      var i = 0;
+      var bit = 0;
+      for (final var variable : vars) bit += variable.width;
       for (final var variable : vars) {
         s.append(" ");
-        for (var j = 0; j < variable.width; j++) s.append(inputs[i++].toBitString());
+        for (var j = 0; j < variable.width; j++) s.append(input(1 << --bit).toBitString());
       }
       return s.toString();
     }
 
     public boolean contains(int idx) {
-      return (idx & ~dcMask()) == baseIndex();
+      return (idx & ~dcMask) == baseIndex;
     }
 
     public boolean contains(Row other) {
-      return contains(other.baseIndex()) && (other.dcMask() & ~dcMask()) == 0;
+      return contains(other.baseIndex) && (other.dcMask & ~dcMask) == 0;
     }
 
     public boolean intersects(Row other) {
-      final var dc = dcMask() | other.dcMask();
-      return (other.baseIndex() & ~dc) == (baseIndex() & ~dc);
+      final var dc = dcMask | other.dcMask;
+      return (other.baseIndex & ~dc) == (baseIndex & ~dc);
     }
 
     @Override
     public Iterator<Integer> iterator() {
       return new Iterator<>() {
-        final int base = baseIndex();
-        final int mask = dcMask();
-        final int nbits = inputs.length;
-        final int count = duplicity();
-        int iter = 0;
+        int sub = 0;
+        boolean done = false;
 
         @Override
         public boolean hasNext() {
-          return iter < count;
+          return !done;
         }
 
         @Override
         public Integer next() {
-          var add = iter;
-          var keep = 0;
-          for (var b = 0; b < nbits; b++) {
-            if ((mask & (1 << b)) == 0) {
-              add = ((add & ~keep) << 1) | (add & keep);
-            }
-            keep |= (1 << b);
-          }
-          iter++;
-          return base | add;
-        }
-
-        @Override
-        public void remove() {
-          throw new UnsupportedOperationException();
+          if (done) throw new NoSuchElementException();
+          final var idx = baseIndex | sub;
+          sub = (sub - dcMask) & dcMask; // next subset of the don't cares, in increasing order
+          done = sub == 0;
+          return idx;
         }
       };
     }
   }
 
-  public static class CompareInputs implements Comparator<Row> {
-    @Override
-    public int compare(Row r1, Row r2) {
-      return r1.baseIndex() - r2.baseIndex();
-    }
-  }
-
   private void initRows() {
-    final var inputs = getInputColumnCount();
     final var n = getRowCount();
-    rows.clear();
-    rows.ensureCapacity(n);
-    for (int i = 0; i < n; i++) rows.add(new Row(i, inputs, 0));
+    rows = new long[n];
+    for (var i = 0; i < n; i++) rows[i] = (long) i << 32;
+    rowCount = n;
   }
 
   private void initColumns() {
@@ -166,6 +135,48 @@ public class TruthTable {
     model.getOutputs().addVariableListListener(myListener);
   }
 
+  private Row rowAt(int row) {
+    return new Row(rows[Objects.checkIndex(row, rowCount)]);
+  }
+
+  private void setRows(long[] newRows, int count) {
+    Arrays.sort(newRows, 0, count);
+    rows = newRows;
+    rowCount = count;
+  }
+
+  // Position of the row with the given base index, or -(insertion point) - 1 if there is none.
+  private int findRowPosition(int base) {
+    final var pos = Arrays.binarySearch(rows, 0, rowCount, (long) base << 32);
+    if (pos >= 0) return pos;
+    final var next = -pos - 1;
+    return next < rowCount && (int) (rows[next] >>> 32) == base ? next : pos;
+  }
+
+  private void insertRow(Row r, String error) {
+    var pos = findRowPosition(r.baseIndex());
+    if (pos >= 0) throw new IllegalStateException(error);
+    pos = -pos - 1;
+    if (rowCount == rows.length) rows = Arrays.copyOf(rows, Math.max(16, 2 * rowCount));
+    System.arraycopy(rows, pos, rows, pos + 1, rowCount - pos);
+    rows[pos] = r.packed();
+    rowCount++;
+  }
+
+  private void removeRow(int pos) {
+    System.arraycopy(rows, pos + 1, rows, pos, rowCount - pos - 1);
+    rowCount--;
+  }
+
+  private PackedColumn createColumn(int col) {
+    var column = columns.get(col);
+    if (column == null) {
+      column = new PackedColumn(getRowCount());
+      columns.set(col, column);
+    }
+    return column;
+  }
+
   public void expandVisibleRows() {
     if (getVisibleRowCount() == getRowCount()) return;
     initRows();
@@ -174,116 +185,102 @@ public class TruthTable {
 
   public void compactVisibleRows() {
     final var partition = Implicant.computePartition(model);
-    rows.clear();
-    initColumns();
-    final var ni = getInputColumnCount();
-    final var no = getOutputColumnCount();
-    for (final var it : partition.entrySet()) {
-      final var imp = it.getKey();
-      final var val = it.getValue();
-      final var r = new Row(imp.values, ni, imp.unknowns);
-      rows.add(r);
-      for (var col = 0; col < no; col++) {
-        final var value = Entry.parse("" + val.charAt(col));
-        var column = columns.get(col);
-        if (column == null && value == DEFAULT_ENTRY) continue;
-        else if (column == null) column = getOutputColumn(col);
-        for (Integer idx : r) {
-          column[idx] = value;
-        }
+    final var newRows = new long[partition.size()];
+    var count = 0;
+    for (final var imp : partition.keySet()) {
+      final var r = new Row(imp.values, imp.unknowns);
+      newRows[count++] = r.packed();
+      // the partition only joins rows with the same outputs, this just makes sure of it
+      for (final var column : columns) {
+        if (column == null) continue;
+        final var value = column.get(r.baseIndex());
+        for (final int idx : r) column.set(idx, value);
       }
     }
+    setRows(newRows, count);
     fireRowsChanged();
-    for (var col = 0; col < no; col++) {
+    for (var col = 0; col < columns.size(); col++) {
       if (columns.get(col) != null) fireCellsChanged(col);
     }
   }
 
   public void setOutputColumn(int col, Entry[] values) {
     if (values.length != getRowCount()) throw new IllegalArgumentException("bad column length");
-    final var oldValues = columns.set(col, values);
-    if (oldValues == values) return;
-    // Expand rows as dictated by column inconsistencies
+    setOutputColumn(col, PackedColumn.of(values));
+  }
+
+  void setOutputColumn(int col, PackedColumn column) {
+    if (column.length() != getRowCount()) throw new IllegalArgumentException("bad column length");
+    columns.set(col, column);
+    // Expand rows as dictated by column inconsistencies: halve each row until all of its entries
+    // are the same, putting the second halves at the end to be checked in turn
     var rowsChanged = false;
-    for (var i = rows.size() - 1; i >= 0; i--) {
-      final var r = rows.get(i);
+    for (var i = 0; i < rowCount; i++) {
+      final var r = new Row(rows[i]);
       final var base = r.baseIndex();
-      final var v = values[base];
-      var split = true;
-      while (split) {
-        split = false;
-        for (final var idx : r) {
-          if (v != values[idx]) {
-            splitRow(r, idx);
-            rowsChanged = true;
-            split = true;
-            break;
-          }
-        }
+      for (final int idx : r) {
+        if (column.same(base, idx)) continue;
+        final var bit = Integer.highestOneBit(idx ^ base);
+        final var mask = r.dcMask() & ~bit;
+        rows[i--] = new Row(base, mask).packed();
+        if (rowCount == rows.length) rows = Arrays.copyOf(rows, 2 * rowCount);
+        rows[rowCount++] = new Row(base | bit, mask).packed();
+        rowsChanged = true;
+        break;
       }
     }
-    if (rowsChanged) fireRowsChanged();
+    if (rowsChanged) {
+      setRows(rows, rowCount);
+      fireRowsChanged();
+    }
     fireCellsChanged(col);
   }
 
   void splitRow(Row r, int idx) {
     final var base = r.baseIndex();
     if (idx == base || !r.contains(idx)) throw new IllegalArgumentException("bad row split");
+    final var pos = findRowPosition(base);
+    if (pos < 0 || rows[pos] != r.packed()) throw new IllegalStateException("missing row");
     final var diff = idx ^ base;
-    final var n = r.duplicity();
-    if (n <= 1) throw new IllegalStateException("row duplicity should be at least 2");
-    final var splits = new Row(base, r.inputs.length, diff);
-    var m = 0;
-    rows.remove(r);
-    for (final var other : splits) {
-      final var s = new Row(other, r.inputs.length, r.dcMask() & ~diff);
-      m += s.duplicity();
-      int pos = Collections.binarySearch(rows, s, sortByInputs);
-      if (pos < 0) rows.add(-pos - 1, s);
-      else throw new IllegalStateException("unexpected row split");
+    removeRow(pos);
+    for (final int other : new Row(base, diff)) {
+      insertRow(new Row(other, r.dcMask() & ~diff), "unexpected row split");
     }
-    if (m != n) throw new IllegalStateException("assertion failed in row split");
   }
 
   public Entry getVisibleOutputEntry(int row, int col) {
-    final var r = rows.get(row);
-    final var idx = r.baseIndex();
-    return getOutputEntry(idx, col);
+    return getOutputEntry(rowAt(row).baseIndex(), col);
   }
 
   public Entry getOutputEntry(int idx, int col) {
     if (idx < 0 || col < 0) return DEFAULT_ENTRY;
     final var column = columns.get(col);
-    return (column == null ? DEFAULT_ENTRY : idx < column.length ? column[idx] : DEFAULT_ENTRY);
+    return column == null || idx >= column.length() ? DEFAULT_ENTRY : column.get(idx);
   }
 
   public String getVisibleOutputs(int row) {
-    final var r = rows.get(row);
-    final var idx = r.baseIndex();
+    final var idx = rowAt(row).baseIndex();
     final var s = new StringBuilder();
-    for (Entry[] column : columns) {
-      s.append((column == null ? DEFAULT_ENTRY : column[idx]).getDescription());
+    for (final var column : columns) {
+      s.append((column == null ? DEFAULT_ENTRY : column.get(idx)).getDescription());
     }
     return s.toString();
   }
 
   public Entry getVisibleInputEntry(int row, int col) {
-    final var r = rows.get(row);
-    return r.inputs[col];
+    return rowAt(row).input(1 << (getInputColumnCount() - 1 - col));
   }
 
   public int getVisibleRowDcMask(int row) {
-    final var r = rows.get(row);
-    return r.dcMask();
+    return rowAt(row).dcMask();
   }
 
   public int getVisibleRowIndex(int row) {
-    final var r = rows.get(row);
-    return r.baseIndex();
+    return rowAt(row).baseIndex();
   }
 
   public Iterable<Integer> getVisibleRowIndexes(int row) {
-    return rows.get(row);
+    return rowAt(row);
   }
 
   public Entry getInputEntry(int idx, int col) {
@@ -297,23 +294,27 @@ public class TruthTable {
     return (idx & (1 << (inputs - col - 1))) != 0;
   }
 
+  /** Returns a copy of an output column, with an entry for each input combination. */
   public Entry[] getOutputColumn(int col) {
-    var column = columns.get(col);
-    if (column == null) {
-      if (col < 0 || col >= getOutputColumnCount())
-        throw new IndexOutOfBoundsException("bad output column index");
-      column = new Entry[getRowCount()];
-      Arrays.fill(column, DEFAULT_ENTRY);
-      columns.set(col, column);
-    }
-    return column;
+    if (col < 0 || col >= getOutputColumnCount())
+      throw new IndexOutOfBoundsException("bad output column index");
+    final var column = columns.get(col);
+    if (column != null) return column.toArray();
+    final var values = new Entry[getRowCount()];
+    Arrays.fill(values, DEFAULT_ENTRY);
+    return values;
+  }
+
+  /** Returns an output column in its packed form, or null if it holds only don't cares. */
+  PackedColumn getPackedOutputColumn(int col) {
+    return columns.get(col);
   }
 
   private boolean identicalOutputs(int idx1, int idx2) {
     if (idx1 == idx2) return true;
     for (final var column : columns) {
       if (column == null) continue;
-      if (column[idx1] != column[idx2]) return false;
+      if (!column.same(idx1, idx2)) return false;
     }
     return true;
   }
@@ -323,49 +324,41 @@ public class TruthTable {
     for (var col = 0; col < columns.size(); col++) {
       final var column = columns.get(col);
       if (column == null) continue;
-      if (column[idx1] != column[idx2]) {
-        column[idx2] = column[idx1];
-        changed[col] = true;
-      }
+      if (column.set(idx2, column.get(idx1))) changed[col] = true;
     }
   }
 
   private boolean setDontCare(Row r, int dc, boolean force, boolean[] changed) {
-    final var newRow = new Row(r.baseIndex(), r.inputs.length, r.dcMask() | dc);
+    final var newRow = new Row(r.baseIndex(), r.dcMask() | dc);
     final var base = newRow.baseIndex();
     if (!force) {
-      for (final var idx : newRow) {
+      for (final int idx : newRow) {
         if (!identicalOutputs(base, idx)) return false;
       }
     }
-    for (var i = 0; i < rows.size(); i++) {
-      final var row = rows.get(i);
+    for (var i = 0; i < rowCount; i++) {
+      final var row = new Row(rows[i]);
       if (!newRow.intersects(row)) continue;
       if (newRow.contains(row)) {
-        for (final var idx : row) mergeOutputs(base, idx, changed);
-        rows.remove(i);
+        for (final int idx : row) mergeOutputs(base, idx, changed);
+        removeRow(i);
       } else {
         // find a bit we can flip in s so it doesn't conflict
-        int pos;
-        for (pos = row.inputs.length - 1; pos >= 0; pos--) {
-          if (row.inputs[pos] == Entry.DONT_CARE && newRow.inputs[pos] != Entry.DONT_CARE) break;
-        }
-        if (pos < 0) throw new IllegalStateException("failed row merge");
-        int bit = (1 << (row.inputs.length - 1 - pos));
-        splitRow(row, row.baseIndex() ^ bit);
+        final var bits = row.dcMask() & ~newRow.dcMask();
+        if (bits == 0) throw new IllegalStateException("failed row merge");
+        splitRow(row, row.baseIndex() ^ Integer.lowestOneBit(bits));
       }
       i--; // back up, may need a second split
     }
-    final var pos = Collections.binarySearch(rows, newRow, sortByInputs);
-    if (pos < 0) rows.add(-pos - 1, newRow);
-    else throw new IllegalStateException("failed row merge");
+    insertRow(newRow, "failed row merge");
     return true;
   }
 
   public boolean setVisibleInputEntry(int row, int col, Entry value, boolean force) {
-    final var r = rows.get(row);
-    if (r.inputs[col] == value) return false;
-    final var dc = (1 << (r.inputs.length - 1 - col));
+    final var r = rowAt(row);
+    final var dc = (1 << (getInputColumnCount() - 1 - col));
+    final var current = r.input(dc);
+    if (current == value) return false;
     if (value == Entry.DONT_CARE) {
       final var changed = new boolean[columns.size()];
       if (!setDontCare(r, dc, force, changed)) return false;
@@ -375,7 +368,7 @@ public class TruthTable {
       }
       return true;
     } else if (value == Entry.ONE || value == Entry.ZERO) {
-      if (r.inputs[col] != Entry.DONT_CARE) return false;
+      if (current != Entry.DONT_CARE) return false;
       splitRow(r, r.baseIndex() | dc);
       fireRowsChanged();
       return true;
@@ -385,31 +378,22 @@ public class TruthTable {
   }
 
   public void setVisibleOutputEntry(int row, int col, Entry value) {
-    final var r = rows.get(row);
-    var column = columns.get(col);
-    if (column == null && value == DEFAULT_ENTRY) return;
-    else if (column == null) column = getOutputColumn(col);
+    final var r = rowAt(row);
+    if (columns.get(col) == null && value == DEFAULT_ENTRY) return;
+    final var column = createColumn(col);
     var changed = false;
-    for (Integer idx : r) {
-      if (column[idx] == value) continue;
-      changed = true;
-      column[idx] = value;
-    }
+    for (final int idx : r) changed |= column.set(idx, value);
     if (changed) fireCellsChanged(col);
   }
 
   Row findRow(int idx) {
-    for (var i = rows.size() - 1; i >= 0; i--) {
-      final var r = rows.get(i);
-      if (r.contains(idx)) return r;
-    }
-    throw new IllegalStateException("missing row");
+    return rowAt(findVisibleRowContaining(idx));
   }
 
   public int findVisibleRowContaining(int idx) {
-    for (var i = rows.size() - 1; i >= 0; i--) {
-      final var r = rows.get(i);
-      if (r.contains(idx)) return i;
+    for (var i = rowCount - 1; i >= 0; i--) {
+      final var packed = rows[i];
+      if ((idx & ~(int) packed) == (int) (packed >>> 32)) return i;
     }
     throw new IllegalStateException("missing row");
   }
@@ -420,14 +404,14 @@ public class TruthTable {
     final var newRows = new ArrayList<Row>(newEntries.size());
     for (final var values : newEntries) {
       if (values.length != ni + no) throw new IllegalArgumentException("wrong column count");
-      newRows.add(new Row(values, ni));
+      newRows.add(Row.of(values, ni));
     }
     // check that newRows has no intersections
     final var ivars = getInputVariables();
     final var taken = new int[getRowCount()];
     for (int i = 0; i < newRows.size(); i++) {
       final var r = newRows.get(i);
-      for (final var idx : r) {
+      for (final int idx : r) {
         if (taken[idx] != 0 && !force) {
           final var existingValues = newEntries.get(taken[idx] - 1);
           final var currentValues = newEntries.get(i);
@@ -462,25 +446,25 @@ public class TruthTable {
         throw new IllegalArgumentException(
             String.format(
                 "Some inputs are missing." + " For example, there is no row for input %s.",
-                new Row(i, ni, 0).toBitString(ivars)));
+                new Row(i, 0).toBitString(ivars)));
       } else if (taken[i] == 0) {
-        newRows.add(new Row(i, ni, 0));
+        newRows.add(new Row(i, 0));
       }
     }
 
-    newRows.sort(sortByInputs);
-    rows.clear();
-    rows = newRows;
+    final var packed = new long[newRows.size()];
+    for (var i = 0; i < packed.length; i++) packed[i] = newRows.get(i).packed();
+    setRows(packed, packed.length);
     initColumns();
 
-    for (Entry[] values : newEntries) {
-      final var r = new Row(values, ni);
+    for (var i = 0; i < newEntries.size(); i++) {
+      final var values = newEntries.get(i);
+      final var r = newRows.get(i);
       for (var col = 0; col < no; col++) {
         final var value = values[ni + col];
-        var column = columns.get(col);
-        if (column == null && value == DEFAULT_ENTRY) continue;
-        else if (column == null) column = getOutputColumn(col);
-        for (final var idx : r) column[idx] = value;
+        if (columns.get(col) == null && value == DEFAULT_ENTRY) continue;
+        final var column = createColumn(col);
+        for (final int idx : r) column.set(idx, value);
       }
     }
     fireRowsChanged();
@@ -490,14 +474,16 @@ public class TruthTable {
   }
 
   public void setOutputEntry(int idx, int col, Entry value) {
-    var column = columns.get(col);
-    if (column == null && value == DEFAULT_ENTRY) return;
-    else if (column == null) column = getOutputColumn(col);
-    if (column[idx] == value) return;
-    column[idx] = value;
-    final var r = findRow(idx);
+    if (columns.get(col) == null && value == DEFAULT_ENTRY) return;
+    if (!createColumn(col).set(idx, value)) return;
+    var r = findRow(idx);
     if (r.duplicity() > 1) {
-      splitRow(r, idx);
+      // halve the row until the entry has a row of its own
+      while (r.dcMask() != 0) {
+        final var bit = Integer.highestOneBit(r.dcMask());
+        splitRow(r, r.baseIndex() | bit);
+        r = new Row(idx, r.dcMask() & ~bit);
+      }
       fireRowsChanged();
     }
     fireCellsChanged(col);
@@ -608,8 +594,9 @@ public class TruthTable {
       final var moveDist = Math.abs(newIndex - oldIndex);
       final var moveLeft = newIndex > oldIndex;
       final var blockMask = allMask ^ sameMask ^ moveMask; // bits that move by one
-      ArrayList<Row> ret = new ArrayList<>(2 * rows.size());
-      for (final var row : rows) {
+      final var ret = new long[rowCount];
+      for (var r = 0; r < rowCount; r++) {
+        final var row = new Row(rows[r]);
         final var i = row.baseIndex();
         final var dc = row.dcMask();
         int idx0;
@@ -621,27 +608,27 @@ public class TruthTable {
           idx0 = (i & sameMask) | ((i & moveMask) >> moveDist) | ((i & blockMask) << 1);
           dc0 = (dc & sameMask) | ((dc & moveMask) >> moveDist) | ((dc & blockMask) << 1);
         }
-        ret.add(new Row(idx0, inputs, dc0));
+        ret[r] = new Row(idx0, dc0).packed();
       }
-      ret.sort(sortByInputs);
-      rows = ret;
+      setRows(ret, ret.length);
     }
 
     private void addInput(int index, int oldCount) {
-      // add another Entry column to each row.input
-      final var ret = new ArrayList<Row>(2 * rows.size());
-      for (final var row : rows) {
+      // add another bit to each row, making two rows of each
+      final var ret = new long[2 * rowCount];
+      var count = 0;
+      for (var r = 0; r < rowCount; r++) {
+        final var row = new Row(rows[r]);
         final var i = row.baseIndex();
         final var dc = row.dcMask();
         final var b = 1 << (oldCount - index); // _0001000
         var mask = b - 1; // _0000111
         final var idx0 = ((i & ~mask) << 1) | 0 | (i & mask); // xxxx0yyy
         final var dc0 = ((dc & ~mask) << 1) | 0 | (dc & mask); // wwww0zzz
-        ret.add(new Row(idx0 | 0, oldCount + 1, dc0)); // xxxx0yyy
-        ret.add(new Row(idx0 | b, oldCount + 1, dc0)); // xxxx1yyy
+        ret[count++] = new Row(idx0 | 0, dc0).packed(); // xxxx0yyy
+        ret[count++] = new Row(idx0 | b, dc0).packed(); // xxxx1yyy
       }
-      ret.sort(sortByInputs);
-      rows = ret;
+      setRows(ret, count);
     }
 
     private void removeInput(int index, int oldCount) {
@@ -650,25 +637,25 @@ public class TruthTable {
       final var changed = new boolean[columns.size()];
       // loop rows by index to avoid java.util.ConcurrentModificationException
       //noinspection ForLoopReplaceableByForEach
-      for (var i = 0; i < rows.size(); ++i) {
-        final var r = rows.get(i);
-        if (r.inputs[index] == Entry.DONT_CARE) continue;
-        setDontCare(r, b, true, changed); // mutates row
+      for (var i = 0; i < rowCount; ++i) {
+        final var r = new Row(rows[i]);
+        if ((r.dcMask() & b) != 0) continue;
+        setDontCare(r, b, true, changed); // mutates rows
       }
       final var mask = b - 1; // _0000111
-      final var ret = new ArrayList<Row>(rows.size());
-      for (final var r : rows) {
+      final var ret = new long[rowCount];
+      for (var j = 0; j < rowCount; j++) {
+        final var r = new Row(rows[j]);
         final var i = r.baseIndex();
         final var dc = r.dcMask();
         final var idx0 = ((i >> 1) & ~mask) | (i & mask); // __xxxyyy
         final var dc0 = ((dc >> 1) & ~mask) | (dc & mask); // wwww0zzz
-        ret.add(new Row(idx0, oldCount - 1, dc0));
+        ret[j] = new Row(idx0, dc0).packed();
       }
-      ret.sort(sortByInputs);
-      rows = ret;
+      setRows(ret, ret.length);
     }
 
-    private Entry[] inputsChangedForOutput(Entry[] column, VariableListEvent event) {
+    private PackedColumn inputsChangedForOutput(PackedColumn column, VariableListEvent event) {
       final var v = event.getVariable();
       final var action = event.getType();
       if (action == VariableListEvent.ADD) {
@@ -706,52 +693,51 @@ public class TruthTable {
       return column;
     }
 
-    private Entry[] moveInputForOutput(Entry[] old, int oldIndex, int newIndex) {
+    private PackedColumn moveInputForOutput(PackedColumn old, int oldIndex, int newIndex) {
       final var inputs = getInputColumnCount();
       oldIndex = inputs - 1 - oldIndex;
       newIndex = inputs - 1 - newIndex;
-      final var ret = new Entry[old.length];
+      final var ret = new PackedColumn(old.length());
       final var sameMask =
-          (old.length - 1)
+          (old.length() - 1)
               ^ ((1 << (1 + Math.max(oldIndex, newIndex))) - 1)
               ^ ((1 << Math.min(oldIndex, newIndex)) - 1); // bits that don't change
       final var moveMask = 1 << oldIndex; // bit that moves
       final var moveDist = Math.abs(newIndex - oldIndex);
       final var moveLeft = newIndex > oldIndex;
-      final var blockMask = (old.length - 1) ^ sameMask ^ moveMask; // bits that move by one
-      for (var i = 0; i < old.length; i++) {
+      final var blockMask = (old.length() - 1) ^ sameMask ^ moveMask; // bits that move by one
+      for (var i = 0; i < old.length(); i++) {
         int j; // new index
         if (moveLeft) {
           j = (i & sameMask) | ((i & moveMask) << moveDist) | ((i & blockMask) >> 1);
         } else {
           j = (i & sameMask) | ((i & moveMask) >> moveDist) | ((i & blockMask) << 1);
         }
-        ret[j] = old[i];
+        ret.set(j, old.get(i));
       }
       return ret;
     }
 
-    private Entry[] removeInputForOutput(Entry[] old, int index, int oldCount) {
-      var ret = new Entry[old.length / 2];
+    private PackedColumn removeInputForOutput(PackedColumn old, int index, int oldCount) {
+      final var ret = new PackedColumn(old.length() / 2);
       var j = 0;
       final var mask = 1 << (oldCount - 1 - index);
-      for (var i = 0; i < old.length; i++) {
+      for (var i = 0; i < old.length(); i++) {
         if ((i & mask) == 0) {
-          Entry e0 = old[i];
-          Entry e1 = old[i | mask];
-          ret[j++] = (e0 == e1 ? e0 : Entry.DONT_CARE);
+          ret.set(j++, old.same(i, i | mask) ? old.get(i) : Entry.DONT_CARE);
         }
       }
       return ret;
     }
 
-    private Entry[] addInputForOutput(Entry[] old, int index, int oldCount) {
-      final var ret = new Entry[2 * old.length];
+    private PackedColumn addInputForOutput(PackedColumn old, int index, int oldCount) {
+      final var ret = new PackedColumn(2 * old.length());
       final var b = 1 << (oldCount - index); // _0001000
       final var mask = b - 1; // _0000111
-      for (var i = 0; i < old.length; i++) {
-        ret[((i & ~mask) << 1) | 0 | (i & mask)] = old[i]; // xxxx0yyy
-        ret[((i & ~mask) << 1) | b | (i & mask)] = old[i]; // xxxx1yyy
+      for (var i = 0; i < old.length(); i++) {
+        final var value = old.get(i);
+        ret.set(((i & ~mask) << 1) | 0 | (i & mask), value); // xxxx0yyy
+        ret.set(((i & ~mask) << 1) | b | (i & mask), value); // xxxx1yyy
       }
       return ret;
     }
@@ -831,6 +817,6 @@ public class TruthTable {
   }
 
   public int getVisibleRowCount() {
-    return rows.size();
+    return rowCount;
   }
 }
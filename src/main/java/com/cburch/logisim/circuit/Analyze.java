@@ -12,6 +12,7 @@ package com.cburch.logisim.circuit;
 import static com.cburch.logisim.circuit.Strings.S;
 
 import com.cburch.logisim.analyze.model.AnalyzerModel;
+import com.cburch.logisim.analyze.model.Bdd;
 import com.cburch.logisim.analyze.model.Entry;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
@@ -30,13 +31,19 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.Predicate;
 
 public class Analyze {
+  // the number of nodes at which computeBdds first reorders the variables
+  private static final int REORDER_NODE_COUNT = 1 << 16;
+
   public static class LocationBit {
     final Location loc;
     final int bit;
@@ -62,9 +69,9 @@ public class Analyze {
   private static class ExpressionMap extends HashMap<LocationBit, Expression> implements ExpressionComputer.Map {
     private static final long serialVersionUID = 1L;
     private final Circuit circuit;
-    private final Set<LocationBit> dirtyPoints = new HashSet<>();
+    final Set<LocationBit> dirtyPoints = new HashSet<>();
     private final Map<LocationBit, Component> causes = new HashMap<>();
-    private Component currentCause = null;
+    Component currentCause = null;
 
     ExpressionMap(Circuit circuit) {
       this.circuit = circuit;
@@ -91,6 +98,76 @@ public class Analyze {
     }
   }
 
+  /**
+   * An expression map whose expressions are all variables named after a node of a decision
+   * diagram. The expression a component puts is turned into a node right away, so it never spans
+   * more than one component, however deep the circuit. Each node held by the map is referenced.
+   */
+  private static class BddMap extends ExpressionMap {
+    private static final long serialVersionUID = 1L;
+    private final transient Bdd bdd;
+    private final transient Expression.Visitor<Integer> toNode;
+
+    BddMap(Circuit circuit, Bdd bdd) {
+      super(circuit);
+      this.bdd = bdd;
+      toNode =
+          new Expression.Visitor<>() {
+            @Override
+            public Integer visitVariable(String name) {
+              return Integer.parseInt(name);
+            }
+
+            @Override
+            public Integer visitConstant(int value) {
+              if (value != 0 && value != 1) throw new UnsupportedOperationException();
+              return value == 1 ? Bdd.ONE : Bdd.ZERO;
+            }
+
+            @Override
+            public Integer visitNot(Expression a) {
+              return bdd.not(a.visit(this));
+            }
+
+            @Override
+            public Integer visitBinary(Expression a, Expression b, Expression.Op op) {
+              final int f = a.visit(this);
+              final int g = b.visit(this);
+              return switch (op) {
+                case AND -> bdd.and(f, g);
+                case OR -> bdd.or(f, g);
+                case XOR -> bdd.xor(f, g);
+                case XNOR, EQ -> bdd.xnor(f, g);
+                default -> throw new UnsupportedOperationException();
+              };
+            }
+          };
+    }
+
+    Expression signal(int node) {
+      return Expressions.variable(Integer.toString(node));
+    }
+
+    int node(Expression signal) {
+      return signal.visit(toNode);
+    }
+
+    @Override
+    public Expression put(LocationBit point, Expression expression) {
+      if (expression == null) return super.put(point, null);
+      final var node = bdd.ref(node(expression));
+      final var ret = super.put(point, signal(node));
+      if (ret != null) bdd.deref(node(ret));
+      return ret;
+    }
+
+    void release() {
+      for (final var signal : values()) {
+        if (signal != null) bdd.deref(node(signal));
+      }
+    }
+  }
+
   /**
    * Checks whether any of the recently placed expressions in the expression map are
    * self-referential; if so, return it.
@@ -247,6 +324,252 @@ public class Analyze {
     }
   }
 
+  //
+  // computeBdds
+  //
+  /**
+   * Returns the decision diagrams of the output bits of a combinational circuit, by bit name, or
+   * raises AnalyzeException if difficulties arise. The input bits are the variables given for
+   * their names. Unlike computeExpression, each component is only evaluated once, in the order of
+   * the signals, and the signals are shared nodes rather than expression trees, so that wide
+   * circuits do not blow up. The variables are reordered when the diagrams grow. The returned
+   * nodes are referenced; output bits that are not driven are left out.
+   */
+  public static Map<String, Integer> computeBdds(
+      Bdd bdd, Circuit circuit, Map<Instance, String> pinNames, Map<String, Integer> variables)
+      throws AnalyzeException {
+    final var components = sortComponents(circuit);
+    final var bddMap = new BddMap(circuit, bdd);
+    try {
+      for (final var entry : pinNames.entrySet()) {
+        final var pin = entry.getKey();
+        if (!Pin.FACTORY.isInputPin(pin)) continue;
+        final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+        final var variable = new Var(entry.getValue(), width);
+        bddMap.currentCause = Instance.getComponentFor(pin);
+        for (var b = 0; b < variable.width; b++) {
+          final var v = variables.get(variable.bitName(b));
+          if (v == null) throw new AnalyzeException(S.get("analyzePinMismatchError"));
+          bddMap.put(new LocationBit(pin.getLocation(), b), bddMap.signal(bdd.variable(v)));
+        }
+      }
+      propagateWires(bddMap, new HashSet<>(bddMap.dirtyPoints));
+      bddMap.dirtyPoints.clear();
+
+      var reorderLimit = REORDER_NODE_COUNT;
+      for (final var comp : components) {
+        propagateComponents(bddMap, List.of(comp));
+        propagateWires(bddMap, new HashSet<>(bddMap.dirtyPoints));
+        bddMap.dirtyPoints.clear();
+        if (bdd.getNodeCount() > reorderLimit) {
+          bdd.reorder();
+          reorderLimit = Math.max(reorderLimit, 2 * bdd.getNodeCount());
+        }
+      }
+
+      final var outputs = new LinkedHashMap<String, Integer>();
+      for (final var entry : pinNames.entrySet()) {
+        final var pin = entry.getKey();
+        if (Pin.FACTORY.isInputPin(pin)) continue;
+        final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+        final var variable = new Var(entry.getValue(), width);
+        for (var b = 0; b < variable.width; b++) {
+          final var signal = bddMap.get(new LocationBit(pin.getLocation(), b));
+          if (signal != null) outputs.put(variable.bitName(b), bdd.ref(bddMap.node(signal)));
+        }
+      }
+      return outputs;
+    } finally {
+      bddMap.release();
+    }
+  }
+
+  /**
+   * An input assignment, by bit name, for which an output bit of a circuit differs from the
+   * reference it was checked against.
+   */
+  public record Difference(String output, Map<String, Boolean> inputs) {}
+
+  //
+  // checkEquivalence
+  //
+  /**
+   * Checks whether two combinational circuits compute the same outputs from the same inputs,
+   * matching their pins by label. Returns null if they do, and else an assignment for which they
+   * differ, or raises AnalyzeException if either cannot be analyzed.
+   */
+  public static Difference checkEquivalence(Circuit circuit, Circuit reference)
+      throws AnalyzeException {
+    final var pinNames = getPinLabels(circuit);
+    final var referenceNames = getPinLabels(reference);
+    final var inputs = getBitNames(pinNames, true);
+    final var outputs = getBitNames(pinNames, false);
+    if (!new HashSet<>(inputs).equals(new HashSet<>(getBitNames(referenceNames, true)))
+        || !new HashSet<>(outputs).equals(new HashSet<>(getBitNames(referenceNames, false)))) {
+      throw new AnalyzeException(S.get("analyzePinMismatchError"));
+    }
+
+    final var bdd = new Bdd(inputs.size());
+    final var variables = new HashMap<String, Integer>();
+    for (final var name : inputs) variables.put(name, variables.size());
+    final var nodes = computeBdds(bdd, circuit, pinNames, variables);
+    final var referenceNodes = computeBdds(bdd, reference, referenceNames, variables);
+    for (final var name : outputs) {
+      final var f = getOutput(nodes, name);
+      final var g = getOutput(referenceNodes, name);
+      if (f != g) return getDifference(bdd, name, bdd.xor(f, g), inputs);
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether a combinational circuit computes the outputs of the truth table of a model,
+   * matching the pins to the columns by name; the circuit may compute anything where the table
+   * does not hold a zero or a one. Returns null if it does, and else an assignment for which the
+   * circuit differs from the table, or raises AnalyzeException if the circuit cannot be analyzed.
+   */
+  public static Difference checkEquivalence(Circuit circuit, AnalyzerModel model)
+      throws AnalyzeException {
+    final var table = model.getTruthTable();
+    final var pinNames = getPinLabels(circuit);
+    final var inputs = new ArrayList<String>();
+    for (var col = 0; col < table.getInputColumnCount(); col++) {
+      inputs.add(table.getInputHeader(col));
+    }
+    final var outputs = new ArrayList<String>();
+    for (var col = 0; col < table.getOutputColumnCount(); col++) {
+      outputs.add(table.getOutputHeader(col));
+    }
+    if (!new HashSet<>(inputs).equals(new HashSet<>(getBitNames(pinNames, true)))
+        || !new HashSet<>(outputs).equals(new HashSet<>(getBitNames(pinNames, false)))) {
+      throw new AnalyzeException(S.get("analyzePinMismatchError"));
+    }
+
+    // the table goes first, while the variables are still in the order of its columns
+    final var bdd = new Bdd(inputs.size());
+    final var ones = new int[outputs.size()];
+    final var cares = new int[outputs.size()];
+    for (var col = 0; col < outputs.size(); col++) {
+      ones[col] = bdd.ref(computeBdd(bdd, table, col, entry -> entry == Entry.ONE, 0, 0));
+      cares[col] =
+          bdd.ref(
+              computeBdd(
+                  bdd, table, col, entry -> entry == Entry.ONE || entry == Entry.ZERO, 0, 0));
+    }
+    final var variables = new HashMap<String, Integer>();
+    for (final var name : inputs) variables.put(name, variables.size());
+    final var nodes = computeBdds(bdd, circuit, pinNames, variables);
+    for (var col = 0; col < outputs.size(); col++) {
+      final var name = outputs.get(col);
+      final var diff = bdd.and(bdd.xor(getOutput(nodes, name), ones[col]), cares[col]);
+      if (diff != Bdd.ZERO) return getDifference(bdd, name, diff, inputs);
+    }
+    return null;
+  }
+
+  // Returns the diagram of the rows from base on, taking the inputs from the given column on,
+  // where the output column holds an entry that passes the test.
+  private static int computeBdd(
+      Bdd bdd, TruthTable table, int output, Predicate<Entry> test, int input, int base) {
+    final var inputs = table.getInputColumnCount();
+    if (input == inputs) return test.test(table.getOutputEntry(base, output)) ? Bdd.ONE : Bdd.ZERO;
+    final var half = 1 << (inputs - input - 1);
+    final var low = computeBdd(bdd, table, output, test, input + 1, base);
+    final var high = computeBdd(bdd, table, output, test, input + 1, base + half);
+    return bdd.ite(bdd.variable(input), high, low);
+  }
+
+  private static List<String> getBitNames(Map<Instance, String> pinNames, boolean inputs) {
+    final var names = new ArrayList<String>();
+    for (final var entry : pinNames.entrySet()) {
+      final var pin = entry.getKey();
+      if (Pin.FACTORY.isInputPin(pin) != inputs) continue;
+      final var width = pin.getAttributeValue(StdAttr.WIDTH).getWidth();
+      for (final var name : new Var(entry.getValue(), width)) names.add(name);
+    }
+    return names;
+  }
+
+  private static int getOutput(Map<String, Integer> nodes, String name) throws AnalyzeException {
+    final var node = nodes.get(name);
+    if (node == null) throw new AnalyzeException(S.get("analyzeFloatingOutputError", name));
+    return node;
+  }
+
+  private static Difference getDifference(Bdd bdd, String output, int diff, List<String> inputs) {
+    final var values = bdd.getSatisfyingAssignment(diff);
+    final var assignment = new LinkedHashMap<String, Boolean>();
+    for (var v = 0; v < inputs.size(); v++) assignment.put(inputs.get(v), values[v] == 1);
+    return new Difference(output, assignment);
+  }
+
+  // Returns the components in an order in which each comes after those driving its inputs, or
+  // raises Circular if there is a loop. A component whose output feeds back into any of its own
+  // inputs, even on another bit, counts as a loop.
+  private static List<Component> sortComponents(Circuit circuit) throws AnalyzeException {
+    final var components = new ArrayList<Component>();
+    final var indexes = new HashMap<Component, Integer>();
+    for (final var comp : circuit.getNonWires()) {
+      // splitters are part of the wires, and texts are not connected
+      final var factory = comp.getFactory();
+      if (factory instanceof SplitterFactory || factory instanceof Text) continue;
+      indexes.put(comp, components.size());
+      components.add(comp);
+    }
+    final var successors = new ArrayList<Set<Integer>>();
+    final var predecessorCounts = new int[components.size()];
+    for (final var comp : components) {
+      final var targets = new HashSet<Integer>();
+      for (final var end : comp.getEnds()) {
+        if (!end.isOutput()) continue;
+        for (var b = 0; b < end.getWidth().getWidth(); b++) {
+          for (final var point : getConnectedPoints(circuit, end.getLocation(), b)) {
+            for (final var other : circuit.getNonWires(point)) {
+              final var otherEnd = other.getEnd(point);
+              final var index = indexes.get(other);
+              if (index == null || otherEnd == null || !otherEnd.isInput()) continue;
+              if (other == comp && point.equals(end.getLocation())) continue;
+              if (targets.add(index)) predecessorCounts[index]++;
+            }
+          }
+        }
+      }
+      successors.add(targets);
+    }
+
+    final var sorted = new ArrayList<Component>();
+    final var ready = new ArrayList<Integer>();
+    for (var i = 0; i < components.size(); i++) {
+      if (predecessorCounts[i] == 0) ready.add(i);
+    }
+    while (!ready.isEmpty()) {
+      final int i = ready.remove(ready.size() - 1);
+      sorted.add(components.get(i));
+      for (final var j : successors.get(i)) {
+        if (--predecessorCounts[j] == 0) ready.add(j);
+      }
+    }
+    if (sorted.size() < components.size()) throw new AnalyzeException.Circular();
+    return sorted;
+  }
+
+  // Returns the points a bit of a signal reaches through the wires, including the point itself.
+  private static List<Location> getConnectedPoints(Circuit circuit, Location loc, int bit) {
+    final var points = new ArrayList<Location>();
+    points.add(loc);
+    final var bundle = circuit.wires.getWireBundle(loc);
+    if (bundle != null && bundle.isValid() && bundle.threads != null
+        && bit < bundle.threads.length) {
+      final var t = bundle.threads[bit];
+      for (var i = 0; i < t.steps; i++) {
+        for (final var p2 : t.bundle[i].xpoints) {
+          if (!p2.equals(loc)) points.add(p2);
+        }
+      }
+    }
+    return points;
+  }
+
   // computes outputs of affected components
   private static HashSet<Component> getDirtyComponents(Circuit circuit, Set<LocationBit> pointsToProcess) {
     final var dirtyComponents = new HashSet<Component>();
@@ -65,6 +65,18 @@ import java.util.TreeSet;
 import java.util.WeakHashMap;
 
 public class Circuit {
+  /**
+   * Builds the content of a circuit whose file was read without it, see {@link
+   * #setContentLoader(ContentLoader)}.
+   */
+  public interface ContentLoader {
+    /** Returns the circuits and VHDL entities that the content uses. */
+    Collection<?> getDependencies();
+
+    /** Adds the components, wires and appearance to the circuit. */
+    void load();
+  }
+
   private class EndChangedTransaction extends CircuitTransaction {
     private final Component comp;
     private final Map<Location, EndData> toRemove;
@@ -287,12 +299,15 @@ public class Circuit {
   private final List<Component> clocks = new ArrayList<>();
   private final CircuitLocker locker;
 
-  private final WeakHashMap<Component, Circuit> circuitsUsingThis;
+  // synchronized, as the circuits of a file are built in parallel
+  private final Map<Component, Circuit> circuitsUsingThis;
   private final Netlist myNetList;
   private final Map<String, MappableResourcesContainer> myMappableResources;
   private final Map<String, Map<String, CircuitMapInfo>> loadedMaps;
   private boolean isAnnotated;
   private Project proj;
+  private volatile ContentLoader contentLoader;
+  private Thread loadingThread;
   private final SocSimulationManager socSim = new SocSimulationManager();
 
   private final LogisimFile logiFile;
@@ -302,7 +317,7 @@ public class Circuit {
     appearance = new CircuitAppearance(this);
     subcircuitFactory = new SubcircuitFactory(this);
     locker = new CircuitLocker();
-    circuitsUsingThis = new WeakHashMap<>();
+    circuitsUsingThis = Collections.synchronizedMap(new WeakHashMap<>());
     myNetList = new Netlist(this);
     myMappableResources = new HashMap<>();
     loadedMaps = new HashMap<>();
@@ -326,6 +341,41 @@ public class Circuit {
     return CircuitLabelValidator.labelIdentityForHdlType(AppPreferences.HdlType.get());
   }
 
+  /**
+   * Defers building the content of the circuit until it is first needed: displayed, simulated,
+   * saved, exported or used as a subcircuit.
+   */
+  public void setContentLoader(ContentLoader loader) {
+    contentLoader = loader;
+  }
+
+  public boolean isLoaded() {
+    return contentLoader == null;
+  }
+
+  /** Returns the circuits and VHDL entities that the content still to be built uses. */
+  public Collection<?> getPendingDependencies() {
+    final var loader = contentLoader;
+    return loader == null ? Collections.emptyList() : loader.getDependencies();
+  }
+
+  /** Builds the content of the circuit, if it was deferred and is not built yet. */
+  public void ensureLoaded() {
+    if (contentLoader != null) loadContent();
+  }
+
+  private synchronized void loadContent() {
+    // The thread building the content reads the circuit while doing so
+    if (contentLoader == null || loadingThread == Thread.currentThread()) return;
+    loadingThread = Thread.currentThread();
+    try {
+      contentLoader.load();
+    } finally {
+      contentLoader = null;
+      loadingThread = null;
+    }
+  }
+
   public SocSimulationManager getSocSimulationManager() {
     return socSim;
   }
@@ -474,6 +524,7 @@ public class Circuit {
   }
 
   public boolean contains(Component c) {
+    ensureLoaded();
     return comps.contains(c) || wires.getWires().contains(c);
   }
 
@@ -521,6 +572,7 @@ public class Circuit {
   // Graphics methods
   //
   public void draw(ComponentDrawContext context, Collection<Component> hidden) {
+    ensureLoaded();
     if (context.isPrintView()) {
       AppPreferences.runWithPrintViewColors(() -> drawComponents(context, hidden));
     } else {
@@ -579,6 +631,7 @@ public class Circuit {
   }
 
   public Collection<Component> getAllContaining(Location pt) {
+    ensureLoaded();
     final var ret = new LinkedHashSet<Component>();
     for (final var comp : getComponents()) {
       if (comp.contains(pt)) ret.add(comp);
@@ -587,6 +640,7 @@ public class Circuit {
   }
 
   public Collection<Component> getAllContaining(Location pt, Graphics g) {
+    ensureLoaded();
     final var ret = new LinkedHashSet<Component>();
     for (final var comp : getComponents()) {
       if (comp.contains(pt, g)) ret.add(comp);
@@ -595,6 +649,7 @@ public class Circuit {
   }
 
   public Collection<Component> getAllWithin(Bounds bds) {
+    ensureLoaded();
     final var ret = new LinkedHashSet<Component>();
     for (final var comp : getComponents()) {
       if (bds.contains(comp.getBounds())) ret.add(comp);
@@ -603,6 +658,7 @@ public class Circuit {
   }
 
   public Collection<Component> getAllWithin(Bounds bds, Graphics g) {
+    ensureLoaded();
     final var ret = new LinkedHashSet<Component>();
     for (final var comp : getComponents()) {
       if (bds.contains(comp.getBounds(g))) ret.add(comp);
@@ -611,10 +667,12 @@ public class Circuit {
   }
 
   public CircuitAppearance getAppearance() {
+    ensureLoaded();
     return appearance;
   }
 
   public Bounds getBounds() {
+    ensureLoaded();
     final var wireBounds = wires.getWireBounds();
     final var it = comps.iterator();
     if (!it.hasNext()) return wireBounds;
@@ -643,6 +701,7 @@ public class Circuit {
   }
 
   public Bounds getBounds(Graphics g) {
+    ensureLoaded();
     final var ret = wires.getWireBounds();
     var xMin = ret.getX();
     var yMin = ret.getY();
@@ -672,7 +731,7 @@ public class Circuit {
   }
 
   public Collection<Circuit> getCircuitsUsingThis() {
-    return circuitsUsingThis.values();
+    return new ArrayList<>(circuitsUsingThis.values());
   }
 
   public void removeComponent(Component c) {
@@ -680,18 +739,22 @@ public class Circuit {
   }
 
   public List<Component> getClocks() {
+    ensureLoaded();
     return clocks;
   }
 
   public Set<Component> getComponents() {
+    ensureLoaded();
     return CollectionUtil.createUnmodifiableSetUnion(comps, wires.getWires());
   }
 
   public Collection<? extends Component> getComponents(Location loc) {
+    ensureLoaded();
     return wires.points.getComponents(loc);
   }
 
   public Component getExclusive(Location loc) {
+    ensureLoaded();
     return wires.points.getExclusive(loc);
   }
 
@@ -707,6 +770,7 @@ public class Circuit {
   }
 
   public Netlist getNetList() {
+    ensureLoaded();
     return myNetList;
   }
 
@@ -751,10 +815,12 @@ public class Circuit {
   }
 
   public Set<Component> getNonWires() {
+    ensureLoaded();
     return comps;
   }
 
   public Collection<? extends Component> getNonWires(Location loc) {
+    ensureLoaded();
     return wires.points.getNonWires(loc);
   }
 
@@ -763,10 +829,12 @@ public class Circuit {
   }
 
   public Collection<? extends Component> getSplitCauses(Location loc) {
+    ensureLoaded();
     return wires.points.getSplitCauses(loc);
   }
 
   public Set<Location> getAllLocations() {
+    ensureLoaded();
     return wires.points.getAllLocations();
   }
 
@@ -779,26 +847,32 @@ public class Circuit {
   }
 
   public BitWidth getWidth(Location p) {
+    ensureLoaded();
     return wires.getWidth(p);
   }
 
   public Set<WidthIncompatibilityData> getWidthIncompatibilityData() {
+    ensureLoaded();
     return wires.getWidthIncompatibilityData();
   }
 
   public Set<Wire> getWires() {
+    ensureLoaded();
     return wires.getWires();
   }
 
   public Collection<Wire> getWires(Location loc) {
+    ensureLoaded();
     return wires.points.getWires(loc);
   }
 
   public WireSet getWireSet(Wire start) {
+    ensureLoaded();
     return wires.getWireSet(start);
   }
 
   public boolean hasConflict(Component comp) {
+    ensureLoaded();
     return wires.points.hasConflict(comp) || isDoubleMapped(comp);
   }
 
@@ -821,6 +895,7 @@ public class Circuit {
   }
 
   public boolean isConnected(Location loc, Component ignore) {
+    ensureLoaded();
     for (final var o : wires.points.getComponents(loc)) {
       if (o != ignore) return true;
     }
@@ -828,6 +903,7 @@ public class Circuit {
   }
 
   void mutatorAdd(Component c) {
+    ensureLoaded();
     locker.checkForWritePermission("add", this);
 
     isAnnotated = false;
@@ -888,6 +964,7 @@ public class Circuit {
   }
 
   public void mutatorClear() {
+    ensureLoaded();
     locker.checkForWritePermission("clear", this);
 
     final var oldComps = comps;
@@ -905,6 +982,7 @@ public class Circuit {
   }
 
   void mutatorRemove(Component c) {
+    ensureLoaded();
     locker.checkForWritePermission("remove", this);
 
     isAnnotated = false;
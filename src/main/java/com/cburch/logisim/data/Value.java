@@ -492,6 +492,19 @@ public final class Value {
     return width;
   }
 
+  // Raw bit masks, such that create_unsafe(width, error, unknown, value) recreates this value.
+  public long getErrorMask() {
+    return error;
+  }
+
+  public long getUnknownMask() {
+    return unknown;
+  }
+
+  public long getValueMask() {
+    return value;
+  }
+
   @Override
   public int hashCode() {
     return Value.hashcode(width, error, unknown, value);
@@ -13,50 +13,203 @@ import static com.cburch.logisim.file.Strings.S;
 
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.util.LineBuffer;
+import com.cburch.logisim.util.UniquelyNamedThread;
+import com.cburch.logisim.util.ZipClassLoader;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
-
+import javax.swing.SwingUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the libraries loaded from .circ and .jar files, so that all the projects that use the same
+ * file share a single {@link LoadedLibrary}. The libraries are found by the canonical path of their
+ * file, and are held by soft references, so that they outlive the projects using them for as long
+ * as memory allows. Each file is stamped with its size, modification time and hash when it is read;
+ * a library is read again when it is loaded or its file is reported by the file system to have
+ * changed, but only if the content of the file is actually different.
+ */
 public final class LibraryManager {
+  static final Logger logger = LoggerFactory.getLogger(LibraryManager.class);
 
   public static final LibraryManager instance = new LibraryManager();
 
   public static final char DESC_SEP = '#';
-  private final HashMap<LibraryDescriptor, WeakReference<LoadedLibrary>> fileMap;
+  private final HashMap<LibraryDescriptor, SoftReference<LoadedLibrary>> fileMap;
   private final WeakHashMap<LoadedLibrary, LibraryDescriptor> invMap;
+  /** The last loader that loaded each library, which is used to reload it when its file changes. */
+  private final WeakHashMap<LoadedLibrary, WeakReference<Loader>> loaders = new WeakHashMap<>();
+  /** The stamps of the library files when they were last read, by canonical file. */
+  private final HashMap<File, FileStamp> stamps = new HashMap<>();
+  /** The class loaders of the jar files, by canonical file. */
+  private final HashMap<File, JarClassLoader> classLoaders = new HashMap<>();
+  private LibraryWatcher watcher;
+
+  /** The size, modification time and content hash of a file. */
+  private static final class FileStamp {
+    private final long size;
+    private final long modified;
+    private final byte[] hash;
+
+    private FileStamp(long size, long modified, byte[] hash) {
+      this.size = size;
+      this.modified = modified;
+      this.hash = hash;
+    }
+
+    /** Returns the stamp of a file, or null if it cannot be read. */
+    static FileStamp of(File file) {
+      final var size = file.length();
+      final var modified = file.lastModified();
+      try (final var in =
+          new DigestInputStream(
+              Files.newInputStream(file.toPath()), MessageDigest.getInstance("SHA-256"))) {
+        in.transferTo(OutputStream.nullOutputStream());
+        return new FileStamp(size, modified, in.getMessageDigest().digest());
+      } catch (IOException | NoSuchAlgorithmException e) {
+        return null;
+      }
+    }
+
+    /**
+     * Returns the stamp of the file as it is now. This is the stamp itself if neither the size nor
+     * the modification time of the file changed, so that the file is only hashed again if it may
+     * have changed.
+     */
+    FileStamp refresh(File file) {
+      if (file.length() == size && file.lastModified() == modified) return this;
+      return of(file);
+    }
+
+    boolean sameContent(FileStamp other) {
+      return other != null && size == other.size && Arrays.equals(hash, other.hash);
+    }
+  }
+
+  private record JarClassLoader(FileStamp stamp, ZipClassLoader loader) {}
+
+  /**
+   * Watches the directories of the library files, and hands the files that changed to {@link
+   * #fileChanged} on the event dispatch thread. Saving a file usually gives several events in a
+   * row, so the files are only looked at once the events stopped for a moment.
+   */
+  private final class LibraryWatcher extends UniquelyNamedThread {
+    private static final long SETTLE_TIME = 200; // ms
+    private final WatchService service;
+    private final Set<Path> files = ConcurrentHashMap.newKeySet();
+    private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+
+    LibraryWatcher(WatchService service) {
+      super("LibraryWatcher");
+      this.service = service;
+      setDaemon(true);
+    }
+
+    void watch(File file) {
+      final var path = file.toPath();
+      final var dir = path.getParent();
+      if (dir == null || !files.add(path)) return;
+      directories.computeIfAbsent(
+          dir,
+          d -> {
+            try {
+              return d.register(
+                  service,
+                  StandardWatchEventKinds.ENTRY_CREATE,
+                  StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+              logger.debug("Cannot watch {}: {}", d, e.toString());
+              return null;
+            }
+          });
+    }
+
+    @Override
+    public void run() {
+      final var changed = new LinkedHashSet<Path>();
+      try {
+        while (true) {
+          var key = service.take();
+          while (key != null) {
+            final var dir = (Path) key.watchable();
+            for (final var event : key.pollEvents()) {
+              if (event.context() instanceof Path name && files.contains(dir.resolve(name))) {
+                changed.add(dir.resolve(name));
+              }
+            }
+            key.reset();
+            key = service.poll(SETTLE_TIME, TimeUnit.MILLISECONDS);
+          }
+          for (final var path : changed) {
+            final var file = path.toFile();
+            final var stamp = FileStamp.of(file);
+            if (stamp != null) SwingUtilities.invokeLater(() -> fileChanged(file, stamp));
+          }
+          changed.clear();
+        }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        // stop watching
+      }
+    }
+  }
 
   private static class JarDescriptor implements LibraryDescriptor {
     private final File file;
+    private final File canonicalFile;
     private final String className;
 
     JarDescriptor(File file, String className) {
       this.file = file;
+      this.canonicalFile = canonical(file);
       this.className = className;
     }
 
+    @Override
+    public File getCanonicalFile() {
+      return canonicalFile;
+    }
+
     @Override
     public boolean concernsFile(File query) {
-      return file.equals(query);
+      return canonicalFile.equals(canonical(query));
     }
 
     @Override
     public boolean equals(Object other) {
       return (other instanceof JarDescriptor o)
-             ? this.file.equals(o.file) && this.className.equals(o.className)
+             ? this.canonicalFile.equals(o.canonicalFile) && this.className.equals(o.className)
              : false;
     }
 
     @Override
     public int hashCode() {
-      return file.hashCode() * 31 + className.hashCode();
+      return canonicalFile.hashCode() * 31 + className.hashCode();
     }
 
     @Override
@@ -71,6 +224,8 @@ public final class LibraryManager {
   }
 
   private interface LibraryDescriptor {
+    File getCanonicalFile();
+
     boolean concernsFile(File query);
 
     void setBase(Loader loader, LoadedLibrary lib) throws LoadFailedException;
@@ -80,26 +235,33 @@ public final class LibraryManager {
 
   private static class LogisimProjectDescriptor implements LibraryDescriptor {
     private final File file;
+    private final File canonicalFile;
 
     public LogisimProjectDescriptor(File file) {
       this.file = file;
+      this.canonicalFile = canonical(file);
+    }
+
+    @Override
+    public File getCanonicalFile() {
+      return canonicalFile;
     }
 
     @Override
     public boolean concernsFile(File query) {
-      return file.equals(query);
+      return canonicalFile.equals(canonical(query));
     }
 
     @Override
     public boolean equals(Object other) {
       return (other instanceof LogisimProjectDescriptor o)
-             ? this.file.equals(o.file)
+             ? this.canonicalFile.equals(o.canonicalFile)
              : false;
     }
 
     @Override
     public int hashCode() {
-      return file.hashCode();
+      return canonicalFile.hashCode();
     }
 
     @Override
@@ -119,6 +281,14 @@ public final class LibraryManager {
     ProjectsDirty.initialize();
   }
 
+  private static File canonical(File file) {
+    try {
+      return file.getCanonicalFile();
+    } catch (IOException e) {
+      return file.getAbsoluteFile();
+    }
+  }
+
   private static String toRelative(Loader loader, File file) {
     final var currentDirectory = loader.getCurrentDirectory();
     var fileName = file.toString();
@@ -229,8 +399,12 @@ public final class LibraryManager {
   public LoadedLibrary loadJarLibrary(Loader loader, File toRead, String className) {
     final var jarDescriptor = new JarDescriptor(toRead, className);
     var ret = findKnown(jarDescriptor);
-    if (ret != null) return ret;
+    if (ret != null) {
+      if (!isUnchanged(jarDescriptor.getCanonicalFile())) reload(loader, ret);
+      return ret;
+    }
 
+    final var stamp = FileStamp.of(jarDescriptor.getCanonicalFile());
     try {
       ret = new LoadedLibrary(loader.loadJarFile(toRead, className));
     } catch (LoadFailedException e) {
@@ -238,8 +412,35 @@ public final class LibraryManager {
       return null;
     }
 
-    fileMap.put(jarDescriptor, new WeakReference<>(ret));
+    fileMap.put(jarDescriptor, new SoftReference<>(ret));
     invMap.put(ret, jarDescriptor);
+    loaded(loader, ret, jarDescriptor, stamp);
+    return ret;
+  }
+
+  /**
+   * Returns the class loader of a jar file. The libraries of a jar share it, so that the classes in
+   * the jar are only read and defined once; a new one is made if the content of the jar changed.
+   */
+  synchronized ClassLoader getClassLoader(File jar) {
+    final var key = canonical(jar);
+    final var known = classLoaders.get(key);
+    if (known != null) {
+      final var current = known.stamp().refresh(key);
+      if (known.stamp().sameContent(current)) {
+        if (current != known.stamp()) {
+          classLoaders.put(key, new JarClassLoader(current, known.loader()));
+        }
+        return known.loader();
+      }
+    }
+    final var stamp = FileStamp.of(key);
+    final var ret = new ZipClassLoader(key);
+    if (stamp == null) {
+      classLoaders.remove(key);
+    } else {
+      classLoaders.put(key, new JarClassLoader(stamp, ret));
+    }
     return ret;
   }
 
@@ -332,8 +533,12 @@ public final class LibraryManager {
   public LoadedLibrary loadLogisimLibrary(Loader loader, File toRead) {
     final var descriptor = new LogisimProjectDescriptor(toRead);
     var ret = findKnown(descriptor);
-    if (ret != null) return ret;
+    if (ret != null) {
+      if (!isUnchanged(descriptor.getCanonicalFile())) reload(loader, ret);
+      return ret;
+    }
 
+    final var stamp = FileStamp.of(descriptor.getCanonicalFile());
     try {
       ret = new LoadedLibrary(loader.loadLogisimFile(toRead));
     } catch (LoadFailedException e) {
@@ -341,8 +546,9 @@ public final class LibraryManager {
       return null;
     }
 
-    fileMap.put(descriptor, new WeakReference<>(ret));
+    fileMap.put(descriptor, new SoftReference<>(ret));
     invMap.put(ret, descriptor);
+    loaded(loader, ret, descriptor, stamp);
     return ret;
   }
 
@@ -351,10 +557,70 @@ public final class LibraryManager {
     if (descriptor == null) {
       loader.showError(S.get("unknownLibraryFileError", lib.getDisplayName()));
     } else {
+      final var stamp = FileStamp.of(descriptor.getCanonicalFile());
       try {
         descriptor.setBase(loader, lib);
       } catch (LoadFailedException e) {
         loader.showError(e.getMessage());
+        return;
+      }
+      loaded(loader, lib, descriptor, stamp);
+    }
+  }
+
+  // Records that a library was read from its file, as it was when it had the given stamp.
+  private void loaded(
+      Loader loader, LoadedLibrary lib, LibraryDescriptor descriptor, FileStamp stamp) {
+    final var file = descriptor.getCanonicalFile();
+    loaders.put(lib, new WeakReference<>(loader));
+    if (stamp == null) {
+      stamps.remove(file);
+      return;
+    }
+    stamps.put(file, stamp);
+    if (watcher == null) {
+      try {
+        watcher = new LibraryWatcher(FileSystems.getDefault().newWatchService());
+        watcher.start();
+      } catch (IOException | UnsupportedOperationException e) {
+        logger.debug("Library files are not watched: {}", e.toString());
+        return;
+      }
+    }
+    watcher.watch(file);
+  }
+
+  // Returns true if a library file has the content it had when it was last read. A new
+  // modification time alone, as left by touching the file or by saving it unchanged, does not
+  // count.
+  private boolean isUnchanged(File file) {
+    final var stamp = stamps.get(file);
+    if (stamp == null) return true;
+    final var current = stamp.refresh(file);
+    if (!stamp.sameContent(current)) return false;
+    stamps.put(file, current);
+    return true;
+  }
+
+  // Reloads the libraries of a file the watcher saw change, if its content is really different.
+  private void fileChanged(File file, FileStamp current) {
+    final var stamp = stamps.get(file);
+    if (stamp == null) return;
+    if (stamp.sameContent(current)) {
+      stamps.put(file, current);
+      return;
+    }
+    for (final var descriptor : new ArrayList<>(fileMap.keySet())) {
+      if (!descriptor.getCanonicalFile().equals(file)) continue;
+      final var lib = findKnown(descriptor);
+      if (lib == null) continue;
+      final var loaderRef = loaders.get(lib);
+      final var loader = loaderRef == null ? null : loaderRef.get();
+      if (loader != null) {
+        loader.reload(lib);
+      } else {
+        // nothing uses it any more; it is read again when it is needed
+        fileMap.remove(descriptor);
       }
     }
   }
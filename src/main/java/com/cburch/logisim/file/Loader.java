@@ -10,20 +10,29 @@
 package com.cburch.logisim.file;
 
 import static com.cburch.logisim.file.Strings.S;
+import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.gui.generic.OptionPane;
 import com.cburch.logisim.std.Builtin;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.util.JFileChoosers;
-import com.cburch.logisim.util.ZipClassLoader;
+import com.cburch.logisim.util.UniquelyNamedThread;
 import com.cburch.logisim.vhdl.file.HdlFile;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -33,6 +42,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import com.cburch.logisim.util.LineBuffer;
 import java.util.zip.ZipOutputStream;
 
@@ -41,7 +57,9 @@ import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileFilter;
+import javax.xml.parsers.ParserConfigurationException;
 
 public class Loader implements LibraryLoader {
   private static class JarFileFilter extends FileFilter {
@@ -143,6 +161,17 @@ public class Loader implements LibraryLoader {
   public static final FileFilter TCL_FILTER = new TclFileFilter();
   public static final FileFilter VHDL_FILTER = new VhdlFileFilter();
 
+  // Writes the files saved one after the other. It is not a daemon thread, so that a file being
+  // written is complete before the application exits, and it ends once idle.
+  private static final ExecutorService SAVER =
+      new ThreadPoolExecutor(
+          0,
+          1,
+          10,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          r -> new UniquelyNamedThread(r, "FileSaver"));
+
   private Component parent;
   private final Builtin builtin = new Builtin();
   // to be cleared with each new file
@@ -157,20 +186,6 @@ public class Loader implements LibraryLoader {
     clear();
   }
 
-  private static File determineBackupName(File base) {
-    final var dir = base.getParentFile();
-    var name = base.getName();
-    if (name.endsWith(LOGISIM_EXTENSION)) {
-      name = name.substring(0, name.length() - LOGISIM_EXTENSION.length());
-    }
-    for (var i = 1; i <= 20; i++) {
-      final var ext = i == 1 ? ".bak" : (".bak" + i);
-      final var candidate = new File(dir, name + ext);
-      if (!candidate.exists()) return candidate;
-    }
-    return null;
-  }
-
   // Determine the autosave file name for any .circ file as .<basename>.circ.autosave
   private static File determineAutosaveName(File base) {
     if (base == null) {
@@ -194,15 +209,6 @@ public class Loader implements LibraryLoader {
     return Optional.of(as);
   }
 
-  private static void recoverBackup(File backup, File dest) {
-    if (backup != null && backup.exists()) {
-      // FIXME: recovery will fail if delete() failed
-      if (dest.exists()) dest.delete();
-      // FIXME: renameTo() can fail. We need to tell the user if so
-      backup.renameTo(dest);
-    }
-  }
-
   //
   // more substantive methods accessed from outside this package
   //
@@ -271,8 +277,8 @@ public class Loader implements LibraryLoader {
   Library loadJarFile(File request, String className) throws LoadFailedException {
     final var actual = getSubstitution(request);
 
-    // Anyway, here's the line for this new version:
-    final var loader = new ZipClassLoader(actual);
+    // The class loader is shared by all the libraries of the jar
+    final var loader = LibraryManager.instance.getClassLoader(actual);
 
     // load library class from loader
     Class<?> retClass;
@@ -443,7 +449,86 @@ public class Loader implements LibraryLoader {
     zipFile = file;
   }
 
+  /**
+   * Saves a file, and returns once it is written. The file is written by the thread writing the
+   * files saved in the background, after the ones under way.
+   */
   public boolean save(LogisimFile file, File dest) {
+    if (!startSave(file, dest)) return false;
+    final var oldFile = getMainFile();
+    setMainFile(dest);
+    Throwable error = null;
+    try {
+      final var snapshot = XmlWriter.snapshot(file, this, dest, null, false);
+      SAVER
+          .submit(
+              () -> {
+                writeAtomically(snapshot, dest);
+                return null;
+              })
+          .get();
+    } catch (ExecutionException e) {
+      error = e.getCause();
+    } catch (IOException
+        | LoadFailedException
+        | ParserConfigurationException
+        | InterruptedException e) {
+      error = e;
+    }
+    return finishSave(file, dest, oldFile, error);
+  }
+
+  /**
+   * Saves a file without keeping the event dispatch thread busy longer than needed: the circuits
+   * whose content was not built yet are built, and the file is written, by another thread. Only
+   * the snapshot of the file is taken on the event dispatch thread, right after which {@code
+   * captured} runs there, so it sees the file as it is saved.
+   *
+   * @return A future that completes on the event dispatch thread, with whether the file was saved
+   */
+  public CompletableFuture<Boolean> saveInBackground(
+      LogisimFile file, File dest, Runnable captured) {
+    if (!startSave(file, dest)) return CompletableFuture.completedFuture(false);
+    final var oldFile = getMainFile();
+    setMainFile(dest);
+    final var unloaded = getUnloadedCircuits(file);
+    return CompletableFuture.runAsync(() -> unloaded.forEach(Circuit::ensureLoaded), SAVER)
+        .thenApplyAsync(
+            ignored -> {
+              try {
+                final var snapshot = XmlWriter.snapshot(file, this, dest, null, false);
+                captured.run();
+                return snapshot;
+              } catch (IOException | LoadFailedException | ParserConfigurationException e) {
+                throw new CompletionException(e);
+              }
+            },
+            SwingUtilities::invokeLater)
+        .thenAcceptAsync(snapshot -> writeOrFail(snapshot, dest), SAVER)
+        .handleAsync(
+            (ignored, error) ->
+                finishSave(
+                    file,
+                    dest,
+                    oldFile,
+                    error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error),
+            SwingUtilities::invokeLater);
+  }
+
+  /** Waits for the files saved in the background, whose snapshot is taken, to be written. */
+  public static void waitForSaves() {
+    try {
+      SAVER.submit(() -> {}).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException ignored) {
+      // nothing to wait for anymore
+    }
+  }
+
+  private boolean startSave(LogisimFile file, File dest) {
     file.interruptAutosaveThread(); // Notify autosave thread of save
     final var reference = LibraryManager.instance.findReference(file, dest);
     if (reference != null) {
@@ -454,79 +539,43 @@ public class Loader implements LibraryLoader {
           OptionPane.ERROR_MESSAGE);
       return false;
     }
+    return true;
+  }
 
-    final var backup = determineBackupName(dest);
-    final var backupCreated = (backup != null) && dest.renameTo(backup);
-
-    FileOutputStream fwrite = null;
-    final var oldFile = getMainFile();
-    try {
-      setMainFile(dest);
-      fwrite = new FileOutputStream(dest);
-      file.write(fwrite, this, dest, null);
-      file.setName(toProjectName(dest));
-      LibraryManager.instance.fileSaved(this, dest, oldFile, file);
-    } catch (IOException e) {
+  private boolean finishSave(LogisimFile file, File dest, File oldFile, Throwable error) {
+    if (error != null) {
       setMainFile(oldFile);
-      if (backupCreated) recoverBackup(backup, dest);
-      if (dest.exists() && dest.length() == 0) {
-        // FIXME: delete can fail. Ensure we will not have snowball effect here!
-        dest.delete();
-      }
       OptionPane.showMessageDialog(
           parent,
-          S.get("fileSaveError", e.toString()),
+          S.get("fileSaveError", error.toString()),
           S.get("fileSaveErrorTitle"),
           OptionPane.ERROR_MESSAGE);
       return false;
-    } finally {
-      if (fwrite != null) {
-        try {
-          fwrite.close();
-        } catch (IOException e) {
-          if (backupCreated) recoverBackup(backup, dest);
-          if (dest.exists() && dest.length() == 0) {
-            // FIXME: delete can fail. Ensure we will not have snowball effect here!
-            dest.delete();
-          }
-          OptionPane.showMessageDialog(
-              parent,
-              S.get("fileSaveCloseError", e.toString()),
-              S.get("fileSaveErrorTitle"),
-              OptionPane.ERROR_MESSAGE);
-          return false;
-        }
-      }
     }
+    file.setName(toProjectName(dest));
+    LibraryManager.instance.fileSaved(this, dest, oldFile, file);
 
-    if (!dest.exists() || dest.length() == 0) {
-      if (backupCreated && backup.exists()) {
-        recoverBackup(backup, dest);
-      } else {
-        // FIXME: delete can fail. Ensure we will not have snowball effect here!
-        dest.delete();
-      }
-      OptionPane.showMessageDialog(
-          parent,
-          S.get("fileSaveZeroError"),
-          S.get("fileSaveErrorTitle"),
-          OptionPane.ERROR_MESSAGE);
-      return false;
-    }
-
-    if (backupCreated && backup.exists()) {
-      // FIXME: delete can fail. Ensure we will not have snowball effect here!
-      backup.delete();
-    }
     if (autosaveFile != null && autosaveFile.exists()) {
       deleteAutosave();
     }
     return true;
   }
 
+  // The list of circuits is only safe to read on the event dispatch thread, unlike their content.
+  private static List<Circuit> getUnloadedCircuits(LogisimFile file) {
+    final var ret = new ArrayList<Circuit>();
+    for (final var circuit : file.getCircuits()) {
+      if (!circuit.isLoaded()) ret.add(circuit);
+    }
+    return ret;
+  }
+
   /**
    * Method to perform autosaves. Essentially does the same as save()
-   * but without any failsafes, if saving fails it simply fails.
+   * but without any failsafes, if saving fails it simply fails. The
+   * circuits not built yet are built on the calling thread, the file
+   * is captured on the event dispatch thread, and written by the
+   * thread writing the files saved.
    *
    * @param file The file that should be autosaved
    *
@@ -538,12 +587,38 @@ public class Loader implements LibraryLoader {
     if (autosaveFile == null) {
       return false;
     }
-    FileOutputStream fwrite = null;
+    final var dest = autosaveFile;
+    final var unloaded = new ArrayList<Circuit>();
+    final var snapshot = new XmlWriter.XmlNode[1];
+    final var error = new Exception[1];
+    final Runnable capture =
+        () -> {
+          try {
+            snapshot[0] = XmlWriter.snapshot(file, this, dest, null, false);
+          } catch (IOException | LoadFailedException | ParserConfigurationException e) {
+            error[0] = e;
+          }
+        };
     try {
-      fwrite = new FileOutputStream(autosaveFile);
-      file.write(fwrite, this, autosaveFile, null);
-      fwrite.close();
-    } catch (IOException e) {
+      if (SwingUtilities.isEventDispatchThread()) {
+        capture.run();
+      } else {
+        SwingUtilities.invokeAndWait(() -> unloaded.addAll(getUnloadedCircuits(file)));
+        unloaded.forEach(Circuit::ensureLoaded);
+        SwingUtilities.invokeAndWait(capture);
+      }
+      if (error[0] != null) return false;
+      SAVER
+          .submit(
+              () -> {
+                writeAtomically(snapshot[0], dest);
+                return null;
+              })
+          .get();
+    } catch (InterruptedException e) {
+      // A save is under way, which replaces the autosave
+      return true;
+    } catch (InvocationTargetException | ExecutionException e) {
       return false;
     }
     if (oldAutosave != null && !oldAutosave.equals(autosaveFile)) {
@@ -552,6 +627,73 @@ public class Loader implements LibraryLoader {
     return true;
   }
 
+  private static void writeOrFail(XmlWriter.XmlNode snapshot, File dest) {
+    try {
+      writeAtomically(snapshot, dest);
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Writes a snapshot of a file to a temporary file next to the destination, which then replaces
+   * the destination. A failed write thus leaves the destination as it was. If the destination is
+   * a link, the file it links to is replaced. If no file can be created next to the destination,
+   * as in a read-only directory, the destination is written in place.
+   */
+  private static void writeAtomically(XmlWriter.XmlNode snapshot, File dest) throws IOException {
+    var target = dest.toPath().toAbsolutePath();
+    final var exists = Files.exists(target);
+    if (exists) target = target.toRealPath();
+    final Path temp;
+    try {
+      temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+    } catch (IOException e) {
+      try (final var out = new BufferedOutputStream(Files.newOutputStream(target))) {
+        XmlWriter.write(snapshot, out);
+      }
+      return;
+    }
+    try {
+      try (final var out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+        XmlWriter.write(snapshot, out);
+      }
+      if (exists) copyAttributes(target, temp);
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  // Gives the file that replaces another the permissions, owner and group of that file, as far as
+  // the file system has them and allows to change them.
+  private static void copyAttributes(Path from, Path to) throws IOException {
+    final var posix = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+    if (posix != null) {
+      final var attributes = posix.readAttributes();
+      final var view = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+      view.setPermissions(attributes.permissions());
+      try {
+        view.setGroup(attributes.group());
+        view.setOwner(attributes.owner());
+      } catch (IOException ignored) {
+        // only the owner of a file, or the superuser, may change them
+      }
+    }
+    final var acl = Files.getFileAttributeView(from, AclFileAttributeView.class);
+    if (acl != null) {
+      try {
+        Files.getFileAttributeView(to, AclFileAttributeView.class).setAcl(acl.getAcl());
+      } catch (IOException ignored) {
+        // the new file keeps the access of the directory
+      }
+    }
+  }
+
   /**
    * Method to delete the latest autosave.
    *
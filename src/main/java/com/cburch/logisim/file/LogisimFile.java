@@ -46,8 +46,6 @@ import java.util.LinkedList;
 import java.util.List;
 import javax.swing.JOptionPane;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
 import org.xml.sax.SAXException;
 
 public class LogisimFile extends Library implements LibraryEventSource, CircuitListener {
@@ -94,9 +92,9 @@ public class LogisimFile extends Library implements LibraryEventSource, CircuitL
           continue; // If thread is interrupted go to beginning of loop immediately
         }
         if (!file.isAutosaveDirty) continue;
-        if (file.getLoader().autosave(file)) {
-          file.isAutosaveDirty = false;
-        } else {
+        // The snapshot is taken after this, edits made while it is written mark the file again
+        file.isAutosaveDirty = false;
+        if (!file.getLoader().autosave(file)) {
           file.loader.showError(S.get("autosaveError", file.name));
           run = false;
         }
@@ -124,7 +122,7 @@ public class LogisimFile extends Library implements LibraryEventSource, CircuitL
   private Circuit main = null;
   private String name;
   private boolean isDirty = false;
-  private boolean isAutosaveDirty = false;
+  private volatile boolean isAutosaveDirty = false;
   private AutosaveThread autosaveThread = null;
   private boolean autosaveLoaded = false;
 
@@ -699,15 +697,8 @@ public class LogisimFile extends Library implements LibraryEventSource, CircuitL
   void write(OutputStream out, LibraryLoader loader, File dest, String mainCircFile, boolean recurse) {
     try {
       XmlWriter.write(this, out, loader, dest, mainCircFile, recurse);
-    } catch (TransformerConfigurationException e) {
-      loader.showError("internal error configuring transformer");
     } catch (ParserConfigurationException e) {
       loader.showError("internal error configuring parser");
-    } catch (TransformerException e) {
-      final var msg = e.getMessage();
-      var err = S.get("xmlConversionError");
-      if (msg == null) err += ": " + msg;
-      loader.showError(err);
     } catch (IOException e) {
       loader.showError("Unable to create zip file");
     } catch (LoadFailedException e) {
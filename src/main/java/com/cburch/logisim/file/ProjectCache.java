@@ -0,0 +1,465 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import com.cburch.logisim.file.XmlStreamParser.CircuitRecords;
+import com.cburch.logisim.file.XmlStreamParser.ComponentRecord;
+import com.cburch.logisim.file.XmlStreamParser.WireRecord;
+import com.cburch.logisim.generated.BuildInfo;
+import com.cburch.logisim.util.XmlUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.xml.parsers.ParserConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/**
+ * A binary copy of a parsed and repaired .circ file, kept in a hidden file next to it. Reading it
+ * back skips the XML parser and the repairs, which is most of the time spent on opening a large
+ * file before its circuits are built.
+ *
+ * <p>The cache holds the SHA-256 hash of the file it was made from and the Logisim version that
+ * made it; it is ignored when either differs, so the .circ file always stays the source of truth.
+ * The layout is a string table followed by a table of the component factories (library and name)
+ * and then the header elements, with the component and wire records of each circuit after the
+ * circuit element, and a CRC-32 of all that. Counts and indices are variable length, locations in
+ * the usual "(x,y)" form are packed in a long.
+ */
+final class ProjectCache {
+  private static final Logger logger = LoggerFactory.getLogger(ProjectCache.class);
+
+  private static final int MAGIC = 0x4c434346; // "LCCF"
+  private static final int FORMAT = 1;
+
+  private static final int NODE_ELEMENT = 0;
+  private static final int NODE_TEXT = 1;
+  private static final int NODE_CDATA = 2;
+
+  private static final int LOC_NONE = 0;
+  private static final int LOC_PACKED = 1;
+  private static final int LOC_STRING = 2;
+
+  // Enough for the magic number, the format, the producer and the hash.
+  private static final int HEADER_SIZE = 512;
+
+  private ProjectCache() {
+    throw new IllegalStateException("Utility class. No instantiation allowed.");
+  }
+
+  /** Returns the cache file of a .circ file. */
+  static File getCacheFile(File source) {
+    final var abs = source.getAbsoluteFile();
+    return new File(abs.getParentFile(), "." + abs.getName() + ".cache");
+  }
+
+  /** Returns the SHA-256 hash of the content of a file. */
+  static byte[] hash(byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has to provide SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Reads a cache file.
+   *
+   * @param cacheFile the cache file
+   * @param hash the hash of the content of the .circ file
+   * @return the parse result stored in the cache, or null if there is no cache, or if it is stale
+   *     or damaged
+   */
+  static XmlStreamParser.Result read(File cacheFile, byte[] hash) {
+    try (final var channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+      // The header is read first, so that the rest of a stale cache is never read. The file is
+      // read rather than mapped, as a mapping keeps it open until the mapping is collected, and on
+      // some platforms that keeps the cache from being replaced.
+      final var size = channel.size();
+      if (size > Integer.MAX_VALUE) return null;
+      final var buffer = ByteBuffer.allocate((int) size);
+      readFully(channel, buffer.limit(Math.min(buffer.capacity(), HEADER_SIZE)));
+      if (!new Decoder(buffer.duplicate().flip()).matches(hash)) return null;
+      readFully(channel, buffer.limit(buffer.capacity()));
+      buffer.flip();
+      return new Decoder(buffer).decode(hash);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | RuntimeException | ParserConfigurationException e) {
+      // whatever is wrong with the cache, the .circ file is read instead
+      logger.debug("Ignoring project cache {}: {}", cacheFile, e.toString());
+      return null;
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) throw new IOException("Unexpected end of file");
+    }
+  }
+
+  /**
+   * Writes a cache file. It is first written next to the destination and then moved over it, so
+   * that a reader never sees a partial file.
+   *
+   * @param cacheFile the cache file
+   * @param hash the hash of the content of the .circ file
+   * @param parsed the repaired parse result of the .circ file
+   */
+  static void write(File cacheFile, byte[] hash, XmlStreamParser.Result parsed) throws IOException {
+    final var content = new Encoder().encode(hash, parsed);
+    final var target = cacheFile.toPath();
+    final var temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try {
+      Files.write(temp, content);
+      try {
+        Files.move(
+            temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  // The version and build of Logisim, as the decoded records depend on its repairs.
+  private static String producer() {
+    return BuildInfo.version + " " + BuildInfo.buildId;
+  }
+
+  // Returns the (x,y) of a location as a long, or null if the string is not in the canonical form
+  // Location.toString writes, so that decoding gives back exactly the same string.
+  private static Long packLocation(String loc) {
+    final var comma = loc.indexOf(',');
+    if (comma < 0 || !loc.startsWith("(") || !loc.endsWith(")")) return null;
+    try {
+      final var x = Integer.parseInt(loc.substring(1, comma));
+      final var y = Integer.parseInt(loc.substring(comma + 1, loc.length() - 1));
+      if (!loc.equals(unpackLocation(x, y))) return null;
+      return ((long) x << 32) | (y & 0xffffffffL);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static String unpackLocation(int x, int y) {
+    return "(" + x + "," + y + ")";
+  }
+
+  private record Factory(String lib, String name) {}
+
+  private static final class Encoder {
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final List<String> stringTable = new ArrayList<>();
+    private final Map<Factory, Integer> factories = new HashMap<>();
+    private final List<Factory> factoryTable = new ArrayList<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 16);
+    private final DataOutputStream out = new DataOutputStream(body);
+    private Map<Element, CircuitRecords> circuits;
+
+    byte[] encode(byte[] hash, XmlStreamParser.Result parsed) throws IOException {
+      circuits = new IdentityHashMap<>(parsed.circuits());
+      writeElement(parsed.root());
+      out.flush();
+
+      final var file = new ByteArrayOutputStream(body.size() + 16 * stringTable.size() + 64);
+      final var header = new DataOutputStream(file);
+      header.writeInt(MAGIC);
+      header.writeInt(FORMAT);
+      writeBytes(header, producer().getBytes(StandardCharsets.UTF_8));
+      writeBytes(header, hash);
+      writeCount(header, stringTable.size());
+      for (final var s : stringTable) {
+        writeBytes(header, s.getBytes(StandardCharsets.UTF_8));
+      }
+      writeCount(header, factoryTable.size());
+      for (final var factory : factoryTable) {
+        writeCount(header, stringIndex(factory.lib()));
+        writeCount(header, stringIndex(factory.name()));
+      }
+      body.writeTo(header);
+      header.flush();
+      final var crc = new CRC32();
+      crc.update(file.toByteArray());
+      header.writeInt((int) crc.getValue());
+      header.flush();
+      return file.toByteArray();
+    }
+
+    // Index 0 stands for null.
+    private int stringIndex(String s) {
+      if (s == null) return 0;
+      var index = strings.get(s);
+      if (index == null) {
+        stringTable.add(s);
+        index = stringTable.size();
+        strings.put(s, index);
+      }
+      return index;
+    }
+
+    private void writeString(String s) throws IOException {
+      writeCount(out, stringIndex(s));
+    }
+
+    private void writeElement(Element elt) throws IOException {
+      writeString(elt.getTagName());
+      writeString(elt.getNamespaceURI());
+      final var attrs = elt.getAttributes();
+      writeCount(out, attrs.getLength());
+      for (var i = 0; i < attrs.getLength(); i++) {
+        final var attr = attrs.item(i);
+        writeString(attr.getNodeName());
+        writeString(attr.getNamespaceURI());
+        writeString(attr.getNodeValue());
+      }
+      var count = 0;
+      for (var child = elt.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (isKept(child)) count++;
+      }
+      writeCount(out, count);
+      for (var child = elt.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child instanceof Element childElt) {
+          out.writeByte(NODE_ELEMENT);
+          writeElement(childElt);
+        } else if (child instanceof CDATASection) {
+          out.writeByte(NODE_CDATA);
+          writeString(child.getNodeValue());
+        } else if (child instanceof Text) {
+          out.writeByte(NODE_TEXT);
+          writeString(child.getNodeValue());
+        }
+      }
+      final var records = circuits.get(elt);
+      out.writeBoolean(records != null);
+      if (records != null) writeRecords(records);
+    }
+
+    private static boolean isKept(Node node) {
+      return node instanceof Element || node instanceof Text;
+    }
+
+    private void writeRecords(CircuitRecords records) throws IOException {
+      writeCount(out, records.components().size());
+      for (final var comp : records.components()) {
+        writeCount(out, factoryIndex(comp));
+        writeLocation(comp.loc);
+        writeCount(out, comp.unnamedAttributes);
+        writeCount(out, comp.attributes.size());
+        for (final var attr : comp.attributes.entrySet()) {
+          writeString(attr.getKey());
+          writeString(attr.getValue());
+        }
+      }
+      writeCount(out, records.wires().size());
+      for (final var wire : records.wires()) {
+        writeLocation(wire.from());
+        writeLocation(wire.to());
+      }
+    }
+
+    private int factoryIndex(ComponentRecord comp) {
+      final var factory = new Factory(comp.lib, comp.name);
+      var index = factories.get(factory);
+      if (index == null) {
+        // the names have to be in the string table, which is written before the factory table
+        stringIndex(factory.lib());
+        stringIndex(factory.name());
+        index = factoryTable.size();
+        factoryTable.add(factory);
+        factories.put(factory, index);
+      }
+      return index;
+    }
+
+    private void writeLocation(String loc) throws IOException {
+      final var packed = loc == null ? null : packLocation(loc);
+      if (loc == null) {
+        out.writeByte(LOC_NONE);
+      } else if (packed != null) {
+        out.writeByte(LOC_PACKED);
+        out.writeLong(packed);
+      } else {
+        out.writeByte(LOC_STRING);
+        writeString(loc);
+      }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+      writeCount(out, bytes.length);
+      out.write(bytes);
+    }
+
+    private static void writeCount(DataOutputStream out, int value) throws IOException {
+      var v = value;
+      while ((v & ~0x7f) != 0) {
+        out.writeByte((v & 0x7f) | 0x80);
+        v >>>= 7;
+      }
+      out.writeByte(v);
+    }
+  }
+
+  private static final class Decoder {
+    private final ByteBuffer in;
+    private String[] strings;
+    private Factory[] factories;
+    private Document doc;
+    private final Map<Element, CircuitRecords> circuits = new HashMap<>();
+    private int componentCount;
+    private int wireCount;
+
+    Decoder(ByteBuffer in) {
+      this.in = in;
+    }
+
+    /** Reads the header, and tells whether the cache was made by this version from the file. */
+    boolean matches(byte[] hash) {
+      if (in.getInt() != MAGIC || in.getInt() != FORMAT) return false;
+      final var version = new String(readBytes(), StandardCharsets.UTF_8);
+      return version.equals(producer()) && Arrays.equals(readBytes(), hash);
+    }
+
+    XmlStreamParser.Result decode(byte[] hash) throws ParserConfigurationException {
+      final var crc = new CRC32();
+      crc.update(in.duplicate().position(0).limit(in.limit() - 4));
+      if ((int) crc.getValue() != in.getInt(in.limit() - 4)) return null;
+      in.limit(in.limit() - 4);
+      if (!matches(hash)) return null;
+
+      strings = new String[readSize() + 1];
+      for (var i = 1; i < strings.length; i++) {
+        strings[i] = new String(readBytes(), StandardCharsets.UTF_8);
+      }
+      factories = new Factory[readSize()];
+      for (var i = 0; i < factories.length; i++) {
+        factories[i] = new Factory(readString(), readString());
+      }
+      doc = XmlUtil.getHardenedBuilderFactory().newDocumentBuilder().newDocument();
+      final var root = readElement();
+      doc.appendChild(root);
+      return new XmlStreamParser.Result(doc, root, circuits, componentCount, wireCount);
+    }
+
+    private Element readElement() {
+      final var tag = readString();
+      final var uri = readString();
+      final var elt = uri == null ? doc.createElement(tag) : doc.createElementNS(uri, tag);
+      for (var i = readCount(); i > 0; i--) {
+        final var name = readString();
+        final var attrUri = readString();
+        final var value = readString();
+        if (attrUri == null) {
+          elt.setAttribute(name, value);
+        } else {
+          elt.setAttributeNS(attrUri, name, value);
+        }
+      }
+      for (var i = readCount(); i > 0; i--) {
+        switch (in.get()) {
+          case NODE_ELEMENT -> elt.appendChild(readElement());
+          case NODE_TEXT -> elt.appendChild(doc.createTextNode(readString()));
+          case NODE_CDATA -> elt.appendChild(doc.createCDATASection(readString()));
+          default -> throw new IllegalArgumentException("unknown node kind");
+        }
+      }
+      if (in.get() != 0) circuits.put(elt, readRecords());
+      return elt;
+    }
+
+    private CircuitRecords readRecords() {
+      final var compCount = readSize();
+      final var components = new ArrayList<ComponentRecord>(compCount);
+      for (var i = 0; i < compCount; i++) {
+        final var factory = factories[readCount()];
+        final var comp = new ComponentRecord(factory.lib(), factory.name(), readLocation());
+        comp.unnamedAttributes = readCount();
+        for (var j = readCount(); j > 0; j--) {
+          final var name = readString();
+          comp.attributes.put(name, readString());
+        }
+        components.add(comp);
+      }
+      final var count = readSize();
+      final var wires = new ArrayList<WireRecord>(count);
+      for (var i = 0; i < count; i++) {
+        final var from = readLocation();
+        wires.add(new WireRecord(from, readLocation()));
+      }
+      componentCount += compCount;
+      wireCount += count;
+      return new CircuitRecords(components, wires);
+    }
+
+    private String readLocation() {
+      return switch (in.get()) {
+        case LOC_NONE -> null;
+        case LOC_PACKED -> {
+          final var packed = in.getLong();
+          yield unpackLocation((int) (packed >> 32), (int) packed);
+        }
+        case LOC_STRING -> readString();
+        default -> throw new IllegalArgumentException("unknown location kind");
+      };
+    }
+
+    private String readString() {
+      return strings[readCount()];
+    }
+
+    private byte[] readBytes() {
+      final var bytes = new byte[readSize()];
+      in.get(bytes);
+      return bytes;
+    }
+
+    // Reads the number of entries that follow; each takes at least a byte.
+    private int readSize() {
+      final var size = readCount();
+      if (size < 0 || size > in.remaining()) throw new IllegalArgumentException("invalid size");
+      return size;
+    }
+
+    private int readCount() {
+      var value = 0;
+      for (var shift = 0; shift < 32; shift += 7) {
+        final var b = in.get();
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) return value;
+      }
+      throw new IllegalArgumentException("invalid count");
+    }
+  }
+}
@@ -22,6 +22,8 @@ import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.XmlStreamParser.ComponentRecord;
+import com.cburch.logisim.file.XmlStreamParser.WireRecord;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.std.base.Text;
 import com.cburch.logisim.std.memory.Mem;
@@ -34,9 +36,7 @@ import com.cburch.logisim.vhdl.base.VhdlEntity;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import org.w3c.dom.Element;
 
 public class XmlCircuitReader extends CircuitTransaction {
 
@@ -44,38 +44,38 @@ public class XmlCircuitReader extends CircuitTransaction {
 
   private final XmlReader.ReadContext reader;
 
-  private final List<XmlReader.CircuitData> circuitsData;
+  private final XmlReader.CircuitData circuitData;
   private boolean isHolyCross = false;
   private boolean isEvolution = false;
 
   public XmlCircuitReader(
       XmlReader.ReadContext reader,
-      List<XmlReader.CircuitData> circDatas,
+      XmlReader.CircuitData circData,
       boolean isThisHolyCrossFile,
       boolean isThisEvolutionFile) {
     this.reader = reader;
-    this.circuitsData = circDatas;
+    this.circuitData = circData;
     this.isHolyCross = isThisHolyCrossFile;
     this.isEvolution = isThisEvolutionFile;
   }
 
   /**
-   * @param elt XML element to parse
+   * @param comp record of the XML element to parse
    * @param reader XML file reader
    * @return the component built from its XML description
    * @throws XmlReaderException
    */
   static Component getComponent(
-      Element elt, XmlReader.ReadContext reader, boolean isHolyCross, boolean isEvolution)
+      ComponentRecord comp, XmlReader.ReadContext reader, boolean isHolyCross, boolean isEvolution)
       throws XmlReaderException {
 
     // Determine the factory that creates this element
-    final var name = elt.getAttribute("name");
+    final var name = comp.name;
     if (StringUtil.isNullOrEmpty(name)) {
       throw new XmlReaderException(S.get("compNameMissingError"));
     }
 
-    final var libName = elt.getAttribute("lib");
+    final var libName = comp.lib;
     final var lib = reader.findLibrary(libName);
     if (lib == null) {
       // FIXME: the "no-lib" thing may not be clear enough
@@ -93,7 +93,7 @@ public class XmlCircuitReader extends CircuitTransaction {
     final var source = ((AddTool) tool).getFactory();
 
     // Determine attributes
-    final var locStr = elt.getAttribute("loc");
+    final var locStr = comp.loc;
     final var attrs = source.createAttributeSet();
     var defaults = source;
     if (isHolyCross && source instanceof Ram) {
@@ -102,9 +102,10 @@ public class XmlCircuitReader extends CircuitTransaction {
       ramAttrs.updateAttributes();
       defaults = null;
     }
-    reader.initAttributeSet(elt, attrs, defaults, isHolyCross, isEvolution);
+    reader.initAttributeSet(
+        comp.attributes, comp.unnamedAttributes, attrs, defaults, isHolyCross, isEvolution);
     if (source instanceof VhdlEntity vhdl) {
-      initLegacyVhdlAppearance(elt, reader, vhdl);
+      initLegacyVhdlAppearance(comp, reader, vhdl);
     }
 
     // Create component if location known
@@ -119,26 +120,22 @@ public class XmlCircuitReader extends CircuitTransaction {
   }
 
   private static void initLegacyVhdlAppearance(
-      Element elt, XmlReader.ReadContext reader, VhdlEntity vhdl) {
-    for (final var attrElt : XmlIterator.forChildElements(elt, "a")) {
-      if (!StdAttr.APPEARANCE.getName().equals(attrElt.getAttribute("name"))) continue;
-      final var attrValue =
-          attrElt.hasAttribute("val") ? attrElt.getAttribute("val") : attrElt.getTextContent();
-      try {
-        vhdl.getContent().setAppearance(StdAttr.APPEARANCE.parse(attrValue));
-      } catch (NumberFormatException e) {
-        reader.addError(
-            S.get("attrValueInvalidError", attrValue, StdAttr.APPEARANCE.getName()),
-            "vhdl." + vhdl.getName());
-      }
-      return;
+      ComponentRecord comp, XmlReader.ReadContext reader, VhdlEntity vhdl) {
+    final var attrValue = comp.attributes.get(StdAttr.APPEARANCE.getName());
+    if (attrValue == null) return;
+    try {
+      vhdl.getContent().setAppearance(StdAttr.APPEARANCE.parse(attrValue));
+    } catch (NumberFormatException e) {
+      reader.addError(
+          S.get("attrValueInvalidError", attrValue, StdAttr.APPEARANCE.getName()),
+          "vhdl." + vhdl.getName());
     }
   }
 
-  void addWire(Circuit dest, CircuitMutator mutator, Element elt) throws XmlReaderException {
+  void addWire(Circuit dest, CircuitMutator mutator, WireRecord wire) throws XmlReaderException {
     Location pt0;
     try {
-      final var str = elt.getAttribute("from");
+      final var str = wire.from();
       if (str == null || "".equals(str)) {
         throw new XmlReaderException(S.get("wireStartMissingError"));
       }
@@ -149,7 +146,7 @@ public class XmlCircuitReader extends CircuitTransaction {
 
     Location pt1;
     try {
-      final var str = elt.getAttribute("to");
+      final var str = wire.to();
       if (str == null || "".equals(str)) {
         throw new XmlReaderException(S.get("wireEndMissingError"));
       }
@@ -164,11 +161,17 @@ public class XmlCircuitReader extends CircuitTransaction {
     }
   }
 
-  private void buildCircuit(XmlReader.CircuitData circData, CircuitMutator mutator) {
-    final var element = circData.circuitElement;
+  /**
+   * Initializes the static attributes of a circuit from its XML element. This is done for every
+   * circuit when the file is opened, including the ones whose content is only built when needed,
+   * as the toolbox shows their appearance.
+   */
+  static void initStaticAttributes(
+      XmlReader.CircuitData circData,
+      XmlReader.ReadContext reader,
+      boolean isHolyCross,
+      boolean isEvolution) {
     final var dest = circData.circuit;
-    var knownComponents = circData.knownComponents;
-    if (knownComponents == null) knownComponents = Collections.emptyMap();
     try {
       /* Here we check the attribute circuitnamedbox for backwards compatibility */
       var hasNamedBox = false;
@@ -188,7 +191,7 @@ public class XmlCircuitReader extends CircuitTransaction {
         if (hasNamedBox) {
           // This situation is clear, it is an older logisim-evolution file
           final var appear =
-              CollectionUtil.isNotEmpty(circData.appearance)
+              hasCustomAppearance(circData)
                   ? CircuitAttributes.APPEAR_CUSTOM
                   : CircuitAttributes.APPEAR_EVOLUTION;
           dest.getStaticAttributes().setValue(CircuitAttributes.APPEARANCE_ATTR, appear);
@@ -197,7 +200,7 @@ public class XmlCircuitReader extends CircuitTransaction {
             // Here we have 2 possibilities, either a Holycross file or a logisim-evolution file
             // before the introduction of the named circuit boxes. So let's ask the user.
             var appear = CircuitAttributes.APPEAR_CLASSIC;
-            if (CollectionUtil.isNotEmpty(circData.appearance)) {
+            if (hasCustomAppearance(circData)) {
               appear = CircuitAttributes.APPEAR_CUSTOM;
             } else if (isHolyCross) {
               appear = CircuitAttributes.APPEAR_FPGA;
@@ -213,50 +216,63 @@ public class XmlCircuitReader extends CircuitTransaction {
     } catch (XmlReaderException e) {
       reader.addErrors(e, circData.circuit.getName() + ".static");
     }
+  }
+
+  // The appearance is custom if it has static shapes; the dynamic ones are only added to these.
+  private static boolean hasCustomAppearance(XmlReader.CircuitData circData) {
+    for (final var appearElt : XmlIterator.forChildElements(circData.circuitElement, "appear")) {
+      for (final var sub : XmlIterator.forChildElements(appearElt)) {
+        if (!sub.getTagName().startsWith("visible-")) return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Decides on the components of a circuit: the ones created from the records, where a component
+   * that overlaps an earlier one is moved aside. Creating a component may register it with the
+   * circuit it instantiates, so this is not done in the transaction that adds them.
+   */
+  static void placeComponents(
+      XmlReader.CircuitData circData,
+      XmlReader.ReadContext reader,
+      boolean isHolyCross,
+      boolean isEvolution) {
+    var knownComponents = circData.knownComponents;
+    if (knownComponents == null) knownComponents = Collections.emptyMap();
 
+    final var components = new ArrayList<Component>();
     final var componentsAt = new HashMap<Bounds, Component>();
     final var overlapComponents = new ArrayList<Component>();
-    for (final var subElement : XmlIterator.forChildElements(element)) {
-      final var subEltName = subElement.getTagName();
-      if ("comp".equals(subEltName)) {
-        try {
-          var comp = knownComponents.get(subElement);
-          if (comp == null) comp = getComponent(subElement, reader, isHolyCross, isEvolution);
-          if (comp != null) {
-            /* filter out empty text boxes */
-            if (comp.getFactory() instanceof Text) {
-              if (comp.getAttributeSet().getValue(Text.ATTR_TEXT).isEmpty()) {
-                continue;
-              }
-            }
-            final var bds = comp.getBounds();
-            final var conflict = componentsAt.get(bds);
-            if (conflict != null) {
-              final var msg =
-                  S.get(
-                      "fileComponentOverlapError",
-                      conflict.getFactory().getName() + conflict.getLocation(),
-                      comp.getFactory().getName() + conflict.getLocation());
-              reader.addError(msg, circData.circuit.getName());
-              overlapComponents.add(comp);
-            } else {
-              mutator.add(dest, comp);
-              componentsAt.put(bds, comp);
+    for (final var record : circData.records.components()) {
+      try {
+        var comp = knownComponents.get(record);
+        if (comp == null) comp = getComponent(record, reader, isHolyCross, isEvolution);
+        if (comp != null) {
+          /* filter out empty text boxes */
+          if (comp.getFactory() instanceof Text) {
+            if (comp.getAttributeSet().getValue(Text.ATTR_TEXT).isEmpty()) {
+              continue;
             }
           }
-        } catch (XmlReaderException e) {
-          final var context =
-              String.format(contextFmt, circData.circuit.getName(), toComponentString(subElement));
-          reader.addErrors(e, context);
-        }
-      } else if ("wire".equals(subEltName)) {
-        try {
-          addWire(dest, mutator, subElement);
-        } catch (XmlReaderException e) {
-          final var context =
-              String.format(contextFmt, circData.circuit.getName(), toWireString(subElement));
-          reader.addErrors(e, context);
+          final var bds = comp.getBounds();
+          final var conflict = componentsAt.get(bds);
+          if (conflict != null) {
+            final var msg =
+                S.get(
+                    "fileComponentOverlapError",
+                    conflict.getFactory().getName() + conflict.getLocation(),
+                    comp.getFactory().getName() + conflict.getLocation());
+            reader.addError(msg, circData.circuit.getName());
+            overlapComponents.add(comp);
+          } else {
+            components.add(comp);
+            componentsAt.put(bds, comp);
+          }
         }
+      } catch (XmlReaderException e) {
+        final var context = String.format(contextFmt, circData.circuit.getName(), record);
+        reader.addErrors(e, context);
       }
     }
     for (var comp : overlapComponents) {
@@ -273,7 +289,23 @@ public class XmlCircuitReader extends CircuitTransaction {
       final var attrs = (AttributeSet) comp.getAttributeSet().clone();
       comp = comp.getFactory().createComponent(loc, attrs);
       componentsAt.put(comp.getBounds(), comp);
-      mutator.add(dest, comp);
+      components.add(comp);
+    }
+    circData.components = components;
+  }
+
+  private void buildCircuit(XmlReader.CircuitData circData, CircuitMutator mutator) {
+    final var dest = circData.circuit;
+    if (circData.components != null) {
+      for (final var comp : circData.components) mutator.add(dest, comp);
+    }
+    for (final var wire : circData.records.wires()) {
+      try {
+        addWire(dest, mutator, wire);
+      } catch (XmlReaderException e) {
+        final var context = String.format(contextFmt, circData.circuit.getName(), wire);
+        reader.addErrors(e, context);
+      }
     }
   }
 
@@ -320,32 +352,12 @@ public class XmlCircuitReader extends CircuitTransaction {
 
   @Override
   protected Map<Circuit, Integer> getAccessedCircuits() {
-    final var access = new HashMap<Circuit, Integer>();
-    for (final var data : circuitsData) {
-      access.put(data.circuit, READ_WRITE);
-    }
-    return access;
+    return Map.of(circuitData.circuit, READ_WRITE);
   }
 
   @Override
   protected void run(CircuitMutator mutator) {
-    for (final var circuitData : circuitsData) {
-      buildCircuit(circuitData, mutator);
-    }
-    for (final var circuitData : circuitsData) {
-      buildDynamicAppearance(circuitData);
-    }
-  }
-
-  private String toComponentString(Element elt) {
-    final var name = elt.getAttribute("name");
-    final var loc = elt.getAttribute("loc");
-    return String.format("%s(%s)", name, loc);
-  }
-
-  private String toWireString(Element elt) {
-    final var from = elt.getAttribute("from");
-    final var to = elt.getAttribute("to");
-    return String.format("w%s-%s", from, to);
+    buildCircuit(circuitData, mutator);
+    buildDynamicAppearance(circuitData);
   }
 }
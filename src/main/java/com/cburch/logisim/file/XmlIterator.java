@@ -26,11 +26,11 @@ public class XmlIterator<E extends Node> implements Iterable<E>, Iterator<E>, Cl
     index = 0;
   }
 
+  // The children are walked through their sibling links rather than through a NodeList, whose
+  // implementation may cache state in the document; circuits of a file are read in parallel.
   public static Iterable<Element> forChildElements(Element node) {
-    final var nodes = node.getChildNodes();
     final var ret = new ArrayList<Element>();
-    for (int i = 0, n = nodes.getLength(); i < n; i++) {
-      final var sub = nodes.item(i);
+    for (var sub = node.getFirstChild(); sub != null; sub = sub.getNextSibling()) {
       if (sub.getNodeType() == Node.ELEMENT_NODE) {
         ret.add((Element) sub);
       }
@@ -39,10 +39,8 @@ public class XmlIterator<E extends Node> implements Iterable<E>, Iterator<E>, Cl
   }
 
   public static Iterable<Element> forChildElements(Element node, String tagName) {
-    final var nodes = node.getChildNodes();
     final var ret = new ArrayList<Element>();
-    for (int i = 0, n = nodes.getLength(); i < n; i++) {
-      final var sub = nodes.item(i);
+    for (var sub = node.getFirstChild(); sub != null; sub = sub.getNextSibling()) {
       if (sub.getNodeType() == Node.ELEMENT_NODE) {
         final var elt = (Element) sub;
         if (elt.getTagName().equals(tagName)) ret.add(elt);
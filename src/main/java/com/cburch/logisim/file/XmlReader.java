@@ -16,11 +16,14 @@ import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitMapInfo;
 import com.cburch.logisim.circuit.Splitter;
+import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.circuit.appear.AppearanceSvgReader;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeDefaultProvider;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.file.XmlStreamParser.CircuitRecords;
+import com.cburch.logisim.file.XmlStreamParser.ComponentRecord;
 import com.cburch.logisim.fpga.data.BoardRectangle;
 import com.cburch.logisim.fpga.data.MapComponent;
 import com.cburch.logisim.generated.BuildInfo;
@@ -37,6 +40,7 @@ import com.cburch.logisim.std.wiring.Probe;
 import com.cburch.logisim.std.wiring.ProbeAttributes;
 import com.cburch.logisim.std.wiring.PullResistor;
 import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.tools.EditTool;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.MenuTool;
@@ -48,22 +52,24 @@ import com.cburch.logisim.tools.WiringTool;
 import com.cburch.logisim.util.InputEventUtil;
 import com.cburch.logisim.util.LineBuffer;
 import com.cburch.logisim.util.StringUtil;
-import com.cburch.logisim.util.XmlUtil;
 import com.cburch.logisim.vhdl.base.VhdlContent;
+import com.cburch.logisim.vhdl.base.VhdlEntity;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.swing.SwingUtilities;
+import javax.xml.stream.XMLStreamException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -75,12 +81,18 @@ class XmlReader {
 
   static class CircuitData {
     final Element circuitElement;
+    final CircuitRecords records;
     final Circuit circuit;
-    Map<Element, Component> knownComponents;
+    Map<ComponentRecord, Component> knownComponents;
+    /** The components to add to the circuit, moved where they would overlap others. */
+    List<Component> components;
     List<AbstractCanvasObject> appearance;
+    /** The errors met while building the circuit. */
+    final List<String> messages = new ArrayList<>();
 
-    public CircuitData(Element circuitElement, Circuit circuit) {
+    public CircuitData(Element circuitElement, CircuitRecords records, Circuit circuit) {
       this.circuitElement = circuitElement;
+      this.records = records;
       this.circuit = circuit;
     }
   }
@@ -88,14 +100,27 @@ class XmlReader {
   class ReadContext {
     final LogisimFile file;
     LogisimVersion sourceVersion;
-    final HashMap<String, Library> libs = new HashMap<>();
-    private final ArrayList<String> messages;
+    final Map<String, Library> libs;
+    private final List<String> messages;
+    /** Time spent building the circuits, in nanoseconds. */
+    private long buildTime;
+    /** Number of circuits whose content is built once needed. */
+    private int deferredCircuits;
 
     ReadContext(LogisimFile file) {
       this.file = file;
+      this.libs = new HashMap<>();
       this.messages = new ArrayList<>();
     }
 
+    /** Creates a context that reads for the same file, but collects its errors in messages. */
+    ReadContext(ReadContext parent, List<String> messages) {
+      this.file = parent.file;
+      this.sourceVersion = parent.sourceVersion;
+      this.libs = parent.libs;
+      this.messages = messages;
+    }
+
     void addError(String message, String context) {
       messages.add(message + " [" + context + "]");
     }
@@ -120,32 +145,35 @@ class XmlReader {
         boolean isHolyCross,
         boolean isEvolution)
         throws XmlReaderException {
-      List<String> messages = null;
-
       final var attrsDefined = new HashMap<String, String>();
+      var unnamedAttributes = 0;
       for (final var attrElt : XmlIterator.forChildElements(parent, "a")) {
         if (!attrElt.hasAttribute("name")) {
-          if (messages == null) messages = new ArrayList<>();
-          messages.add(S.get("attrNameMissingError"));
+          unnamedAttributes++;
         } else {
           final var attrName = attrElt.getAttribute("name");
-          String attrVal;
-          if (attrElt.hasAttribute("val")) {
-            attrVal = attrElt.getAttribute("val");
-            if ("filePath".equals(attrName)) {
-              /* De-relativize the path */
-              var dirPath = "";
-              if (srcFilePath != null)
-                dirPath = srcFilePath.substring(0, srcFilePath.lastIndexOf(File.separator));
-              final var tmp = Paths.get(dirPath, attrVal);
-              attrVal = tmp.toString();
-            }
-          } else {
-            attrVal = attrElt.getTextContent();
-          }
+          final var attrVal =
+              attrElt.hasAttribute("val") ? attrElt.getAttribute("val") : attrElt.getTextContent();
           attrsDefined.put(attrName, attrVal);
         }
       }
+      initAttributeSet(
+          attrsDefined, unnamedAttributes, attrs, defaults, isHolyCross, isEvolution);
+    }
+
+    void initAttributeSet(
+        Map<String, String> attrsDefined,
+        int unnamedAttributes,
+        AttributeSet attrs,
+        AttributeDefaultProvider defaults,
+        boolean isHolyCross,
+        boolean isEvolution)
+        throws XmlReaderException {
+      List<String> messages = null;
+      for (var i = 0; i < unnamedAttributes; i++) {
+        if (messages == null) messages = new ArrayList<>();
+        messages.add(S.get("attrNameMissingError"));
+      }
 
       if (attrs == null) return;
 
@@ -160,7 +188,14 @@ class XmlReader {
         @SuppressWarnings("unchecked")
         Attribute<Object> attr = (Attribute<Object>) attrList.get(i);
         final var attrName = attr.getName();
-        final var attrVal = attrsDefined.get(attrName);
+        var attrVal = attrsDefined.get(attrName);
+        if (attrVal != null && "filePath".equals(attrName)) {
+          /* De-relativize the path */
+          var dirPath = "";
+          if (srcFilePath != null)
+            dirPath = srcFilePath.substring(0, srcFilePath.lastIndexOf(File.separator));
+          attrVal = Paths.get(dirPath, attrVal).toString();
+        }
         if (attrVal == null) {
           if (attr.equals(ProbeAttributes.PROBEAPPEARANCE)) {
             attrs.setValue(ProbeAttributes.PROBEAPPEARANCE, StdAttr.APPEAR_CLASSIC);
@@ -265,12 +300,13 @@ class XmlReader {
       }
     }
 
-    private Map<Element, Component> loadKnownComponents(Element elt, boolean isHolyCross, boolean isEvolution) {
-      final var known = new HashMap<Element, Component>();
-      for (final var sub : XmlIterator.forChildElements(elt, "comp")) {
+    private Map<ComponentRecord, Component> loadKnownComponents(
+        CircuitData circData, boolean isHolyCross, boolean isEvolution) {
+      final var known = new HashMap<ComponentRecord, Component>();
+      for (final var record : circData.records.components()) {
         try {
-          final var comp = XmlCircuitReader.getComponent(sub, this, isHolyCross, isEvolution);
-          if (comp != null) known.put(sub, comp);
+          final var comp = XmlCircuitReader.getComponent(record, this, isHolyCross, isEvolution);
+          if (comp != null) known.put(record, comp);
         } catch (XmlReaderException ignored) {
         }
       }
@@ -383,7 +419,7 @@ class XmlReader {
       return ret;
     }
 
-    private void toLogisimFile(Element elt, Project proj) {
+    private void toLogisimFile(Element elt, Map<Element, CircuitRecords> records, Project proj) {
       // determine the version producing this file
       final var versionString = elt.getAttribute("source");
       var isHolyCrossFile = false;
@@ -487,13 +523,11 @@ class XmlReader {
             if (name == null || "".equals(name)) {
               addError(S.get("circNameMissingError"), "C??");
             }
-            final var circData = new CircuitData(circElt, new Circuit(name, file, proj));
+            final var circRecords =
+                records.getOrDefault(circElt, new CircuitRecords(List.of(), List.of()));
+            final var circData =
+                new CircuitData(circElt, circRecords, new Circuit(name, file, proj));
             file.addCircuit(circData.circuit);
-            circData.knownComponents = loadKnownComponents(circElt, isHolyCrossFile,
-                isEvolutionFile);
-            for (Element appearElt : XmlIterator.forChildElements(circElt, "appear")) {
-              loadAppearance(appearElt, circData, name + ".appear");
-            }
             for (final var boardMap : XmlIterator.forChildElements(circElt, "boardmap")) {
               final var boardName = boardMap.getAttribute("boardname");
               if (StringUtil.isNullOrEmpty(boardName))
@@ -551,10 +585,150 @@ class XmlReader {
         }
       }
 
-      // fourth, execute a transaction that initializes all the circuits
-      XmlCircuitReader builder;
-      builder = new XmlCircuitReader(this, circuitsData, isHolyCrossFile, isEvolutionFile);
-      builder.execute();
+      // fourth, build the circuits
+      final var buildStart = System.nanoTime();
+      buildCircuits(circuitsData, isHolyCrossFile, isEvolutionFile);
+      buildTime = System.nanoTime() - buildStart;
+    }
+
+    /**
+     * Builds the circuits, each in a transaction of its own. Only the main circuit and the circuits
+     * it contains are built now; the others get a loader that builds them once they are needed.
+     *
+     * <p>A circuit is built once the circuits it contains are done, so that its subcircuit
+     * components get their final ports; the circuits that are ready at the same time are built in
+     * parallel.
+     */
+    private void buildCircuits(
+        List<CircuitData> circuitsData, boolean isHolyCross, boolean isEvolution) {
+      final var byName = new HashMap<String, CircuitData>();
+      for (final var circData : circuitsData) {
+        byName.put(circData.circuit.getName(), circData);
+        XmlCircuitReader.initStaticAttributes(circData, this, isHolyCross, isEvolution);
+      }
+      final var remaining = new ArrayList<CircuitData>();
+      final var used = new HashSet<CircuitData>();
+      final var mainCircuit = file.getMainCircuit();
+      final var main = mainCircuit == null ? null : byName.get(mainCircuit.getName());
+      if (main != null) {
+        remaining.add(main);
+        used.add(main);
+        for (var i = 0; i < remaining.size(); i++) {
+          for (final var subcircuit : getSubcircuits(remaining.get(i), byName)) {
+            if (used.add(subcircuit)) remaining.add(subcircuit);
+          }
+        }
+      }
+      final var tools = new HashMap<String, AddTool>();
+      for (final var tool : file.getTools()) tools.put(tool.getName(), tool);
+      for (final var circData : circuitsData) {
+        if (used.contains(circData)) continue;
+        circData.circuit.setContentLoader(
+            new CircuitContentLoader(circData, tools, isHolyCross, isEvolution));
+        deferredCircuits++;
+      }
+
+      final var built = new HashSet<CircuitData>();
+      while (!remaining.isEmpty()) {
+        final var ready = new ArrayList<CircuitData>();
+        for (final var circData : remaining) {
+          if (built.containsAll(getSubcircuits(circData, byName))) ready.add(circData);
+        }
+        if (ready.isEmpty()) {
+          // Recursive circuits are never ready, these are built one after the other.
+          remaining.forEach(circData -> buildCircuit(circData, isHolyCross, isEvolution));
+          break;
+        }
+        // Creating a component registers it with the circuit or VHDL entity it instantiates, these
+        // are shared by the circuits of a wave, so only the transactions run in parallel.
+        ready.forEach(circData -> createComponents(circData, isHolyCross, isEvolution));
+        ready.parallelStream().forEach(circData -> addComponents(circData, isHolyCross, isEvolution));
+        built.addAll(ready);
+        remaining.removeAll(ready);
+      }
+      for (final var circData : circuitsData) messages.addAll(circData.messages);
+    }
+
+    /** Builds a circuit that the main circuit does not contain when its content is needed. */
+    private final class CircuitContentLoader implements Circuit.ContentLoader {
+      private final CircuitData circData;
+      /** The circuits and VHDL entities used, by the records that refer to them. */
+      private final Map<ComponentRecord, AddTool> usedTools = new HashMap<>();
+      private final boolean isHolyCross;
+      private final boolean isEvolution;
+
+      CircuitContentLoader(
+          CircuitData circData,
+          Map<String, AddTool> tools,
+          boolean isHolyCross,
+          boolean isEvolution) {
+        this.circData = circData;
+        this.isHolyCross = isHolyCross;
+        this.isEvolution = isEvolution;
+        for (final var comp : circData.records.components()) {
+          if (comp.hasLib()) continue;
+          final var tool = tools.get(comp.name);
+          if (tool != null) usedTools.put(comp, tool);
+        }
+      }
+
+      @Override
+      public Collection<?> getDependencies() {
+        final var dependencies = new HashSet<>();
+        for (final var tool : usedTools.values()) {
+          if (tool.getFactory() instanceof SubcircuitFactory factory) {
+            dependencies.add(factory.getSubcircuit());
+          } else if (tool.getFactory() instanceof VhdlEntity factory) {
+            dependencies.add(factory.getContent());
+          }
+        }
+        return dependencies;
+      }
+
+      @Override
+      public void load() {
+        // the circuits used may have been renamed since the file was read
+        for (final var entry : usedTools.entrySet()) {
+          entry.getKey().name = entry.getValue().getName();
+        }
+        buildCircuit(circData, isHolyCross, isEvolution);
+        if (!circData.messages.isEmpty()) {
+          final var all = String.join("\n", circData.messages);
+          SwingUtilities.invokeLater(() -> loader.showError(all));
+        }
+      }
+    }
+
+    private Set<CircuitData> getSubcircuits(CircuitData circData, Map<String, CircuitData> byName) {
+      final var subcircuits = new HashSet<CircuitData>();
+      for (final var comp : circData.records.components()) {
+        if (StringUtil.isNullOrEmpty(comp.lib)) {
+          final var subcircuit = byName.get(comp.name);
+          if (subcircuit != null) subcircuits.add(subcircuit);
+        }
+      }
+      return subcircuits;
+    }
+
+    private void buildCircuit(CircuitData circData, boolean isHolyCross, boolean isEvolution) {
+      createComponents(circData, isHolyCross, isEvolution);
+      addComponents(circData, isHolyCross, isEvolution);
+    }
+
+    /** Creates the components and the static appearance of a circuit, not yet adding them. */
+    private void createComponents(CircuitData circData, boolean isHolyCross, boolean isEvolution) {
+      final var context = new ReadContext(this, circData.messages);
+      circData.knownComponents = context.loadKnownComponents(circData, isHolyCross, isEvolution);
+      XmlCircuitReader.placeComponents(circData, context, isHolyCross, isEvolution);
+      for (final var appearElt : XmlIterator.forChildElements(circData.circuitElement, "appear")) {
+        context.loadAppearance(appearElt, circData, circData.circuit.getName() + ".appear");
+      }
+    }
+
+    /** Adds the components created before, and the wires, to the circuit. */
+    private void addComponents(CircuitData circData, boolean isHolyCross, boolean isEvolution) {
+      final var context = new ReadContext(this, circData.messages);
+      new XmlCircuitReader(context, circData, isHolyCross, isEvolution).execute();
     }
 
     Tool findTool(Library lib, String name) {
@@ -648,9 +822,21 @@ class XmlReader {
   }
 
   public static Element ensureLogisimCompatibility(Element elt) {
-    var validLabels = findValidLabels(elt, "circuit", "name");
-    applyValidLabels(elt, "circuit", "name", validLabels);
-    validLabels = findValidLabels(elt, "circuit", "label");
+    ensureCompatibleLabels(elt);
+    return (elt);
+  }
+
+  /**
+   * Makes the labels in an XML tree VHDL compatible.
+   *
+   * @param elt root element of the XML tree
+   * @return the new names of the renamed circuits, which the components referring to them that
+   *     are not in the tree have to use too
+   */
+  private static Map<String, String> ensureCompatibleLabels(Element elt) {
+    final var circuitNames = findValidLabels(elt, "circuit", "name");
+    applyValidLabels(elt, "circuit", "name", circuitNames);
+    var validLabels = findValidLabels(elt, "circuit", "label");
     applyValidLabels(elt, "circuit", "label", validLabels);
     validLabels = findValidLabels(elt, "comp", "label");
     applyValidLabels(elt, "comp", "label", validLabels);
@@ -658,7 +844,7 @@ class XmlReader {
     // stored also in toolbar and lib components. If this is the
     // case, clean them up.
     fixInvalidToolbarLib(elt);
-    return (elt);
+    return circuitNames;
   }
 
   private static void findLibraryUses(ArrayList<Element> dest, String label, Iterable<Element> candidates) {
@@ -1019,7 +1205,9 @@ class XmlReader {
     }
   }
 
-  private void considerRepairs(Document doc, Element root) {
+  private ComponentRepairs considerRepairs(
+      Document doc, Element root, Map<String, String> circuitNames) {
+    final var repairs = new ComponentRepairs(circuitNames);
     final var version = LogisimVersion.fromString(root.getAttribute("source"));
     if (version.compareTo(new LogisimVersion(2, 3, 0)) < 0) {
       // This file was saved before an Edit tool existed. Most likely
@@ -1053,8 +1241,8 @@ class XmlReader {
         }
       }
 
-      repairForWiringLibrary(doc, root);
-      repairForLegacyLibrary(doc, root);
+      repairForWiringLibrary(doc, root, repairs);
+      repairForLegacyLibrary(root, repairs);
     }
 
     // Before version 4.0.0, Pin components had attributes:
@@ -1064,19 +1252,104 @@ class XmlReader {
     // These are now consolidated into two attributes:
     //   type=input|output
     //   behavior=simple|tristate|pullup|pulldown
-    String wiringLibName = findLibNameByDesc(root, "#Wiring");
-    for (final Element compElt : XmlIterator.forDescendantElements(root, "comp")) {
-      convertObsoletePinAttributes(doc, compElt, wiringLibName);
-    }
+    repairs.wiringLib = findLibNameByDesc(root, "#Wiring");
     for (final Element toolElt : XmlIterator.forDescendantElements(root, "tool")) {
-      convertObsoletePinAttributes(doc, toolElt, wiringLibName);
+      convertObsoletePinAttributes(doc, toolElt, repairs.wiringLib);
     }
 
     //prevents the following repairs to be applied when you open the program.
-    if (version.compareTo(new LogisimVersion(0, 0, 0)) == 0) return;
+    if (version.compareTo(new LogisimVersion(0, 0, 0)) == 0) return repairs;
 
     if (version.compareTo(new LogisimVersion(4, 1, 0, "dev")) < 0) {
-      repairFloatLibrary(doc, root);
+      repairFloatLibrary(doc, root, repairs);
+    }
+    return repairs;
+  }
+
+  /**
+   * The repairs of the file header that apply to the components of its circuits too. These are
+   * collected while the header is repaired, and applied to the component records afterwards.
+   */
+  private static final class ComponentRepairs {
+    final Map<String, String> circuitNames;
+    /** The new library of a component, by "library:name". */
+    final Map<String, String> labelMap = new HashMap<>();
+    String legacyLib;
+    String wiringLib;
+    String arithmeticLib;
+
+    ComponentRepairs(Map<String, String> circuitNames) {
+      this.circuitNames = circuitNames;
+    }
+
+    /**
+     * Applies the repairs to the components of the circuits, and adds a message to the root if
+     * some had to be deleted.
+     */
+    void apply(Document doc, Element root, Iterable<CircuitRecords> circuits) {
+      var componentsRemoved = false;
+      for (final var circuit : circuits) {
+        componentsRemoved |= circuit.components().removeIf(comp -> !apply(comp));
+      }
+      if (componentsRemoved) {
+        final var error = "Some components have been deleted. The Legacy library is not supported.";
+        final var elt = doc.createElement("message");
+        elt.setAttribute("value", error);
+        root.appendChild(elt);
+      }
+    }
+
+    // Returns false if the component has to be deleted.
+    private boolean apply(ComponentRecord comp) {
+      final var name = comp.name == null ? "" : comp.name;
+      if (!comp.hasLib()) {
+        comp.name = circuitNames.getOrDefault(name, comp.name);
+        return true;
+      }
+      final var newLib = labelMap.get(comp.lib + ":" + name);
+      if (newLib != null) comp.lib = newLib;
+      if (comp.lib.equals(legacyLib)) return false;
+      if (name.equals("Pin") && comp.lib.equals(wiringLib)) convertObsoletePinAttributes(comp);
+      if (arithmeticLib != null
+          && (comp.lib.equals(arithmeticLib) && name.startsWith("FP") || name.equals("IntToFP"))) {
+        comp.lib = "float";
+      }
+      return true;
+    }
+  }
+
+  private static void convertObsoletePinAttributes(ComponentRecord comp) {
+    String output = null, tristate = null, pull = null, type = null, behavior = null;
+    for (final var it = comp.attributes.entrySet().iterator(); it.hasNext(); ) {
+      final var attr = it.next();
+      final var aname = attr.getKey();
+      final var aval = attr.getValue();
+      if ("output".equalsIgnoreCase(aname)) {
+        output = aval;
+        it.remove();
+      } else if ("tristate".equalsIgnoreCase(aname)) {
+        tristate = aval;
+        it.remove();
+      } else if ("pull".equalsIgnoreCase(aname)) {
+        pull = aval;
+        it.remove();
+      } else if ("type".equalsIgnoreCase(aname)) {
+        type = aval;
+      } else if ("behavior".equalsIgnoreCase(aname)) {
+        behavior = aval;
+      }
+    }
+    if (type == null && output != null) {
+      comp.attributes.put("type", output.equalsIgnoreCase("true") ? "output" : "input");
+    }
+    if (behavior == null) {
+      if ("up".equalsIgnoreCase(pull)) {
+        comp.attributes.put("behavior", "pullup");
+      } else if ("down".equalsIgnoreCase(pull)) {
+        comp.attributes.put("behavior", "pulldown");
+      } else if ("true".equalsIgnoreCase(tristate)) {
+        comp.attributes.put("behavior", "tristate");
+      }
     }
   }
 
@@ -1130,32 +1403,58 @@ class XmlReader {
     elt.appendChild(attr);
   }
 
-  private Document loadXmlFrom(InputStream is) throws SAXException, IOException {
-    final var factory = XmlUtil.getHardenedBuilderFactory();
-    factory.setNamespaceAware(true);
-    try {
-      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-    } catch (ParserConfigurationException ex) {
-      // All implementations are required to support FEATURE_SECURE_PROCESSING.
+  LogisimFile readLibrary(InputStream is, Project proj) throws IOException, SAXException {
+    final var start = System.nanoTime();
+    final var useCache = srcFilePath != null && AppPreferences.PROJECT_CACHE.getBoolean();
+    final var content = useCache ? is.readAllBytes() : null;
+    final var hash = useCache ? ProjectCache.hash(content) : null;
+    final var cacheFile = useCache ? ProjectCache.getCacheFile(new File(srcFilePath)) : null;
+    var parsed = useCache ? ProjectCache.read(cacheFile, hash) : null;
+    final var cached = parsed != null;
+    if (!cached) {
+      try {
+        parsed = XmlStreamParser.parse(useCache ? new ByteArrayInputStream(content) : is);
+      } catch (XMLStreamException e) {
+        if (e.getNestedException() instanceof IOException ioException) throw ioException;
+        throw new SAXException(e);
+      }
     }
-    DocumentBuilder builder = null;
-    try {
-      builder = factory.newDocumentBuilder();
-    } catch (ParserConfigurationException ignored) {
+    final var parseEnd = System.nanoTime();
+
+    final var elt = parsed.root();
+    if (!cached) {
+      final var circuitNames = ensureCompatibleLabels(elt);
+      considerRepairs(parsed.document(), elt, circuitNames)
+          .apply(parsed.document(), elt, parsed.circuits().values());
+      if (useCache) {
+        // the records are written before the circuits are built, as building may change them
+        try {
+          ProjectCache.write(cacheFile, hash, parsed);
+        } catch (IOException e) {
+          logger.debug("Could not write project cache {}: {}", cacheFile, e.toString());
+        }
+      }
     }
-    return builder.parse(is);
-  }
-
-  LogisimFile readLibrary(InputStream is, Project proj) throws IOException, SAXException {
-    final var doc = loadXmlFrom(is);
-    var elt = doc.getDocumentElement();
-    elt = ensureLogisimCompatibility(elt);
+    final var repairEnd = System.nanoTime();
 
-    considerRepairs(doc, elt);
     final var file = new LogisimFile((Loader) loader);
     final var context = new ReadContext(file);
 
-    context.toLogisimFile(elt, proj);
+    context.toLogisimFile(elt, parsed.circuits(), proj);
+    final var end = System.nanoTime();
+    logger.info(
+        "Read {} circuits, {} components and {} wires in {} ms: {} {} ms, repairs {} ms, "
+            + "libraries and options {} ms, circuits {} ms ({} deferred)",
+        parsed.circuits().size(),
+        parsed.componentCount(),
+        parsed.wireCount(),
+        (end - start) / 1_000_000,
+        cached ? "cache" : "parse",
+        (parseEnd - start) / 1_000_000,
+        (repairEnd - parseEnd) / 1_000_000,
+        (end - repairEnd - context.buildTime) / 1_000_000,
+        context.buildTime / 1_000_000,
+        context.deferredCircuits);
 
     if (file.getCircuitCount() == 0) {
       file.addCircuit(new Circuit("main", file, proj));
@@ -1190,7 +1489,7 @@ class XmlReader {
     }
   }
 
-  private void repairForLegacyLibrary(Document doc, Element root) {
+  private void repairForLegacyLibrary(Element root, ComponentRepairs repairs) {
     Element legacyElt = null;
     String legacyLabel = null;
     for (final var libElt : XmlIterator.forChildElements(root, "lib")) {
@@ -1206,22 +1505,15 @@ class XmlReader {
       root.removeChild(legacyElt);
 
       final var toRemove = new ArrayList<Element>();
-      findLibraryUses(toRemove, legacyLabel, XmlIterator.forDescendantElements(root, "comp"));
-      var componentsRemoved = !toRemove.isEmpty();
       findLibraryUses(toRemove, legacyLabel, XmlIterator.forDescendantElements(root, "tool"));
       for (final var elt : toRemove) {
         elt.getParentNode().removeChild(elt);
       }
-      if (componentsRemoved) {
-        final var error = "Some components have been deleted. The Legacy library is not supported.";
-        final var elt = doc.createElement("message");
-        elt.setAttribute("value", error);
-        root.appendChild(elt);
-      }
+      repairs.legacyLib = legacyLabel;
     }
   }
 
-  private void repairForWiringLibrary(Document doc, Element root) {
+  private void repairForWiringLibrary(Document doc, Element root, ComponentRepairs repairs) {
     Element oldBaseElt = null;
     String oldBaseLabel = null;
     Element gatesElt = null;
@@ -1319,11 +1611,11 @@ class XmlReader {
     relocateTools(oldBaseElt, newBaseElt, labelMap);
     relocateTools(oldBaseElt, wiringElt, labelMap);
     relocateTools(gatesElt, wiringElt, labelMap);
-    updateFromLabelMap(XmlIterator.forDescendantElements(root, "comp"), labelMap);
     updateFromLabelMap(XmlIterator.forDescendantElements(root, "tool"), labelMap);
+    repairs.labelMap.putAll(labelMap);
   }
 
-  private void repairFloatLibrary(Document doc, Element root) {
+  private void repairFloatLibrary(Document doc, Element root, ComponentRepairs repairs) {
     Element arithmeticLib = null;
     Node nextSibling = null;
     for (final var lib : XmlIterator.forChildElements(root, "lib")) {
@@ -1358,17 +1650,7 @@ class XmlReader {
         root.appendChild(floatLib);
       }
 
-      for (final var circuit : XmlIterator.forChildElements(root, "circuit")) {
-        for (final var comp : XmlIterator.forChildElements(circuit, "comp")) {
-          final String libName = comp.getAttribute("lib");
-          final String compName = comp.getAttribute("name");
-
-          if (libName.equals(arithmeticLib.getAttribute("name"))
-              && compName.startsWith("FP") || compName.equals("IntToFP")) {
-            comp.setAttribute("lib", "float");
-          }
-        }
-      }
+      repairs.arithmeticLib = arithmeticLib.getAttribute("name");
     }
   }
   private void updateFromLabelMap(Iterable<Element> elts, HashMap<String, String> labelMap) {
@@ -0,0 +1,263 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import com.cburch.logisim.util.StringUtil;
+import com.cburch.logisim.util.XmlUtil;
+import com.cburch.logisim.vhdl.base.VhdlContent;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Reads a .circ file in a single streaming pass. The components and wires of the circuits, which
+ * make up nearly all of a large file, become flat records; everything else (libraries, options,
+ * toolbar, and the attributes, appearance and board maps of each circuit) is small and is kept as a
+ * DOM tree, the header, so that the rest of the reader can handle it as before.
+ *
+ * <p>The labels of the components are made VHDL compatible while they are read, the other repairs
+ * depend on the libraries in the header and are applied to the records by {@link
+ * XmlReader.ComponentRepairs}.
+ */
+class XmlStreamParser {
+
+  /** A {@code comp} element of a circuit. */
+  static final class ComponentRecord {
+    String lib; // null if the element has no lib attribute
+    String name;
+    final String loc;
+    /** The attribute values by name, in the order they were given. */
+    final Map<String, String> attributes = new LinkedHashMap<>();
+    /** The number of {@code a} elements without a name. */
+    int unnamedAttributes;
+
+    ComponentRecord(String lib, String name, String loc) {
+      this.lib = lib;
+      this.name = name;
+      this.loc = loc;
+    }
+
+    boolean hasLib() {
+      return lib != null;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s(%s)", name == null ? "" : name, loc == null ? "" : loc);
+    }
+  }
+
+  /** A {@code wire} element of a circuit. */
+  record WireRecord(String from, String to) {
+    @Override
+    public String toString() {
+      return String.format("w%s-%s", from == null ? "" : from, to == null ? "" : to);
+    }
+  }
+
+  /** The components and wires of a circuit, in the order they appear in the file. */
+  record CircuitRecords(List<ComponentRecord> components, List<WireRecord> wires) {}
+
+  /**
+   * The result of a parse: the header, and the records of each circuit element in it.
+   *
+   * @param componentCount number of components read
+   * @param wireCount number of wires read
+   */
+  record Result(
+      Document document,
+      Element root,
+      Map<Element, CircuitRecords> circuits,
+      int componentCount,
+      int wireCount) {}
+
+  private final XMLStreamReader in;
+  private final Document doc;
+  private final Map<Element, CircuitRecords> circuits = new HashMap<>();
+  /** The VHDL compatible replacements of the invalid component labels met so far. */
+  private final Map<String, String> validLabels = new HashMap<>();
+  private int componentCount;
+  private int wireCount;
+
+  private XmlStreamParser(XMLStreamReader in, Document doc) {
+    this.in = in;
+    this.doc = doc;
+  }
+
+  static Result parse(InputStream is) throws XMLStreamException {
+    final Document doc;
+    try {
+      doc = XmlUtil.getHardenedBuilderFactory().newDocumentBuilder().newDocument();
+    } catch (ParserConfigurationException e) {
+      throw new XMLStreamException(e);
+    }
+    final var in = XmlUtil.getHardenedInputFactory().createXMLStreamReader(is);
+    try {
+      while (in.next() != XMLStreamConstants.START_ELEMENT) {
+        if (!in.hasNext()) throw new XMLStreamException("No root element");
+      }
+      final var parser = new XmlStreamParser(in, doc);
+      final var root = parser.readRoot();
+      doc.appendChild(root);
+      return new Result(doc, root, parser.circuits, parser.componentCount, parser.wireCount);
+    } finally {
+      in.close();
+    }
+  }
+
+  private String tagName() {
+    final var prefix = in.getPrefix();
+    return StringUtil.isNullOrEmpty(prefix) ? in.getLocalName() : prefix + ":" + in.getLocalName();
+  }
+
+  private String attribute(String name) {
+    return in.getAttributeValue(null, name);
+  }
+
+  // Creates the element the reader is on, with its attributes but without its content.
+  private Element startElement() {
+    final var uri = in.getNamespaceURI();
+    final var elt =
+        StringUtil.isNullOrEmpty(uri)
+            ? doc.createElement(tagName())
+            : doc.createElementNS(uri, tagName());
+    for (var i = 0; i < in.getAttributeCount(); i++) {
+      final var attrUri = in.getAttributeNamespace(i);
+      final var prefix = in.getAttributePrefix(i);
+      final var local = in.getAttributeLocalName(i);
+      final var name = StringUtil.isNullOrEmpty(prefix) ? local : prefix + ":" + local;
+      if (StringUtil.isNullOrEmpty(attrUri)) {
+        elt.setAttribute(name, in.getAttributeValue(i));
+      } else {
+        elt.setAttributeNS(attrUri, name, in.getAttributeValue(i));
+      }
+    }
+    return elt;
+  }
+
+  // Copies a character event into the parent; returns false at the end of the parent.
+  private boolean readContent(Element parent, int event) throws XMLStreamException {
+    switch (event) {
+      case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE ->
+          parent.appendChild(doc.createTextNode(in.getText()));
+      case XMLStreamConstants.CDATA -> parent.appendChild(doc.createCDATASection(in.getText()));
+      case XMLStreamConstants.START_ELEMENT -> parent.appendChild(readElement());
+      case XMLStreamConstants.END_ELEMENT -> {
+        return false;
+      }
+      default -> {
+        // comments and processing instructions are dropped
+      }
+    }
+    return true;
+  }
+
+  private Element readElement() throws XMLStreamException {
+    final var elt = startElement();
+    while (readContent(elt, in.next())) {
+      // the content is added by readContent
+    }
+    return elt;
+  }
+
+  private Element readRoot() throws XMLStreamException {
+    final var root = startElement();
+    for (var event = in.next(); ; event = in.next()) {
+      if (event == XMLStreamConstants.START_ELEMENT && "circuit".equals(tagName())) {
+        root.appendChild(readCircuit());
+      } else if (!readContent(root, event)) {
+        return root;
+      }
+    }
+  }
+
+  private Element readCircuit() throws XMLStreamException {
+    final var circElt = startElement();
+    final var records = new CircuitRecords(new ArrayList<>(), new ArrayList<>());
+    circuits.put(circElt, records);
+    for (var event = in.next(); ; event = in.next()) {
+      if (event == XMLStreamConstants.START_ELEMENT && "comp".equals(tagName())) {
+        records.components().add(readComponent());
+        componentCount++;
+      } else if (event == XMLStreamConstants.START_ELEMENT && "wire".equals(tagName())) {
+        records.wires().add(new WireRecord(attribute("from"), attribute("to")));
+        skipElement();
+        wireCount++;
+      } else if (!readContent(circElt, event)) {
+        return circElt;
+      }
+    }
+  }
+
+  private ComponentRecord readComponent() throws XMLStreamException {
+    final var comp = new ComponentRecord(attribute("lib"), attribute("name"), attribute("loc"));
+    for (var event = in.next(); event != XMLStreamConstants.END_ELEMENT; event = in.next()) {
+      if (event != XMLStreamConstants.START_ELEMENT) continue;
+      if (!"a".equals(tagName())) {
+        skipElement();
+        continue;
+      }
+      final var name = attribute("name");
+      final var val = attribute("val");
+      final var text = readText();
+      if (name == null) {
+        comp.unnamedAttributes++;
+      } else if (val == null) {
+        comp.attributes.put(name, text);
+      } else {
+        comp.attributes.put(name, "label".equals(name) && comp.hasLib() ? validLabel(val) : val);
+      }
+    }
+    return comp;
+  }
+
+  // Components from a library are the ones whose labels have to be valid VHDL names.
+  private String validLabel(String label) {
+    if (label.isEmpty() || !VhdlContent.labelVHDLInvalid(label)) return label;
+    return validLabels.computeIfAbsent(label, XmlReader::generateValidVHDLLabel);
+  }
+
+  // Reads the text content of the element the reader is on, up to its end.
+  private String readText() throws XMLStreamException {
+    final var text = new StringBuilder();
+    var depth = 1;
+    while (depth > 0) {
+      switch (in.next()) {
+        case XMLStreamConstants.START_ELEMENT -> depth++;
+        case XMLStreamConstants.END_ELEMENT -> depth--;
+        case XMLStreamConstants.CHARACTERS,
+            XMLStreamConstants.SPACE,
+            XMLStreamConstants.CDATA -> text.append(in.getText());
+        default -> {
+          // no text
+        }
+      }
+    }
+    return text.toString();
+  }
+
+  private void skipElement() throws XMLStreamException {
+    var depth = 1;
+    while (depth > 0) {
+      final var event = in.next();
+      if (event == XMLStreamConstants.START_ELEMENT) depth++;
+      else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+    }
+  }
+}
@@ -31,36 +31,74 @@ import com.cburch.logisim.util.LineBuffer;
 import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.util.XmlUtil;
 import com.cburch.logisim.vhdl.base.VhdlContent;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import java.util.regex.Pattern;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.Attr;
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.Comment;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
 
 final class XmlWriter {
 
+  /**
+   * An element of the file, captured from the model. A tree of these, rooted at the project
+   * element, is a snapshot of the file: it only holds strings, so that it can be written on
+   * another thread than the one that captured it, while the model is edited.
+   */
+  static final class XmlNode {
+    final String name;
+    /** The names and values of the attributes, one after the other. */
+    private final List<String> attributes = new ArrayList<>();
+    /** The child elements and the text, in order. */
+    private final List<Object> content = new ArrayList<>();
+
+    XmlNode(String name) {
+      this.name = name;
+    }
+
+    void setAttribute(String name, String value) {
+      for (var i = 0; i < attributes.size(); i += 2) {
+        if (attributes.get(i).equals(name)) {
+          attributes.set(i + 1, value);
+          return;
+        }
+      }
+      attributes.add(name);
+      attributes.add(value);
+    }
+
+    void appendChild(XmlNode child) {
+      content.add(child);
+    }
+
+    void appendText(String text) {
+      content.add(text);
+    }
+
+    boolean hasContent() {
+      return !content.isEmpty();
+    }
+  }
+
   private final LogisimFile file;
+  /** Used by the parts of the model that describe themselves as DOM elements. */
   private final Document doc;
   /**
    * Path of the file which is being written on disk -- used to relativize components stored in it.
@@ -92,51 +130,48 @@ final class XmlWriter {
 
 
   /* We sort some parts of the xml tree, to help with reproducibility and to
-   * ease testing (e.g. diff a circuit file). Attribute name=value pairs seem
-   * to be sorted already, so we don't worry about those. The code below sorts
-   * the nodes, but only in best-effort fashion (some nodes are identical
-   * except for their child contents, which seems overkill to bother sorting).
-   * Parts of the tree where node order matters (top-level "project", the
-   * libraries, and the toolbar, for example) are not sorted.
+   * ease testing (e.g. diff a circuit file). Attributes are written sorted by
+   * name. The code below sorts the nodes, but only in best-effort fashion (some
+   * nodes are identical except for their child contents, which seems overkill
+   * to bother sorting). Parts of the tree where node order matters (top-level
+   * "project", the libraries, and the toolbar, for example) are not sorted.
+   * The nodes are sorted while they are written, the snapshot is left as is.
    */
 
-  static String attrToString(Attr a) {
-    String n = a.getName();
-    String v = a.getValue().replaceAll("&", "&amp;").replaceAll("\"", "&quot;");
-    return n + "=\"" + v + "\"";
+  static String attrToString(String name, String value) {
+    final var v = value.replaceAll("&", "&amp;").replaceAll("\"", "&quot;");
+    return name + "=\"" + v + "\"";
   }
 
-  static String attrsToString(NamedNodeMap a) {
-    final var n = a.getLength();
+  static String attrsToString(XmlNode node) {
+    final var n = node.attributes.size() / 2;
     if (n == 0) return "";
-    else if (n == 1) return attrToString((Attr) a.item(0));
+    else if (n == 1) return attrToString(node.attributes.get(0), node.attributes.get(1));
     final var lst = new ArrayList<String>();
     for (var i = 0; i < n; i++) {
-      lst.add(attrToString((Attr) a.item(i)));
+      lst.add(attrToString(node.attributes.get(2 * i), node.attributes.get(2 * i + 1)));
     }
     Collections.sort(lst);
     return String.join(" ", lst);
   }
 
-  private static int stringCompare(String stringA, String stringB) {
-    if (stringA == null) return stringB == null ? 0 : -1;
-    if (stringB == null) return 1;
-    return stringA.compareTo(stringB);
+  // The order of the nodes: by name, then attributes, then text. The separator sorts first, and
+  // appears in neither.
+  private static String sortKey(Object item) {
+    return item instanceof XmlNode node ? node.name + "\0" + attrsToString(node) : "#text\0\0" + item;
   }
 
-  private static final Comparator<Node> nodeComparator =
-      (nodeA, nodeB) -> {
-        var compareResult = stringCompare(nodeA.getNodeName(), nodeB.getNodeName());
-        if (compareResult != 0) return compareResult;
-        compareResult = stringCompare(attrsToString(nodeA.getAttributes()), attrsToString(nodeB.getAttributes()));
-        if (compareResult != 0) return compareResult;
-        return stringCompare(nodeA.getNodeValue(), nodeB.getNodeValue());
-      };
+  private static List<Object> sort(List<Object> items) {
+    final var keys = new HashMap<Object, String>();
+    for (final var item : items) keys.put(item, sortKey(item));
+    final var sorted = new ArrayList<>(items);
+    sorted.sort(Comparator.comparing(keys::get));
+    return sorted;
+  }
 
-  static void sort(Node top) {
-    final var children = top.getChildNodes();
-    final var childrenCount = children.getLength();
-    final var name = top.getNodeName();
+  static List<Object> sortedContent(XmlNode top) {
+    final var children = top.content;
+    final var name = top.name;
     // project (contains ordered elements, do not sort)
     // - main
     // - toolbar (contains ordered elements, do not sort)
@@ -152,34 +187,30 @@ final class XmlWriter {
     //   - comp(s)
     //   - wire(s)
     if ("appear".equals(name)) {
-      // the appearance section only has to sort the circuit ports, the rest is static.
-      final var circuitPortIndexes = new ArrayList<Integer>();
-      for (var nodeIndex = 0; nodeIndex < childrenCount; nodeIndex++)
-        if ("circ-port".equals(children.item(nodeIndex).getNodeName())) circuitPortIndexes.add(nodeIndex);
-      if (circuitPortIndexes.isEmpty()) return;
-      final var numberOfPorts = circuitPortIndexes.size();
-      final var nodeSet = new Node[numberOfPorts];
-      for (var portIndex = 0; portIndex < numberOfPorts; portIndex++)
-        nodeSet[portIndex] = children.item(circuitPortIndexes.get(portIndex));
-      Arrays.sort(nodeSet, nodeComparator);
-      for (var portIndex = 0; portIndex < numberOfPorts; portIndex++) top.insertBefore(nodeSet[portIndex], null);
-      return;
-    }
-    if (childrenCount > 1 && !name.equals("project") && !name.equals("lib") && !name.equals("toolbar")
-          && !name.equals("appear")) {
-      final var nodeSet = new Node[childrenCount];
-      for (var nodeIndex = 0; nodeIndex < childrenCount; nodeIndex++) nodeSet[nodeIndex] = children.item(nodeIndex);
-      Arrays.sort(nodeSet, nodeComparator);
-      for (var nodeIndex = 0; nodeIndex < childrenCount; nodeIndex++) top.insertBefore(nodeSet[nodeIndex], null);
+      // the appearance section only has to sort the circuit ports, the rest is static;
+      // the ports go last.
+      final var others = new ArrayList<Object>();
+      final var circuitPorts = new ArrayList<Object>();
+      for (final var child : children) {
+        if (child instanceof XmlNode node && "circ-port".equals(node.name)) circuitPorts.add(child);
+        else others.add(child);
+      }
+      if (circuitPorts.isEmpty()) return children;
+      others.addAll(sort(circuitPorts));
+      return others;
     }
-    for (var childId = 0; childId < childrenCount; childId++) {
-      sort(children.item(childId));
+    if (children.size() > 1 && !name.equals("project") && !name.equals("lib") && !name.equals("toolbar")) {
+      return sort(children);
     }
+    return children;
   }
 
-  static void write(LogisimFile file, OutputStream out, LibraryLoader loader, File destFile, String mainCircFile, boolean recurse)
-      throws ParserConfigurationException, TransformerException, IOException, LoadFailedException {
-
+  /**
+   * Captures the file in its current state. This walks the model, so it has to be done where the
+   * model may be read, usually on the event dispatch thread.
+   */
+  static XmlNode snapshot(LogisimFile file, LibraryLoader loader, File destFile, String mainCircFile, boolean recurse)
+      throws ParserConfigurationException, IOException, LoadFailedException {
     final var docFactory = XmlUtil.getHardenedBuilderFactory();
     final var docBuilder = docFactory.newDocumentBuilder();
 
@@ -193,34 +224,113 @@ final class XmlWriter {
       context = new XmlWriter(file, doc, loader, null, mainCircFile, recurse);
     } else context = new XmlWriter(file, doc, loader);
 
-    context.fromLogisimFile();
+    return context.fromLogisimFile();
+  }
 
-    final var tfFactory = TransformerFactory.newInstance();
-    try {
-      tfFactory.setAttribute("indent-number", 2);
-    } catch (IllegalArgumentException ignored) {
-      // Do nothing
-    }
-    final var tf = tfFactory.newTransformer();
-    tf.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-    tf.setOutputProperty(OutputKeys.INDENT, "yes");
-    try {
-      tf.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-    } catch (IllegalArgumentException ignored) {
-      // Do nothing
-    }
+  /** Writes a snapshot of a file. This can be done on any thread. */
+  static void write(XmlNode snapshot, OutputStream out) throws IOException {
+    final var xml = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    writeNode(xml, snapshot, 0, true);
+    xml.write("\n");
+    xml.flush();
+  }
 
+  static void write(LogisimFile file, OutputStream out, LibraryLoader loader, File destFile, String mainCircFile, boolean recurse)
+      throws ParserConfigurationException, IOException, LoadFailedException {
+    final var snapshot = snapshot(file, loader, destFile, mainCircFile, recurse);
     if ((mainCircFile != null) && (out instanceof ZipOutputStream zipFile)) {
       zipFile.putNextEntry(new ZipEntry(mainCircFile));
     }
-    doc.normalize();
-    sort(doc);
-    Source src = new DOMSource(doc);
-    Result dest = new StreamResult(out);
-    tf.transform(src, dest);
+    write(snapshot, out);
+  }
+
+  /*
+   * Escapes the markup characters of a text. In an attribute value the quote and the whitespace
+   * other than spaces are escaped too, as a parser reads them all back as spaces; in the text of
+   * an element a carriage return is, as a parser reads it back as a newline.
+   */
+  private static void writeEscaped(Writer xml, String text, boolean attribute) throws IOException {
+    for (var i = 0; i < text.length(); i++) {
+      final var c = text.charAt(i);
+      switch (c) {
+        case '&' -> xml.write("&amp;");
+        case '<' -> xml.write("&lt;");
+        case '>' -> xml.write("&gt;");
+        case '\r' -> xml.write("&#13;");
+        case '"' -> xml.write(attribute ? "&quot;" : "\"");
+        case '\t' -> xml.write(attribute ? "&#9;" : "\t");
+        case '\n' -> xml.write(attribute ? "&#10;" : "\n");
+        default -> xml.write(c);
+      }
+    }
   }
 
-  void addAttributeSetContent(Element elt, AttributeSet attrs, AttributeDefaultProvider source, boolean userModifiedOnly) {
+  private static void writeNode(Writer xml, XmlNode node, int depth, boolean sort)
+      throws IOException {
+    xml.write('<');
+    xml.write(node.name);
+    final var attributes = new TreeMap<String, String>();
+    for (var i = 0; i < node.attributes.size(); i += 2) {
+      attributes.put(node.attributes.get(i), node.attributes.get(i + 1));
+    }
+    for (final var attr : attributes.entrySet()) {
+      xml.write(' ');
+      xml.write(attr.getKey());
+      xml.write("=\"");
+      writeEscaped(xml, attr.getValue(), true);
+      xml.write('"');
+    }
+    if (node.content.isEmpty()) {
+      xml.write("/>");
+      return;
+    }
+    xml.write('>');
+
+    // Only elements without text are indented, as whitespace in the others would change their
+    // text. The project is the exception, its text is just a note.
+    var indent = depth == 0;
+    if (!indent) {
+      indent = true;
+      for (final var item : node.content) {
+        if (item instanceof String) indent = false;
+      }
+    }
+    final var content = sort ? sortedContent(node) : node.content;
+    final var sortChildren = sort && !"appear".equals(node.name);
+    for (final var item : content) {
+      if (item instanceof XmlNode child) {
+        if (indent) xml.write("\n" + "  ".repeat(depth + 1));
+        writeNode(xml, child, depth + 1, sortChildren);
+      } else {
+        writeEscaped(xml, (String) item, false);
+      }
+    }
+    if (indent) xml.write("\n" + "  ".repeat(depth));
+    xml.write("</");
+    xml.write(node.name);
+    xml.write('>');
+  }
+
+  // Captures the part of the model that describes itself as a DOM element.
+  private static XmlNode fromDom(Element elt) {
+    final var ret = new XmlNode(elt.getTagName());
+    final var attrs = elt.getAttributes();
+    for (var i = 0; i < attrs.getLength(); i++) {
+      final var attr = attrs.item(i);
+      ret.setAttribute(attr.getNodeName(), attr.getNodeValue());
+    }
+    for (var sub = elt.getFirstChild(); sub != null; sub = sub.getNextSibling()) {
+      if (sub instanceof Element subElt) {
+        ret.appendChild(fromDom(subElt));
+      } else if (sub instanceof CharacterData text && !(sub instanceof Comment)) {
+        ret.appendText(text.getData());
+      }
+    }
+    return ret;
+  }
+
+  void addAttributeSetContent(XmlNode elt, AttributeSet attrs, AttributeDefaultProvider source, boolean userModifiedOnly) {
     if (attrs == null) return;
     if (source != null && source.isAllDefaultValues(attrs, BuildInfo.version)) return;
     for (final var attrBase : attrs.getAttributes()) {
@@ -235,7 +345,7 @@ final class XmlWriter {
         if (dflt == null || (!dflt.equals(val) && !defaultValue.equals(newValue))
             || (attr.equals(StdAttr.APPEARANCE) && !userModifiedOnly)
             || (attr.equals(ProbeAttributes.PROBEAPPEARANCE) && !userModifiedOnly && val.equals(ProbeAttributes.APPEAR_EVOLUTION_NEW))) {
-          final var a = doc.createElement("a");
+          final var a = new XmlNode("a");
           a.setAttribute("name", attr.getName());
           if ("filePath".equals(attr.getName()) && outFilePath != null) {
             final var outFP = Paths.get(outFilePath);
@@ -244,7 +354,7 @@ final class XmlWriter {
             a.setAttribute("val", newValue);
           } else {
             if (newValue.contains("\n")) {
-              a.appendChild(doc.createTextNode(newValue));
+              a.appendText(newValue);
             } else {
               a.setAttribute("val", attr.toStandardString(val));
             }
@@ -271,17 +381,17 @@ final class XmlWriter {
     return null;
   }
 
-  Element fromCircuit(Circuit circuit) {
-    final var ret = doc.createElement("circuit");
+  XmlNode fromCircuit(Circuit circuit) {
+    final var ret = new XmlNode("circuit");
     ret.setAttribute("name", circuit.getName());
     addAttributeSetContent(ret, circuit.getStaticAttributes(), CircuitAttributes.DEFAULT_STATIC_ATTRIBUTES, false);
     if (circuit.getAppearance().hasCustomAppearance()) {
-      final var appear = doc.createElement("appear");
+      final var appear = new XmlNode("appear");
       for (Object obj : circuit.getAppearance().getCustomObjectsFromBottom()) {
         if (obj instanceof AbstractCanvasObject canvasObject) {
           final var elt = canvasObject.toSvgElement(doc);
           if (elt != null) {
-            appear.appendChild(elt);
+            appear.appendChild(fromDom(elt));
           }
         }
       }
@@ -301,16 +411,16 @@ final class XmlWriter {
     return ret;
   }
 
-  Element fromVhdl(VhdlContent vhdl) {
+  XmlNode fromVhdl(VhdlContent vhdl) {
     vhdl.aboutToSave();
-    final var ret = doc.createElement("vhdl");
+    final var ret = new XmlNode("vhdl");
     ret.setAttribute("name", vhdl.getName());
     ret.setAttribute("appearance", StdAttr.APPEARANCE.toStandardString(vhdl.getAppearance()));
-    ret.setTextContent(vhdl.getContent());
+    ret.appendText(vhdl.getContent());
     return ret;
   }
 
-  Element fromMap(Circuit circ, String boardName) {
+  XmlNode fromMap(Circuit circ, String boardName) {
     final var ret = doc.createElement("boardmap");
     ret.setAttribute("boardname", boardName);
     for (String key : circ.getMapInfo(boardName).keySet()) {
@@ -340,10 +450,10 @@ final class XmlWriter {
       }
       ret.appendChild(map);
     }
-    return ret;
+    return fromDom(ret);
   }
 
-  Element fromComponent(Component comp) {
+  XmlNode fromComponent(Component comp) {
     final var source = comp.getFactory();
     final var lib = findLibrary(source);
     String libName;
@@ -365,7 +475,7 @@ final class XmlWriter {
       if (value.isEmpty()) return null;
     }
 
-    final var ret = doc.createElement("comp");
+    final var ret = new XmlNode("comp");
     if (libName != null) ret.setAttribute("lib", libName);
     ret.setAttribute("name", source.getName());
     ret.setAttribute("loc", comp.getLocation().toString());
@@ -373,8 +483,8 @@ final class XmlWriter {
     return ret;
   }
 
-  Element fromLibrary(Library lib) throws IOException, LoadFailedException {
-    final var ret = doc.createElement("lib");
+  XmlNode fromLibrary(Library lib) throws IOException, LoadFailedException {
+    final var ret = new XmlNode("lib");
     if (libs.containsKey(lib)) return null;
     final var name = Integer.toString(libs.size());
     var desc = loader.getDescriptor(lib);
@@ -429,10 +539,10 @@ final class XmlWriter {
     for (Tool t : lib.getTools()) {
       final var attrs = t.getAttributeSet();
       if (attrs != null) {
-        final var toAdd = doc.createElement("tool");
+        final var toAdd = new XmlNode("tool");
         toAdd.setAttribute("name", t.getName());
         addAttributeSetContent(toAdd, attrs, t, true);
-        if (toAdd.getChildNodes().getLength() > 0) {
+        if (toAdd.hasContent()) {
           ret.appendChild(toAdd);
         }
       }
@@ -440,17 +550,15 @@ final class XmlWriter {
     return ret;
   }
 
-  Element fromLogisimFile() throws IOException, LoadFailedException {
-    final var ret = doc.createElement("project");
-    doc.appendChild(ret);
-    ret.appendChild(
-        doc.createTextNode(
-            "\nThis file is intended to be "
-                + "loaded by "
-                + BuildInfo.displayName
-                + "("
-                + BuildInfo.url
-                + ").\n"));
+  XmlNode fromLogisimFile() throws IOException, LoadFailedException {
+    final var ret = new XmlNode("project");
+    ret.appendText(
+        "\nThis file is intended to be "
+            + "loaded by "
+            + BuildInfo.displayName
+            + "("
+            + BuildInfo.url
+            + ").\n");
     ret.setAttribute("version", "1.0");
     ret.setAttribute("source", BuildInfo.version.toString());
 
@@ -460,7 +568,7 @@ final class XmlWriter {
     }
 
     if (file.getMainCircuit() != null) {
-      final var mainElt = doc.createElement("main");
+      final var mainElt = new XmlNode("main");
       mainElt.setAttribute("name", file.getMainCircuit().getName());
       ret.appendChild(mainElt);
     }
@@ -478,8 +586,8 @@ final class XmlWriter {
     return ret;
   }
 
-  Element fromMouseMappings() {
-    final var elt = doc.createElement("mappings");
+  XmlNode fromMouseMappings() {
+    final var elt = new XmlNode("mappings");
     final var map = file.getOptions().getMouseMappings();
     for (final var entry : map.getMappings().entrySet()) {
       final var mods = entry.getKey();
@@ -492,13 +600,13 @@ final class XmlWriter {
     return elt;
   }
 
-  Element fromOptions() {
-    final var elt = doc.createElement("options");
+  XmlNode fromOptions() {
+    final var elt = new XmlNode("options");
     addAttributeSetContent(elt, file.getOptions().getAttributeSet(), null, false);
     return elt;
   }
 
-  Element fromTool(Tool tool) {
+  XmlNode fromTool(Tool tool) {
     final var lib = findLibrary(tool);
     String libName;
     if (lib == null) {
@@ -514,19 +622,19 @@ final class XmlWriter {
       }
     }
 
-    final var elt = doc.createElement("tool");
+    final var elt = new XmlNode("tool");
     if (libName != null) elt.setAttribute("lib", libName);
     elt.setAttribute("name", tool.getName());
     addAttributeSetContent(elt, tool.getAttributeSet(), tool, true);
     return elt;
   }
 
-  Element fromToolbarData() {
-    final var elt = doc.createElement("toolbar");
+  XmlNode fromToolbarData() {
+    final var elt = new XmlNode("toolbar");
     final var toolbar = file.getOptions().getToolbarData();
     for (final var tool : toolbar.getContents()) {
       if (tool == null) {
-        elt.appendChild(doc.createElement("sep"));
+        elt.appendChild(new XmlNode("sep"));
       } else {
         elt.appendChild(fromTool(tool));
       }
@@ -534,8 +642,8 @@ final class XmlWriter {
     return elt;
   }
 
-  Element fromWire(Wire w) {
-    final var ret = doc.createElement("wire");
+  XmlNode fromWire(Wire w) {
+    final var ret = new XmlNode("wire");
     ret.setAttribute("from", w.getEnd0().toString());
     ret.setAttribute("to", w.getEnd1().toString());
     return ret;
@@ -17,6 +17,7 @@ import com.cburch.logisim.gui.log.LogPanel;
 import com.cburch.logisim.gui.log.Model;
 import com.cburch.logisim.gui.log.Signal;
 import com.cburch.logisim.gui.log.SignalInfo;
+import com.cburch.logisim.gui.log.VcdWriter;
 import com.cburch.logisim.gui.main.SimulationToolbarModel;
 import com.cburch.logisim.gui.menu.EditHandler;
 import com.cburch.logisim.gui.menu.LogisimMenuBar;
@@ -37,6 +38,7 @@ import java.awt.image.BufferedImage;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -370,8 +372,7 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
         @Override
         public Dimension getExportImageSize() {
           final var l = leftPanel.getPreferredSize();
-          final var r = rightPanel.getPreferredSize();
-          final var width = l.width + 3 + r.width;
+          final var width = l.width + 3 + rightPanel.getExportWidth();
           final var height = HEADER_HEIGHT + l.height;
           return new Dimension(width, height);
         }
@@ -379,22 +380,24 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
         @Override
         public void paintExportImage(BufferedImage img, Graphics2D g) {
           final var l = leftPanel.getPreferredSize();
-          final var r = rightPanel.getPreferredSize();
+          // a very wide chronogram is exported from the visible part on
+          final var rx = rightPanel.getExportX();
+          final var rw = rightPanel.getExportWidth();
 
           g.setClip(0, 0, l.width, HEADER_HEIGHT);
           leftPanel.getTableHeader().print(g);
 
-          g.setClip(l.width + 3, 0, r.width, HEADER_HEIGHT);
-          g.translate(l.width + 3, 0);
+          g.setClip(l.width + 3, 0, rw, HEADER_HEIGHT);
+          g.translate(l.width + 3 - rx, 0);
           rightPanel.getTimelineHeader().print(g);
-          g.translate(-(l.width + 3), 0);
+          g.translate(-(l.width + 3 - rx), 0);
 
           g.setClip(0, HEADER_HEIGHT, l.width, l.height);
           g.translate(0, HEADER_HEIGHT);
           leftPanel.print(g);
           g.translate(0, -HEADER_HEIGHT);
 
-          g.setClip(l.width + 3, HEADER_HEIGHT, r.width, l.height);
+          g.setClip(l.width + 3, HEADER_HEIGHT, rw, l.height);
           g.translate(l.width + 3, HEADER_HEIGHT);
           rightPanel.paintExportImage(g);
           g.translate(-(l.width + 3), -HEADER_HEIGHT);
@@ -478,6 +481,15 @@ public class ChronoPanel extends LogPanel implements Model.Listener {
           }
         }
 
+        @Override
+        public void exportVcd(File dest) {
+          try {
+            VcdWriter.export(model, dest);
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+        }
+
         @Override
         public int print(Graphics2D g, PageFormat pf, int pageNum, double w, double h) {
           if (pageNum != 0) return Printable.NO_SUCH_PAGE;
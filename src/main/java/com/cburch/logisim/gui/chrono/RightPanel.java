@@ -43,6 +43,10 @@ public class RightPanel extends JPanel {
   private static final int EXTRA_SPACE = 40;
   private static final int CURSOR_GAP = 20;
   private static final int TIMELINE_SPACING = 80;
+  private static final int MAX_WIDTH = 1 << 30;
+  // An exported image is at most this wide; a wider chronogram is exported from the visible
+  // part on.
+  private static final int MAX_EXPORT_WIDTH = 32000;
   private final ChronoPanel chronoPanel;
   final DefaultListSelectionModel selectionModel;
   private Model model;
@@ -264,20 +268,36 @@ public class RightPanel extends JPanel {
   @Override
   public void paintComponent(Graphics graphics) {
     final var gfx = (Graphics2D) graphics;
-    paintPanel(gfx, getWidth(), getHeight(), false);
+    paintPanel(gfx, 0, getWidth(), getHeight(), false);
+  }
+
+  /** Returns the left edge, in panel coordinates, of the part of the panel that is exported. */
+  public int getExportX() {
+    if (width <= MAX_EXPORT_WIDTH) return 0;
+    return Math.max(0, Math.min(getVisibleRect().x, width - MAX_EXPORT_WIDTH));
+  }
+
+  /** Returns the width of the part of the panel that is exported. */
+  public int getExportWidth() {
+    return Math.min(width, MAX_EXPORT_WIDTH);
   }
 
   public void paintExportImage(Graphics2D gfx) {
-    paintPanel(gfx, width, height, true);
+    final var x = getExportX();
+    final var g = (Graphics2D) gfx.create();
+    g.translate(-x, 0);
+    paintPanel(g, x, getExportWidth(), height, true);
+    g.dispose();
   }
 
-  private void paintPanel(Graphics2D gfx, int paintWidth, int paintHeight, boolean export) {
+  private void paintPanel(
+      Graphics2D gfx, int paintX, int paintWidth, int paintHeight, boolean export) {
     /* Anti-aliasing changes from https://github.com/hausen/logisim-evolution */
     gfx.setRenderingHint(
         RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
     gfx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
     gfx.setColor(Color.WHITE);
-    gfx.fillRect(0, 0, paintWidth, paintHeight); // entire viewport, not just (width, height)
+    gfx.fillRect(paintX, 0, paintWidth, paintHeight); // entire viewport, not just (width, height)
     gfx.setColor(Color.BLACK);
     if (rows.isEmpty()) {
       final var f = gfx.getFont();
@@ -292,14 +312,16 @@ public class RightPanel extends JPanel {
       gfx.setFont(f);
       return;
     }
-    if (width > 32000) {
+    if (width > MAX_WIDTH) {
       gfx.setColor(Color.BLACK);
       gfx.setFont(MSG_FONT);
       gfx.drawString("Oops! Chronogram is too large to display.", 15, 15);
       gfx.drawString("Try zooming out, or reset the simulation.", 15, 29);
     } else {
+      final var clip = gfx.getClipBounds();
       for (final var w : rows) {
-        if (export) w.paintWaveformDirect(gfx);
+        if (!export && clip != null && !clip.intersects(w.getBounds())) continue;
+        if (export) w.paintWaveformDirect(gfx, paintX, paintX + paintWidth);
         else w.paintWaveform(gfx);
       }
       paintCursor(gfx);
@@ -417,6 +439,7 @@ public class RightPanel extends JPanel {
 
     final Signal signal;
     private BufferedImage buf;
+    private int bufX; // left edge of buf, in panel coordinates
     boolean selected;
 
     public Waveform(Signal s) {
@@ -428,11 +451,14 @@ public class RightPanel extends JPanel {
       return new Rectangle(0, y, width, WAVE_HEIGHT);
     }
 
-    private void drawSignal(Graphics2D g, boolean bold, Color[] colors) {
+    // Draws the values shown in pixel columns xa up to xb. Where a column holds several values,
+    // they are drawn as a single bar, so zoomed out waveforms take at most one primitive per column.
+    private void drawSignal(Graphics2D g, boolean bold, Color[] colors, int xa, int xb) {
       g.setStroke(new BasicStroke(bold ? 2 : 1));
 
       final var t0 = model.getStartTime();
-      Signal.Iterator cur = signal.new Iterator(t0);
+      final var z = tickWidth / model.getTimeScale();
+      Signal.Iterator cur = signal.new Iterator(t0 + (long) (xa / z));
 
       final var fm = g.getFontMetrics();
 
@@ -440,14 +466,22 @@ public class RightPanel extends JPanel {
       final var min = signal.getFormattedMinValue();
       final var labelWidth = Math.max(fm.stringWidth(max), fm.stringWidth(min));
 
-      final var z = tickWidth / model.getTimeScale();
       var prevHi = false;
       var prevLo = false;
       Color prevFill = null;
       while (cur.value != null) {
-        final var v = cur.getFormattedValue();
         final var x0 = (int) (z * (cur.time - t0));
         final var x1 = (int) (z * (cur.time + cur.duration - t0));
+        if (x0 >= xb) break;
+        if (x1 == x0) {
+          // the next value starts within this column too
+          final var t = Math.max(cur.time + 1, t0 + (long) Math.ceil((x0 + 1) / z));
+          drawSummary(g, x0, signal.summarize(cur.time, t), colors);
+          prevFill = null;
+          if (!cur.advance(t - cur.time)) break;
+          continue;
+        }
+        final var v = cur.getFormattedValue();
 
         var hi = true;
         var lo = true;
@@ -586,7 +620,17 @@ public class RightPanel extends JPanel {
       }
     }
 
-    private void drawWaveform(Graphics2D g) {
+    // A vertical bar, spanning the levels the values take, colored for errors and unknowns.
+    private void drawSummary(Graphics2D g, int x, int classes, Color[] colors) {
+      if ((classes & Signal.SUMMARY_ERROR) != 0) g.setColor(colors[4]);
+      else if ((classes & Signal.SUMMARY_UNKNOWN) != 0) g.setColor(colors[6]);
+      else g.setColor(colors[2]);
+      final var top = (classes & ~Signal.SUMMARY_LOW) != 0 ? HIGH : LOW;
+      final var bottom = (classes & ~Signal.SUMMARY_HIGH) != 0 ? LOW : HIGH;
+      g.drawLine(x, top, x, bottom);
+    }
+
+    private void drawWaveform(Graphics2D g, int xa, int xb) {
       g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_DEFAULT);
       g.setRenderingHint(
           RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
@@ -594,35 +638,42 @@ public class RightPanel extends JPanel {
       final var isBold = (model.getSpotlight() == signal);
       final var colors = chronoPanel.rowColors(signal.info, selected);
       g.setColor(Color.WHITE);
-      g.fillRect(0, 0, width, ChronoPanel.GAP - 1);
-      g.fillRect(0, LOW, width, ChronoPanel.GAP - 1);
+      g.fillRect(xa, 0, xb - xa, ChronoPanel.GAP - 1);
+      g.fillRect(xa, LOW, xb - xa, ChronoPanel.GAP - 1);
       g.setColor(colors[0]);
-      g.fillRect(0, HIGH, width, LOW - HIGH);
+      g.fillRect(xa, HIGH, xb - xa, LOW - HIGH);
       g.setColor(Color.BLACK);
-      drawSignal(g, isBold, colors);
+      drawSignal(g, isBold, colors, xa, xb);
     }
 
-    private void createOffscreen() {
-      buf = (BufferedImage) createImage(width, WAVE_HEIGHT);
+    // Only the visible part, plus a viewport width on either side for scrolling, is drawn
+    // offscreen, so the image size does not depend on the zoom.
+    private void createOffscreen(int xa, int xb) {
+      final var r = getVisibleRect();
+      bufX = Math.max(0, Math.min(xa, r.x - r.width));
+      final var end = Math.min(width, Math.max(xb, r.x + 2 * r.width));
+      buf = (BufferedImage) createImage(end - bufX, WAVE_HEIGHT);
       final var g = buf.createGraphics();
-      drawWaveform(g);
+      g.translate(-bufX, 0);
+      drawWaveform(g, bufX, end);
       g.dispose();
     }
 
     public void paintWaveform(Graphics2D g) {
-      if (buf == null) {
-        // TODO: reallocating image each time seems silly
-        createOffscreen();
-      }
+      final var clip = g.getClipBounds();
+      final var xa = clip == null ? 0 : Math.max(0, clip.x);
+      final var xb = clip == null ? width : Math.min(width, clip.x + clip.width);
+      if (xa >= xb) return;
+      if (buf == null || xa < bufX || xb > bufX + buf.getWidth()) createOffscreen(xa, xb);
       final var y = WAVE_HEIGHT * signal.idx;
-      g.drawImage(buf, null, 0, y);
+      g.drawImage(buf, null, bufX, y);
     }
 
-    public void paintWaveformDirect(Graphics2D g) {
+    public void paintWaveformDirect(Graphics2D g, int xa, int xb) {
       final var y = WAVE_HEIGHT * signal.idx;
       final var gCopy = (Graphics2D) g.create();
       gCopy.translate(0, y);
-      drawWaveform(gCopy);
+      drawWaveform(gCopy, xa, Math.min(width, xb));
       gCopy.dispose();
     }
 
@@ -632,17 +683,15 @@ public class RightPanel extends JPanel {
   }
 
   public void zoom(int sens, int posX) {
-    if (zoom + sens < 1 || zoom + sens > 40) return;
+    if (zoom + sens < -60 || zoom + sens > 40) return;
 
-    // fixme: Offscreen image can be max 32k pixels wide. We should not be
-    // making such huge offscreen images anyway.
     final var timeScale = model.getTimeScale();
     final var t0 = model.getStartTime();
     final var t1 = model.getEndTime();
     final var numTicks = (t1 - t0 + timeScale - 1) / timeScale;
     final var newTickWidth = 20 * Math.pow(1.15, zoom + sens - 20);
     final var newWidth = (int) (newTickWidth * numTicks + EXTRA_SPACE + 0.5);
-    if (newWidth > 32000) return;
+    if (newWidth > MAX_WIDTH) return;
     final var f = timeScale / tickWidth;
     final var mouseT = t0 + posX * f;
     final var sb = chronoPanel.getHorizontalScrollBar();
@@ -744,11 +793,15 @@ public class RightPanel extends JPanel {
       final var h = ChronoPanel.HEADER_HEIGHT - ChronoPanel.GAP;
       g.setColor(Color.BLACK);
       g.drawLine(0, height - 2, width, height - 2);
-      for (var i = 0; true; i++) {
+      // start one major division left of the clip, for the labels reaching into it
+      final var clip = g.getClipBounds();
+      final var tClip = clip == null ? time0 : time0 + (long) (clip.x / pixelPerTime);
+      final var iStart = Math.max(0, (tClip - timeL) / divMajor - 1) * numMinor;
+      for (var i = iStart; true; i++) {
         final var t = timeL + divMinor * i;
         if (t < time0) continue;
         final var x = (int) ((t - time0) * pixelPerTime);
-        if (x >= width) break;
+        if (x >= width || (clip != null && x > clip.x + clip.width)) break;
         if (i % numMinor == 0) {
           if (x + EXTRA_SPACE <= width) {
             g.drawString(Model.formatDuration(t), x, h / 2);
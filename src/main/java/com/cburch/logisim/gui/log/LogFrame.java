@@ -198,7 +198,7 @@ public class LogFrame extends LFrame.SubWindowWithSimulation {
 
     panels =
         new LogPanel[] {
-          new OptionsPanel(this), new ChronoPanel(this),
+          new OptionsPanel(this), new ChronoPanel(this), new TablePanel(this),
         };
     tabbedPane = new JTabbedPane();
     // tabbedPane.setFont(new Font("Dialog", Font.BOLD, 9));
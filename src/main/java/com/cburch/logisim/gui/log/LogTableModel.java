@@ -0,0 +1,251 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import static com.cburch.logisim.gui.Strings.S;
+
+import com.cburch.logisim.circuit.RadixOption;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.util.UniquelyNamedThread;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+
+/**
+ * Rows of the log table: one row for each point in time at which some signal changes, with the
+ * time in the first column. Only the start times of the rows are kept, and the table asks for
+ * the rows it shows. The values of such a window are looked up by seeking each signal to the
+ * time of the first row, and they are formatted on a background thread, a block of rows at a
+ * time. Until a block is formatted, its cells are shown empty.
+ *
+ * <p>All methods are called on the event dispatch thread, as is the listener.
+ */
+class LogTableModel implements ValueTable.Model {
+
+  private static final int BLOCK = 256; // rows formatted at once
+  private static final int CACHED_BLOCKS = 1024;
+
+  private static final ExecutorService FORMATTER =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            final var t = new UniquelyNamedThread(r, "LogTableFormatter");
+            t.setDaemon(true);
+            return t;
+          });
+
+  private record Key(Signal signal, long block, RadixOption radix) {}
+
+  private final Model model;
+  private final Runnable listener; // called when formatted cells become available
+
+  // start time of each row; row r is at times[r - base]
+  private long[] times = new long[64];
+  private int size;
+  private long base;
+
+  private final LinkedHashMap<Key, String[]> cache =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, String[]> eldest) {
+          return size() > CACHED_BLOCKS;
+        }
+      };
+  private final HashMap<Key, Object> pending = new HashMap<>(); // blocks being formatted
+
+  LogTableModel(Model model, Runnable listener) {
+    this.model = model;
+    this.listener = listener;
+    update();
+  }
+
+  // Forgets all rows, for when the signals were reset or changed.
+  void rebuild() {
+    size = 0;
+    base = 0;
+    cache.clear();
+    pending.clear();
+    update();
+  }
+
+  // Indexes the rows added since the last update. The most recent row is indexed again, as coarse
+  // clock modes may have back-dated its values, or merged it with the row before.
+  void update() {
+    if (size > 0) size--;
+    invalidate(base + size);
+    final var signals = model.getSignals();
+    final var end = model.getEndTime();
+    final var from = Math.max(size > 0 ? times[size] : 0, model.getStartTime());
+    if (signals.isEmpty() || from >= end) return;
+    final var iters =
+        new PriorityQueue<Signal.Iterator>(signals.size(), Comparator.comparingLong(it -> it.time));
+    var changed = size == 0;
+    for (final var s : signals) {
+      final var it = s.new Iterator(from);
+      if (it.value == null) continue;
+      if (!changed) {
+        final var previous = s.getValue(from - 1);
+        changed = previous == null || !previous.equals(it.value);
+      }
+      if (it.advance()) iters.add(it);
+    }
+    if (changed) add(from);
+    while (!iters.isEmpty()) {
+      final var it = iters.poll();
+      if (it.time >= end) continue;
+      if (times[size - 1] != it.time) add(it.time);
+      if (it.advance()) iters.add(it);
+    }
+  }
+
+  private void add(long t) {
+    if (size == times.length) {
+      final var first = firstRow();
+      if (first > times.length / 2) {
+        // rows before the history limit are no longer shown
+        System.arraycopy(times, first, times, 0, size - first);
+        size -= first;
+        base += first;
+      } else {
+        times = Arrays.copyOf(times, 2 * times.length);
+      }
+    }
+    times[size++] = t;
+  }
+
+  // Drops the formatted blocks holding row r or later.
+  private void invalidate(long row) {
+    cache.keySet().removeIf(k -> (k.block + 1) * BLOCK > row);
+    pending.keySet().removeIf(k -> (k.block + 1) * BLOCK > row);
+  }
+
+  // Index of the first row shown: the one holding the values at the start of the history.
+  private int firstRow() {
+    final var start = model.getStartTime();
+    var lo = 0;
+    var hi = size - 1;
+    while (lo < hi) {
+      final var mid = (lo + hi + 1) >>> 1;
+      if (times[mid] <= start) lo = mid;
+      else hi = mid - 1;
+    }
+    return lo;
+  }
+
+  @Override
+  public int getRowCount() {
+    return size == 0 ? 0 : size - firstRow();
+  }
+
+  @Override
+  public int getColumnCount() {
+    return model.getSignalCount() + 1;
+  }
+
+  @Override
+  public String getColumnName(int i) {
+    return i == 0 ? S.get("tableTimeColumn") : model.getItem(i - 1).getShortName();
+  }
+
+  @Override
+  public int getColumnValueRadix(int i) {
+    return 0; // the cells hold formatted text
+  }
+
+  @Override
+  public BitWidth getColumnValueWidth(int i) {
+    return null;
+  }
+
+  @Override
+  public String specialColumnEntry(int i) {
+    // the widest text in the column, without looking at any rows
+    if (i == 0) return Model.formatDuration(model.getEndTime());
+    final var s = model.getSignal(i - 1);
+    final var max = s.getFormattedMaxValue();
+    final var min = s.getFormattedMinValue();
+    return max.length() >= min.length() ? max : min;
+  }
+
+  @Override
+  public void changeColumnValueRadix(int i) {
+    if (i == 0) return;
+    final var item = model.getItem(i - 1);
+    final var options = RadixOption.OPTIONS;
+    var k = Arrays.asList(options).indexOf(item.getRadix());
+    model.setRadix(item, options[(k + 1) % options.length]);
+  }
+
+  @Override
+  public void getRowData(int firstRow, int rowCount, ValueTable.Cell[][] rowData) {
+    final var first = firstRow();
+    rowCount = Math.min(rowCount, size - first - firstRow);
+    if (rowCount <= 0) return;
+    final var start = model.getStartTime();
+    for (var r = 0; r < rowCount; r++) {
+      final var t = Math.max(start, times[first + firstRow + r]);
+      rowData[r][0] = new ValueTable.Cell(Model.formatDuration(t), null, null, null);
+    }
+    final var row0 = base + first + firstRow; // absolute row numbers
+    final var row1 = row0 + rowCount;
+    for (var c = 1; c < getColumnCount(); c++) {
+      final var s = model.getSignal(c - 1);
+      for (var b = row0 / BLOCK; b * BLOCK < row1; b++) {
+        final var key = new Key(s, b, s.info.getRadix());
+        final var text = cache.get(key);
+        if (text == null) format(key);
+        for (var row = Math.max(row0, b * BLOCK); row < Math.min(row1, (b + 1) * BLOCK); row++) {
+          final var i = (int) (row - b * BLOCK);
+          final var label = text == null || i >= text.length ? null : text[i];
+          rowData[(int) (row - row0)][c] = new ValueTable.Cell(label, null, null, null);
+        }
+      }
+    }
+  }
+
+  // Looks up the values of a block of rows, and formats them in the background.
+  private void format(Key key) {
+    if (pending.containsKey(key)) return;
+    final var token = new Object();
+    pending.put(key, token);
+    final var from = Math.max(key.block * BLOCK, base + firstRow());
+    final var to = Math.min((key.block + 1) * BLOCK, base + size);
+    final var values = new Value[(int) (to - key.block * BLOCK)];
+    if (from < to) {
+      final var iter = key.signal.new Iterator(times[(int) (from - base)]);
+      for (var row = from; row < to && iter.value != null; row++) {
+        final var t = times[(int) (row - base)];
+        if (t > iter.time) iter.advance(t - iter.time);
+        if (iter.value != null) values[(int) (row - key.block * BLOCK)] = iter.value;
+      }
+    }
+    FORMATTER.execute(
+        () -> {
+          final var text = new String[values.length];
+          for (var i = 0; i < values.length; i++) {
+            if (values[i] != null) text[i] = key.radix.toString(values[i]);
+          }
+          SwingUtilities.invokeLater(
+              () -> {
+                // the rows may have changed in the meantime
+                if (pending.get(key) != token) return;
+                pending.remove(key);
+                cache.put(key, text);
+                listener.run();
+              });
+        });
+  }
+}
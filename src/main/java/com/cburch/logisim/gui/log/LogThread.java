@@ -9,12 +9,22 @@
 
 package com.cburch.logisim.gui.log;
 
+import com.cburch.logisim.data.Value;
 import com.cburch.logisim.util.UniquelyNamedThread;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Writes the log model to a file. The model listener, which runs on the event dispatch thread as
+ * the model stores the samples, only queues the value changes; this thread formats and writes
+ * them. Files named *.vcd or *.vcd.gz get a value change dump, all others tab separated text.
+ */
 class LogThread extends UniquelyNamedThread implements Model.Listener {
   // file will be flushed with at least this frequency (ms)
   private static final int FLUSH_FREQUENCY = 500;
@@ -22,15 +32,41 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
   // file will be closed after waiting this long between writes (ms)
   private static final int IDLE_UNTIL_CLOSE = 10000;
 
+  // capacity of the queue of changes waiting to be written
+  private static final int QUEUE_SIZE = 1 << 16;
+
+  // Records passed from the model listener to this thread.
+  private sealed interface Entry permits Start, Change, Done {}
+
+  // (Re)starts the file with the given signals, and a mode line for text files.
+  private record Start(File file, String top, List<SignalInfo> signals, String mode, boolean header)
+      implements Entry {}
+
+  private record Change(long time, int index, Value value) implements Entry {}
+
+  // All changes up to, but excluding, the given time have been queued.
+  private record Done(long time) implements Entry {}
+
   private final Model model;
   private final Object lock = new Object();
-  private boolean canceled = false;
-  private PrintWriter writer = null;
+  private final ArrayBlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+  private volatile boolean canceled = false;
+
+  // listener side, protected by lock
   private boolean modeDirty = true;
   private boolean headerDirty = true;
+  private long timeNextWrite = 0; // done queueing up to this time, exclusive
+  private File startedFile = null;
+  private Value[] queued = new Value[0]; // most recent value queued for each signal
+
+  // writer side, only used by this thread
+  private File file = null;
+  private PrintWriter writer = null;
+  private VcdWriter vcd = null;
+  private List<SignalInfo> signals = List.of();
+  private Value[] values = new Value[0];
+  private long timeWritten = 0; // values are written up to this time, exclusive
   private long lastWrite = 0;
-  private long timeNextWrite = 0; // done writing up to this time, exclusive
-  private final HashMap<Signal, Signal.Iterator> cursors = new HashMap<>();
 
   public LogThread(Model model) {
     super("LogThread");
@@ -39,134 +75,204 @@ class LogThread extends UniquelyNamedThread implements Model.Listener {
   }
 
   // precondition: lock held and writing()==true
-  private void writeSignals() {
-    if (writer == null) {
-      try {
-        writer = new PrintWriter(new FileWriter(model.getFile(), true));
-      } catch (IOException e) {
-        model.setFile(null);
-        return;
+  private void queueSignals() {
+    if (modeDirty || headerDirty) {
+      final var vcdFile = VcdWriter.isVcdFile(model.getFile());
+      final var info = new ArrayList<SignalInfo>();
+      for (var i = 0; i < model.getSignalCount(); i++) info.add(model.getItem(i));
+      String mode = null;
+      if (modeDirty) {
+        mode = model.isStepMode() ? "step" : model.isRealMode() ? "real-time" : "clocked";
+        mode = "# mode: " + mode + " granularity: " + (model.isFine() ? "fine" : "coarse");
       }
-    }
-    if (modeDirty) {
-      var mode = model.isStepMode() ? "step" : model.isRealMode() ? "real-time" : "clocked";
-      var gran = model.isFine() ? "fine" : "coarse";
-      writer.println("# mode: " + mode + " granularity: " + gran);
+      final var start =
+          new Start(model.getFile(), model.getCircuit().getName(), info, mode, model.getFileHeader());
+      if (!queue.offer(start)) return; // try again on the next change
+      startedFile = model.getFile();
+      // a value change dump is restarted with all of the history that is still available
+      if (vcdFile) timeNextWrite = model.getStartTime();
+      queued = new Value[info.size()];
       modeDirty = false;
-    }
-    if (headerDirty) {
-      if (model.getFileHeader()) {
-        final var buf = new StringBuilder();
-        for (var i = 0; i < model.getSignalCount(); i++) {
-          if (i > 0) buf.append("\t");
-          buf.append(model.getItem(i).getDisplayName());
-        }
-        writer.println(buf);
-      }
       headerDirty = false;
     }
-    Signal.Iterator[] cur = new Signal.Iterator[model.getSignalCount()];
-    for (var i = 0; i < model.getSignalCount(); i++) {
-      final var s = model.getSignal(i);
-      cur[i] = cursors.get(s);
-      if (cur[i] == null) {
-        cur[i] = s.new Iterator(timeNextWrite);
-        cursors.put(s, cur[i]);
-      }
-    }
     final var timeStop = model.getEndTime();
-    while (timeNextWrite < timeStop) {
-      var duration = timeStop - timeNextWrite;
-      final var buf = new StringBuilder();
-      for (int i = 0; i < cur.length; i++) {
-        if (i > 0) buf.append("\t");
-        buf.append(cur[i].getFormattedValue());
-        if (cur[i].duration < duration) duration = cur[i].duration;
-      }
-      // TODO: only write duration if not in coarse-step or coarse-clock mode?
-      writer.println(buf + "\t# " + Model.formatDuration(duration));
-      for (final var c : cur) c.advance(duration);
-      timeNextWrite += duration;
+    if (timeNextWrite >= timeStop) return;
+    final var changes = new ArrayList<Change>();
+    try {
+      VcdWriter.forEachChange(
+          model.getSignals(),
+          timeNextWrite,
+          timeStop,
+          (t, i, v) -> {
+            if (!v.equals(queued[i])) changes.add(new Change(t, i, v));
+          });
+    } catch (IOException impossible) {
+      return;
     }
-    lastWrite = System.currentTimeMillis();
+    // Never wait for the writer: when the queue is full, queue what fits, up to a point in time,
+    // and pick up the rest on the next change. The model still has the history.
+    final var room = queue.remainingCapacity() - 1;
+    var n = changes.size();
+    var until = timeStop;
+    if (n > room) {
+      if (room <= 0) return;
+      n = room;
+      until = changes.get(n).time();
+      while (n > 0 && changes.get(n - 1).time() == until) n--;
+    }
+    if (until <= timeNextWrite) return;
+    for (var i = 0; i < n; i++) {
+      final var c = changes.get(i);
+      queued[c.index()] = c.value();
+      queue.offer(c);
+    }
+    queue.offer(new Done(until));
+    timeNextWrite = until;
   }
 
   public void cancel() {
-    synchronized (lock) {
-      canceled = true;
-      if (writer != null) {
-        writer.close();
-        writer = null;
-      }
-    }
+    canceled = true;
+    interrupt();
   }
 
   @Override
   public void signalsReset(Model.Event event) {
     synchronized (lock) {
-      if (writing()) {
-        timeNextWrite = 0;
-        cursors.clear();
-        writeSignals();
-      }
+      timeNextWrite = 0;
+      queued = new Value[queued.length];
+      // a value change dump cannot go back in time, so it is started over
+      if (isVcdFile()) headerDirty = true;
+      if (writing()) queueSignals();
     }
   }
 
   @Override
   public void signalsExtended(Model.Event event) {
     synchronized (lock) {
-      if (writing()) writeSignals();
+      if (writing()) queueSignals();
     }
   }
 
   @Override
   public void filePropertyChanged(Model.Event event) {
     synchronized (lock) {
-      if (writing()) {
-        if (writer == null) writeSignals();
-      } else {
-        if (writer != null) {
-          writer.close();
-          writer = null;
-        }
+      // a value change dump is closed when disabled, so it is started over when enabled again
+      if (model.getFile() == null || isVcdFile() || !model.getFile().equals(startedFile)) {
+        headerDirty = true;
       }
+      if (writing()) queueSignals();
     }
   }
 
+  private boolean isVcdFile() {
+    return model.getFile() != null && VcdWriter.isVcdFile(model.getFile());
+  }
+
   private boolean writing() {
     return !canceled && model.isSelected() && model.isFileEnabled() && model.getFile() != null;
   }
 
+  private void write(Entry entry) throws IOException {
+    switch (entry) {
+      case Start s -> start(s);
+      case Change c -> {
+        if (vcd != null) {
+          vcd.writeChange(c.time(), c.index(), c.value());
+        } else if (!VcdWriter.isVcdFile(file)) {
+          writeLine(c.time());
+          values[c.index()] = c.value();
+        }
+      }
+      case Done d -> {
+        if (vcd != null) vcd.writeEnd(d.time());
+        else if (!VcdWriter.isVcdFile(file)) writeLine(d.time());
+      }
+    }
+    lastWrite = System.currentTimeMillis();
+  }
+
+  private void start(Start s) throws IOException {
+    final var vcdFile = VcdWriter.isVcdFile(s.file());
+    if (vcdFile || !s.file().equals(file)) close();
+    file = s.file();
+    signals = s.signals();
+    values = new Value[signals.size()];
+    timeWritten = Long.MAX_VALUE; // nothing to write until the first change
+    if (vcdFile) {
+      vcd = VcdWriter.open(file, false);
+      vcd.writeHeader(s.top(), signals);
+    } else {
+      if (writer == null) writer = new PrintWriter(new FileWriter(file, true));
+      if (s.mode() != null) writer.println(s.mode());
+      if (s.header()) {
+        final var buf = new StringBuilder();
+        for (var i = 0; i < signals.size(); i++) {
+          if (i > 0) buf.append("\t");
+          buf.append(signals.get(i).getDisplayName());
+        }
+        writer.println(buf);
+      }
+    }
+  }
+
+  // Writes a text line with the values from timeWritten up to time t.
+  private void writeLine(long t) throws IOException {
+    if (t <= timeWritten) {
+      timeWritten = Math.min(timeWritten, t);
+      return;
+    }
+    // reopen the file after it was closed for being idle
+    if (writer == null) writer = new PrintWriter(new FileWriter(file, true));
+    final var buf = new StringBuilder();
+    for (var i = 0; i < values.length; i++) {
+      if (i > 0) buf.append("\t");
+      buf.append(values[i] == null ? "-" : signals.get(i).format(values[i]));
+    }
+    // TODO: only write duration if not in coarse-step or coarse-clock mode?
+    writer.println(buf + "\t# " + Model.formatDuration(t - timeWritten));
+    timeWritten = t;
+  }
+
+  private void close() throws IOException {
+    if (writer != null) writer.close();
+    if (vcd != null) vcd.close();
+    writer = null;
+    vcd = null;
+  }
+
   @Override
   public void run() {
+    var lastFlush = System.currentTimeMillis();
     while (!canceled) {
-      synchronized (lock) {
-        if (writer != null) {
-          if (System.currentTimeMillis() - lastWrite > IDLE_UNTIL_CLOSE) {
-            writer.close();
-            writer = null;
-          } else {
-            writer.flush();
-          }
-        }
-      }
       try {
-        Thread.sleep(FLUSH_FREQUENCY);
+        final var entry = queue.poll(FLUSH_FREQUENCY, TimeUnit.MILLISECONDS);
+        if (entry != null) write(entry);
+        final var now = System.currentTimeMillis();
+        if (now - lastFlush >= FLUSH_FREQUENCY) {
+          lastFlush = now;
+          if (!model.isFileEnabled()) close();
+          else if (writer != null && now - lastWrite > IDLE_UNTIL_CLOSE) close();
+          else if (writer != null) writer.flush();
+          else if (vcd != null) vcd.flush();
+        }
       } catch (InterruptedException ignored) {
+        // canceled
+      } catch (IOException e) {
+        queue.clear();
+        model.setFile(null);
       }
     }
-    synchronized (lock) {
-      if (writer != null) {
-        writer.close();
-        writer = null;
-      }
+    try {
+      for (var entry = queue.poll(); entry != null; entry = queue.poll()) write(entry);
+      close();
+    } catch (IOException ignored) {
+      // nothing left to do
     }
   }
 
   @Override
   public void selectionChanged(Model.Event event) {
     synchronized (lock) {
-      cursors.keySet().retainAll(model.getSignals()); // removes dead cursors
       headerDirty = true;
     }
   }
@@ -27,8 +27,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.LongSupplier;
+import javax.swing.SwingUtilities;
 
+/**
+ * The signals being logged, with their history. The values are sampled on the simulator thread,
+ * which passes only the changed values on through a ring buffer. They are stored, and the
+ * listeners notified, on the event dispatch thread, so logging does not hold up the simulation.
+ */
 public class Model implements CircuitListener, SignalInfo.Listener {
 
   public static final int STEP = 10;
@@ -96,13 +105,31 @@ public class Model implements CircuitListener, SignalInfo.Listener {
   private long elapsedSinceTrigger;
   private long lastRealtimeUpdate;
 
+  // Sampling, on the simulator thread, or on the event dispatch thread after a mode change.
+  private final SampleRing samples = new SampleRing(1 << 14);
+  private final ReentrantLock sampling = new ReentrantLock(); // only contended by mode changes
+  private final boolean synchronous; // store the samples right away, for tests
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private volatile Signal[] sampledSignals = new Signal[0];
+  private Signal[] changedSignals = new Signal[0];
+  private Value[] changedValues = new Value[0];
+  private int changedCount;
+
+  // Storing, on the event dispatch thread: the step being stored.
+  private int stepKind;
+  private long stepDuration;
+  private int stepRemaining;
+  private long stepNumber;
+  private long[] stepOfSignal = new long[0]; // for each signal, the last step giving it a value
+
   public Model(CircuitState root) {
-    this(root, System::nanoTime);
+    this(root, System::nanoTime, false);
   }
 
-  Model(CircuitState root, LongSupplier nanoTime) {
+  Model(CircuitState root, LongSupplier nanoTime, boolean synchronous) {
     circuitState = root;
     this.nanoTime = nanoTime;
+    this.synchronous = synchronous;
     // Add top-level pins, clocks, etc.
     final var circ = circuitState.getCircuit();
     for (final var comp : circ.getNonWires()) {
@@ -153,6 +180,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
       signals.add(new Signal(i, item, item.fetchValue(circuitState), duration, 0, historyLimit));
     }
     timeEnd = duration;
+    renumberSignals();
 
     // Listen for new pins, clocks, etc., and changes to Signals
     for (final var item : info) item.setListener(this); // includes clock source
@@ -161,6 +189,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
 
   private void renumberSignals() {
     for (int i = 0; i < signals.size(); i++) signals.get(i).idx = i;
+    sampledSignals = signals.toArray(new Signal[0]);
   }
 
   public void addOrMove(List<SignalInfo> items, int idx) {
@@ -432,6 +461,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
                 timeEnd - 1,
                 historyLimit));
         clockSource.setListener(this);
+        renumberSignals();
         fireSelectionChanged(null);
       }
     }
@@ -481,6 +511,7 @@ public class Model implements CircuitListener, SignalInfo.Listener {
     info.add(item);
     final var s = new Signal(idx, item, item.fetchValue(circuitState), 1, timeEnd - 1, historyLimit);
     signals.add(idx, s);
+    renumberSignals();
     item.setListener(this);
     if (fireUpdate) fireSelectionChanged(null);
     return s;
@@ -578,31 +609,152 @@ public class Model implements CircuitListener, SignalInfo.Listener {
     return selected;
   }
 
-  private void extendWithOldValues(long duration) {
-    for (final var s : signals) {
-      s.extend(duration);
+  private boolean isStoringThread() {
+    return synchronous || SwingUtilities.isEventDispatchThread();
+  }
+
+  private void lockSampling() {
+    if (!isStoringThread()) {
+      sampling.lock();
+      return;
+    }
+    // the simulator thread may be holding the lock, waiting for room in the ring
+    while (!sampling.tryLock()) {
+      drainSamples();
+      LockSupport.parkNanos(50_000);
     }
-    elapsedSinceTrigger += duration;
-    timeEnd += duration;
-    fireSignalsExtended(null);
   }
 
-  private void extendWithNewValues(long duration) {
-    for (final var s : signals) {
+  // Fetches the value of each signal, keeping those that changed since they were last sampled.
+  private void sampleValues(boolean all) {
+    final var snapshot = sampledSignals;
+    if (changedSignals.length < snapshot.length) {
+      changedSignals = new Signal[snapshot.length];
+      changedValues = new Value[snapshot.length];
+    }
+    changedCount = 0;
+    for (final var s : snapshot) {
       final var v = s.info.fetchValue(circuitState);
-      s.extend(v, duration);
+      if (all || !v.equals(s.sampled)) {
+        s.sampled = v;
+        changedSignals[changedCount] = s;
+        changedValues[changedCount++] = v;
+      }
     }
+  }
+
+  // Passes a step, with the first count sampled values, on to be stored.
+  private void publishStep(int kind, long duration, int count) {
+    awaitRoom();
+    samples.putStep(kind, duration, count);
+    for (var i = 0; i < count; i++) {
+      awaitRoom();
+      samples.putValue(changedSignals[i], changedValues[i]);
+      changedSignals[i] = null;
+      changedValues[i] = null;
+    }
+    samples.publish();
+    scheduleDrain();
+  }
+
+  private void awaitRoom() {
+    while (!samples.hasRoom()) {
+      samples.publish();
+      if (isStoringThread()) {
+        drainSamples();
+      } else {
+        scheduleDrain();
+        LockSupport.parkNanos(50_000);
+      }
+    }
+  }
+
+  private void scheduleDrain() {
+    if (synchronous) {
+      drainSamples();
+    } else if (drainScheduled.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(
+          () -> {
+            drainScheduled.set(false);
+            drainSamples();
+          });
+    }
+  }
+
+  // Stores the published steps, on the event dispatch thread.
+  private void drainSamples() {
+    final var tail = samples.tail();
+    var extended = false;
+    for (var k = samples.head(); k < tail; k++) {
+      final var kind = samples.kind(k);
+      if (kind != SampleRing.VALUE) {
+        stepKind = kind;
+        stepDuration = samples.duration(k);
+        stepRemaining = samples.count(k);
+        stepNumber++;
+        if (stepOfSignal.length < signals.size()) stepOfSignal = new long[2 * signals.size()];
+      } else {
+        final var s = samples.signal(k);
+        final var v = samples.value(k);
+        switch (stepKind) {
+          case SampleRing.EXTEND_NEW -> s.extend(v, stepDuration);
+          case SampleRing.REPLACE -> s.replaceRecent(v, stepDuration);
+          case SampleRing.RESET -> s.reset(v, stepDuration);
+          default -> throw new IllegalStateException("no values expected for step " + stepKind);
+        }
+        if (s.idx < stepOfSignal.length && s.idx < signals.size() && signals.get(s.idx) == s) {
+          stepOfSignal[s.idx] = stepNumber;
+        }
+        stepRemaining--;
+      }
+      if (stepRemaining == 0) {
+        finishStep();
+        extended = stepKind != SampleRing.RESET;
+      }
+    }
+    samples.release(tail);
+    if (extended) fireSignalsExtended(null);
+  }
+
+  // Brings the signals that were given no value in this step up to date.
+  private void finishStep() {
+    for (var i = 0; i < signals.size(); i++) {
+      if (i < stepOfSignal.length && stepOfSignal[i] == stepNumber) continue;
+      final var s = signals.get(i);
+      switch (stepKind) {
+        case SampleRing.EXTEND_OLD, SampleRing.EXTEND_NEW -> s.extend(stepDuration);
+        case SampleRing.RESET -> s.reset(s.getValue(s.getEndTime() - 1), stepDuration);
+        default -> {
+          // the value did not change, so neither does the history
+        }
+      }
+    }
+    switch (stepKind) {
+      case SampleRing.EXTEND_OLD, SampleRing.EXTEND_NEW -> timeEnd += stepDuration;
+      case SampleRing.RESET -> {
+        timeEnd = stepDuration;
+        fireSignalsReset(null);
+      }
+      default -> {
+        // changed, not extended
+      }
+    }
+  }
+
+  private void extendWithOldValues(long duration) {
+    publishStep(SampleRing.EXTEND_OLD, duration, 0);
+    elapsedSinceTrigger += duration;
+  }
+
+  private void extendWithNewValues(long duration) {
+    sampleValues(false);
+    publishStep(SampleRing.EXTEND_NEW, duration, changedCount);
     elapsedSinceTrigger += duration;
-    timeEnd += duration;
-    fireSignalsExtended(null);
   }
 
   private void replaceWithNewValues(long duration) {
-    for (final var s : signals) {
-      final var v = s.info.fetchValue(circuitState);
-      s.replaceRecent(v, duration);
-    }
-    fireSignalsExtended(null); // changed, not extended, but works fine for now
+    sampleValues(false);
+    publishStep(SampleRing.REPLACE, duration, changedCount);
   }
 
   public void propagationCompleted(boolean ticked, boolean stepped, boolean propagated) {
@@ -616,9 +768,14 @@ public class Model implements CircuitListener, SignalInfo.Listener {
       // This is a transient fluctuation that can be entirely ignored.
       return;
     }
-    if (mode == STEP) updateSignalsStepMode(propagated);
-    else if (mode == REAL) updateSignalsRealMode();
-    else if (mode >= CLOCKED) updateSignalsClockMode();
+    lockSampling();
+    try {
+      if (mode == STEP) updateSignalsStepMode(propagated);
+      else if (mode == REAL) updateSignalsRealMode();
+      else if (mode >= CLOCKED) updateSignalsClockMode();
+    } finally {
+      sampling.unlock();
+    }
   }
 
   private void updateSignalsStepMode(boolean stable) {
@@ -634,25 +791,12 @@ public class Model implements CircuitListener, SignalInfo.Listener {
   }
 
   private void extendRealTimeWithNewValues(long elapsedDuration) {
-    final var values = new Value[signals.size()];
-    var valuesChanged = timeEnd <= 0;
-    for (var i = 0; i < signals.size(); i++) {
-      final var s = signals.get(i);
-      final var v = s.info.fetchValue(circuitState);
-      values[i] = v;
-      if (!valuesChanged) {
-        final var previous = s.getValue(timeEnd - 1);
-        valuesChanged = previous == null || !previous.equals(v);
-      }
-      s.extend(elapsedDuration);
-    }
+    sampleValues(false);
+    final var valuesChanged = changedCount > 0;
     final var eventDuration = valuesChanged ? getRealTimeEventDuration() : 0;
-    for (var i = 0; i < signals.size() && valuesChanged; i++) {
-      signals.get(i).extend(values[i], eventDuration);
-    }
+    publishStep(SampleRing.EXTEND_OLD, elapsedDuration, 0);
+    if (valuesChanged) publishStep(SampleRing.EXTEND_NEW, eventDuration, changedCount);
     elapsedSinceTrigger += elapsedDuration + eventDuration;
-    timeEnd += elapsedDuration + eventDuration;
-    fireSignalsExtended(null);
   }
 
   private void updateSignalsClockMode() {
@@ -725,19 +869,19 @@ public class Model implements CircuitListener, SignalInfo.Listener {
   }
 
   public void simulatorReset() {
-    if (mode >= CLOCKED) {
-      curClockVal = clockSource.fetchValue(circuitState);
-    }
-    long duration = getInitialDuration();
-    if (mode == REAL) lastRealtimeUpdate = nanoTime.getAsLong();
-    elapsedSinceTrigger = 0;
-    for (final var s : signals) {
-      final var v = s.info.fetchValue(circuitState);
-      s.reset(v, duration);
+    lockSampling();
+    try {
+      if (mode >= CLOCKED) {
+        curClockVal = clockSource.fetchValue(circuitState);
+      }
+      long duration = getInitialDuration();
+      if (mode == REAL) lastRealtimeUpdate = nanoTime.getAsLong();
+      sampleValues(true);
+      publishStep(SampleRing.RESET, duration, changedCount);
+      elapsedSinceTrigger = duration;
+    } finally {
+      sampling.unlock();
     }
-    elapsedSinceTrigger += duration;
-    timeEnd = duration;
-    fireSignalsReset(null);
   }
 
   public void setFile(File value) {
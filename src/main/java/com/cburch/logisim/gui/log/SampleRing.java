@@ -0,0 +1,113 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import com.cburch.logisim.data.Value;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer, single-consumer ring buffer passing the sampled signal values from the
+ * simulator thread to the thread storing them. Each step is a header, with its kind, duration and
+ * number of values, followed by the signals whose value changed, each with its new value.
+ *
+ * <p>Neither side takes a lock. The producer writes entries, then publishes them by moving the
+ * tail; the consumer reads the published entries, then frees them by moving the head.
+ */
+final class SampleRing {
+
+  static final int VALUE = 0;
+  static final int EXTEND_OLD = 1; // all signals keep their value
+  static final int EXTEND_NEW = 2; // the listed signals change value
+  static final int REPLACE = 3; // the listed signals change value, back-dated
+  static final int RESET = 4; // all signals start over, the listed ones with a new value
+
+  private final int mask;
+  private final byte[] kinds;
+  private final long[] durations;
+  private final int[] counts;
+  private final Signal[] signals;
+  private final Value[] values;
+  private final AtomicLong head = new AtomicLong(); // entries before this are free
+  private final AtomicLong tail = new AtomicLong(); // entries before this are published
+  private long next; // next entry to write, only used by the producer
+
+  SampleRing(int capacity) {
+    final var size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    mask = size - 1;
+    kinds = new byte[size];
+    durations = new long[size];
+    counts = new int[size];
+    signals = new Signal[size];
+    values = new Value[size];
+  }
+
+  // Producer side.
+
+  boolean hasRoom() {
+    return next - head.get() <= mask;
+  }
+
+  void putStep(int kind, long duration, int count) {
+    final var i = (int) next++ & mask;
+    kinds[i] = (byte) kind;
+    durations[i] = duration;
+    counts[i] = count;
+  }
+
+  void putValue(Signal s, Value v) {
+    final var i = (int) next++ & mask;
+    kinds[i] = VALUE;
+    signals[i] = s;
+    values[i] = v;
+  }
+
+  void publish() {
+    tail.lazySet(next);
+  }
+
+  // Consumer side, for head <= k < tail.
+
+  long head() {
+    return head.get();
+  }
+
+  long tail() {
+    return tail.get();
+  }
+
+  int kind(long k) {
+    return kinds[(int) k & mask];
+  }
+
+  long duration(long k) {
+    return durations[(int) k & mask];
+  }
+
+  int count(long k) {
+    return counts[(int) k & mask];
+  }
+
+  Signal signal(long k) {
+    return signals[(int) k & mask];
+  }
+
+  Value value(long k) {
+    return values[(int) k & mask];
+  }
+
+  // Frees the entries before k.
+  void release(long k) {
+    for (var j = head.get(); j < k; j++) {
+      signals[(int) j & mask] = null;
+      values[(int) j & mask] = null;
+    }
+    head.lazySet(k);
+  }
+}
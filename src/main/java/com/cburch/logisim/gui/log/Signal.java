@@ -15,34 +15,318 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class Signal {
 
   private static final int CHUNK = 512;
 
+  // Value classes, as reported by summarize(). A value is either low (all zeros), high (all ones),
+  // mixed, unknown or error.
+  public static final int SUMMARY_LOW = 1;
+  public static final int SUMMARY_HIGH = 2;
+  public static final int SUMMARY_MIXED = 4;
+  public static final int SUMMARY_UNKNOWN = 8;
+  public static final int SUMMARY_ERROR = 16;
+
   // Signal position in list, name, etc.
   public int idx;
   public final SignalInfo info;
 
   // Signal data
   private long timeStart;
-  private Value[][] val; // values, in blocks no larger than CHUNK
+  private long timeEnd; // timeStart plus the duration of all values
+  private final ArrayList<Chunk> chunks = new ArrayList<>(); // oldest first
   private Value last;
-  private long[][] dur; // duration of each value
   private int curSize;
   private int maxSize; // limit, or zero for unlimited
-  private short firstIndex; // for wrapping, only when limited
+  Value sampled; // most recent value passed on by the simulator thread, see Model
+
+  /**
+   * A run of at most CHUNK consecutive values, all of the same width. One-bit values are packed
+   * in bitsets, wider values take a long word each; the unknown and error masks are only
+   * allocated once such a value occurs. The start times are stored as varint encoded deltas, so
+   * a signal toggling each tick costs a little over one byte per transition. When the history is
+   * limited, the oldest values are dropped from the front of the oldest chunk.
+   *
+   * <p>For drawing zoomed out waveforms, the value classes are or-ed together per group of 8 and
+   * per block of 64 values, and every 64th value is marked with its start time, so that seeking
+   * and summarizing never step through more than a few dozen values.
+   */
+  private static final class Chunk {
+    final int width;
+    final long base; // sequence number of the value at index 0, for positions
+    Chunk next;
+    int size; // values stored, including the dropped ones
+    int first; // index of the oldest value not dropped
+    long firstStart; // start time of value first
+    int firstOffset; // offset of the delta from value first to first + 1
+    long lastStart; // start time of value size - 1
+    int lastOffset; // offset of the delta from value size - 2 to size - 1
+    long[] bits;
+    long[] unknown;
+    long[] error;
+    byte[] deltas = new byte[8];
+    int deltasLength;
+    final byte[] groups = new byte[CHUNK / 8];
+    final byte[] blocks = new byte[CHUNK / 64];
+    final long[] markStart = new long[CHUNK / 64]; // start time of value 64 * m
+    final int[] markOffset = new int[CHUNK / 64]; // offset of the delta following value 64 * m
+
+    Chunk(int width, long base, long start) {
+      this.width = width;
+      this.base = base;
+      this.firstStart = start;
+      this.lastStart = start;
+      this.bits = new long[1];
+    }
+
+    private int words(int size) {
+      return width > 1 ? size : (size + 63) >>> 6;
+    }
+
+    void append(Value v, long start) {
+      if (size > 0) {
+        if (deltasLength + 10 > deltas.length)
+          deltas = Arrays.copyOf(deltas, Math.max(deltasLength + 10, 2 * deltas.length));
+        lastOffset = deltasLength;
+        var delta = start - lastStart;
+        while ((delta & ~0x7fL) != 0) {
+          deltas[deltasLength++] = (byte) (delta | 0x80);
+          delta >>>= 7;
+        }
+        deltas[deltasLength++] = (byte) delta;
+        lastStart = start;
+      }
+      final var words = words(size + 1);
+      if (words > bits.length) {
+        final var len = Math.max(words, Math.min(2 * bits.length, words(CHUNK)));
+        bits = Arrays.copyOf(bits, len);
+        if (unknown != null) unknown = Arrays.copyOf(unknown, len);
+        if (error != null) error = Arrays.copyOf(error, len);
+      }
+      if ((size & 63) == 0) {
+        markStart[size >>> 6] = lastStart;
+        markOffset[size >>> 6] = deltasLength;
+      }
+      size++;
+      set(size - 1, v);
+    }
+
+    void removeLast() {
+      size--;
+      summarize(size);
+      if (size == 0) return;
+      lastStart -= delta(lastOffset);
+      deltasLength = lastOffset;
+      // the previous delta starts right after the last byte of the one before it
+      var k = lastOffset - 2;
+      while (k >= 0 && deltas[k] < 0) k--;
+      lastOffset = size > 1 ? k + 1 : 0;
+    }
+
+    // Drops the oldest value, returns false when no values are left.
+    boolean removeFirst() {
+      if (++first == size) return false;
+      firstStart += delta(firstOffset);
+      firstOffset = skip(firstOffset);
+      return true;
+    }
+
+    // Releases the spare capacity, once no more values are appended.
+    void trim() {
+      deltas = Arrays.copyOf(deltas, deltasLength);
+    }
+
+    long delta(int offset) {
+      var delta = 0L;
+      for (var shift = 0; ; shift += 7) {
+        final var b = deltas[offset++];
+        delta |= (long) (b & 0x7f) << shift;
+        if (b >= 0) return delta;
+      }
+    }
+
+    int skip(int offset) {
+      while (deltas[offset++] < 0) ;
+      return offset;
+    }
+
+    void set(int i, Value v) {
+      if (width == 1) {
+        final var w = i >>> 6;
+        final var mask = 1L << i;
+        bits[w] = v.getValueMask() != 0 ? bits[w] | mask : bits[w] & ~mask;
+        if (v.getUnknownMask() != 0 && unknown == null) unknown = new long[bits.length];
+        if (unknown != null) {
+          unknown[w] = v.getUnknownMask() != 0 ? unknown[w] | mask : unknown[w] & ~mask;
+        }
+        if (v.getErrorMask() != 0 && error == null) error = new long[bits.length];
+        if (error != null) error[w] = v.getErrorMask() != 0 ? error[w] | mask : error[w] & ~mask;
+      } else if (width > 1) {
+        bits[i] = v.getValueMask();
+        if (v.getUnknownMask() != 0 && unknown == null) unknown = new long[bits.length];
+        if (unknown != null) unknown[i] = v.getUnknownMask();
+        if (v.getErrorMask() != 0 && error == null) error = new long[bits.length];
+        if (error != null) error[i] = v.getErrorMask();
+      }
+      summarize(i);
+    }
+
+    // Updates the group and block of value i, after it changed or was removed.
+    private void summarize(int i) {
+      final var g = i >>> 3;
+      var c = 0;
+      for (var k = g << 3; k < Math.min(size, (g + 1) << 3); k++) c |= classOf(k);
+      groups[g] = (byte) c;
+      final var b = i >>> 6;
+      c = 0;
+      for (var k = b << 3; k < (b + 1) << 3; k++) c |= groups[k];
+      blocks[b] = (byte) c;
+    }
+
+    int classOf(int i) {
+      if (width == 1) {
+        final var w = i >>> 6;
+        if (error != null && (error[w] >>> i & 1) != 0) return SUMMARY_ERROR;
+        if (unknown != null && (unknown[w] >>> i & 1) != 0) return SUMMARY_UNKNOWN;
+        return (bits[w] >>> i & 1) != 0 ? SUMMARY_HIGH : SUMMARY_LOW;
+      } else if (width > 1) {
+        if (error != null && error[i] != 0) return SUMMARY_ERROR;
+        if (unknown != null && unknown[i] != 0) return SUMMARY_UNKNOWN;
+        if (bits[i] == 0) return SUMMARY_LOW;
+        return bits[i] == -1L >>> (64 - width) ? SUMMARY_HIGH : SUMMARY_MIXED;
+      } else {
+        return 0;
+      }
+    }
+
+    // The classes of values i up to, but excluding, j.
+    int classes(int i, int j) {
+      var c = 0;
+      while (i < j && (i & 7) != 0) c |= classOf(i++);
+      while (i + 8 <= j && (i & 63) != 0) {
+        c |= groups[i >>> 3];
+        i += 8;
+      }
+      while (i + 64 <= j) {
+        c |= blocks[i >>> 6];
+        i += 64;
+      }
+      while (i + 8 <= j) {
+        c |= groups[i >>> 3];
+        i += 8;
+      }
+      while (i < j) c |= classOf(i++);
+      return c;
+    }
+
+    Value get(int i) {
+      if (width == 1) {
+        final var w = i >>> 6;
+        if (error != null && (error[w] >>> i & 1) != 0) return Value.ERROR;
+        if (unknown != null && (unknown[w] >>> i & 1) != 0) return Value.UNKNOWN;
+        return (bits[w] >>> i & 1) != 0 ? Value.TRUE : Value.FALSE;
+      } else if (width > 1) {
+        return Value.create_unsafe(
+            width, error == null ? 0 : error[i], unknown == null ? 0 : unknown[i], bits[i]);
+      } else {
+        return Value.NIL;
+      }
+    }
+  }
+
+  /**
+   * Position in the stored values, moved forward one value at a time. A cursor stays usable while
+   * values are dropped from the front or appended at the end.
+   */
+  private final class Cursor {
+    Chunk chunk;
+    int index;
+    int offset; // offset of the delta to the next value in this chunk
+    long start; // start time of the current value
+
+    Cursor() {
+      moveTo(chunks.get(0));
+    }
+
+    private void moveTo(Chunk c) {
+      chunk = c;
+      index = c.first;
+      offset = c.firstOffset;
+      start = c.firstStart;
+    }
+
+    boolean next() {
+      if (index + 1 < chunk.size) {
+        start += chunk.delta(offset);
+        offset = chunk.skip(offset);
+        index++;
+        return true;
+      }
+      if (chunk.next == null) return false;
+      moveTo(chunk.next);
+      return true;
+    }
+
+    // Moves to the value at time t, for timeStart <= t. The chunks are sorted by start time,
+    // hence a binary search for the chunk; the most recent value, which is the one looked up
+    // while logging, is checked first.
+    void seek(long t) {
+      final var tail = chunks.get(chunks.size() - 1);
+      if (t >= tail.lastStart) {
+        chunk = tail;
+        index = tail.size - 1;
+        offset = tail.deltasLength;
+        start = tail.lastStart;
+        return;
+      }
+      var lo = 0;
+      var hi = chunks.size() - 1; // invariant: start(lo) <= t < start(hi + 1)
+      while (lo < hi) {
+        final var mid = (lo + hi + 1) >>> 1;
+        if (chunks.get(mid).firstStart <= t) lo = mid;
+        else hi = mid - 1;
+      }
+      moveTo(chunks.get(lo));
+      for (var m = (chunk.size - 1) >>> 6; m > 0 && (m << 6) > index; m--) {
+        if (chunk.markStart[m] <= t) {
+          index = m << 6;
+          offset = chunk.markOffset[m];
+          start = chunk.markStart[m];
+          break;
+        }
+      }
+      while (index + 1 < chunk.size && start + chunk.delta(offset) <= t) next();
+    }
+
+    long end() {
+      if (index + 1 < chunk.size) return start + chunk.delta(offset);
+      return chunk.next == null ? timeEnd : chunk.next.firstStart;
+    }
+
+    int position() {
+      final var head = chunks.get(0);
+      return (int) (chunk.base + index - head.base - head.first);
+    }
+
+    boolean isLast() {
+      return chunk.next == null && index == chunk.size - 1;
+    }
+
+    Value value() {
+      return chunk.get(index);
+    }
+  }
 
   public Signal(
       int idx, SignalInfo info, Value initialValue, long duration, long timeStart, int maxSize) {
     this.idx = idx;
     this.info = info;
     this.timeStart = timeStart;
+    this.timeEnd = timeStart;
     this.maxSize = maxSize;
-    this.val = new Value[1][maxSize == 0 || maxSize > CHUNK ? CHUNK : maxSize];
-    this.dur = new long[1][maxSize == 0 || maxSize > CHUNK ? CHUNK : maxSize];
     this.curSize = 0;
-    this.firstIndex = 0;
     extend(initialValue, duration);
   }
 
@@ -51,21 +335,57 @@ public class Signal {
   }
 
   public long getEndTime() {
-    var t = timeStart;
-    for (var p = 0; p < curSize; p++) {
-      var i = (firstIndex + p) % curSize;
-      t += dur[i / CHUNK][i % CHUNK];
-    }
-    return t;
+    return timeEnd;
   }
 
-  public void extend(long duration) {
-    if (last == null) {
-      timeStart += duration;
+  private Chunk tail() {
+    return chunks.get(chunks.size() - 1);
+  }
+
+  // Stores v, starting at time t, after the most recent value.
+  private void append(Value v, long t) {
+    final var tail = chunks.isEmpty() ? null : tail();
+    if (tail == null || tail.size == CHUNK || tail.width != v.getWidth()) {
+      final var chunk = new Chunk(v.getWidth(), tail == null ? 0 : tail.base + tail.size, t);
+      if (tail != null) {
+        tail.trim();
+        tail.next = chunk;
+      }
+      chunks.add(chunk);
+      chunk.append(v, t);
     } else {
-      final var i = (firstIndex + curSize - 1) % curSize;
-      dur[i / CHUNK][i % CHUNK] += duration;
+      tail.append(v, t);
+    }
+    curSize++;
+  }
+
+  private void removeLast() {
+    final var tail = tail();
+    tail.removeLast();
+    if (tail.size == tail.first) {
+      chunks.remove(chunks.size() - 1);
+      if (!chunks.isEmpty()) tail().next = null;
     }
+    curSize--;
+  }
+
+  private void removeFirst() {
+    if (!chunks.get(0).removeFirst()) chunks.remove(0);
+    curSize--;
+    timeStart = chunks.get(0).firstStart;
+  }
+
+  // The value stored before the most recent one, for curSize > 1.
+  private Value previous() {
+    final var tail = tail();
+    if (tail.size - 1 > tail.first) return tail.get(tail.size - 2);
+    final var c = chunks.get(chunks.size() - 2);
+    return c.get(c.size - 1);
+  }
+
+  public void extend(long duration) {
+    if (last == null) timeStart += duration;
+    timeEnd += duration;
   }
 
   public void extend(Value v, long duration) {
@@ -74,70 +394,41 @@ public class Signal {
           "*** notice: value width mismatch for %s: width=%d bits, newVal=%s (%d bits)\n",
           info, info.getWidth(), v, v.getWidth());
     if (last != null && last.equals(v)) {
-      final var i = (firstIndex + curSize - 1) % curSize;
-      dur[i / CHUNK][i % CHUNK] += duration;
+      timeEnd += duration;
       return;
     }
     last = v;
-    final var c = val.length;
-    final var cap = CHUNK * (c - 1) + val[c - 1].length;
-    if (curSize < cap) {
-      // fits in an existing chunk
-      val[curSize / CHUNK][curSize % CHUNK] = v;
-      dur[curSize / CHUNK][curSize % CHUNK] = duration;
-      curSize++;
-    } else if (curSize < maxSize || maxSize <= 0) {
-      // allocate another chunk
-      final var val2 = new Value[c + 1][];
-      final var dur2 = new long[c + 1][];
-      System.arraycopy(val, 0, val2, 0, c);
-      System.arraycopy(dur, 0, dur2, 0, c);
-      val2[c] = new Value[maxSize == 0 || (maxSize - cap) > CHUNK ? CHUNK : (maxSize - cap)];
-      dur2[c] = new long[maxSize == 0 || (maxSize - cap) > CHUNK ? CHUNK : (maxSize - cap)];
-      val = val2;
-      dur = dur2;
-      val[curSize / CHUNK][curSize % CHUNK] = v;
-      dur[curSize / CHUNK][curSize % CHUNK] = duration;
-      curSize++;
-    } else {
-      // limited size is filled, wrap around, and adjust start offset
-      timeStart += dur[firstIndex / CHUNK][firstIndex % CHUNK];
-      val[firstIndex / CHUNK][firstIndex % CHUNK] = v;
-      dur[firstIndex / CHUNK][firstIndex % CHUNK] = duration;
-      firstIndex++;
-      if (firstIndex >= maxSize) firstIndex = 0;
-    }
+    append(v, timeEnd);
+    // when the limited size is filled, the oldest value is dropped
+    if (maxSize > 0 && curSize > maxSize) removeFirst();
+    timeEnd += duration;
   }
 
   public void replaceRecent(Value v, long duration) {
     if (last == null || curSize == 0)
       throw new IllegalStateException("signal should have at least " + duration + " ns of data");
-    final var i = (firstIndex + curSize - 1) % curSize;
-    if (dur[i / CHUNK][i % CHUNK] == duration) {
-      val[i / CHUNK][i % CHUNK] = v;
+    final var tail = tail();
+    final var d = timeEnd - tail.lastStart;
+    if (d == duration) {
+      final var s = tail.lastStart;
+      if (tail.width == v.getWidth()) {
+        tail.set(tail.size - 1, v);
+      } else {
+        removeLast();
+        append(v, s);
+      }
       last = v;
-      final var j = (i + curSize - 1) % curSize;
-      if (curSize > 1 && val[j / CHUNK][j % CHUNK].equals(v)) {
-        dur[j / CHUNK][j % CHUNK] += duration;
-        curSize--;
-        // special case: last chunk is now entirely empty, must be removed
-        if (i % CHUNK == 0) {
-          int c = val.length - 1;
-          final var valueNew = new Value[c][];
-          final var durNew = new long[c][];
-          System.arraycopy(val, 0, valueNew, 0, c);
-          System.arraycopy(dur, 0, durNew, 0, c);
-          val = valueNew;
-          dur = durNew;
-        }
+      if (curSize > 1 && previous().equals(v)) {
+        // the previous value now simply lasts until the end time
+        removeLast();
       }
-    } else if (dur[i / CHUNK][i % CHUNK] > duration) {
-      dur[i / CHUNK][i % CHUNK] -= duration;
+    } else if (d > duration) {
+      timeEnd -= duration;
       extend(v, duration);
-    } else if (curSize == 1 && dur[i / CHUNK][i % CHUNK] + timeStart >= duration) {
-      timeStart -= (duration - dur[i / CHUNK][i % CHUNK]);
-      val[i / CHUNK][i % CHUNK] = v;
-      dur[i / CHUNK][i % CHUNK] = duration;
+    } else if (curSize == 1 && d + timeStart >= duration) {
+      timeStart = timeEnd - duration;
+      removeLast();
+      append(v, timeStart);
       last = v;
     } else {
       throw new IllegalStateException(
@@ -145,97 +436,27 @@ public class Signal {
               + duration
               + " ns in duration,"
               + " but only "
-              + dur[i / CHUNK][i % CHUNK]
+              + d
               + " in last signal");
     }
   }
 
-  private void retainOnly(int offset, int amt, int cap) {
-    // shift all values [from offset to offset+amt] left into new arrays
-    // of size appropriate for eventual capacity cap
-    final var c = (amt + CHUNK - 1) / CHUNK;
-    final var last = cap == 0 ? CHUNK : Math.min(CHUNK, cap - (c - 1) * CHUNK);
-    final var v = new Value[c][];
-    final var d = new long[c][];
-    for (var i = 0; i < c; i++) {
-      v[i] = new Value[i < c - 1 ? CHUNK : last];
-      d[i] = new long[i < c - 1 ? CHUNK : last];
-    }
-    for (var p = 0; p < amt; p++) {
-      int i = (firstIndex + offset + p) % curSize;
-      v[p / CHUNK][p % CHUNK] = val[i / CHUNK][i % CHUNK];
-      d[p / CHUNK][p % CHUNK] = dur[i / CHUNK][i % CHUNK];
-    }
-    val = v;
-    dur = d;
-    firstIndex = 0;
-    curSize = amt;
-  }
-
   public void resize(int newMaxSize) {
     if (newMaxSize == maxSize) return;
-    if (newMaxSize == 0 || newMaxSize > maxSize) {
-      // growing
-      retainOnly(0, curSize, newMaxSize); // keeps all data, but shifts it left
-    } else {
-      // shrinking: newMaxSize < maxSize
-      if (curSize <= newMaxSize) {
-        // Mostly empty, keep all data, but maybe truncate last chunk if needed
-        // to get capacity below new max size.
-        // Note: firstIndex must be 0, since otherwize curSize==maxSize,
-        // and that would mean curSize > newMaxSize.
-        // There are two cases:
-        //  very unfull:
-        //    cap -----------------------------------------------|
-        //    curSize --------------------------|
-        //    [ 0+ full large-chunks ] [ partly full large-chunk ] [ not yet allocated... ]
-        //  nearly full:
-        //    cap ---------------------------------------------|
-        //    curSize -------------------------|
-        //    [ 0+ full large-chunks ] [ partly full end-chunk ]
-        // In the very unfull case, we may be able to do nothing at all
-        // (if cap <= newMaxSize), or we may have to shrink that last allocated
-        // chunk (if cap > newMaxSize).
-        // In the nearly full case, cap > newMaxSize and we need to shrink the
-        // last allocated chunk.
-        final var c = val.length;
-        final var cap = CHUNK * (c - 1) + val[c - 1].length;
-        if (cap > newMaxSize) {
-          // Note: # of existing chunks (c) must be equal to # of new chunks
-          final var last = Math.min(CHUNK, newMaxSize - (c - 1) * CHUNK);
-          final var v = new Value[last];
-          final var d = new long[last];
-          System.arraycopy(val[c - 1], 0, v, 0, last);
-          System.arraycopy(dur[c - 1], 0, d, 0, last);
-          val[c - 1] = v;
-          dur[c - 1] = d;
-        }
-      } else { // curSize > newMaxSize
-        // too much data, keep only most recent data and shift it left
-        final var discard = (maxSize - newMaxSize);
-        for (var p = 0; p < discard; p++) {
-          final var i = (firstIndex + p) % curSize;
-          timeStart += dur[i / CHUNK][i % CHUNK];
-        }
-        retainOnly(discard, newMaxSize, newMaxSize);
-      }
+    // values are stored as they come, so growing needs no work; when shrinking, only the most
+    // recent data is kept
+    if (newMaxSize > 0) {
+      while (curSize > newMaxSize) removeFirst();
     }
     maxSize = newMaxSize;
   }
 
   public void reset(Value v, long duration) {
-    if (val.length > 1) {
-      final var val2 = new Value[1][];
-      final var dur2 = new long[1][];
-      val2[0] = val[0];
-      dur2[0] = dur[0];
-      val = val2;
-      dur = dur2;
-    }
+    chunks.clear();
     last = null;
     curSize = 0;
-    firstIndex = 0;
     timeStart = 0;
+    timeEnd = 0;
     extend(v, duration);
   }
 
@@ -245,14 +466,14 @@ public class Signal {
     public long time;
     public long duration;
     public Value value;
+    private final Cursor cursor;
 
     public Iterator() {
+      cursor = new Cursor();
       position = 0;
       time = timeStart;
-      final var i = firstIndex;
-      final var width = info.getWidth();
-      value = val[i / CHUNK][i % CHUNK].extendWidth(width, Value.FALSE);
-      duration = dur[i / CHUNK][i % CHUNK];
+      value = cursor.value().extendWidth(info.getWidth(), Value.FALSE);
+      duration = cursor.end() - time;
     }
 
     public Iterator(long t) {
@@ -265,17 +486,16 @@ public class Signal {
     }
 
     public boolean advance() {
-      if (position == curSize - 1) {
+      if (cursor.isLast()) {
         value = null;
         duration = 0;
         return false;
       }
+      cursor.next();
       position++;
       time += duration;
-      final var i = (firstIndex + position) % curSize;
-      final var width = info.getWidth();
-      value = val[i / CHUNK][i % CHUNK].extendWidth(width, Value.FALSE);
-      duration = dur[i / CHUNK][i % CHUNK];
+      value = cursor.value().extendWidth(info.getWidth(), Value.FALSE);
+      duration = cursor.end() - time;
       return true;
     }
 
@@ -283,8 +503,21 @@ public class Signal {
       if (value == null) return false;
       if (timeFwd <= 0) return true;
       final var t = time + timeFwd;
-      while (t >= time + duration) {
-        if (!advance()) return false;
+      if (t >= time + duration) {
+        if (t >= timeEnd) {
+          // moved past the end, as advance() does at the last value
+          cursor.seek(timeEnd);
+          position = curSize - 1;
+          time = cursor.start;
+          value = null;
+          duration = 0;
+          return false;
+        }
+        cursor.seek(t);
+        position = cursor.position();
+        value = cursor.value().extendWidth(info.getWidth(), Value.FALSE);
+        time = cursor.start;
+        duration = cursor.end() - time;
       }
       // postcondition: t < time + duration
       //                t - time < duration
@@ -294,18 +527,29 @@ public class Signal {
     }
   }
 
-  // TODO: easily optimized
   public Value getValue(long t) { // always current width, even when width changes
-    if (t < timeStart) return null;
-    final var width = info.getWidth();
-    var tt = timeStart;
-    for (int p = 0; p < curSize; p++) {
-      final var i = (firstIndex + p) % curSize;
-      final var d = dur[i / CHUNK][i % CHUNK];
-      if (t < tt + d) return val[i / CHUNK][i % CHUNK].extendWidth(width, Value.FALSE);
-      tt += d;
-    }
-    return null;
+    if (t < timeStart || t >= timeEnd) return null;
+    final var cursor = new Cursor();
+    cursor.seek(t);
+    return cursor.value().extendWidth(info.getWidth(), Value.FALSE);
+  }
+
+  /**
+   * Returns the classes of the values during [t0, t1), or-ed together, for drawing many values
+   * at once. Whole groups and blocks of values are looked up rather than visited one by one.
+   */
+  public int summarize(long t0, long t1) {
+    t0 = Math.max(t0, timeStart);
+    t1 = Math.min(t1, timeEnd);
+    if (t0 >= t1) return 0;
+    final var from = new Cursor();
+    from.seek(t0);
+    final var to = new Cursor();
+    to.seek(t1 - 1);
+    if (from.chunk == to.chunk) return from.chunk.classes(from.index, to.index + 1);
+    var c = from.chunk.classes(from.index, from.chunk.size);
+    for (var k = from.chunk.next; k != to.chunk; k = k.next) c |= k.classes(k.first, k.size);
+    return c | to.chunk.classes(to.chunk.first, to.index + 1);
   }
 
   public String getFormattedValue(long t) {
@@ -69,6 +69,12 @@ public class SignalInfo implements AttributeListener, CircuitListener, Location.
   private String fullname; // a path-like name, with slashes, ending with the nickname
   private int width = -1; // stored here so we can monitor for changes
 
+  // The logger of the component and the circuit state it lives in, as resolved for the last
+  // fetchValue(); dropped whenever the circuits along the path change.
+  private record Binding(CircuitState root, CircuitState state, LoggableContract log) {}
+
+  private volatile Binding binding;
+
   private boolean obsoleted;
   private Listener listener; // only one supported, for now, usally just the LogModel
 
@@ -121,6 +127,7 @@ public class SignalInfo implements AttributeListener, CircuitListener, Location.
       return; // this SelectionItem doesn't appear to be alive any more
     }
     final var action = event.getAction();
+    if (action == CircuitEvent.ACTION_CLEAR || action == CircuitEvent.TRANSACTION_DONE) binding = null;
     if (action == CircuitEvent.ACTION_CLEAR) {
       // This happens only when analyzer is replacing an entire circuit. Can we
       // match up pin names perhaps? todo later
@@ -239,17 +246,34 @@ public class SignalInfo implements AttributeListener, CircuitListener, Location.
   }
 
   public Value fetchValue(CircuitState root) {
+    var b = binding;
+    // a substate is detached from its parent when its subcircuit component goes away
+    if (b == null || b.root != root || (n > 1 && b.state.getParentState() == null)) b = bind(root);
+    return b.log == null ? Value.NIL : b.log.getLogValue(b.state, option);
+  }
+
+  private Binding bind(CircuitState root) {
     final var log = (LoggableContract) path[n - 1].getFeature(LoggableContract.class);
-    if (log == null) return Value.NIL;
     var cur = root;
-    for (var i = 0; i < n - 1; i++) cur = circ[i].getSubcircuitFactory().getSubstate(cur, path[i]);
-    return log.getLogValue(cur, option);
+    if (log != null) {
+      for (var i = 0; i < n - 1; i++) cur = circ[i].getSubcircuitFactory().getSubstate(cur, path[i]);
+    }
+    final var b = new Binding(root, cur, log);
+    binding = b;
+    return b;
   }
 
   public Component getComponent() {
     return path[n - 1];
   }
 
+  // Names of the subcircuit components along the path, outermost first.
+  public String[] getScopeNames() {
+    final var names = new String[n - 1];
+    for (var i = 0; i < n - 1; i++) names[i] = logName(path[i], null);
+    return names;
+  }
+
   public Circuit getTopLevelCircuit() {
     return circ[0];
   }
@@ -350,6 +374,7 @@ public class SignalInfo implements AttributeListener, CircuitListener, Location.
   private void remove() {
     if (obsoleted) return;
     obsoleted = true;
+    binding = null;
     for (final var t : circ) t.removeCircuitListener(this);
     for (final var c : path) c.getAttributeSet().removeAttributeListener(this);
     if (listener != null) listener.signalInfoObsoleted(this);
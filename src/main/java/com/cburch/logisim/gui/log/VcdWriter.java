@@ -0,0 +1,190 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.generated.BuildInfo;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming writer for the Value Change Dump format of IEEE 1364, as read by GTKWave and most
+ * other waveform viewers. Only value changes are written. The subcircuits along the path of each
+ * signal become nested scopes. Files named *.vcd.gz are written gzip compressed. Times are in
+ * nanoseconds, as in the log model.
+ */
+public class VcdWriter implements Closeable {
+
+  public interface ChangeAction {
+    void change(long time, int index, Value value) throws IOException;
+  }
+
+  private static final class Scope {
+    final LinkedHashMap<String, Scope> scopes = new LinkedHashMap<>();
+    final ArrayList<Integer> signals = new ArrayList<>();
+  }
+
+  private final Writer out;
+  private String[] ids = new String[0];
+  private long time = -1; // the last timestamp written
+  private long endTime = -1; // data is complete up to here
+
+  public VcdWriter(Writer out) {
+    this.out = out;
+  }
+
+  public static boolean isVcdFile(File file) {
+    final var name = file.getName().toLowerCase();
+    return name.endsWith(".vcd") || name.endsWith(".vcd.gz");
+  }
+
+  public static VcdWriter open(File file, boolean append) throws IOException {
+    OutputStream stream = new FileOutputStream(file, append);
+    // appending adds another gzip member, which gzip readers simply concatenate
+    if (file.getName().toLowerCase().endsWith(".gz")) stream = new GZIPOutputStream(stream, 1 << 16);
+    return new VcdWriter(
+        new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII), 1 << 16));
+  }
+
+  // Identifiers are short strings of the printable characters '!' to '~'.
+  private static String identifier(int index) {
+    final var buf = new StringBuilder();
+    do {
+      buf.append((char) ('!' + index % 94));
+      index = index / 94 - 1;
+    } while (index >= 0);
+    return buf.toString();
+  }
+
+  private static String name(String s) {
+    return s.replaceAll("\\s+", "_");
+  }
+
+  public void writeHeader(String top, List<SignalInfo> signals) throws IOException {
+    ids = new String[signals.size()];
+    time = -1;
+    endTime = -1;
+    out.write("$date\n  " + new Date() + "\n$end\n");
+    out.write("$version\n  " + BuildInfo.displayName + "\n$end\n");
+    out.write("$timescale 1ns $end\n");
+    final var root = new Scope();
+    for (var i = 0; i < signals.size(); i++) {
+      ids[i] = identifier(i);
+      var scope = root;
+      for (final var s : signals.get(i).getScopeNames()) {
+        scope = scope.scopes.computeIfAbsent(name(s), k -> new Scope());
+      }
+      scope.signals.add(i);
+    }
+    writeScope(name(top), root, signals);
+    out.write("$enddefinitions $end\n");
+  }
+
+  private void writeScope(String name, Scope scope, List<SignalInfo> signals) throws IOException {
+    out.write("$scope module " + name + " $end\n");
+    for (final var i : scope.signals) {
+      final var info = signals.get(i);
+      final var width = Math.max(info.getWidth(), 1);
+      out.write("$var wire " + width + " " + ids[i] + " " + name(info.getShortName()));
+      if (width > 1) out.write(" [" + (width - 1) + ":0]");
+      out.write(" $end\n");
+    }
+    for (final var e : scope.scopes.entrySet()) writeScope(e.getKey(), e.getValue(), signals);
+    out.write("$upscope $end\n");
+  }
+
+  private static char bit(Value v) {
+    if (v == Value.ERROR) return 'x';
+    if (v == Value.UNKNOWN) return 'z';
+    return v == Value.TRUE ? '1' : '0';
+  }
+
+  public void writeChange(long t, int index, Value v) throws IOException {
+    if (t > time) {
+      out.write("#" + t + "\n");
+      time = t;
+    }
+    final var width = v.getWidth();
+    if (width == 1) {
+      out.write(bit(v));
+    } else if (width == 0) {
+      out.write('x');
+    } else {
+      // leading zeros are implied
+      var msb = width - 1;
+      while (msb > 0 && v.get(msb) == Value.FALSE) msb--;
+      final var buf = new StringBuilder(msb + 2).append('b');
+      for (var i = msb; i >= 0; i--) buf.append(bit(v.get(i)));
+      out.write(buf.append(' ').toString());
+    }
+    out.write(ids[index]);
+    out.write('\n');
+  }
+
+  // Notes that the data is complete up to time t, which is written once the file is closed.
+  public void writeEnd(long t) {
+    endTime = Math.max(endTime, t);
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (endTime > time) out.write("#" + endTime + "\n");
+    out.close();
+  }
+
+  // Calls the action for each value change of the given signals within [t0, t1), in time order,
+  // starting with the values at t0.
+  static void forEachChange(List<Signal> signals, long t0, long t1, ChangeAction action)
+      throws IOException {
+    record Cursor(int index, Signal.Iterator iter) {}
+    final var pending = new PriorityQueue<Cursor>(
+        Math.max(signals.size(), 1),
+        (a, b) -> a.iter.time != b.iter.time
+            ? Long.compare(a.iter.time, b.iter.time)
+            : Integer.compare(a.index, b.index));
+    for (var i = 0; i < signals.size(); i++) {
+      final var iter = signals.get(i).new Iterator(t0);
+      if (iter.value != null && iter.time < t1) pending.add(new Cursor(i, iter));
+    }
+    while (!pending.isEmpty()) {
+      final var cur = pending.poll();
+      action.change(cur.iter.time, cur.index, cur.iter.value);
+      if (cur.iter.advance() && cur.iter.time < t1) pending.add(cur);
+    }
+  }
+
+  public static void export(Model model, File dest) throws IOException {
+    final var signals = model.getSignals();
+    final var info = new ArrayList<SignalInfo>();
+    for (final var s : signals) info.add(s.info);
+    try (final var writer = open(dest, false)) {
+      writer.writeHeader(model.getCircuit().getName(), info);
+      forEachChange(signals, model.getStartTime(), model.getEndTime(), writer::writeChange);
+      writer.writeEnd(model.getEndTime());
+    }
+  }
+}
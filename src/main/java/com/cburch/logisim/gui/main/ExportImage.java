@@ -58,6 +58,7 @@ public class ExportImage {
   public static final int FORMAT_TIKZ = 3;
   public static final int FORMAT_SVG = 4;
   public static final int FORMAT_WAVEDROM = 5;
+  public static final int FORMAT_VCD = 6;
   static final Logger logger = LoggerFactory.getLogger(ExportImage.class);
 
   private static final int SLIDER_DIVISIONS = 6;
@@ -82,6 +83,8 @@ public class ExportImage {
         return new ImageFileFilter(fmt, S.getter("exportSvgFilter"), new String[] {"svg"});
       case FORMAT_WAVEDROM:
         return new ImageFileFilter(fmt, S.getter("exportWaveDromFilter"), new String[] {"json"});
+      case FORMAT_VCD:
+        return new ImageFileFilter(fmt, S.getter("exportVcdFilter"), new String[] {"vcd"});
       default:
         logger.error("Unexpected image format; aborted!");
         return null;
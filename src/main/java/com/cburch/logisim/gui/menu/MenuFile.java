@@ -183,7 +183,7 @@ class MenuFile extends Menu implements ActionListener {
       ProjectActions.doQuit();
     } else if (proj != null) {
       if (src == save) {
-        ProjectActions.doSave(proj);
+        ProjectActions.doSaveInBackground(proj);
       } else if (src == saveAs) {
         ProjectActions.doSaveAs(proj);
       } else if (src == exportProj) {
@@ -85,7 +85,8 @@ public abstract class PrintHandler implements Printable {
       ExportImage.getFilter(ExportImage.FORMAT_JPG),
       ExportImage.getFilter(ExportImage.FORMAT_TIKZ),
       ExportImage.getFilter(ExportImage.FORMAT_SVG),
-      ExportImage.getFilter(ExportImage.FORMAT_WAVEDROM)
+      ExportImage.getFilter(ExportImage.FORMAT_WAVEDROM),
+      ExportImage.getFilter(ExportImage.FORMAT_VCD)
     };
     final var chooser = JFileChoosers.createSelected(getLastExported());
     chooser.setAcceptAllFileFilterUsed(false);
@@ -144,6 +145,10 @@ public abstract class PrintHandler implements Printable {
       exportWaveDrom(dest);
       return;
     }
+    if (fmt == ExportImage.FORMAT_VCD) {
+      exportVcd(dest);
+      return;
+    }
     final var img = new BufferedImage(d.width, d.height, BufferedImage.TYPE_INT_RGB);
     final var base = (fmt == ExportImage.FORMAT_TIKZ || fmt == ExportImage.FORMAT_SVG) ? new TikZWriter() : img.getGraphics();
     final var gr = base.create();
@@ -189,6 +194,14 @@ public abstract class PrintHandler implements Printable {
             OptionPane.WARNING_MESSAGE);
   }
 
+  public void exportVcd(File dest) {
+    OptionPane.showMessageDialog(
+            KeyboardFocusManager.getCurrentKeyboardFocusManager().getActiveWindow(),
+            "VCD export is only supported for Timing Diagrams.",
+            "Unsupported Format",
+            OptionPane.WARNING_MESSAGE);
+  }
+
   public abstract Dimension getExportImageSize();
 
   public abstract void paintExportImage(BufferedImage img, Graphics2D g);
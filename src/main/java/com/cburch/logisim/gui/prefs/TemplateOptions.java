@@ -47,6 +47,7 @@ class TemplateOptions extends OptionsPanel {
   private final JTextField templateField = new JTextField(40);
   private final JButton templateButton = new JButton();
   private final JCheckBox removeLibs;
+  private final JCheckBox projectCache;
   public TemplateOptions(PreferencesFrame window) {
     super(window);
 
@@ -65,6 +66,7 @@ class TemplateOptions extends OptionsPanel {
     final var gridbag = new GridBagLayout();
     final var gbc = new GridBagConstraints();
     removeLibs = ((PrefMonitorBoolean) AppPreferences.REMOVE_UNUSED_LIBRARIES).getCheckBox();
+    projectCache = ((PrefMonitorBoolean) AppPreferences.PROJECT_CACHE).getCheckBox();
     setLayout(gridbag);
     gbc.weightx = 1.0;
     gbc.gridx = 0;
@@ -95,6 +97,13 @@ class TemplateOptions extends OptionsPanel {
     gbc.weightx = 0.0;
     gridbag.setConstraints(templateButton, gbc);
     add(templateButton);
+    gbc.fill = GridBagConstraints.NONE;
+    gbc.weightx = 1.0;
+    gbc.gridx = 0;
+    gbc.gridy = GridBagConstraints.RELATIVE;
+    gbc.gridwidth = 3;
+    gridbag.setConstraints(projectCache, gbc);
+    add(projectCache);
 
     AppPreferences.addPropertyChangeListener(AppPreferences.TEMPLATE_TYPE, myListener);
     AppPreferences.addPropertyChangeListener(AppPreferences.TEMPLATE_FILE, myListener);
@@ -123,6 +132,7 @@ class TemplateOptions extends OptionsPanel {
     custom.setText(S.get("templateCustomOption"));
     templateButton.setText(S.get("templateSelectButton"));
     removeLibs.setText(S.get("templateRemoveLibsOnSave"));
+    projectCache.setText(S.get("templateProjectCache"));
   }
 
   private class MyListener implements ActionListener, PropertyChangeListener {
@@ -562,6 +562,8 @@ public class AppPreferences {
   //file preferences
   public static final PrefMonitor<Boolean> REMOVE_UNUSED_LIBRARIES =
       create(new PrefMonitorBoolean("removeUnusedLibs", false));
+  public static final PrefMonitor<Boolean> PROJECT_CACHE =
+      create(new PrefMonitorBoolean("projectCache", false));
   // Window preferences
   public static final String TOOLBAR_HIDDEN = "hidden";
   public static final PrefMonitor<Boolean> SHOW_TICK_RATE =
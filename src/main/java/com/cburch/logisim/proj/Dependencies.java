@@ -119,6 +119,13 @@ public class Dependencies {
 
   private void processCircuit(Circuit circ) {
     circ.addCircuitListener(myListener);
+    if (!circ.isLoaded()) {
+      // the components are reported by the listener once the content is built
+      for (final var dependency : circ.getPendingDependencies()) {
+        depends.addEdge(circ, dependency);
+      }
+      return;
+    }
     for (final var comp : circ.getNonWires()) {
       if (comp.getFactory() instanceof SubcircuitFactory factory) {
         depends.addEdge(circ, factory.getSubcircuit());
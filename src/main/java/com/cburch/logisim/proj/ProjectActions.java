@@ -45,6 +45,7 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -495,6 +496,7 @@ public final class ProjectActions {
     for (Project proj : new ArrayList<>(Projects.getOpenProjects())) {
       if (!proj.confirmClose(S.get("confirmQuitTitle"))) return;
     }
+    Loader.waitForSaves();
     System.exit(0);
   }
 
@@ -518,6 +520,40 @@ public final class ProjectActions {
     return ret;
   }
 
+  /**
+   * Saves a project like {@link #doSave(Project)}, but writes it in the background. The project
+   * is marked as clean once its snapshot is taken, and as dirty again if it cannot be written.
+   *
+   * @return A future that completes on the event dispatch thread, with whether the project was
+   *     saved
+   */
+  public static CompletableFuture<Boolean> doSaveInBackground(Project proj) {
+    final var loader = proj.getLogisimFile().getLoader();
+    final var f = loader.getMainFile();
+    if (f == null) return CompletableFuture.completedFuture(doSaveAs(proj));
+    final var oldTool = proj.getTool();
+    proj.setTool(null);
+    final var captured = new boolean[1];
+    final var ret =
+        loader.saveInBackground(
+            proj.getLogisimFile(),
+            f,
+            () -> {
+              captured[0] = true;
+              proj.setFileAsClean();
+            });
+    proj.setTool(oldTool);
+    return ret.thenApply(
+        saved -> {
+          if (saved) {
+            AppPreferences.updateRecentFile(f);
+          } else if (captured[0]) {
+            proj.setForcedDirty();
+          }
+          return saved;
+        });
+  }
+
   /**
    * Imports a Logisim project in a zip file
    *
@@ -106,14 +106,19 @@ public class SocBus extends SocInstanceFactory {
     if (painter.isPrintView()) return;
     var socBusInfo = painter.getAttributeValue(SocBusAttributes.SOC_BUS_ID);
     var socBusStateInfo = socBusInfo.getSocSimulationManager().getSocBusState(socBusInfo.getBusId());
-    if (socBusStateInfo != null)
-      socBusStateInfo.paint(
-          loc.getX(),
-          loc.getY(),
-          g2,
-          painter.getInstance(),
-          painter.getAttributeValue(SocBusAttributes.SOC_TRACE_VISIBLE),
-          painter.getData());
+    if (socBusStateInfo == null) return;
+    if (socBusStateInfo.getAddressMap().hasOverlaps()) {
+      g2.setColor(Color.RED);
+      GraphicsUtil.drawText(g2, S.get("SocBusOverlappingSlaves"), loc.getX() + 635, loc.getY() + 10,
+          GraphicsUtil.H_RIGHT, GraphicsUtil.V_CENTER);
+    }
+    socBusStateInfo.paint(
+        loc.getX(),
+        loc.getY(),
+        g2,
+        painter.getInstance(),
+        painter.getAttributeValue(SocBusAttributes.SOC_TRACE_VISIBLE),
+        painter.getData());
   }
 
   @Override
@@ -124,6 +129,7 @@ public class SocBus extends SocInstanceFactory {
     if (dat == null) {
       state.setData(data.getNewState(state.getInstance()));
     } else {
+      dat.setTraceDepth(state.getAttributeValue(SocBusAttributes.SOC_TRACE_DEPTH));
       if (state.getPortValue(0) == Value.TRUE) {
         dat.clear();
       }
@@ -17,6 +17,7 @@ import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.soc.data.SocBusInfo;
+import com.cburch.logisim.soc.data.SocBusTrace;
 import com.cburch.logisim.util.StringUtil;
 import java.awt.Font;
 import java.util.Arrays;
@@ -27,6 +28,9 @@ public class SocBusAttributes extends AbstractAttributeSet {
 
   public static final Attribute<BitWidth> NrOfTracesAttr =
       Attributes.forBitWidth("TraceSize", S.getter("SocBusTraceSize"));
+  public static final Attribute<Integer> SOC_TRACE_DEPTH =
+      Attributes.forIntegerRange(
+          "TraceDepth", S.getter("SocBusTraceDepth"), SocBusTrace.MIN_DEPTH, SocBusTrace.MAX_DEPTH);
   public static final Attribute<SocBusInfo> SOC_BUS_ID = new SocBusIdAttribute();
   public static final Attribute<Boolean> SOC_TRACE_VISIBLE =
       Attributes.forBoolean("TraceVisible", S.getter("SocBusTraceVisible"));
@@ -34,6 +38,7 @@ public class SocBusAttributes extends AbstractAttributeSet {
       Arrays.asList(
           NrOfTracesAttr,
           SOC_TRACE_VISIBLE,
+          SOC_TRACE_DEPTH,
           StdAttr.LABEL,
           StdAttr.LABEL_FONT,
           StdAttr.LABEL_VISIBILITY,
@@ -44,6 +49,7 @@ public class SocBusAttributes extends AbstractAttributeSet {
   private String label = "";
   private SocBusInfo id = new SocBusInfo(null);
   private Boolean traceVisible = true;
+  private Integer traceDepth = 1 << 16;
 
   @Override
   protected void copyInto(AbstractAttributeSet dest) {
@@ -53,6 +59,7 @@ public class SocBusAttributes extends AbstractAttributeSet {
     d.traceSize = traceSize;
     d.label = label;
     d.traceVisible = traceVisible;
+    d.traceDepth = traceDepth;
     d.id = new SocBusInfo(null);
   }
 
@@ -77,6 +84,7 @@ public class SocBusAttributes extends AbstractAttributeSet {
       return (V) id;
     }
     if (attr == SOC_TRACE_VISIBLE) return (V) traceVisible;
+    if (attr == SOC_TRACE_DEPTH) return (V) traceDepth;
     return null;
   }
 
@@ -132,6 +140,14 @@ public class SocBusAttributes extends AbstractAttributeSet {
       }
       return;
     }
+    if (attr == SOC_TRACE_DEPTH) {
+      final var v = (Integer) value;
+      if (!traceDepth.equals(v)) {
+        traceDepth = v;
+        fireAttributeValueChanged(attr, value, oldValue);
+      }
+      return;
+    }
   }
 
   public static class SocBusIdAttribute extends Attribute<SocBusInfo> {
@@ -12,6 +12,7 @@ package com.cburch.logisim.soc.bus;
 import static com.cburch.logisim.soc.Strings.S;
 
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.gui.generic.OptionPane;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.StdAttr;
@@ -24,17 +25,24 @@ import com.cburch.logisim.soc.gui.ListeningFrame;
 import com.cburch.logisim.soc.gui.TraceWindowTableModel;
 import com.cburch.logisim.tools.CircuitStateHolder;
 import com.cburch.logisim.tools.MenuExtender;
+import com.cburch.logisim.util.JFileChoosers;
 import com.cburch.logisim.util.LineBuffer;
 import com.cburch.logisim.util.StringUtil;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.HashMap;
+import javax.swing.JFileChooser;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableCellRenderer;
 
@@ -43,6 +51,7 @@ public class SocBusMenuProvider implements ActionListener {
   private static final int SHOW_MEMORY_MAP = 1;
   private static final int INSERT_TRANSACTION = 2;
   private static final int SHOW_TRACES = 3;
+  private static final int EXPORT_TRACE = 4;
   private final HashMap<Instance, InstanceInformation> myInfo;
 
   public SocBusMenuProvider() {
@@ -71,6 +80,7 @@ public class SocBusMenuProvider implements ActionListener {
               .insertTransaction(inst, info.getCircuitState(), info.getState(), info.getName());
           case SHOW_TRACES ->
               myInfo.get(inst).showTraceWindow(inst, info.getState(), info.getHierInfo());
+          case EXPORT_TRACE -> myInfo.get(inst).exportTrace(info.getState(), info.getText());
           default ->
               throw new IllegalStateException(String.format("Unsupported function: %d", function));
         }
@@ -208,6 +218,11 @@ public class SocBusMenuProvider implements ActionListener {
         traceWin.addActionListener(parent);
         traceWin.setEnabled(true);
         menu.add(traceWin);
+        name = instanceName + ": " + S.get("SocBusExportTrace");
+        final var exportTrace = new InstanceMenuItem(instance, name, EXPORT_TRACE, data, hierarchy);
+        exportTrace.addActionListener(parent);
+        exportTrace.setEnabled(data != null && data.getNrOfEntires() > 0);
+        menu.add(exportTrace);
       }
     }
 
@@ -324,6 +339,25 @@ public class SocBusMenuProvider implements ActionListener {
       myTraceFrame.setExtendedState(fstate);
     }
 
+    public void exportTrace(SocBusStateInfo.SocBusState state, String name) {
+      if (state == null) return;
+      final var chooser = JFileChoosers.create();
+      chooser.setDialogTitle(name);
+      chooser.setFileFilter(new FileNameExtensionFilter(S.get("SocBusTraceFileFilter"), "lbt"));
+      if (chooser.showSaveDialog(parentFrame) != JFileChooser.APPROVE_OPTION) return;
+      var file = chooser.getSelectedFile();
+      if (!file.getName().contains(".")) file = new File(file.getPath() + ".lbt");
+      try (final var out = new BufferedOutputStream(new FileOutputStream(file))) {
+        state.exportTrace(out);
+      } catch (IOException e) {
+        OptionPane.showMessageDialog(
+            parentFrame,
+            S.get("SocBusTraceExportError", e.getMessage()),
+            name,
+            OptionPane.ERROR_MESSAGE);
+      }
+    }
+
     public void destroyTraceWindow() {
       if (myTraceFrame != null) {
         myTraceFrame.setVisible(false);
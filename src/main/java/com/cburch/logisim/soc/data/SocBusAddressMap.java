@@ -0,0 +1,98 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable address decoder of a SoC bus. The 32-bit address space is split in segments on each
+ * start and end address of the attached slaves; for every segment the slave responding to it,
+ * and the number of slaves responding to it, is precomputed such that a transaction can be
+ * routed by a binary search instead of asking every slave.
+ */
+public final class SocBusAddressMap {
+
+  public static final SocBusAddressMap EMPTY = create(List.of());
+
+  private static final long ADDRESS_SPACE_END = 1L << 32;
+
+  private final long[] segmentStart;
+  private final SocBusSlaveInterface[] segmentSlave;
+  private final int[] nrOfResponders;
+  private final boolean hasOverlaps;
+
+  private SocBusAddressMap(
+      long[] segmentStart, SocBusSlaveInterface[] segmentSlave, int[] nrOfResponders) {
+    this.segmentStart = segmentStart;
+    this.segmentSlave = segmentSlave;
+    this.nrOfResponders = nrOfResponders;
+    var overlap = false;
+    for (final var responders : nrOfResponders) overlap |= responders > 1;
+    hasOverlaps = overlap;
+  }
+
+  public static SocBusAddressMap create(List<SocBusSlaveInterface> slaves) {
+    final var nrOfSlaves = slaves.size();
+    final var starts = new long[nrOfSlaves];
+    final var ends = new long[nrOfSlaves];
+    final var bounds = new long[2 * nrOfSlaves + 1];
+    var nrOfBounds = 0;
+    bounds[nrOfBounds++] = 0;
+    for (var i = 0; i < nrOfSlaves; i++) {
+      final var slave = slaves.get(i);
+      starts[i] = SocSupport.convUnsignedInt(slave.getStartAddress());
+      ends[i] = Math.min(starts[i] + SocSupport.convUnsignedInt(slave.getMemorySize()), ADDRESS_SPACE_END);
+      bounds[nrOfBounds++] = starts[i];
+      if (ends[i] < ADDRESS_SPACE_END) bounds[nrOfBounds++] = ends[i];
+    }
+    Arrays.sort(bounds, 0, nrOfBounds);
+    var nrOfSegments = 0;
+    for (var i = 0; i < nrOfBounds; i++) {
+      if (i == 0 || bounds[i] != bounds[i - 1]) bounds[nrOfSegments++] = bounds[i];
+    }
+    final var segmentStart = Arrays.copyOf(bounds, nrOfSegments);
+    final var segmentSlave = new SocBusSlaveInterface[nrOfSegments];
+    final var nrOfResponders = new int[nrOfSegments];
+    for (var i = 0; i < nrOfSlaves; i++) {
+      if (starts[i] >= ends[i]) continue;
+      var segment = Arrays.binarySearch(segmentStart, starts[i]);
+      while (segment < nrOfSegments && segmentStart[segment] < ends[i]) {
+        segmentSlave[segment] = slaves.get(i);
+        nrOfResponders[segment]++;
+        segment++;
+      }
+    }
+    return new SocBusAddressMap(segmentStart, segmentSlave, nrOfResponders);
+  }
+
+  private int getSegment(int address) {
+    final var index = Arrays.binarySearch(segmentStart, SocSupport.convUnsignedInt(address));
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /** Returns the number of slaves that respond to the given address. */
+  public int getNrOfResponders(int address) {
+    return nrOfResponders[getSegment(address)];
+  }
+
+  /**
+   * Returns the slave responding to the given address, or null if no slave responds or if
+   * multiple slaves respond to it.
+   */
+  public SocBusSlaveInterface getSlave(int address) {
+    final var segment = getSegment(address);
+    return nrOfResponders[segment] == 1 ? segmentSlave[segment] : null;
+  }
+
+  public boolean hasOverlaps() {
+    return hasOverlaps;
+  }
+}
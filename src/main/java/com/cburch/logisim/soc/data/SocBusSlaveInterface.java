@@ -10,6 +10,7 @@
 package com.cburch.logisim.soc.data;
 
 import com.cburch.logisim.instance.InstanceComponent;
+import java.nio.ByteBuffer;
 
 public interface SocBusSlaveInterface {
 
@@ -28,4 +29,24 @@ public interface SocBusSlaveInterface {
   void removeListener(SocBusSlaveListener l);
 
   InstanceComponent getComponent();
+
+  /**
+   * Copies a block of words, starting at the given word aligned address, without going through
+   * bus transactions; used by masters that read a lot of memory at once, like a display reading
+   * its frame buffer. Returns false if this slave does not support it, or cannot provide the
+   * whole block, in which case the caller has to fall back to transactions.
+   */
+  default boolean readWords(int address, int[] data, int offset, int count) {
+    return false;
+  }
+
+  /**
+   * Stores the bytes remaining in the given buffer, little endian, starting at the given address,
+   * without going through bus transactions; used to load a program image in one go. Returns false
+   * if this slave does not support it, or cannot hold the whole block, in which case nothing is
+   * written.
+   */
+  default boolean writeBytes(int address, ByteBuffer data) {
+    return false;
+  }
 }
@@ -11,4 +11,10 @@ package com.cburch.logisim.soc.data;
 
 public interface SocBusSnifferInterface {
   void sniffTransaction(SocBusTransaction trans);
+
+  /**
+   * Called for a block of bytes written without transactions, see {@link
+   * SocBusSlaveInterface#writeBytes}; only write sniffers are told about these.
+   */
+  default void sniffBlockWrite(int address, int length) {}
 }
@@ -16,14 +16,12 @@ import com.cburch.logisim.circuit.ComponentDataGuiProvider;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.instance.Instance;
-import com.cburch.logisim.instance.InstanceComponent;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.soc.bus.SocBus;
 import com.cburch.logisim.soc.bus.SocBusAttributes;
 import com.cburch.logisim.soc.gui.TraceWindowTableModel;
-import com.cburch.logisim.util.CircularArray;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.LocaleListener;
 import com.cburch.logisim.util.LocaleManager;
@@ -36,14 +34,20 @@ import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.Timer;
 import javax.swing.table.TableCellRenderer;
 
 public class SocBusStateInfo extends JDialog
@@ -94,21 +98,27 @@ public class SocBusStateInfo extends JDialog
       }
     }
 
-    private static final int NR_OF_TRACES_TO_KEEP = 10000;
-    private final CircularArray<SocBusTransaction> trace;
-    private final Object traceLock = new Object();
-    private long startTraceIndex;
+    // listeners are told about new transactions at most once in this many milliseconds
+    private static final int NOTIFY_DELAY = 20;
+    private final SocBusTrace trace;
     private final SocBusStateInfo parent;
     private final Instance instance;
     private final ArrayList<SocBusStateListener> listeners;
+    private final AtomicBoolean changePending = new AtomicBoolean();
+    private final Timer notifier;
 
     public SocBusState(SocBusStateInfo parent, Instance instance) {
-      trace = new CircularArray<>();
-      startTraceIndex = 0;
+      trace =
+          new SocBusTrace(
+              instance == null
+                  ? SocBusTrace.MIN_DEPTH
+                  : instance.getAttributeValue(SocBusAttributes.SOC_TRACE_DEPTH));
       this.parent = parent;
       this.instance = instance;
       SocBus.MENU_PROVIDER.registerBusState(this, instance);
       listeners = new ArrayList<>();
+      notifier = new Timer(NOTIFY_DELAY, e -> fireChanged());
+      notifier.setRepeats(false);
     }
 
     @Override
@@ -120,50 +130,58 @@ public class SocBusStateInfo extends JDialog
       }
     }
 
-    public void addTransaction(SocBusTransaction t) {
-      synchronized (traceLock) {
-        while (trace.size() >= NR_OF_TRACES_TO_KEEP) {
-          startTraceIndex++;
-          trace.removeFirst();
-        }
-        trace.addLast(t);
-      }
-      for (SocBusStateListener l : listeners) l.fireCanged(this);
+    /**
+     * Records a transaction. Called on the simulator thread for every transaction, so it only
+     * stores it in the trace; the listeners and the canvas are updated later on the event
+     * dispatch thread, once for all transactions recorded in the meantime.
+     */
+    public void addTransaction(SocBusTransaction t, long cycle) {
+      trace.add(t, cycle);
+      scheduleChanged();
     }
 
     public void clear() {
-      synchronized (traceLock) {
-        if (trace.size() == 0) return;
-        trace.clear();
-        startTraceIndex = 0;
-      }
+      if (trace.size() == 0) return;
+      trace.clear();
+      scheduleChanged();
+    }
+
+    private void scheduleChanged() {
+      if (!changePending.getAndSet(true)) notifier.start();
+    }
+
+    private void fireChanged() {
+      changePending.set(false);
       for (SocBusStateListener l : listeners) l.fireCanged(this);
+      if (instance != null && instance.getAttributeValue(SocBusAttributes.SOC_TRACE_VISIBLE))
+        instance.fireInvalidated();
+    }
+
+    public void setTraceDepth(int depth) {
+      if (depth != trace.getDepth()) trace.setDepth(depth);
+    }
+
+    /** Writes the transactions in the trace to a binary trace file, see {@link SocBusTrace}. */
+    public void exportTrace(OutputStream out) throws IOException {
+      trace.export(out);
     }
 
     public void paint(Graphics2D g, Bounds b) {
-      int traceSize;
-      long theStartTraceIndex;
-      int nrOfTraces = b.getHeight() / TRACE_HEIGHT;
+      var nrOfTraces = b.getHeight() / TRACE_HEIGHT;
       final var neededTraces = new ArrayList<SocBusTransaction>();
-      synchronized (traceLock) {
-        traceSize = trace.size();
+      long lastIndex;
+      synchronized (trace) {
+        final var traceSize = trace.size();
         if (nrOfTraces > traceSize) nrOfTraces = traceSize;
-        if (nrOfTraces > 0) {
-          final var indexOfFirstTrace = traceSize - nrOfTraces;
-          for (int i = indexOfFirstTrace; i < traceSize; i++) {
-            neededTraces.add(trace.get(i));
-          }
-        }
-        theStartTraceIndex = startTraceIndex;
+        for (var i = traceSize - 1; i >= traceSize - nrOfTraces; i--) neededTraces.add(trace.get(i));
+        lastIndex = trace.getFirstIndex() + traceSize - 1;
       }
       if (nrOfTraces <= 0) {
         GraphicsUtil.drawCenteredText(g, S.get("SocBusNoTrace"), b.getCenterX(), b.getCenterY());
         return;
       }
-      int startIndex = traceSize - 1;
-      for (int i = 0; i < nrOfTraces; i++) {
-        SocBusTransaction t = neededTraces.get(nrOfTraces - 1 - i);
-        t.paint(b.getX() + 1, b.getY() + 1 + i * TRACE_HEIGHT, g, theStartTraceIndex + startIndex - i);
+      for (var i = 0; i < nrOfTraces; i++) {
+        neededTraces.get(i).paint(b.getX() + 1, b.getY() + 1 + i * TRACE_HEIGHT, g, lastIndex - i);
       }
     }
 
@@ -180,13 +198,14 @@ public class SocBusStateInfo extends JDialog
     }
 
     public SocBusStateTrace getEntry(int index, TraceWindowTableModel model) {
-      synchronized (traceLock) {
-        if (index < 0 || index >= trace.size()) {
+      synchronized (trace) {
+        final var traceSize = trace.size();
+        if (index < 0 || index >= traceSize) {
           if (index == 0) return new SocBusStateTrace(null, 0, model);
           return null;
         }
-        long indx = startTraceIndex + trace.size() - index - 1;
-        return new SocBusStateTrace(trace.get(trace.size() - index - 1), indx, model);
+        final var indx = trace.getFirstIndex() + traceSize - index - 1;
+        return new SocBusStateTrace(trace.get(traceSize - index - 1), indx, model);
       }
     }
 
@@ -200,6 +219,7 @@ public class SocBusStateInfo extends JDialog
   private final SocSimulationManager socManager;
   private Component myComp;
   private final ArrayList<SocBusSnifferInterface> sniffers;
+  private final CopyOnWriteArrayList<SocBusSnifferInterface> writeSniffers;
   private final JButton okButton;
   private final JLabel title;
   private final JScrollPane scroll;
@@ -211,6 +231,7 @@ public class SocBusStateInfo extends JDialog
     socManager = man;
     myComp = comp;
     sniffers = new ArrayList<>();
+    writeSniffers = new CopyOnWriteArrayList<>();
     memMap = new SocMemMapModel();
     setTitle(S.get("SocMemMapWindowTitle") + getName());
     setLayout(new BorderLayout());
@@ -255,10 +276,26 @@ public class SocBusStateInfo extends JDialog
     sniffers.remove(sniffer);
   }
 
+  /**
+   * Registers a sniffer that is informed on every successful write transaction, including the
+   * hidden ones (e.g. a program download); used to keep instruction caches coherent.
+   */
+  public void registerSocBusWriteSniffer(SocBusSnifferInterface sniffer) {
+    writeSniffers.addIfAbsent(sniffer);
+  }
+
+  public void removeSocBusWriteSniffer(SocBusSnifferInterface sniffer) {
+    writeSniffers.remove(sniffer);
+  }
+
   public List<SocBusSlaveInterface> getSlaves() {
     return memMap.getSlaves();
   }
 
+  public SocBusAddressMap getAddressMap() {
+    return memMap.getAddressMap();
+  }
+
   @Override
   public String getName() {
     var name = myComp.getAttributeSet().getValue(StdAttr.LABEL);
@@ -282,8 +319,6 @@ public class SocBusStateInfo extends JDialog
   }
 
   public void initializeTransaction(SocBusTransaction trans, String busId) {
-    int nrOfReponders = 0;
-    int reponder = -1;
     final var slaves = memMap.getSlaves();
     if (slaves.isEmpty()) trans.setError(SocBusTransaction.NO_SLAVES_ERROR);
     else if (trans.isReadTransaction()
@@ -291,29 +326,53 @@ public class SocBusStateInfo extends JDialog
         && !trans.isAtomicTransaction()) {
       trans.setError(SocBusTransaction.NONE_ATOMIC_READ_WRITE_ERROR);
     } else {
-      for (int i = 0; i < slaves.size(); i++) {
-        if (slaves.get(i).canHandleTransaction(trans)) {
-          nrOfReponders++;
-          reponder = i;
-        }
-      }
+      final var addressMap = memMap.getAddressMap();
+      final var nrOfReponders = addressMap.getNrOfResponders(trans.getAddress());
       if (nrOfReponders == 0) trans.setError(SocBusTransaction.NO_RESPONS_ERROR);
       else if (nrOfReponders != 1) trans.setError(SocBusTransaction.MULTIPLE_SLAVES_ERROR);
-      else slaves.get(reponder).handleTransaction(trans);
+      else addressMap.getSlave(trans.getAddress()).handleTransaction(trans);
     }
     if (!trans.hasError() && !trans.isHidden()) {
       for (SocBusSnifferInterface sniffer : sniffers) sniffer.sniffTransaction(trans);
     }
+    if (!trans.hasError() && trans.isWriteTransaction()) {
+      for (final var sniffer : writeSniffers) sniffer.sniffTransaction(trans);
+    }
     if (!trans.isHidden()) {
       final var data = getRegPropagateState();
-      if (data != null) {
-        data.addTransaction(trans);
-        if (myComp.getAttributeSet().getValue(SocBusAttributes.SOC_TRACE_VISIBLE))
-          ((InstanceComponent) myComp).getInstance().fireInvalidated();
-      }
+      if (data != null) data.addTransaction(trans, socManager.getClockCycle());
     }
   }
 
+  /**
+   * Copies a block of words straight from the slave holding them, see {@link
+   * SocBusSlaveInterface#readWords}; returns false if a single slave cannot provide the block.
+   * Such reads do not show up in the trace.
+   */
+  public boolean readWords(int address, int[] data, int offset, int count) {
+    if (count <= 0) return true;
+    final var addressMap = memMap.getAddressMap();
+    final var slave = addressMap.getSlave(address);
+    if (slave == null || addressMap.getSlave(address + 4 * (count - 1)) != slave) return false;
+    return slave.readWords(address, data, offset, count);
+  }
+
+  /**
+   * Stores a block of bytes straight into the slave holding them, see {@link
+   * SocBusSlaveInterface#writeBytes}; returns false if a single slave cannot hold the block. The
+   * write sniffers are told about the block, the trace and the other sniffers are not.
+   */
+  public boolean writeBytes(int address, ByteBuffer data) {
+    final var length = data.remaining();
+    if (length == 0) return true;
+    final var addressMap = memMap.getAddressMap();
+    final var slave = addressMap.getSlave(address);
+    if (slave == null || addressMap.getSlave(address + length - 1) != slave) return false;
+    if (!slave.writeBytes(address, data)) return false;
+    for (final var sniffer : writeSniffers) sniffer.sniffBlockWrite(address, length);
+    return true;
+  }
+
   public void paint(
       int x, int y, Graphics2D g2, Instance inst, boolean visible, InstanceData info) {
     Graphics2D g = (Graphics2D) g2.create();
@@ -0,0 +1,252 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.data;
+
+import com.cburch.logisim.comp.Component;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The most recent transactions on a bus, kept in preallocated primitive arrays so that recording a
+ * transaction allocates nothing. Once the trace is full, each new transaction overwrites the
+ * oldest one. Transactions are numbered from the last {@link #clear()}; the initiators and
+ * responders are stored as small ids into a table of participants.
+ *
+ * <p>All methods may be called from any thread.
+ */
+public final class SocBusTrace {
+
+  public static final int MIN_DEPTH = 16;
+  public static final int MAX_DEPTH = 1 << 24;
+
+  // binary trace file layout, all numbers big-endian
+  public static final int FILE_MAGIC = 0x4c534254; // "LSBT"
+  public static final int FILE_VERSION = 1;
+  public static final int RECORD_PARTICIPANT = 0; // id (short), name (UTF)
+  public static final int RECORD_TRANSACTION = 1; // see export
+
+  private static final int EXPORT_CHUNK = 4096;
+
+  private int[] addresses;
+  private int[] writeData;
+  private int[] readData;
+  private int[] flags; // type | access << 4 | error << 8
+  private int[] parties; // master id << 16 | slave id, 0 is none
+  private long[] cycles;
+  private int start; // slot of the oldest transaction
+  private int size;
+  private long firstIndex; // number of the oldest transaction
+  private int clears; // changes when the numbering and the participants start over
+
+  private final ArrayList<Object> participants = new ArrayList<>();
+  private final HashMap<Object, Integer> participantIds = new HashMap<>();
+
+  public SocBusTrace(int depth) {
+    allocate(clampDepth(depth));
+  }
+
+  private static int clampDepth(int depth) {
+    return Math.max(MIN_DEPTH, Math.min(MAX_DEPTH, depth));
+  }
+
+  private void allocate(int depth) {
+    addresses = new int[depth];
+    writeData = new int[depth];
+    readData = new int[depth];
+    flags = new int[depth];
+    parties = new int[depth];
+    cycles = new long[depth];
+  }
+
+  public synchronized int getDepth() {
+    return addresses.length;
+  }
+
+  /** Changes the depth, keeping the most recent transactions that still fit. */
+  public synchronized void setDepth(int depth) {
+    depth = clampDepth(depth);
+    if (depth == addresses.length) return;
+    final var keep = Math.min(size, depth);
+    final var from = size - keep;
+    final int[][] ints = {addresses, writeData, readData, flags, parties};
+    final var oldCycles = cycles;
+    final var oldStart = start;
+    final var oldLength = addresses.length;
+    allocate(depth);
+    final int[][] newInts = {addresses, writeData, readData, flags, parties};
+    for (var i = 0; i < keep; i++) {
+      final var slot = (oldStart + from + i) % oldLength;
+      for (var j = 0; j < ints.length; j++) newInts[j][i] = ints[j][slot];
+      cycles[i] = oldCycles[slot];
+    }
+    start = 0;
+    size = keep;
+    firstIndex += from;
+  }
+
+  public synchronized void add(SocBusTransaction trans, long cycle) {
+    final var depth = addresses.length;
+    int slot;
+    if (size < depth) {
+      slot = start + size++;
+      if (slot >= depth) slot -= depth;
+    } else {
+      slot = start;
+      if (++start == depth) start = 0;
+      firstIndex++;
+    }
+    addresses[slot] = trans.getAddress();
+    writeData[slot] = trans.getWriteData();
+    readData[slot] = trans.getReadData();
+    flags[slot] = trans.getType() | trans.getAccessType() << 4 | trans.getError() << 8;
+    parties[slot] =
+        idOf(trans.getTransactionInitiator()) << 16 | idOf(trans.getTransactionResponder());
+    cycles[slot] = cycle;
+  }
+
+  private int idOf(Object participant) {
+    if (participant == null) return 0;
+    final var id = participantIds.get(participant);
+    if (id != null) return id;
+    if (participants.size() >= 0xFFFF) return 0;
+    participants.add(participant);
+    participantIds.put(participant, participants.size());
+    return participants.size();
+  }
+
+  public synchronized void clear() {
+    start = 0;
+    size = 0;
+    firstIndex = 0;
+    clears++;
+    participants.clear();
+    participantIds.clear();
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /** Number of the oldest transaction kept. */
+  public synchronized long getFirstIndex() {
+    return firstIndex;
+  }
+
+  private int slotOf(int i) {
+    final var slot = start + i;
+    return slot >= addresses.length ? slot - addresses.length : slot;
+  }
+
+  /** The i-th oldest transaction kept, rebuilt from the trace; null if there is none. */
+  public synchronized SocBusTransaction get(int i) {
+    if (i < 0 || i >= size) return null;
+    final var slot = slotOf(i);
+    final var f = flags[slot];
+    final var trans =
+        new SocBusTransaction(
+            f & 0xF, addresses[slot], writeData[slot], (f >> 4) & 0xF, participant(parties[slot] >>> 16));
+    trans.setReadData(readData[slot]);
+    trans.setError(f >>> 8);
+    trans.setTransactionResponder((Component) participant(parties[slot] & 0xFFFF));
+    return trans;
+  }
+
+  public synchronized long getCycle(int i) {
+    return i < 0 || i >= size ? -1 : cycles[slotOf(i)];
+  }
+
+  private Object participant(int id) {
+    return id == 0 ? null : participants.get(id - 1);
+  }
+
+  private static String nameOf(Object participant) {
+    if (participant instanceof Component comp) return SocSupport.getComponentName(comp);
+    return String.valueOf(participant);
+  }
+
+  /**
+   * Writes the transactions kept at the time of the call to a binary trace file. The trace is
+   * copied a chunk at a time, so the simulation can keep adding transactions while the file is
+   * written; transactions that get overwritten before they are copied are left out, which shows as
+   * a gap in the transaction numbers.
+   *
+   * <p>The file starts with {@link #FILE_MAGIC} and {@link #FILE_VERSION}, followed by records,
+   * each starting with its kind. A {@link #RECORD_PARTICIPANT} names an initiator or responder id
+   * before its first use. A {@link #RECORD_TRANSACTION} holds the transaction number and clock
+   * cycle (long), the address, write data, read data (int), the type, access size and error
+   * (byte), and the initiator and responder ids (short).
+   */
+  public void export(OutputStream stream) throws IOException {
+    final var out = new DataOutputStream(stream);
+    out.writeInt(FILE_MAGIC);
+    out.writeInt(FILE_VERSION);
+    long next;
+    long end;
+    int generation;
+    synchronized (this) {
+      generation = clears;
+      next = firstIndex;
+      end = firstIndex + size;
+    }
+    var namesWritten = 0;
+    final var chunkAddresses = new int[EXPORT_CHUNK];
+    final var chunkWriteData = new int[EXPORT_CHUNK];
+    final var chunkReadData = new int[EXPORT_CHUNK];
+    final var chunkFlags = new int[EXPORT_CHUNK];
+    final var chunkParties = new int[EXPORT_CHUNK];
+    final var chunkCycles = new long[EXPORT_CHUNK];
+    final var names = new ArrayList<String>();
+    while (next < end) {
+      int count;
+      names.clear();
+      synchronized (this) {
+        if (clears != generation) break; // the rest of the trace is gone
+        if (next < firstIndex) next = firstIndex;
+        count = (int) Math.min(EXPORT_CHUNK, Math.min(end, firstIndex + size) - next);
+        if (count <= 0) break;
+        for (var i = 0; i < count; i++) {
+          final var slot = slotOf((int) (next - firstIndex) + i);
+          chunkAddresses[i] = addresses[slot];
+          chunkWriteData[i] = writeData[slot];
+          chunkReadData[i] = readData[slot];
+          chunkFlags[i] = flags[slot];
+          chunkParties[i] = parties[slot];
+          chunkCycles[i] = cycles[slot];
+        }
+        for (var id = namesWritten + 1; id <= participants.size(); id++) {
+          names.add(nameOf(participants.get(id - 1)));
+        }
+      }
+      for (final var name : names) {
+        out.writeByte(RECORD_PARTICIPANT);
+        out.writeShort(++namesWritten);
+        out.writeUTF(name);
+      }
+      for (var i = 0; i < count; i++) {
+        out.writeByte(RECORD_TRANSACTION);
+        out.writeLong(next + i);
+        out.writeLong(chunkCycles[i]);
+        out.writeInt(chunkAddresses[i]);
+        out.writeInt(chunkWriteData[i]);
+        out.writeInt(chunkReadData[i]);
+        out.writeByte(chunkFlags[i] & 0xF);
+        out.writeByte((chunkFlags[i] >> 4) & 0xF);
+        out.writeByte(chunkFlags[i] >>> 8);
+        out.writeShort(chunkParties[i] >>> 16);
+        out.writeShort(chunkParties[i] & 0xFFFF);
+      }
+      next += count;
+    }
+    out.flush();
+  }
+}
@@ -126,6 +126,10 @@ public class SocBusTransaction {
     return type;
   }
 
+  public int getError() {
+    return error;
+  }
+
   public void setError(int value) {
     error = value;
   }
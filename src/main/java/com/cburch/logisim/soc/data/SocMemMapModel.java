@@ -203,6 +203,7 @@ public class SocMemMapModel extends AbstractTableModel
   private final SlaveInfoRenderer slaveRenderer;
   private final MemoryMapHeaderRenderer headRenderer;
   private InstanceComponent marked;
+  private transient volatile SocBusAddressMap addressMap = SocBusAddressMap.EMPTY;
 
   public SocMemMapModel() {
     super();
@@ -219,6 +220,7 @@ public class SocMemMapModel extends AbstractTableModel
     if (!slaves.contains(slave)) {
       slaves.add(slave);
       slave.registerListener(this);
+      rebuildAddressMap();
       rebuild();
     }
   }
@@ -227,6 +229,7 @@ public class SocMemMapModel extends AbstractTableModel
     if (slaves.contains(slave)) {
       slaves.remove(slave);
       slave.removeListener(this);
+      rebuildAddressMap();
       rebuild();
     }
   }
@@ -235,6 +238,10 @@ public class SocMemMapModel extends AbstractTableModel
     return slaves;
   }
 
+  public SocBusAddressMap getAddressMap() {
+    return addressMap;
+  }
+
   public SlaveInfoRenderer getCellRender() {
     return slaveRenderer;
   }
@@ -281,9 +288,14 @@ public class SocMemMapModel extends AbstractTableModel
 
   @Override
   public void memoryMapChanged() {
+    rebuildAddressMap();
     rebuild();
   }
 
+  private void rebuildAddressMap() {
+    addressMap = SocBusAddressMap.create(slaves);
+  }
+
   private void rebuild() {
     slaveMap.clear();
     if (slaves.isEmpty())
@@ -12,6 +12,7 @@ package com.cburch.logisim.soc.data;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.soc.file.ElfProgramHeader;
 import com.cburch.logisim.soc.file.ElfSectionHeader;
+import java.nio.ByteBuffer;
 
 public interface SocProcessorInterface {
 
@@ -21,4 +22,12 @@ public interface SocProcessorInterface {
   void insertTransaction(SocBusTransaction trans, boolean hidden, CircuitState cState);
 
   int getEntryPoint(CircuitState cState);
+
+  /**
+   * Stores a block of bytes on the bus of this processor without transactions, e.g. to load a
+   * program; returns false if that is not possible and transactions have to be used instead.
+   */
+  default boolean writeBytes(int address, ByteBuffer data, CircuitState cState) {
+    return false;
+  }
 }
@@ -24,6 +24,7 @@ import com.cburch.logisim.soc.bus.SocBusAttributes;
 import com.cburch.logisim.util.StringUtil;
 import java.awt.Window;
 import java.awt.event.MouseEvent;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import javax.swing.JLabel;
@@ -236,6 +237,12 @@ public class SocSimulationManager implements SocBusMasterInterface {
     return state.getData(comp);
   }
 
+  /** The clock cycle the simulation is in, as counted by the propagator. */
+  public long getClockCycle() {
+    if (state == null || state.getPropagator() == null) return 0;
+    return state.getPropagator().getTickCount() / 2;
+  }
+
   public InstanceState getState(Component comp) {
     if (state == null) return null;
     return state.getInstanceState(comp);
@@ -270,4 +277,26 @@ public class SocSimulationManager implements SocBusMasterInterface {
     info.initializeTransaction(trans, busId);
   }
 
+  /**
+   * Stores a block of bytes on the bus without transactions, see {@link
+   * SocBusStateInfo#writeBytes}; returns false if the caller has to use transactions instead.
+   */
+  public boolean writeBytes(String busId, int address, ByteBuffer data, CircuitState cState) {
+    state = cState;
+    final var info = socBusses.get(busId);
+    if (info == null || info.getComponent() == null) return false;
+    return info.writeBytes(address, data);
+  }
+
+  /**
+   * Copies a block of words from the bus without transactions, see {@link
+   * SocBusStateInfo#readWords}; returns false if the caller has to use transactions instead.
+   */
+  public boolean readWords(String busId, int address, int[] data, int offset, int count, CircuitState cState) {
+    state = cState;
+    final var info = socBusses.get(busId);
+    if (info == null || info.getComponent() == null) return false;
+    return info.readWords(address, data, offset, count);
+  }
+
 }
@@ -13,6 +13,7 @@ import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.soc.memory.SocMemory;
 import com.cburch.logisim.util.StringUtil;
 import java.awt.event.ActionListener;
 import java.io.PrintWriter;
@@ -73,6 +74,12 @@ public class SocSupport {
     return ret;
   }
 
+  /** Returns true if the transaction was answered by a plain SocMemory, rather than by an IO slave. */
+  public static boolean isMemoryTransaction(SocBusTransaction trans) {
+    final var responder = trans.getTransactionResponder();
+    return !trans.hasError() && responder != null && responder.getFactory() instanceof SocMemory;
+  }
+
   public static String getComponentName(Component comp) {
     var name = comp.getAttributeSet().getValue(StdAttr.LABEL);
     if (StringUtil.isNullOrEmpty(name)) {
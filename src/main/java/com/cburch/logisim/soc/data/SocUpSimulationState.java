@@ -29,6 +29,11 @@ public class SocUpSimulationState {
   private int simulationState = SIMULATION_RUNNING;
   private final ArrayList<SocUpSimulationStateListener> listeners = new ArrayList<>();
   private boolean canContinueAfterBreak = false;
+  private static final long RATE_SAMPLE_INTERVAL = 1_000_000_000L;
+  private long executedInstructions = 0;
+  private long rateSampleInstructions = 0;
+  private long rateSampleTime = System.nanoTime();
+  private volatile long instructionRate = 0;
 
   public String getStateString() {
     return switch (simulationState) {
@@ -47,6 +52,9 @@ public class SocUpSimulationState {
   public void reset() {
     canContinueAfterBreak = false;
     simulationState = SIMULATION_HALTED_BY_STOP;
+    rateSampleInstructions = executedInstructions;
+    rateSampleTime = System.nanoTime();
+    instructionRate = 0;
     fireChange();
   }
 
@@ -54,6 +62,25 @@ public class SocUpSimulationState {
     return simulationState == SIMULATION_RUNNING;
   }
 
+  /**
+   * Accounts for the instructions executed on a clock edge; about once a second the number of
+   * instructions executed per second is updated.
+   */
+  public void instructionsExecuted(int count) {
+    executedInstructions += count;
+    final var now = System.nanoTime();
+    final var elapsed = now - rateSampleTime;
+    if (elapsed >= RATE_SAMPLE_INTERVAL) {
+      instructionRate = (executedInstructions - rateSampleInstructions) * RATE_SAMPLE_INTERVAL / elapsed;
+      rateSampleInstructions = executedInstructions;
+      rateSampleTime = now;
+    }
+  }
+
+  public long getInstructionRate() {
+    return instructionRate;
+  }
+
   public void errorInExecution() {
     simulationState = SIMULATION_HALTED_BY_ERROR;
     fireChange();
@@ -11,8 +11,7 @@ package com.cburch.logisim.soc.file;
 
 import static com.cburch.logisim.soc.Strings.S;
 
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 public class ElfSectionHeader {
@@ -34,34 +33,25 @@ public class ElfSectionHeader {
 
   private int status;
   private ArrayList<SectionHeader> headers;
+  private Runnable pendingSymbols;
 
   public ElfSectionHeader() {
     status = SUCCESS;
     headers = new ArrayList<>();
   }
 
-  public ElfSectionHeader(FileInputStream file, ElfHeader elfHeader) {
-    // Important: the FileInputStream should be located at the beginning of the file (so directly
-    // after open)
+  public ElfSectionHeader(ByteBuffer elf, ElfHeader elfHeader) {
     status = SUCCESS;
-    try {
-      file.skip(ElfHeader.getLongValue(elfHeader.getValue(ElfHeader.E_SHOFF)));
-    } catch (IOException e) {
+    final var offset = ElfHeader.getLongValue(elfHeader.getValue(ElfHeader.E_SHOFF));
+    if (offset > elf.limit()) {
       status = SECTION_HEADER_NOT_FOUND_ERROR;
       return;
     }
     int nrOfHeaders = ElfHeader.getIntValue(elfHeader.getValue(ElfHeader.E_SHNUM));
     int HeaderSize = ElfHeader.getIntValue(elfHeader.getValue(ElfHeader.E_SHENTSIZE));
-    long BlockSize = nrOfHeaders * HeaderSize;
-    byte[] buffer = new byte[(int) BlockSize];
-    int nrRead = 0;
-    try {
-      nrRead = file.read(buffer);
-    } catch (IOException e) {
-      status = SECTION_HEADER_READ_ERROR;
-      return;
-    }
-    if (nrRead != BlockSize) {
+    long BlockSize = (long) nrOfHeaders * HeaderSize;
+    byte[] buffer = ElfHeader.getBytes(elf, offset, BlockSize);
+    if (buffer == null) {
       status = SECTION_HEADER_SIZE_ERROR;
       return;
     }
@@ -82,9 +72,7 @@ public class ElfSectionHeader {
     return s.toString();
   }
 
-  public boolean readSectionNames(FileInputStream file, ElfHeader elfHeader) {
-    // Important: the FileInputStream should be located at the beginning of the file (so directly
-    // after open)
+  public boolean readSectionNames(ByteBuffer elf, ElfHeader elfHeader) {
     int idx = (int) elfHeader.getValue(ElfHeader.E_SHSTRNDX);
     if (idx == SectionHeader.SHT_NULL)
       return true;
@@ -96,22 +84,14 @@ public class ElfSectionHeader {
     if ((int) h.getValue(SectionHeader.SH_TYPE) != SectionHeader.SHT_STRTAB) {
       status = SECTION_STRING_TABLE_WRONG_TYPE;
     }
-    int size = ElfHeader.getIntValue(h.getValue(SectionHeader.SH_SIZE));
-    try {
-      file.skip(ElfHeader.getLongValue(h.getValue(SectionHeader.SH_OFFSET)));
-    } catch (IOException e) {
+    final var offset = ElfHeader.getLongValue(h.getValue(SectionHeader.SH_OFFSET));
+    if (offset > elf.limit()) {
       status = SECTION_STRING_TABLE_NOT_FOUND_ERROR;
       return false;
     }
-    byte[] buffer = new byte[size];
-    int nrRead = 0;
-    try {
-      nrRead = file.read(buffer);
-    } catch (IOException e) {
-      status = SECTION_STRING_TABLE_READ_ERROR;
-      return false;
-    }
-    if (nrRead != size) {
+    byte[] buffer =
+        ElfHeader.getBytes(elf, offset, ElfHeader.getLongValue(h.getValue(SectionHeader.SH_SIZE)));
+    if (buffer == null) {
       status = SECTION_STRING_TABLE_READ_ERROR;
       return false;
     }
@@ -120,9 +100,11 @@ public class ElfSectionHeader {
     return true;
   }
 
-  public boolean readSymbolTable(FileInputStream file, ElfHeader elfHeader) {
-    // Important: the FileInputStream should be located at the beginning of the file (so directly
-    // after open)
+  /**
+   * Copies the symbol table out of the ELF file. The symbols are only decoded, and added to their
+   * sections, when the symbols of a section are first asked for.
+   */
+  public boolean readSymbolTable(ByteBuffer elf, ElfHeader elfHeader) {
     SectionHeader strtab = null;
     SectionHeader shstrtab = null;
     int symtabidx = (int) elfHeader.getValue(ElfHeader.E_SHSTRNDX);
@@ -146,46 +128,23 @@ public class ElfSectionHeader {
     }
     if (shstrtab == null)
       return true;
-    int symTableOffset = ElfHeader.getIntValue(shstrtab.getValue(SectionHeader.SH_OFFSET));
-    int symTableSize = ElfHeader.getIntValue(shstrtab.getValue(SectionHeader.SH_SIZE));
-    int strTableOffset =
-        strtab == null ? 1 : ElfHeader.getIntValue(strtab.getValue(SectionHeader.SH_OFFSET));
-    int strTableSize =
-        strtab == null ? 1 : ElfHeader.getIntValue(strtab.getValue(SectionHeader.SH_SIZE));
-    byte[] symBuffer = new byte[symTableSize];
-    byte[] strBuffer = new byte[strTableSize];
-    try {
-      file.skip(Math.min(symTableOffset, strTableOffset));
-    } catch (IOException e) {
+    final var symTableOffset = ElfHeader.getLongValue(shstrtab.getValue(SectionHeader.SH_OFFSET));
+    final var symTableSize = ElfHeader.getLongValue(shstrtab.getValue(SectionHeader.SH_SIZE));
+    if (symTableOffset > elf.limit()
+        || (strtab != null
+            && ElfHeader.getLongValue(strtab.getValue(SectionHeader.SH_OFFSET)) > elf.limit())) {
       status = SYMBOL_TABLE_NOT_FOUND_ERROR;
       return false;
     }
-    int nrRead = 0;
-    try {
-      nrRead = file.read(symTableOffset < strTableOffset ? symBuffer : strBuffer);
-    } catch (IOException e) {
-      status = SYMBOL_TABLE_READ_ERROR;
-      return false;
-    }
-    if (nrRead != (symTableOffset < strTableOffset ? symTableSize : strTableSize)) {
-      status = SYMBOL_TABLE_READ_ERROR;
-      return false;
-    }
-    int fileOffset = (Math.min(symTableOffset, strTableOffset)) + nrRead;
-    int toskip = (Math.max(symTableOffset, strTableOffset)) - fileOffset;
-    try {
-      file.skip(toskip);
-    } catch (IOException e) {
-      status = SYMBOL_TABLE_NOT_FOUND_ERROR;
-      return false;
-    }
-    try {
-      nrRead = file.read(symTableOffset > strTableOffset ? symBuffer : strBuffer);
-    } catch (IOException e) {
-      status = SYMBOL_TABLE_READ_ERROR;
-      return false;
-    }
-    if (nrRead != (symTableOffset > strTableOffset ? symTableSize : strTableSize)) {
+    final var symBuffer = ElfHeader.getBytes(elf, symTableOffset, symTableSize);
+    final var strBuffer =
+        strtab == null
+            ? new byte[1]
+            : ElfHeader.getBytes(
+                elf,
+                ElfHeader.getLongValue(strtab.getValue(SectionHeader.SH_OFFSET)),
+                ElfHeader.getLongValue(strtab.getValue(SectionHeader.SH_SIZE)));
+    if (symBuffer == null || strBuffer == null) {
       status = SYMBOL_TABLE_READ_ERROR;
       return false;
     }
@@ -193,17 +152,32 @@ public class ElfSectionHeader {
       status = SYMBOL_TABLE_READ_ERROR;
       return false;
     }
+    final var littleEndian = elfHeader.isLittleEndian();
+    final var named = strtab != null;
+    pendingSymbols = () -> decodeSymbols(symBuffer, strBuffer, named, littleEndian);
+    for (final var head : headers) head.setSymbolSource(this);
+    return true;
+  }
+
+  private void decodeSymbols(byte[] symBuffer, byte[] strBuffer, boolean named, boolean littleEndian) {
     int index = 0;
-    while (index < symTableSize) {
-      SymbolTable st = new SymbolTable(symBuffer, elfHeader.isLittleEndian(), index);
+    while (index < symBuffer.length) {
+      SymbolTable st = new SymbolTable(symBuffer, littleEndian, index);
       index += SymbolTable.SYMBOL_TABLE_SIZE;
-      if (strtab != null)
+      if (named)
         st.setName(getString(strBuffer, st.getValue(SymbolTable.ST_NAME)));
       int headerIndex = st.getValue(SymbolTable.ST_SHNDX);
       if (headerIndex != SectionHeader.SHT_NULL && headerIndex < headers.size())
         headers.get(headerIndex).addSymbol(st);
     }
-    return true;
+  }
+
+  // Decodes the symbols copied by readSymbolTable, the first time any section asks for them.
+  synchronized void loadSymbols() {
+    if (pendingSymbols == null) return;
+    final var decode = pendingSymbols;
+    pendingSymbols = null;
+    decode.run();
   }
 
   public boolean isValid() {
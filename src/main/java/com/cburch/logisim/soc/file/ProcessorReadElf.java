@@ -18,9 +18,13 @@ import com.cburch.logisim.soc.data.SocInstanceFactory;
 import com.cburch.logisim.soc.data.SocProcessorInterface;
 import com.cburch.logisim.soc.file.ElfProgramHeader.ProgramHeader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ProcessorReadElf {
 
@@ -39,10 +43,31 @@ public class ProcessorReadElf {
   private static final int NOT_SUPPORTED_YET_ERROR = 12;
   private static final int MEM_LOAD_ERROR = 13;
 
+  private static final int CACHED_FILES = 8;
+  private static final ByteBuffer ZEROS = ByteBuffer.allocate(1 << 16).asReadOnlyBuffer();
+
+  /*
+   * The headers of the files loaded last, so reloading an unchanged file only reads its
+   * segments. The headers are not changed once read, so they can be shared by all loads.
+   */
+  private record ParsedElf(
+      long lastModified,
+      long length,
+      ElfHeader elfHeader,
+      ElfProgramHeader programHeader,
+      ElfSectionHeader sectionHeader) {}
+
+  private static final LinkedHashMap<File, ParsedElf> CACHE =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, ParsedElf> eldest) {
+          return size() > CACHED_FILES;
+        }
+      };
+
   private final SocProcessorInterface cpu;
   private final int architecture;
   private final File elfFile;
-  private FileInputStream elfFileStream;
   private int status;
   private ElfHeader elfHeader;
   private ElfProgramHeader programHeader;
@@ -54,39 +79,35 @@ public class ProcessorReadElf {
         ((SocInstanceFactory) instance.getFactory())
             .getProcessorInterface(instance.getAttributeSet());
     this.architecture = architecture;
-    this.elfFile = elfFile;
+    this.elfFile = elfFile.getAbsoluteFile();
     status = SUCCESS;
-    if (!open()) return;
-    elfHeader = new ElfHeader(elfFileStream);
-    close();
-    if (!elfHeader.isValid()) {
-      status = ELF_HEADER_ERROR;
-      return;
+    final var lastModified = this.elfFile.lastModified();
+    final var length = this.elfFile.length();
+    ParsedElf parsed;
+    synchronized (CACHE) {
+      parsed = CACHE.get(this.elfFile);
     }
-    int arch = ElfHeader.getIntValue(elfHeader.getValue(ElfHeader.E_MACHINE));
-    if (arch != architecture) {
-      status = ARCHITECTURE_ERROR;
-      return;
-    }
-    int type = ElfHeader.getIntValue(elfHeader.getValue(ElfHeader.E_TYPE));
-    if (type != ElfHeader.ET_EXEC) {
-      status = NO_EXECUTABLE_ERROR;
+    if (parsed != null && parsed.lastModified == lastModified && parsed.length == length) {
+      elfHeader = parsed.elfHeader;
+      programHeader = parsed.programHeader;
+      sectionHeader = parsed.sectionHeader;
+      checkHeader(littleEndian);
       return;
     }
-    if (elfHeader.isLittleEndian() != littleEndian) {
-      status = ENDIAN_MISMATCH_ERROR;
+    final var elf = readFile();
+    if (elf == null) return;
+    elfHeader = new ElfHeader(elf);
+    if (!elfHeader.isValid()) {
+      status = ELF_HEADER_ERROR;
       return;
     }
-    if (!open()) return;
-    programHeader = new ElfProgramHeader(elfFileStream, elfHeader);
-    close();
+    if (!checkHeader(littleEndian)) return;
+    programHeader = new ElfProgramHeader(elf, elfHeader);
     if (!programHeader.isValid()) {
       status = PROGRAM_HEADER_INVALID;
       return;
     }
-    if (!open()) return;
-    sectionHeader = new ElfSectionHeader(elfFileStream, elfHeader);
-    close();
+    sectionHeader = new ElfSectionHeader(elf, elfHeader);
     if (!sectionHeader.isValid()) {
       status = SECTION_HEADER_INVALID;
       return;
@@ -95,20 +116,39 @@ public class ProcessorReadElf {
       status = NOT_SUPPORTED_YET_ERROR;
       return;
     }
-    if (!open()) return;
-    sectionHeader.readSectionNames(elfFileStream, elfHeader);
-    close();
+    sectionHeader.readSectionNames(elf, elfHeader);
     if (!sectionHeader.isValid()) {
       status = SECTION_HEADER_INVALID;
       return;
     }
-    if (!open()) return;
-    sectionHeader.readSymbolTable(elfFileStream, elfHeader);
-    close();
+    sectionHeader.readSymbolTable(elf, elfHeader);
     if (!sectionHeader.isValid()) {
       status = SECTION_HEADER_INVALID;
       return;
     }
+    synchronized (CACHE) {
+      CACHE.put(
+          this.elfFile,
+          new ParsedElf(lastModified, length, elfHeader, programHeader, sectionHeader));
+    }
+  }
+
+  private boolean checkHeader(boolean littleEndian) {
+    int arch = ElfHeader.getIntValue(elfHeader.getValue(ElfHeader.E_MACHINE));
+    if (arch != architecture) {
+      status = ARCHITECTURE_ERROR;
+      return false;
+    }
+    int type = ElfHeader.getIntValue(elfHeader.getValue(ElfHeader.E_TYPE));
+    if (type != ElfHeader.ET_EXEC) {
+      status = NO_EXECUTABLE_ERROR;
+      return false;
+    }
+    if (elfHeader.isLittleEndian() != littleEndian) {
+      status = ENDIAN_MISMATCH_ERROR;
+      return false;
+    }
+    return true;
   }
 
   public boolean canExecute() {
@@ -144,54 +184,47 @@ public class ProcessorReadElf {
   }
 
   public boolean execute(CircuitState cState) {
-    for (int i = 0; i < programHeader.getNrOfHeaders(); i++) {
-      ProgramHeader h = programHeader.getHeader(i);
-      if (ElfHeader.getIntValue(h.getValue(ElfProgramHeader.P_TYPE)) != ElfProgramHeader.PT_LOAD)
-        continue;
-      if (!open()) return false;
-      try {
-        elfFileStream.skip(ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_OFFSET)));
-      } catch (IOException e) {
-        status = LOADABLE_SECTION_NOT_FOUND;
-        return false;
-      }
-      long sectionSize = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_FILESZ));
-      long memSize = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_MEMSZ));
-      if ((sectionSize > (long) Integer.MAX_VALUE) || (memSize > (long) Integer.MAX_VALUE)) {
-        status = LOADABLE_SECTION_TOO_BIG;
-        return false;
-      }
-      byte[] buffer = new byte[(int) sectionSize];
-      int nrRead = 0;
-      try {
-        nrRead = elfFileStream.read(buffer);
-      } catch (IOException e) {
-        status = LOADABLE_SECTION_READ_ERROR;
-        return false;
-      }
-      if (sectionSize != nrRead) {
-        status = LOADABLE_SECTION_SIZE_ERROR;
-        return false;
-      }
-      long startAddr = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_PADDR));
-      for (int j = 0; j < memSize; j++) {
-        int data = (j < buffer.length) ? buffer[j] : 0;
-        int addr = ElfHeader.getIntValue(ElfHeader.returnCorrectValue(startAddr + (long) j, true));
-        SocBusTransaction trans =
-            new SocBusTransaction(
-                SocBusTransaction.WRITE_TRANSACTION,
-                addr,
-                data,
-                SocBusTransaction.BYTE_ACCESS,
-                "elf");
-        cpu.insertTransaction(trans, true, cState);
-        if (trans.hasError()) {
+    // The segments are read, not mapped: a mapping is only released when it is collected, and on
+    // some platforms it keeps the toolchain from writing the file when the program is rebuilt.
+    try (final var channel = FileChannel.open(elfFile.toPath(), StandardOpenOption.READ)) {
+      for (int i = 0; i < programHeader.getNrOfHeaders(); i++) {
+        ProgramHeader h = programHeader.getHeader(i);
+        if (ElfHeader.getIntValue(h.getValue(ElfProgramHeader.P_TYPE)) != ElfProgramHeader.PT_LOAD)
+          continue;
+        long offset = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_OFFSET));
+        long sectionSize = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_FILESZ));
+        long memSize = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_MEMSZ));
+        if ((sectionSize > (long) Integer.MAX_VALUE) || (memSize > (long) Integer.MAX_VALUE)) {
+          status = LOADABLE_SECTION_TOO_BIG;
+          return false;
+        }
+        if (offset > channel.size()) {
+          status = LOADABLE_SECTION_NOT_FOUND;
+          return false;
+        }
+        if (offset + sectionSize > channel.size()) {
+          status = LOADABLE_SECTION_SIZE_ERROR;
+          return false;
+        }
+        final var segment = ByteBuffer.allocate((int) sectionSize);
+        while (segment.hasRemaining()) {
+          if (channel.read(segment, offset + segment.position()) < 0) {
+            status = LOADABLE_SECTION_READ_ERROR;
+            return false;
+          }
+        }
+        segment.flip();
+        long startAddr = ElfHeader.getLongValue(h.getValue(ElfProgramHeader.P_PADDR));
+        if (!load((int) startAddr, segment, memSize, cState)) {
           start = startAddr;
           end = startAddr + memSize - 1;
           status = MEM_LOAD_ERROR;
           return false;
         }
       }
+    } catch (IOException e) {
+      status = LOADABLE_SECTION_READ_ERROR;
+      return false;
     }
     cpu.setEntryPointandReset(
         cState,
@@ -201,20 +234,43 @@ public class ProcessorReadElf {
     return true;
   }
 
-  private boolean open() {
-    try {
-      elfFileStream = new FileInputStream(elfFile);
-    } catch (FileNotFoundException e) {
-      status = FILE_OPEN_ERROR;
-      return false;
+  /*
+   * Copies a segment into memory, followed by zeros up to its memory size. The segment is written
+   * in one go if a single slave holds it, else a byte at a time through bus transactions.
+   */
+  private boolean load(int address, ByteBuffer segment, long memSize, CircuitState cState) {
+    final var fileSize = segment.remaining();
+    if (cpu.writeBytes(address, segment.duplicate(), cState)) {
+      var written = (long) fileSize;
+      while (written < memSize) {
+        final var n = (int) Math.min(ZEROS.capacity(), memSize - written);
+        if (!cpu.writeBytes(address + (int) written, ZEROS.duplicate().limit(n), cState)) break;
+        written += n;
+      }
+      if (written >= memSize) return true;
+    }
+    for (int j = 0; j < memSize; j++) {
+      int data = (j < fileSize) ? segment.get(j) : 0;
+      SocBusTransaction trans =
+          new SocBusTransaction(
+              SocBusTransaction.WRITE_TRANSACTION,
+              address + j,
+              data,
+              SocBusTransaction.BYTE_ACCESS,
+              "elf");
+      cpu.insertTransaction(trans, true, cState);
+      if (trans.hasError()) return false;
     }
     return true;
   }
 
-  private void close() {
+  // Reads the whole file to parse its headers; returns null if it cannot be read.
+  private ByteBuffer readFile() {
     try {
-      elfFileStream.close();
-    } catch (IOException ignored) {
+      return ByteBuffer.wrap(Files.readAllBytes(elfFile.toPath()));
+    } catch (IOException e) {
+      status = FILE_OPEN_ERROR;
+      return null;
     }
   }
 }
@@ -60,6 +60,7 @@ public class SectionHeader {
   private final boolean is32Bit;
   private String name;
   private final ArrayList<SymbolTable> symbols;
+  private ElfSectionHeader symbolSource; // decodes the symbols on first use
 
   public SectionHeader(byte[] buffer, boolean is32Bit, boolean isLittleEndian, int offset) {
     this.is32Bit = is32Bit;
@@ -117,7 +118,12 @@ public class SectionHeader {
     symbols.add(info);
   }
 
+  void setSymbolSource(ElfSectionHeader source) {
+    symbolSource = source;
+  }
+
   public List<SymbolTable> getSymbols() {
+    if (symbolSource != null) symbolSource.loadSymbols();
     return symbols;
   }
 
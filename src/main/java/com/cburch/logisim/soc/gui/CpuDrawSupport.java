@@ -182,6 +182,31 @@ public class CpuDrawSupport {
     g2.dispose();
   }
 
+  private static String formatRate(long rate) {
+    if (rate >= 1_000_000) return String.format("%.2fM", rate / 1e6);
+    if (rate >= 1_000) return String.format("%.1fk", rate / 1e3);
+    return Long.toString(rate);
+  }
+
+  /** Draws the number of executed instructions per second in the title bar of the trace at x, y. */
+  public static void drawInstructionRate(
+      Graphics2D g, int x, int y, boolean scale, SocUpSimulationState simState) {
+    final var rate = simState.getInstructionRate();
+    if (!simState.canExecute() || rate == 0) return;
+    Graphics2D g2 = (Graphics2D) g.create();
+    if (scale) g2.setFont(AppPreferences.getScaledFont(g.getFont()));
+    final var bds = getBounds(x + 410, y + 6, 0, 0, scale);
+    g2.setColor(Color.YELLOW);
+    GraphicsUtil.drawText(
+        g2,
+        S.get("SocInstructionRate", formatRate(rate)),
+        bds.getX(),
+        bds.getY(),
+        GraphicsUtil.H_RIGHT,
+        GraphicsUtil.V_CENTER);
+    g2.dispose();
+  }
+
   public static void drawTrace(Graphics2D g, int x, int y, boolean scale, SocUpStateInterface cpu) {
     Graphics2D g2 = (Graphics2D) g.create();
     Bounds bds;
@@ -18,79 +18,30 @@ import com.cburch.logisim.soc.data.SocBusSlaveListener;
 import com.cburch.logisim.soc.data.SocBusTransaction;
 import com.cburch.logisim.soc.data.SocSupport;
 import com.cburch.logisim.util.StringUtil;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.Random;
 
 public class SocMemoryState implements SocBusSlaveInterface {
 
   public class SocMemoryInfo implements InstanceData, Cloneable {
-    private class SocMemoryInfoBlock {
-      private final LinkedList<Integer> contents = new LinkedList<>();
-      private int startAddress;
-      private final Random rand = new Random();
-
-      public SocMemoryInfoBlock(int address, int data) {
-        startAddress = (address >> 2) << 2;
-        contents.add(data);
-      }
-
-      public boolean canAddBefore(int address) {
-        final var previousAddress = getStartAddress() - 4;
-        return (address >= previousAddress) && (address < getStartAddress());
-      }
-
-      public boolean canAddAfter(int address) {
-        return (address >= getEndAddress()) && (address < getEndAddress() + 4);
-      }
-
-      public boolean contains(int address) {
-        return (address >= getStartAddress()) && (address < getEndAddress());
-      }
-
-      public boolean canAdd(int address) {
-        return canAddBefore(address) || canAddAfter(address);
-      }
-
-      public boolean addInfo(int address, int data) {
-        if (canAddBefore(address)) {
-          contents.addFirst(data);
-          startAddress -= 4;
-          return true;
-        }
-        if (canAddAfter(address)) {
-          contents.add(data);
-          return true;
-        }
-        if (contains(address)) {
-          final var index = (address - startAddress) >> 2;
-          contents.set(index, data);
-          return true;
-        }
-        return false;
-      }
-
-      public int getValue(int address) {
-        final var index = (address - startAddress) >> 2;
-        if (index >= contents.size()) {
-          return rand.nextInt();
-        }
-        return contents.get(index);
-      }
-
-      public int getStartAddress() {
-        return startAddress;
-      }
-
-      public int getEndAddress() {
-        return startAddress + contents.size() * 4;
-      }
-    }
-
-    private final ArrayList<SocMemoryInfoBlock> memInfo;
+    /*
+     * The memory words are kept in a two level page table over the full 32-bit address space,
+     * pages are only allocated when a word inside them is written. Words that were never
+     * written read as random values, like an uninitialized memory would.
+     */
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int DIRECTORY_BITS = 10;
+    private static final int DIRECTORY_SIZE = 1 << DIRECTORY_BITS;
+    private static final int DIRECTORY_MASK = DIRECTORY_SIZE - 1;
+
+    private final int[][][] pages;
 
     public SocMemoryInfo() {
-      memInfo = new ArrayList<>();
+      pages = new int[DIRECTORY_SIZE][][];
     }
 
     @Override
@@ -102,51 +53,101 @@ public class SocMemoryState implements SocBusSlaveInterface {
       }
     }
 
+    private int[] getPage(int wordIndex, boolean create) {
+      final var dirIndex = (wordIndex >>> (PAGE_BITS + DIRECTORY_BITS)) & DIRECTORY_MASK;
+      var directory = pages[dirIndex];
+      if (directory == null) {
+        if (!create) return null;
+        directory = pages[dirIndex] = new int[DIRECTORY_SIZE][];
+      }
+      final var pageIndex = (wordIndex >>> PAGE_BITS) & DIRECTORY_MASK;
+      var page = directory[pageIndex];
+      if (page == null && create) {
+        page = directory[pageIndex] = new int[PAGE_SIZE];
+        for (var i = 0; i < PAGE_SIZE; i++) page[i] = rand.nextInt();
+      }
+      return page;
+    }
+
     public int getWord(int address) {
-      for (final var info : memInfo)
-        if (info.contains(address)) return info.getValue(address);
-      return rand.nextInt();
+      final var wordIndex = address >>> 2;
+      final var page = getPage(wordIndex, false);
+      return page == null ? rand.nextInt() : page[wordIndex & PAGE_MASK];
     }
 
     public void writeWord(int address, int wdata) {
-      final var adders = new ArrayList<SocMemoryInfoBlock>();
-      for (final var info : memInfo) {
-        if (info.contains(address)) {
-          info.addInfo(address, wdata);
-          return;
+      final var wordIndex = address >>> 2;
+      getPage(wordIndex, true)[wordIndex & PAGE_MASK] = wdata;
+    }
+
+    /**
+     * Copies a block of words, starting at the given word aligned address, into the given array,
+     * a page at a time.
+     */
+    public void readWords(int address, int[] data, int offset, int count) {
+      var wordIndex = address >>> 2;
+      while (count > 0) {
+        final var inPage = wordIndex & PAGE_MASK;
+        final var n = Math.min(count, PAGE_SIZE - inPage);
+        final var page = getPage(wordIndex, false);
+        if (page != null) {
+          System.arraycopy(page, inPage, data, offset, n);
+        } else {
+          for (var i = 0; i < n; i++) data[offset + i] = rand.nextInt();
         }
-        if (info.canAdd(address)) adders.add(info);
-      }
-      if (adders.isEmpty()) {
-        /* we have to create a new set */
-        memInfo.add(new SocMemoryInfoBlock(address, wdata));
-        return;
-      }
-      if (adders.size() == 1) {
-        /* easy case we can add in front or at the end of an existing one */
-        adders.get(0).addInfo(address, wdata);
-        return;
+        wordIndex += n;
+        offset += n;
+        count -= n;
       }
-      if (adders.size() > 2) {
-        // FIXME: hardcoded string
-        System.out.println("BUG! Memory management does not function corectly for the SocMemory component!");
-        return;
+    }
+
+    /**
+     * Copies a block of bytes (e.g. the contents of an ELF section) into the memory, starting at
+     * the given byte address. The bytes are stored little endian, as the bus transactions do.
+     */
+    public void loadBytes(int address, byte[] data, int offset, int length) {
+      loadBytes(address, ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Copies the bytes remaining in the given buffer into the memory, starting at the given byte
+     * address; the aligned words in between are copied a page at a time.
+     */
+    public void loadBytes(int address, ByteBuffer data) {
+      final var bytes = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+      data.position(data.limit());
+      var addr = address;
+      while (bytes.hasRemaining() && ((addr & 3) != 0 || bytes.remaining() < 4)) {
+        writeByte(addr++, bytes.get());
       }
-      final var addBefore = adders.get(0).canAddBefore(address)
-                            ? adders.get(0)
-                            : adders.get(1).canAddBefore(address) ? adders.get(1) : null;
-      final var addAfter = adders.get(0).canAddAfter(address)
-                           ? adders.get(0)
-                           : adders.get(1).canAddAfter(address) ? adders.get(1) : null;
-      if (addBefore == null || addAfter == null) {
-        System.out.println("BUG! Memory management does not function corectly for the SocMemory component!");
-        return;
+      final var words = bytes.asIntBuffer();
+      var wordIndex = addr >>> 2;
+      while (words.hasRemaining()) {
+        final var inPage = wordIndex & PAGE_MASK;
+        final var n = Math.min(words.remaining(), PAGE_SIZE - inPage);
+        words.get(getPage(wordIndex, true), inPage, n);
+        wordIndex += n;
       }
-      addAfter.addInfo(address, wdata);
-      for (var i = addBefore.getStartAddress(); i < addBefore.getEndAddress(); i += 4) {
-        addAfter.addInfo(i, addBefore.getValue(i));
+      bytes.position(bytes.position() + 4 * words.position());
+      addr += 4 * words.position();
+      while (bytes.hasRemaining()) writeByte(addr++, bytes.get());
+    }
+
+    private void writeByte(int address, byte value) {
+      final var shift = (address & 3) << 3;
+      final var old = getWord(address);
+      writeWord(address, (old & ~(0xFF << shift)) | ((value & 0xFF) << shift));
+    }
+
+    /**
+     * Copies a block of memory, starting at the given byte address, into the given byte array;
+     * this is the counterpart of {@link #loadBytes(int, byte[], int, int)}.
+     */
+    public void dumpBytes(int address, byte[] data, int offset, int length) {
+      for (var index = 0; index < length; index++) {
+        final var addr = address + index;
+        data[offset + index] = (byte) (getWord(addr) >> ((addr & 3) << 3));
       }
-      memInfo.remove(addBefore);
     }
   }
 
@@ -263,6 +264,28 @@ public class SocMemoryState implements SocBusSlaveInterface {
     trans.setTransactionResponder(attachedBus.getComponent());
   }
 
+  @Override
+  public boolean writeBytes(int address, ByteBuffer data) {
+    final var addr = SocSupport.convUnsignedInt(address);
+    final var start = SocSupport.convUnsignedInt(startAddress);
+    if (addr < start || addr + data.remaining() > start + sizeInBytes) return false;
+    final var state = getRegPropagateState();
+    if (state == null) return false;
+    state.loadBytes(address, data);
+    return true;
+  }
+
+  @Override
+  public boolean readWords(int address, int[] data, int offset, int count) {
+    final var addr = SocSupport.convUnsignedInt(address);
+    final var start = SocSupport.convUnsignedInt(startAddress);
+    if ((address & 3) != 0 || addr < start || addr + 4L * count > start + sizeInBytes) return false;
+    final var state = getRegPropagateState();
+    if (state == null) return false;
+    state.readWords(address, data, offset, count);
+    return true;
+  }
+
   private SocMemoryInfo getRegPropagateState() {
     return (SocMemoryInfo) attachedBus.getSocSimulationManager().getdata(attachedBus.getComponent());
   }
@@ -48,11 +48,17 @@ public class Nios2Attributes extends AbstractAttributeSet {
       Attributes.forHexInteger("breakVector", S.getter("nios2BreakVector"));
   public static final Attribute<Boolean> NIOS_STATE_VISIBLE =
       Attributes.forBoolean("stateVisible", S.getter("rv32StateVisible"));
+  public static final Attribute<Integer> INSTRUCTIONS_PER_CLOCK =
+      Attributes.forIntegerRange("instrPerClock", S.getter("rv32InstructionsPerClock"), 1, 1 << 24);
+  public static final Attribute<Boolean> BATCH_STOP_ON_IO =
+      Attributes.forBoolean("batchStopOnIo", S.getter("rv32BatchStopOnIo"));
 
   private Font labelFont = StdAttr.DEFAULT_LABEL_FONT;
   private Boolean labelVisible = true;
   private Nios2State upState = new Nios2State();
   private Boolean stateVisible = true;
+  private Integer instructionsPerClock = 1;
+  private Boolean batchStopOnIo = true;
 
   private static final List<Attribute<?>> ATTRIBUTES =
       Arrays.asList(
@@ -61,6 +67,8 @@ public class Nios2Attributes extends AbstractAttributeSet {
           BREAK_VECTOR,
           NR_OF_IRQS,
           NIOS_STATE_VISIBLE,
+          INSTRUCTIONS_PER_CLOCK,
+          BATCH_STOP_ON_IO,
           StdAttr.LABEL,
           StdAttr.LABEL_FONT,
           StdAttr.LABEL_VISIBILITY,
@@ -73,6 +81,8 @@ public class Nios2Attributes extends AbstractAttributeSet {
     d.labelFont = labelFont;
     d.labelVisible = labelVisible;
     d.stateVisible = stateVisible;
+    d.instructionsPerClock = instructionsPerClock;
+    d.batchStopOnIo = batchStopOnIo;
     d.upState = new Nios2State();
     upState.copyInto(d.upState);
   }
@@ -95,6 +105,8 @@ public class Nios2Attributes extends AbstractAttributeSet {
     if (attr == SocSimulationManager.SOC_BUS_SELECT) return (V) upState.getAttachedBus();
     if (attr == NIOS2_STATE) return (V) upState;
     if (attr == NIOS_STATE_VISIBLE) return (V) stateVisible;
+    if (attr == INSTRUCTIONS_PER_CLOCK) return (V) instructionsPerClock;
+    if (attr == BATCH_STOP_ON_IO) return (V) batchStopOnIo;
     return null;
   }
 
@@ -161,5 +173,21 @@ public class Nios2Attributes extends AbstractAttributeSet {
       }
       return;
     }
+    if (attr == INSTRUCTIONS_PER_CLOCK) {
+      Integer v = (Integer) value;
+      if (!instructionsPerClock.equals(v)) {
+        instructionsPerClock = v;
+        fireAttributeValueChanged(attr, value, oldValue);
+      }
+      return;
+    }
+    if (attr == BATCH_STOP_ON_IO) {
+      Boolean v = (Boolean) value;
+      if (!batchStopOnIo.equals(v)) {
+        batchStopOnIo = v;
+        fireAttributeValueChanged(attr, value, oldValue);
+      }
+      return;
+    }
   }
 }
@@ -36,7 +36,9 @@ import com.cburch.logisim.soc.file.ElfProgramHeader;
 import com.cburch.logisim.soc.file.ElfSectionHeader;
 import com.cburch.logisim.soc.gui.BreakpointPanel;
 import com.cburch.logisim.soc.gui.CpuDrawSupport;
+import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
 import com.cburch.logisim.soc.util.AssemblerInterface;
+import com.cburch.logisim.soc.util.PredecodedInstructionCache;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringUtil;
 import java.awt.Color;
@@ -44,6 +46,7 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.Map;
 import javax.swing.JPanel;
@@ -67,6 +70,10 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
     private int lastRegisterWritten = -1;
     private final LinkedList<TraceInfo> instrTrace;
     private final Object instrTraceLock = new Object();
+    private final transient PredecodedInstructionCache instrCache =
+        new PredecodedInstructionCache();
+    private boolean stopBatchOnIo;
+    private boolean endOfBatch;
     private Value lastClock;
     private final SocUpSimulationState simState;
     private final Instance myInstance;
@@ -125,6 +132,7 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
       synchronized (instrTraceLock) {
         instrTrace.clear();
       }
+      instrCache.clear();
       if (visible) repaint();
       simState.reset();
     }
@@ -196,7 +204,19 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
     }
 
     public void setClock(Value clock, CircuitState cState) {
-      if (lastClock == Value.FALSE && clock == Value.TRUE) execute(cState);
+      if (lastClock == Value.FALSE && clock == Value.TRUE) {
+        /* in batch mode several instructions are executed on a single clock edge */
+        final var batchSize = myInstance.getAttributeValue(Nios2Attributes.INSTRUCTIONS_PER_CLOCK);
+        stopBatchOnIo = myInstance.getAttributeValue(Nios2Attributes.BATCH_STOP_ON_IO);
+        endOfBatch = false;
+        var executed = 0;
+        while (executed < batchSize && execute(cState)) {
+          executed++;
+          if (endOfBatch) break;
+        }
+        simState.instructionsExecuted(executed);
+        if (visible) repaint();
+      }
       lastClock = clock;
     }
 
@@ -278,12 +298,16 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
       return attachedBus.getComponent();
     }
 
-    public void execute(CircuitState cState) {
+    /**
+     * Executes the instruction at the pc, returns true if the instruction has been executed without
+     * errors.
+     */
+    public boolean execute(CircuitState cState) {
       /* check the simulation state */
-      if (!simState.canExecute()) return;
+      if (!simState.canExecute()) return false;
       /* here we handle the custom instructions */
       if (ASSEMBLER.getExeUnit() != null && ASSEMBLER.getExeUnit() instanceof Nios2CustomInstructions cust) {
-        if (cust.isValid() && cust.waitingOnReady(this, cState)) return;
+        if (cust.isValid() && cust.waitingOnReady(this, cState)) return false;
       }
       Map<Integer, Integer> breakPoints = bPanel.getBreakPoints();
       if (breakPoints.containsKey(pc)) {
@@ -294,7 +318,7 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
               S.get("RV32imBreakPointReached"),
               SocSupport.getMasterName(cState, Nios2State.this.getName()),
               OptionPane.INFORMATION_MESSAGE);
-          return;
+          return false;
         }
       }
       /* check interrupts */
@@ -306,31 +330,38 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
           repaint();
         }
       }
-      /* fetch an instruction */
-      SocBusTransaction trans =
-          new SocBusTransaction(SocBusTransaction.READ_TRANSACTION, pc, 0, SocBusTransaction.WORD_ACCESS, attachedBus.getComponent());
-      attachedBus
-          .getSocSimulationManager()
-          .initializeTransaction(trans, attachedBus.getBusId(), cState);
-      if (trans.hasError()) {
-        OptionPane.showMessageDialog(
-            null,
-            trans.getErrorMessage(),
-            SocSupport.getMasterName(cState, Nios2State.this.getName()) + S.get("RV32imFetchTransaction"),
-            OptionPane.ERROR_MESSAGE);
-        simState.errorInExecution();
-        return;
+      /* a predecoded instruction needs neither a fetch nor a decode */
+      final var socManager = attachedBus.getSocSimulationManager();
+      instrCache.validate(socManager.getSocBusState(attachedBus.getBusId()));
+      final int instruction;
+      final AssemblerExecutionInterface exe;
+      if (instrCache.contains(pc)) {
+        instruction = instrCache.getInstruction(pc);
+        exe = instrCache.getExeUnit(pc);
+      } else {
+        /* fetch an instruction */
+        SocBusTransaction trans =
+            new SocBusTransaction(SocBusTransaction.READ_TRANSACTION, pc, 0, SocBusTransaction.WORD_ACCESS, attachedBus.getComponent());
+        socManager.initializeTransaction(trans, attachedBus.getBusId(), cState);
+        if (trans.hasError()) {
+          OptionPane.showMessageDialog(
+              null,
+              trans.getErrorMessage(),
+              SocSupport.getMasterName(cState, Nios2State.this.getName()) + S.get("RV32imFetchTransaction"),
+              OptionPane.ERROR_MESSAGE);
+          simState.errorInExecution();
+          return false;
+        }
+        if (!SocSupport.isMemoryTransaction(trans)) endOfBatch |= stopBatchOnIo;
+        /* decode instruction */
+        instruction = trans.getReadData();
+        ASSEMBLER.decode(instruction);
+        exe = ASSEMBLER.getExeUnit();
+        /* custom instructions span several cycles and rely on the assembler state checked above */
+        if (exe != null && !(exe instanceof Nios2CustomInstructions)) instrCache.fill(trans, exe);
       }
-      /* decode instruction */
-      final var instruction = trans.getReadData();
-      ASSEMBLER.decode(instruction);
       /* execute instruction */
-      final var exe = ASSEMBLER.getExeUnit();
       lastRegisterWritten = -1;
-      synchronized (instrTraceLock) {
-        while (instrTrace.size() >= CpuDrawSupport.NR_OF_TRACES)
-          instrTrace.removeLast();
-      }
       if (exe == null) {
         OptionPane.showMessageDialog(
             null,
@@ -338,14 +369,14 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
             SocSupport.getMasterName(cState, Nios2State.this.getName()) + S.get("RV32imFetchTransaction"),
             OptionPane.ERROR_MESSAGE);
         simState.errorInExecution();
-        synchronized (instrTraceLock) {
-          instrTrace.addFirst(new TraceInfo(pc, instruction, S.get("RV32imFetchInvInstrAsm"), true));
-        }
+        addTrace(new TraceInfo(pc, instruction, S.get("RV32imFetchInvInstrAsm"), true));
         pc = pc + 4;
         if (visible) repaint();
-        return;
+        return false;
       }
-      final var trace = new TraceInfo(pc, instruction, exe.getAsmInstruction(), false);
+      /* the trace is only recorded while it can be seen */
+      final var trace =
+          isTraceVisible() ? new TraceInfo(pc, instruction, exe.getAsmInstruction(), false) : null;
       if (!exe.execute(this, cState)) {
         final var s = new StringBuilder();
         s.append(S.get("RV32imFetchExecutionError"));
@@ -357,19 +388,30 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
             SocSupport.getMasterName(cState, Nios2State.this.getName()) + S.get("RV32imFetchTransaction"),
             OptionPane.ERROR_MESSAGE);
         simState.errorInExecution();
-        trace.setError();
-        synchronized (instrTraceLock) {
-          instrTrace.addFirst(trace);
+        if (trace != null) {
+          trace.setError();
+          addTrace(trace);
         }
         if (visible) repaint();
-        return;
+        return false;
       }
+      if (trace != null) addTrace(trace);
+      /* a custom instruction waits for its done pin at the next clock edge */
+      if (exe instanceof Nios2CustomInstructions) endOfBatch = true;
+      /* all done increment pc */
+      if (!exe.performedJump()) pc = pc + 4;
+      return true;
+    }
+
+    private boolean isTraceVisible() {
+      return visible || myInstance.getAttributeValue(Nios2Attributes.NIOS_STATE_VISIBLE);
+    }
+
+    private void addTrace(TraceInfo trace) {
       synchronized (instrTraceLock) {
+        while (instrTrace.size() >= CpuDrawSupport.NR_OF_TRACES) instrTrace.removeLast();
         instrTrace.addFirst(trace);
       }
-      /* all done increment pc */
-      if (!exe.performedJump()) pc = pc + 4;
-      if (visible) repaint();
     }
 
     @Override
@@ -386,6 +428,8 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
       attachedBus
           .getSocSimulationManager()
           .initializeTransaction(trans, attachedBus.getBusId(), cState);
+      /* IO slaves only see the effect of other components at the next clock edge */
+      if (!hidden && !SocSupport.isMemoryTransaction(trans)) endOfBatch |= stopBatchOnIo;
     }
 
     public void draw(Graphics2D g, boolean scale) {
@@ -395,6 +439,7 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
       CpuDrawSupport.drawHexReg(g, 380, 0, scale, estatus, S.get("Nios2Estatus"), true);
       CpuDrawSupport.drawHexReg(g, 485, 0, scale, bstatus, S.get("Nios2Bstatus"), true);
       CpuDrawSupport.drawTrace(g, 170, 40, scale, this);
+      CpuDrawSupport.drawInstructionRate(g, 170, 40, scale, simState);
       if (nrOfIrqs > 0) {
         CpuDrawSupport.drawIRQs(g, 0, 500, scale, nrOfIrqs, ipending, ienable);
       }
@@ -402,6 +447,7 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
 
     @Override
     public void destroy() {
+      instrCache.detach();
       SocUpMenuProvider.SOCUPMENUPROVIDER.deregisterCpuState(this, myInstance);
     }
 
@@ -690,6 +736,20 @@ public class Nios2State implements SocUpSimulationStateListener, SocProcessorInt
         .initializeTransaction(trans, attachedBus.getBusId(), cState);
   }
 
+  @Override
+  public boolean writeBytes(int address, ByteBuffer data, CircuitState cState) {
+    if (cState == null) {
+      final var comp = (InstanceComponent) attachedBus.getComponent();
+      if (comp == null) return false;
+      final var state = comp.getInstanceStateImpl();
+      if (state == null) return false;
+      cState = state.getProject().getCircuitState();
+    }
+    return attachedBus
+        .getSocSimulationManager()
+        .writeBytes(attachedBus.getBusId(), address, data, cState);
+  }
+
   @Override
   public int getEntryPoint(CircuitState cState) {
     if (cState != null) {
@@ -62,11 +62,17 @@ public class RV32imAttributes extends AbstractAttributeSet {
       Attributes.forHexInteger("resetVector", S.getter("rv32ResetVector"));
   public static final Attribute<Boolean> RV32IM_STATE_VISIBLE =
       Attributes.forBoolean("stateVisible", S.getter("rv32StateVisible"));
+  public static final Attribute<Integer> INSTRUCTIONS_PER_CLOCK =
+      Attributes.forIntegerRange("instrPerClock", S.getter("rv32InstructionsPerClock"), 1, 1 << 24);
+  public static final Attribute<Boolean> BATCH_STOP_ON_IO =
+      Attributes.forBoolean("batchStopOnIo", S.getter("rv32BatchStopOnIo"));
 
   private Font labelFont = StdAttr.DEFAULT_LABEL_FONT;
   private Boolean labelVisible = true;
   private RV32imState upState = new RV32imState();
   private Boolean stateVisible = true;
+  private Integer instructionsPerClock = 1;
+  private Boolean batchStopOnIo = true;
   private final Rv32imPlicState plicState = new Rv32imPlicState();
 
   private static final List<Attribute<?>> ATTRIBUTES =
@@ -75,6 +81,8 @@ public class RV32imAttributes extends AbstractAttributeSet {
           NR_OF_IRQS,
           RV32IM_PLIC_BASE_ADDRESS,
           RV32IM_STATE_VISIBLE,
+          INSTRUCTIONS_PER_CLOCK,
+          BATCH_STOP_ON_IO,
           StdAttr.LABEL,
           StdAttr.LABEL_FONT,
           StdAttr.LABEL_VISIBILITY,
@@ -92,6 +100,8 @@ public class RV32imAttributes extends AbstractAttributeSet {
     d.labelFont = labelFont;
     d.labelVisible = labelVisible;
     d.stateVisible = stateVisible;
+    d.instructionsPerClock = instructionsPerClock;
+    d.batchStopOnIo = batchStopOnIo;
     d.upState = new RV32imState();
     upState.copyInto(d.upState);
     d.plicState.setPlicBaseAddress(plicState.getPlicBaseAddress());
@@ -115,6 +125,8 @@ public class RV32imAttributes extends AbstractAttributeSet {
     if (attr == SocSimulationManager.SOC_BUS_SELECT) return (V) upState.getAttachedBus();
     if (attr == RV32IM_STATE) return (V) upState;
     if (attr == RV32IM_STATE_VISIBLE) return (V) stateVisible;
+    if (attr == INSTRUCTIONS_PER_CLOCK) return (V) instructionsPerClock;
+    if (attr == BATCH_STOP_ON_IO) return (V) batchStopOnIo;
     if (attr == RV32IM_PLIC_STATE) return (V) plicState;
     return null;
   }
@@ -180,5 +192,21 @@ public class RV32imAttributes extends AbstractAttributeSet {
       }
       return;
     }
+    if (attr == INSTRUCTIONS_PER_CLOCK) {
+      Integer v = (Integer) value;
+      if (!instructionsPerClock.equals(v)) {
+        instructionsPerClock = v;
+        fireAttributeValueChanged(attr, value, oldValue);
+      }
+      return;
+    }
+    if (attr == BATCH_STOP_ON_IO) {
+      Boolean v = (Boolean) value;
+      if (!batchStopOnIo.equals(v)) {
+        batchStopOnIo = v;
+        fireAttributeValueChanged(attr, value, oldValue);
+      }
+      return;
+    }
   }
 }
@@ -37,7 +37,9 @@ import com.cburch.logisim.soc.file.ElfProgramHeader;
 import com.cburch.logisim.soc.file.ElfSectionHeader;
 import com.cburch.logisim.soc.gui.BreakpointPanel;
 import com.cburch.logisim.soc.gui.CpuDrawSupport;
+import com.cburch.logisim.soc.util.AssemblerExecutionInterface;
 import com.cburch.logisim.soc.util.AssemblerInterface;
+import com.cburch.logisim.soc.util.PredecodedInstructionCache;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringUtil;
 import java.awt.Color;
@@ -45,6 +47,7 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.LinkedList;
 import javax.swing.JPanel;
@@ -98,6 +101,10 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
     private int lastRegisterWritten = -1;
     private final LinkedList<TraceInfo> instrTrace;
     private final Object instrTraceLock = new Object();
+    private final transient PredecodedInstructionCache instrCache =
+        new PredecodedInstructionCache();
+    private boolean stopBatchOnIo;
+    private boolean endOfBatch;
     private Value lastClock;
     private final SocUpSimulationState simState;
     private final Instance myInstance;
@@ -160,6 +167,7 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
       synchronized (instrTraceLock) {
         instrTrace.clear();
       }
+      instrCache.clear();
       if (visible) repaint();
       simState.reset();
     }
@@ -179,7 +187,19 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
     }
 
     public void setClock(Value clock, CircuitState cState) {
-      if (lastClock == Value.FALSE && clock == Value.TRUE) execute(cState);
+      if (lastClock == Value.FALSE && clock == Value.TRUE) {
+        /* in batch mode several instructions are executed on a single clock edge */
+        final var batchSize = myInstance.getAttributeValue(RV32imAttributes.INSTRUCTIONS_PER_CLOCK);
+        stopBatchOnIo = myInstance.getAttributeValue(RV32imAttributes.BATCH_STOP_ON_IO);
+        endOfBatch = false;
+        var executed = 0;
+        while (executed < batchSize && execute(cState)) {
+          executed++;
+          if (endOfBatch) break;
+        }
+        simState.instructionsExecuted(executed);
+        if (visible) repaint();
+      }
       lastClock = clock;
     }
 
@@ -300,9 +320,13 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
       return attachedBus.getComponent();
     }
 
-    public void execute(CircuitState cState) {
+    /**
+     * Executes the instruction at the pc, returns true if the instruction has been executed without
+     * errors.
+     */
+    public boolean execute(CircuitState cState) {
       /* check the simulation state */
-      if (!simState.canExecute()) return;
+      if (!simState.canExecute()) return false;
       final var breakPoints = bPanel.getBreakPoints();
       if (breakPoints.containsKey(pc)) {
         if (simState.breakPointReached()) {
@@ -312,42 +336,48 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
               S.get("RV32imBreakPointReached"),
               SocSupport.getMasterName(cState, RV32imState.this.getName()),
               OptionPane.INFORMATION_MESSAGE);
-          return;
+          return false;
         }
       }
       /* Check interrupts */
       if (isMachineExternalInterruptEnabled()) takeMachineExternalInterrupt();
-      /* fetch an instruction */
-      final var trans =
-          new SocBusTransaction(
-              SocBusTransaction.READ_TRANSACTION,
-              pc,
-              0,
-              SocBusTransaction.WORD_ACCESS,
-              attachedBus.getComponent());
-      attachedBus
-          .getSocSimulationManager()
-          .initializeTransaction(trans, attachedBus.getBusId(), cState);
-      if (trans.hasError()) {
-        OptionPane.showMessageDialog(
-            null,
-            trans.getErrorMessage(),
-            SocSupport.getMasterName(cState, RV32imState.this.getName())
-                + S.get("RV32imFetchTransaction"),
-            OptionPane.ERROR_MESSAGE);
-        simState.errorInExecution();
-        return;
+      /* a predecoded instruction needs neither a fetch nor a decode */
+      final var socManager = attachedBus.getSocSimulationManager();
+      instrCache.validate(socManager.getSocBusState(attachedBus.getBusId()));
+      final int instruction;
+      final AssemblerExecutionInterface exe;
+      if (instrCache.contains(pc)) {
+        instruction = instrCache.getInstruction(pc);
+        exe = instrCache.getExeUnit(pc);
+      } else {
+        /* fetch an instruction */
+        final var trans =
+            new SocBusTransaction(
+                SocBusTransaction.READ_TRANSACTION,
+                pc,
+                0,
+                SocBusTransaction.WORD_ACCESS,
+                attachedBus.getComponent());
+        socManager.initializeTransaction(trans, attachedBus.getBusId(), cState);
+        if (trans.hasError()) {
+          OptionPane.showMessageDialog(
+              null,
+              trans.getErrorMessage(),
+              SocSupport.getMasterName(cState, RV32imState.this.getName())
+                  + S.get("RV32imFetchTransaction"),
+              OptionPane.ERROR_MESSAGE);
+          simState.errorInExecution();
+          return false;
+        }
+        if (!SocSupport.isMemoryTransaction(trans)) endOfBatch |= stopBatchOnIo;
+        /* decode instruction */
+        instruction = trans.getReadData();
+        ASSEMBLER.decode(instruction);
+        exe = ASSEMBLER.getExeUnit();
+        if (exe != null) instrCache.fill(trans, exe);
       }
-      /* decode instruction */
-      int instruction = trans.getReadData();
-      ASSEMBLER.decode(instruction);
       /* execute instruction */
-      final var exe = ASSEMBLER.getExeUnit();
       lastRegisterWritten = -1;
-      synchronized (instrTraceLock) {
-        while (instrTrace.size() >= CpuDrawSupport.NR_OF_TRACES) 
-          instrTrace.removeLast();
-      }
       if (exe == null) {
         OptionPane.showMessageDialog(
             null,
@@ -356,14 +386,14 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
                 + S.get("RV32imFetchTransaction"),
             OptionPane.ERROR_MESSAGE);
         simState.errorInExecution();
-        synchronized (instrTraceLock) {
-          instrTrace.addFirst(new TraceInfo(pc, instruction, S.get("RV32imFetchInvInstrAsm"), true));
-        }
+        addTrace(new TraceInfo(pc, instruction, S.get("RV32imFetchInvInstrAsm"), true));
         pc = pc + 4;
         if (visible) repaint();
-        return;
+        return false;
       }
-      final var trace = new TraceInfo(pc, instruction, exe.getAsmInstruction(), false);
+      /* the trace is only recorded while it can be seen */
+      final var trace =
+          isTraceVisible() ? new TraceInfo(pc, instruction, exe.getAsmInstruction(), false) : null;
       if (!exe.execute(this, cState)) {
         final var s = new StringBuilder();
         s.append(S.get("RV32imFetchExecutionError"));
@@ -375,19 +405,28 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
                 + S.get("RV32imFetchTransaction"),
             OptionPane.ERROR_MESSAGE);
         simState.errorInExecution();
-        trace.setError();
-        synchronized (instrTraceLock) {
-          instrTrace.addFirst(trace);
+        if (trace != null) {
+          trace.setError();
+          addTrace(trace);
         }
         if (visible) repaint();
-        return;
+        return false;
       }
+      if (trace != null) addTrace(trace);
+      /* all done increment pc */
+      if (!exe.performedJump()) pc = pc + 4;
+      return true;
+    }
+
+    private boolean isTraceVisible() {
+      return visible || myInstance.getAttributeValue(RV32imAttributes.RV32IM_STATE_VISIBLE);
+    }
+
+    private void addTrace(TraceInfo trace) {
       synchronized (instrTraceLock) {
+        while (instrTrace.size() >= CpuDrawSupport.NR_OF_TRACES) instrTrace.removeLast();
         instrTrace.addFirst(trace);
       }
-      /* all done increment pc */
-      if (!exe.performedJump()) pc = pc + 4;
-      if (visible) repaint();
     }
 
     @Override
@@ -404,16 +443,20 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
       attachedBus
           .getSocSimulationManager()
           .initializeTransaction(trans, attachedBus.getBusId(), cState);
+      /* IO slaves only see the effect of other components at the next clock edge */
+      if (!hidden && !SocSupport.isMemoryTransaction(trans)) endOfBatch |= stopBatchOnIo;
     }
 
     public void draw(Graphics2D g, boolean scale) {
       CpuDrawSupport.drawRegisters(g, 0, 0, scale, this);
       CpuDrawSupport.drawHexReg(g, 170, 0, scale, pc, S.get("Rv32imProgramCounter"), true);
       CpuDrawSupport.drawTrace(g, 170, 40, scale, this);
+      CpuDrawSupport.drawInstructionRate(g, 170, 40, scale, simState);
     }
 
     @Override
     public void destroy() {
+      instrCache.detach();
       SocUpMenuProvider.SOCUPMENUPROVIDER.deregisterCpuState(this, myInstance);
     }
 
@@ -656,6 +699,20 @@ public class RV32imState implements SocUpSimulationStateListener, SocProcessorIn
         .initializeTransaction(trans, attachedBus.getBusId(), cState);
   }
 
+  @Override
+  public boolean writeBytes(int address, ByteBuffer data, CircuitState cState) {
+    if (cState == null) {
+      InstanceComponent comp = (InstanceComponent) attachedBus.getComponent();
+      if (comp == null) return false;
+      InstanceStateImpl state = comp.getInstanceStateImpl();
+      if (state == null) return false;
+      cState = state.getProject().getCircuitState();
+    }
+    return attachedBus
+        .getSocSimulationManager()
+        .writeBytes(attachedBus.getBusId(), address, data, cState);
+  }
+
   @Override
   public int getEntryPoint(CircuitState cState) {
     if (cState != null) {
@@ -0,0 +1,128 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.util;
+
+import com.cburch.logisim.soc.data.SocBusAddressMap;
+import com.cburch.logisim.soc.data.SocBusSnifferInterface;
+import com.cburch.logisim.soc.data.SocBusStateInfo;
+import com.cburch.logisim.soc.data.SocBusTransaction;
+import com.cburch.logisim.soc.data.SocSupport;
+import java.util.Arrays;
+
+/**
+ * Direct mapped cache of predecoded instructions of a processor, indexed by the program counter.
+ * For each cached pc it holds the instruction word and the execution unit that decodes it, such
+ * that a processor can skip both the fetch transaction and the decoding by all execution units.
+ * Only instructions fetched from a plain SocMemory are cached; the cache sniffs the writes on the
+ * bus it is attached to, and drops any entry that is overwritten.
+ */
+public class PredecodedInstructionCache implements SocBusSnifferInterface {
+
+  private static final int CACHE_BITS = 12;
+  private static final int CACHE_SIZE = 1 << CACHE_BITS;
+  private static final int CACHE_MASK = CACHE_SIZE - 1;
+
+  private final int[] tags = new int[CACHE_SIZE];
+  private final int[] instructions = new int[CACHE_SIZE];
+  private final AssemblerExecutionInterface[] exeUnits = new AssemblerExecutionInterface[CACHE_SIZE];
+  private SocBusStateInfo observedBus;
+  private SocBusAddressMap addressMap;
+
+  private static int getIndex(int pc) {
+    return (pc >>> 2) & CACHE_MASK;
+  }
+
+  /**
+   * Attaches the cache to the bus the processor fetches from. When the bus, or its memory map,
+   * changed since the last call, all cached instructions are dropped.
+   */
+  public void validate(SocBusStateInfo bus) {
+    final var newBus = (bus == null || bus.getComponent() == null) ? null : bus;
+    if (newBus != observedBus) {
+      if (observedBus != null) observedBus.removeSocBusWriteSniffer(this);
+      if (newBus != null) newBus.registerSocBusWriteSniffer(this);
+      observedBus = newBus;
+      clear();
+    }
+    final var newMap = newBus == null ? null : newBus.getAddressMap();
+    if (newMap != addressMap) {
+      addressMap = newMap;
+      clear();
+    }
+  }
+
+  /** Detaches the cache from its bus, to be called when the processor state is destroyed. */
+  public void detach() {
+    validate(null);
+  }
+
+  public void clear() {
+    Arrays.fill(exeUnits, null);
+  }
+
+  public boolean contains(int pc) {
+    final var index = getIndex(pc);
+    return exeUnits[index] != null && tags[index] == pc;
+  }
+
+  public int getInstruction(int pc) {
+    return instructions[getIndex(pc)];
+  }
+
+  /**
+   * Returns the execution unit of the cached instruction at the given pc. The execution units of
+   * an assembler are shared, hence the unit is set up again with the cached instruction word; this
+   * decodes only the operands of this unit.
+   */
+  public AssemblerExecutionInterface getExeUnit(int pc) {
+    final var index = getIndex(pc);
+    final var exe = exeUnits[index];
+    exe.setBinInstruction(instructions[index]);
+    return exe;
+  }
+
+  /**
+   * Caches the instruction read by the given fetch transaction, provided it was answered by a plain
+   * SocMemory; instructions from any other slave may change without a bus write.
+   */
+  public void fill(SocBusTransaction fetch, AssemblerExecutionInterface exe) {
+    if (observedBus == null || !SocSupport.isMemoryTransaction(fetch)) return;
+    put(fetch.getAddress(), fetch.getReadData(), exe);
+  }
+
+  void put(int pc, int instruction, AssemblerExecutionInterface exe) {
+    if ((pc & 3) != 0) return;
+    final var index = getIndex(pc);
+    tags[index] = pc;
+    instructions[index] = instruction;
+    exeUnits[index] = exe;
+  }
+
+  @Override
+  public void sniffTransaction(SocBusTransaction trans) {
+    if (!trans.isWriteTransaction()) return;
+    final var address = trans.getAddress() & ~3;
+    final var index = getIndex(address);
+    if (tags[index] == address) exeUnits[index] = null;
+  }
+
+  @Override
+  public void sniffBlockWrite(int address, int length) {
+    if (length >= CACHE_SIZE * 4) {
+      clear();
+      return;
+    }
+    for (var offset = 0; offset < length + (address & 3); offset += 4) {
+      final var pc = (address & ~3) + offset;
+      final var index = getIndex(pc);
+      if (tags[index] == pc) exeUnits[index] = null;
+    }
+  }
+}
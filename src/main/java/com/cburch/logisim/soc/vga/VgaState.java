@@ -25,7 +25,9 @@ import com.cburch.logisim.soc.data.SocSupport;
 import com.cburch.logisim.util.StringUtil;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface, SocBusMasterInterface {
 
@@ -34,6 +36,13 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface, S
     private int mode, lineSize, nrOfLines;
     private boolean modeSetBySoftware = false;
     private BufferedImage myImage;
+    private int[] pixels; // the data buffer of myImage
+    /*
+     * Lines of the image that no longer match the frame buffer, one bit per line. The sniffer
+     * marks lines on the simulator thread; painting reads them back from memory, a run of dirty
+     * lines at a time, so only the lines written to since the last paint are updated.
+     */
+    private long[] dirtyLines;
     private boolean reload = true;
 
     public VgaDisplayState() {
@@ -57,12 +66,12 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface, S
       return false;
     }
 
-    public BufferedImage getImage(CircuitState cState) {
+    public synchronized BufferedImage getImage(CircuitState cState) {
       loadImage(cState);
       return myImage;
     }
 
-    public boolean sizeChanged(boolean initialSize) {
+    public synchronized boolean sizeChanged(boolean initialSize) {
       if (initialSize && modeSetBySoftware)
         return false;
       clear();
@@ -89,6 +98,8 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface, S
         }
       }
       myImage = new BufferedImage(lineSize, nrOfLines, BufferedImage.TYPE_INT_RGB);
+      pixels = ((DataBufferInt) myImage.getRaster().getDataBuffer()).getData();
+      dirtyLines = new long[(nrOfLines + 63) >> 6];
       return true;
     }
 
@@ -99,7 +110,7 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface, S
         return myImage.getHeight() * myImage.getWidth();
     }
 
-    public void clear() {
+    public synchronized void clear() {
       reload = true;
     }
 
@@ -112,28 +123,52 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface, S
       }
     }
 
+    private synchronized void markDirty(int line) {
+      if (line < nrOfLines) dirtyLines[line >> 6] |= 1L << line;
+    }
+
     private void loadImage(CircuitState cState) {
       if (reload) {
-        for (int line = 0; line < nrOfLines; line++)
-          for (int pixel = 0; pixel < lineSize; pixel++) {
-            int index = line * lineSize + pixel;
-            SocBusTransaction trans =
-                new SocBusTransaction(
-                    SocBusTransaction.READ_TRANSACTION,
-                    vgaBufferAddress + index * 4,
-                    0,
-                    SocBusTransaction.WORD_ACCESS,
-                    "vgadma");
-            trans.setAsHiddenTransaction();
-            initializeTransaction(trans, attachedBus.getBusId(), cState);
-            int data = trans.hasError() ? 0 : trans.getReadData();
-            myImage.setRGB(pixel, line, data);
-          }
+        Arrays.fill(dirtyLines, -1L);
         reload = false;
       }
+      var line = 0;
+      while (line < nrOfLines) {
+        if ((dirtyLines[line >> 6] & (1L << line)) == 0) {
+          line++;
+          continue;
+        }
+        final var first = line;
+        while (line < nrOfLines && (dirtyLines[line >> 6] & (1L << line)) != 0) line++;
+        loadLines(first, line, cState);
+      }
+      Arrays.fill(dirtyLines, 0);
+    }
+
+    // Reads the lines first up to last straight into the image.
+    private void loadLines(int first, int last, CircuitState cState) {
+      final var offset = first * lineSize;
+      final var count = (last - first) * lineSize;
+      final var manager = attachedBus.getSocSimulationManager();
+      if (manager != null
+          && manager.readWords(
+              attachedBus.getBusId(), vgaBufferAddress + offset * 4, pixels, offset, count, cState))
+        return;
+      for (var index = offset; index < offset + count; index++) {
+        final var trans =
+            new SocBusTransaction(
+                SocBusTransaction.READ_TRANSACTION,
+                vgaBufferAddress + index * 4,
+                0,
+                SocBusTransaction.WORD_ACCESS,
+                "vgadma");
+        trans.setAsHiddenTransaction();
+        initializeTransaction(trans, attachedBus.getBusId(), cState);
+        pixels[index] = trans.hasError() ? 0 : trans.getReadData();
+      }
     }
 
-    public void paint(Graphics g, CircuitState cState) {
+    public synchronized void paint(Graphics g, CircuitState cState) {
       loadImage(cState);
       g.drawImage(myImage, LEFT_MARGIN, TOP_MARGIN, null);
     }
@@ -352,7 +387,7 @@ public class VgaState implements SocBusSlaveInterface, SocBusSnifferInterface, S
     long addr = SocSupport.convUnsignedInt(trans.getAddress());
     if (addr >= start && addr < end) {
       int index = SocSupport.convUnsignedLong(addr - start) >> 2;
-      state.myImage.setRGB(index % state.lineSize, index / state.lineSize, trans.getWriteData());
+      state.markDirty(index / state.lineSize);
     }
   }
 
@@ -14,6 +14,7 @@ import com.cburch.hex.HexModelListener;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.util.EventSourceWeakSupport;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MemContents implements Cloneable, HexModel {
   public static MemContents create(int addrBits, int width, boolean randomize) {
@@ -25,12 +26,31 @@ public class MemContents implements Cloneable, HexModel {
 
   private static final int PAGE_MASK = PAGE_SIZE - 1;
 
+  /** Odd constant used to spread page indices over the seed space. */
+  private static final long PAGE_SEED_MULTIPLIER = 0xD1B54A32D192ED03L;
+
+  /*
+   * The seed of a memory is derived from a fixed base and the index of the memory, so every
+   * memory starts with contents of its own, while the same circuit gives the same contents on
+   * every launch.
+   */
+  private static final long BASE_SEED = 0x2545F4914F6CDD1DL;
+  private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+  private static final AtomicLong MEMORY_INDEX = new AtomicLong();
+
   private EventSourceWeakSupport<HexModelListener> listeners = null;
   private int width;
   private int addrBits;
   private long mask;
   private Page[] pages;
   private boolean randomize;
+  /*
+   * When set, a page that is not yet allocated does not hold zeros, but the random startup
+   * contents derived from (randomSeed, page index). Such a page is only materialized on its
+   * first read or write, which keeps a reset O(1) regardless of the memory size.
+   */
+  private boolean randomPages;
+  private long randomSeed = getMemorySeed(MEMORY_INDEX.getAndIncrement());
 
   private MemContents(int addrBits, int width, boolean randomize) {
     listeners = null;
@@ -48,27 +68,31 @@ public class MemContents implements Cloneable, HexModel {
   }
 
   public void clear() {
+    if (randomPages) {
+      randomPages = false;
+      Arrays.fill(pages, null);
+      fireBytesChanged(0, getLastOffset() + 1, null);
+      return;
+    }
     for (var i = 0; i < pages.length; i++) {
       if (pages[i] != null) clearPage(i);
     }
   }
 
   public void condClear() {
-    if (!AppPreferences.Memory_Startup_Unknown.getBoolean()) clear();
+    if (!randomize || !AppPreferences.Memory_Startup_Unknown.getBoolean()) clear();
     else {
-      for (var i = 0; i < pages.length; i++) {
-        long[] oldValues = pages[i] != null ? pages[i].get(0, pages[i].getLength()) : null;
-        pages[i] = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
-        if (oldValues != null) fireBytesChanged(i << PAGE_SIZE_BITS, oldValues.length, oldValues);
-        else
-          fireBytesChanged(
-              i << PAGE_SIZE_BITS, pages[i].getLength(), pages[i].get(0, pages[i].getLength()));
-      }
+      // Every reset starts a new, but reproducible, random sequence
+      randomSeed = new Xoshiro256PlusPlus(randomSeed).currentValue();
+      randomPages = true;
+      Arrays.fill(pages, null);
+      fireBytesChanged(0, getLastOffset() + 1, null);
     }
   }
 
   private void clearPage(int index) {
-    final var page = pages[index];
+    final var page = getPage(index);
+    if (page == null) return;
     final var oldValues = new long[page.getLength()];
     var changed = false;
     for (var j = 0; j < oldValues.length; j++) {
@@ -77,7 +101,8 @@ public class MemContents implements Cloneable, HexModel {
       if (val != 0) changed = true;
     }
     if (changed) {
-      pages[index] = null;
+      if (randomPages) page.load(0, new long[oldValues.length], mask);
+      else pages[index] = null;
       fireBytesChanged(index << PAGE_SIZE_BITS, oldValues.length, oldValues);
     }
   }
@@ -102,10 +127,41 @@ public class MemContents implements Cloneable, HexModel {
     }
   }
 
-  private void ensurePage(int index) {
+  /*
+   * Synchronized, as a read may materialize a page too: a read from the GUI, such as the hex
+   * editor, and the first write of the simulator to the same page must not both create it, or
+   * the write would be lost.
+   */
+  private synchronized Page ensurePage(int index) {
     if (pages[index] == null) {
-      pages[index] = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
+      final var generator = randomPages ? new Xoshiro256PlusPlus(getPageSeed(index)) : null;
+      pages[index] = MemContentsSub.createPage(getPageLength(), width, generator);
     }
+    return pages[index];
+  }
+
+  /**
+   * Returns the page at the given index, materializing it first if it still holds its (virtual)
+   * random startup contents. A {@code null} return value denotes a page of zeros.
+   */
+  private Page getPage(int index) {
+    return randomPages ? ensurePage(index) : pages[index];
+  }
+
+  private int getPageLength() {
+    return addrBits < PAGE_SIZE_BITS ? 1 << addrBits : PAGE_SIZE;
+  }
+
+  static long getMemorySeed(long index) {
+    return new Xoshiro256PlusPlus(BASE_SEED + index * SEED_STEP).currentValue();
+  }
+
+  private long getPageSeed(int index) {
+    return randomSeed ^ (index * PAGE_SEED_MULTIPLIER);
+  }
+
+  private void releaseIfClear(int index) {
+    if (!randomPages && pages[index] != null && pages[index].isClear()) pages[index] = null;
   }
 
   @Override
@@ -126,14 +182,14 @@ public class MemContents implements Cloneable, HexModel {
       if (!page.matches(vals, startOffs, mask)) {
         final var oldValues = page.get(startOffs, (int) len);
         page.load(startOffs, vals, mask);
-        if (value == 0 && page.isClear()) pages[pageStart] = null;
+        if (value == 0) releaseIfClear(pageStart);
         fireBytesChanged(start, len, oldValues);
       }
     } else {
       if (startOffs == 0) {
         pageStart--;
       } else {
-        if (value == 0 && pages[pageStart] == null) {
+        if (value == 0 && pages[pageStart] == null && !randomPages) {
           // nothing to do
         } else {
           ensurePage(pageStart);
@@ -143,14 +199,14 @@ public class MemContents implements Cloneable, HexModel {
           if (!page.matches(vals, startOffs, mask)) {
             final var oldValues = page.get(startOffs, vals.length);
             page.load(startOffs, vals, mask);
-            if (value == 0 && page.isClear()) pages[pageStart] = null;
+            if (value == 0) releaseIfClear(pageStart);
             fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
           }
         }
       }
       if (value == 0) {
         for (var i = pageStart + 1; i < pageEnd; i++) {
-          if (pages[i] != null) clearPage(i);
+          clearPage(i);
         }
       } else {
         final var vals = new long[PAGE_SIZE];
@@ -166,17 +222,17 @@ public class MemContents implements Cloneable, HexModel {
         }
       }
       if (endOffs >= 0) {
-        final var page = pages[pageEnd];
-        if (value == 0 && page == null) {
+        if (value == 0 && pages[pageEnd] == null && !randomPages) {
           // nothing to do
         } else {
           ensurePage(pageEnd);
+          final var page = pages[pageEnd];
           final var vals = new long[endOffs + 1];
           Arrays.fill(vals, value);
           if (!page.matches(vals, 0, mask)) {
             final var oldValues = page.get(0, endOffs + 1);
             page.load(0, vals, mask);
-            if (value == 0 && page.isClear()) pages[pageEnd] = null;
+            if (value == 0) releaseIfClear(pageEnd);
             fireBytesChanged(pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
           }
         }
@@ -208,8 +264,9 @@ public class MemContents implements Cloneable, HexModel {
   public long get(long addr) {
     int page = (int) (addr >>> PAGE_SIZE_BITS);
     long offs = (addr & PAGE_MASK);
-    if (page < 0 || page >= pages.length || pages[page] == null) return 0;
-    return pages[page].get(offs) & mask;
+    if (page < 0 || page >= pages.length) return 0;
+    final var current = getPage(page);
+    return current == null ? 0 : current.get(offs) & mask;
   }
 
   @Override
@@ -236,7 +293,10 @@ public class MemContents implements Cloneable, HexModel {
   }
 
   public boolean isClear() {
-    for (final var page : pages) {
+    for (var i = 0; i < pages.length; i++) {
+      final var page = pages[i];
+      // a page that is not materialized yet holds its random startup contents
+      if (page == null && randomPages) return false;
       if (page != null) {
         for (var j = page.getLength() - 1; j >= 0; j--) {
           if (page.get(j) != 0) return false;
@@ -258,12 +318,11 @@ public class MemContents implements Cloneable, HexModel {
     final var page = (int) (addr >>> PAGE_SIZE_BITS);
     long offs = (addr & PAGE_MASK);
     if (page < 0 || page >= pages.length) return;
-    long old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
+    final var current = getPage(page);
+    long old = current == null ? 0 : current.get(offs) & mask;
     long val = value & mask;
     if (old != val) {
-      if (pages[page] == null) {
-        pages[page] = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
-      }
+      ensurePage(page);
       pages[page].set(offs, val);
       fireBytesChanged(addr, 1, new long[] {old});
     }
@@ -284,7 +343,7 @@ public class MemContents implements Cloneable, HexModel {
       if (!page.matches(values, startOffs, mask)) {
         final var oldValues = page.get(startOffs, values.length);
         page.load(startOffs, values, mask);
-        if (page.isClear()) pages[pageStart] = null;
+        releaseIfClear(pageStart);
         fireBytesChanged(start, values.length, oldValues);
       }
     } else {
@@ -300,7 +359,7 @@ public class MemContents implements Cloneable, HexModel {
         if (!page.matches(vals, startOffs, mask)) {
           final var oldValues = page.get(startOffs, vals.length);
           page.load(startOffs, vals, mask);
-          if (page.isClear()) pages[pageStart] = null;
+          releaseIfClear(pageStart);
           fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
         }
         nextOffs = vals.length;
@@ -308,7 +367,7 @@ public class MemContents implements Cloneable, HexModel {
       var vals = new long[PAGE_SIZE];
       int offs = nextOffs;
       for (var i = pageStart + 1; i < pageEnd; i++, offs += PAGE_SIZE) {
-        var page = pages[i];
+        var page = getPage(i);
         if (page == null) {
           var allZeroes = true;
           for (var j = 0; j < PAGE_SIZE; j++) {
@@ -318,8 +377,8 @@ public class MemContents implements Cloneable, HexModel {
             }
           }
           if (!allZeroes) {
-            page = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
-            pages[i] = page;
+            ensurePage(i);
+            page = pages[i];
           }
         }
         if (page != null) {
@@ -327,7 +386,7 @@ public class MemContents implements Cloneable, HexModel {
           if (!page.matches(vals, startOffs, mask)) {
             final var oldValues = page.get(0, PAGE_SIZE);
             page.load(0, vals, mask);
-            if (page.isClear()) pages[i] = null;
+            releaseIfClear(i);
             fireBytesChanged(i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
           }
         }
@@ -340,7 +399,7 @@ public class MemContents implements Cloneable, HexModel {
         if (!page.matches(vals, startOffs, mask)) {
           final var oldValues = page.get(0, endOffs + 1);
           page.load(0, vals, mask);
-          if (page.isClear()) pages[pageEnd] = null;
+          releaseIfClear(pageEnd);
           fireBytesChanged(pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
         }
       }
@@ -368,8 +427,8 @@ public class MemContents implements Cloneable, HexModel {
     var si = (int) (offs & PAGE_MASK);
 
     do {
-      var dstPage = pages[dp];
-      final var srcPage = src.pages[sp];
+      var dstPage = getPage(dp);
+      final var srcPage = src.getPage(sp);
       final var n = Math.min(count, Math.min(PAGE_SIZE - si, PAGE_SIZE - di));
       if (dstPage == null && srcPage == null) {
         // both already all zeros, so do nothing
@@ -377,7 +436,10 @@ public class MemContents implements Cloneable, HexModel {
         // clearing locations di..di+n on this page
         fill(dp * PAGE_SIZE + di, n, 0);
       } else {
-        if (dstPage == null) dstPage = pages[dp] = MemContentsSub.createPage(PAGE_SIZE, width, randomize);
+        if (dstPage == null) {
+          ensurePage(dp);
+          dstPage = pages[dp];
+        }
         // copy locations di..di+n on this page
         final var vals = srcPage.get(si, n);
         dstPage.set(di, vals);
@@ -418,7 +480,7 @@ public class MemContents implements Cloneable, HexModel {
       final var n = Math.min(oldPages.length, pages.length);
       for (var i = 0; i < n; i++) {
         if (oldPages[i] != null) {
-          pages[i] = MemContentsSub.createPage(pageLength, width, randomize);
+          pages[i] = MemContentsSub.createPage(pageLength, width, null);
           final var m = Math.min(oldPages[i].getLength(), pageLength);
           for (var j = 0; j < m; j++) {
             pages[i].set(j, oldPages[i].get(j));
@@ -427,18 +489,23 @@ public class MemContents implements Cloneable, HexModel {
       }
     }
     if (pageCount == 0 && pages[0] == null) {
-      pages[0] = MemContentsSub.createPage(pageLength, width, randomize);
+      pages[0] = MemContentsSub.createPage(pageLength, width, null);
     }
 
     fireMetainfoChanged();
   }
 
   public void condFillRandom() {
-    if (AppPreferences.Memory_Startup_Unknown.get()) {
-      final var pageLength = (addrBits < PAGE_SIZE_BITS) ? 1 << addrBits : PAGE_SIZE;
-      for (var i = 0; i < pages.length; i++)
-        if (pages[i] == null) pages[i] = MemContentsSub.createPage(pageLength, width, randomize);
-    }
+    if (randomize && AppPreferences.Memory_Startup_Unknown.get()) randomPages = true;
+  }
+
+  /**
+   * Sets the seed from which the random startup contents are derived; the contents of page
+   * <i>n</i> only depend on the seed and <i>n</i>, so they are reproducible across runs. Each
+   * memory starts with the seed of its index; this overrides it, as in the tests.
+   */
+  void setRandomSeed(long seed) {
+    randomSeed = seed;
   }
 
   abstract static class Page implements Cloneable {
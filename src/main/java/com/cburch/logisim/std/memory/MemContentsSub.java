@@ -9,20 +9,16 @@
 
 package com.cburch.logisim.std.memory;
 
-import com.cburch.logisim.prefs.AppPreferences;
-
-import java.util.Random;
-
 class MemContentsSub {
   private static class BytePage extends MemContents.Page {
     private byte[] data;
 
-    public BytePage(int size, long mask, boolean randomize) {
+    public BytePage(int size, long mask, Xoshiro256PlusPlus generator) {
       data = new byte[size];
-      if (AppPreferences.Memory_Startup_Unknown.get() && randomize) {
-        final var generator = new Random();
+      if (generator != null) {
         for (var i = 0; i < size; i++) {
-          data[i] = (byte) (generator.nextInt(256) & mask);
+          data[i] = (byte) (generator.currentValue() & mask);
+          generator.step();
         }
       }
     }
@@ -70,11 +66,13 @@ class MemContentsSub {
   private static class IntPage extends MemContents.Page {
     private int[] data;
 
-    public IntPage(int size, long mask, boolean randomize) {
+    public IntPage(int size, long mask, Xoshiro256PlusPlus generator) {
       data = new int[size];
-      if (AppPreferences.Memory_Startup_Unknown.get() && randomize) {
-        final var generator = new Random();
-        for (var i = 0; i < size; i++) data[i] = (int) (generator.nextInt() & mask);
+      if (generator != null) {
+        for (var i = 0; i < size; i++) {
+          data[i] = (int) (generator.currentValue() & mask);
+          generator.step();
+        }
       }
     }
 
@@ -121,11 +119,13 @@ class MemContentsSub {
   private static class ShortPage extends MemContents.Page {
     private short[] data;
 
-    public ShortPage(int size, long mask, boolean randomize) {
+    public ShortPage(int size, long mask, Xoshiro256PlusPlus generator) {
       data = new short[size];
-      if (AppPreferences.Memory_Startup_Unknown.get() && randomize) {
-        final var generator = new Random();
-        for (var i = 0; i < size; i++) data[i] = (short) (generator.nextInt(1 << 16) & mask);
+      if (generator != null) {
+        for (var i = 0; i < size; i++) {
+          data[i] = (short) (generator.currentValue() & mask);
+          generator.step();
+        }
       }
     }
 
@@ -176,11 +176,13 @@ class MemContentsSub {
   private static class LongPage extends MemContents.Page {
     private long[] data;
 
-    public LongPage(int size, long mask, boolean randomize) {
+    public LongPage(int size, long mask, Xoshiro256PlusPlus generator) {
       data = new long[size];
-      if (AppPreferences.Memory_Startup_Unknown.get() && randomize) {
-        final var generator = new Random();
-        for (var i = 0; i < size; i++) data[i] = (int) generator.nextLong() & mask;
+      if (generator != null) {
+        for (var i = 0; i < size; i++) {
+          data[i] = generator.currentValue() & mask;
+          generator.step();
+        }
       }
     }
 
@@ -224,12 +226,16 @@ class MemContentsSub {
     }
   }
 
-  static MemContents.Page createPage(int size, int bits, boolean randomize) {
+  /**
+   * Creates a page of the given size; when a generator is passed the page is filled with its
+   * values, otherwise it is filled with zeros.
+   */
+  static MemContents.Page createPage(int size, int bits, Xoshiro256PlusPlus generator) {
     long mask = (bits == 64) ? 0xffffffffffffffffL : (1L << bits) - 1;
-    if (bits <= 8) return new BytePage(size, mask, randomize);
-    else if (bits <= 16) return new ShortPage(size, mask, randomize);
-    else if (bits <= 32) return new IntPage(size, mask, randomize);
-    else return new LongPage(size, mask, randomize);
+    if (bits <= 8) return new BytePage(size, mask, generator);
+    else if (bits <= 16) return new ShortPage(size, mask, generator);
+    else if (bits <= 32) return new IntPage(size, mask, generator);
+    else return new LongPage(size, mask, generator);
   }
 
   private MemContentsSub() {}
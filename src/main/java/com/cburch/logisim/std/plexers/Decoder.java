@@ -12,6 +12,8 @@ package com.cburch.logisim.std.plexers;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -244,6 +246,28 @@ public class Decoder extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  protected Object getInstanceFeature(final Instance instance, Object key) {
+    if (key == ExpressionComputer.class) {
+      return (ExpressionComputer)
+          expressionMap -> {
+            // the outputs that are not selected float, which no expression can tell
+            if (instance.getAttributeValue(PlexersLibrary.ATTR_TRISTATE)) {
+              throw new UnsupportedOperationException();
+            }
+            final var select = instance.getAttributeValue(PlexersLibrary.ATTR_SELECT);
+            final var outputs = 1 << select.getWidth();
+            final var selected = PlexersLibrary.computeSelectExpressions(
+                instance, expressionMap, outputs, outputs + 1);
+            if (selected == null) return;
+            for (var i = 0; i < outputs; i++) {
+              expressionMap.put(instance.getPortLocation(i), 0, selected[i]);
+            }
+          };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
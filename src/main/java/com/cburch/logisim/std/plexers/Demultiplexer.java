@@ -12,6 +12,8 @@ package com.cburch.logisim.std.plexers;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -245,6 +247,35 @@ public class Demultiplexer extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  protected Object getInstanceFeature(final Instance instance, Object key) {
+    if (key == ExpressionComputer.class) {
+      return (ExpressionComputer)
+          expressionMap -> {
+            // the outputs that are not selected float, which no expression can tell
+            if (instance.getAttributeValue(PlexersLibrary.ATTR_TRISTATE)) {
+              throw new UnsupportedOperationException();
+            }
+            final var width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+            final var enable = instance.getAttributeValue(PlexersLibrary.ATTR_ENABLE);
+            final var select = instance.getAttributeValue(PlexersLibrary.ATTR_SELECT);
+            final var outputs = 1 << select.getWidth();
+            final var selected = PlexersLibrary.computeSelectExpressions(
+                instance, expressionMap, outputs, outputs + 1);
+            if (selected == null) return;
+            final var inputLoc = instance.getPortLocation(outputs + (enable ? 2 : 1));
+            for (var b = 0; b < width; b++) {
+              final var e = expressionMap.get(inputLoc, b);
+              if (e == null) continue;
+              for (var i = 0; i < outputs; i++) {
+                expressionMap.put(instance.getPortLocation(i), b, Expressions.and(selected[i], e));
+              }
+            }
+          };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     // get attributes
@@ -12,6 +12,9 @@ package com.cburch.logisim.std.plexers;
 import static com.cburch.logisim.std.Strings.S;
 
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -260,6 +263,37 @@ public class Multiplexer extends InstanceFactory {
     painter.drawPorts();
   }
 
+  @Override
+  protected Object getInstanceFeature(final Instance instance, Object key) {
+    if (key == ExpressionComputer.class) {
+      return (ExpressionComputer)
+          expressionMap -> {
+            final var width = instance.getAttributeValue(StdAttr.WIDTH).getWidth();
+            final var enable = instance.getAttributeValue(PlexersLibrary.ATTR_ENABLE);
+            final var select = instance.getAttributeValue(PlexersLibrary.ATTR_SELECT);
+            final var inputs = 1 << select.getWidth();
+            final var selected = PlexersLibrary.computeSelectExpressions(
+                instance, expressionMap, inputs, inputs + 1);
+            if (selected == null) return;
+            for (var b = 0; b < width; b++) {
+              Expression out = null;
+              for (var i = 0; i < inputs; i++) {
+                final var e = expressionMap.get(instance.getPortLocation(i), b);
+                if (e == null) {
+                  out = null;
+                  break;
+                }
+                out = Expressions.or(out, Expressions.and(selected[i], e));
+              }
+              if (out != null) {
+                expressionMap.put(instance.getPortLocation(inputs + (enable ? 2 : 1)), b, out);
+              }
+            }
+          };
+    }
+    return super.getInstanceFeature(instance, key);
+  }
+
   @Override
   public void propagate(InstanceState state) {
     final var data = state.getAttributeValue(StdAttr.WIDTH);
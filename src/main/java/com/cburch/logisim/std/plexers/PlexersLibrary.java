@@ -11,6 +11,9 @@ package com.cburch.logisim.std.plexers;
 
 import static com.cburch.logisim.std.Strings.S;
 
+import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.Attributes;
@@ -18,6 +21,7 @@ import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
+import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.tools.FactoryDescription;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
@@ -94,6 +98,39 @@ public class PlexersLibrary extends Library {
     g.drawPolygon(xp, yp, 4);
   }
 
+  /**
+   * Returns the expressions telling when each of the 2^n data ports of a plexer is selected, or
+   * null if a select bit is not known. An enable input that is not connected leaves the plexer
+   * enabled, as in the simulation; when it is connected, the ports are never selected while it is
+   * zero, and the disabled outputs must be zero to be expressed at all.
+   */
+  static Expression[] computeSelectExpressions(
+      Instance instance, ExpressionComputer.Map expressionMap, int selectPort, int enablePort) {
+    final var select = instance.getAttributeValue(ATTR_SELECT).getWidth();
+    final var selectLoc = instance.getPortLocation(selectPort);
+    final var bits = new Expression[select];
+    for (var b = 0; b < select; b++) {
+      bits[b] = expressionMap.get(selectLoc, b);
+      if (bits[b] == null) return null;
+    }
+    Expression enable = null;
+    if (instance.getAttributeValue(ATTR_ENABLE)) {
+      enable = expressionMap.get(instance.getPortLocation(enablePort), 0);
+      if (enable != null && instance.getAttributeValue(ATTR_DISABLED) == DISABLED_FLOATING) {
+        throw new UnsupportedOperationException();
+      }
+    }
+    final var selected = new Expression[1 << select];
+    for (var i = 0; i < selected.length; i++) {
+      var e = enable;
+      for (var b = select - 1; b >= 0; b--) {
+        e = Expressions.and(e, ((i >> b) & 1) != 0 ? bits[b] : Expressions.not(bits[b]));
+      }
+      selected[i] = e;
+    }
+    return selected;
+  }
+
   static final AttributeOption SIZE_NARROW = new AttributeOption(20, S.getter("gateSizeNarrowOpt"));
   static final AttributeOption SIZE_WIDE =
       new AttributeOption(40, S.getter("gateSizeWideOpt")); /* 30 for 2-to-1 */
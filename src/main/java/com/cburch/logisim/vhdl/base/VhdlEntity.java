@@ -38,6 +38,8 @@ import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.WeakHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -335,10 +337,11 @@ public class VhdlEntity extends InstanceFactory implements HdlModelListener {
     }
   }
 
-  private final WeakHashMap<Component, Circuit> circuitsUsingThis = new WeakHashMap<>();
+  private final Map<Component, Circuit> circuitsUsingThis =
+      Collections.synchronizedMap(new WeakHashMap<>());
 
   public Collection<Circuit> getCircuitsUsingThis() {
-    return circuitsUsingThis.values();
+    return new ArrayList<>(circuitsUsingThis.values());
   }
 
   public void addCircuitUsing(Component comp, Circuit circ) {
@@ -0,0 +1,70 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BddTest {
+
+  @Test
+  void equalFunctionsShareTheirNode() {
+    final var bdd = new Bdd(3);
+    final var a = bdd.variable(0);
+    final var b = bdd.variable(1);
+    final var c = bdd.variable(2);
+
+    assertEquals(bdd.and(bdd.or(a, b), c), bdd.or(bdd.and(c, a), bdd.and(b, c)));
+    assertEquals(bdd.not(bdd.and(a, b)), bdd.or(bdd.not(a), bdd.not(b)));
+    assertEquals(Bdd.ZERO, bdd.xor(bdd.xnor(a, c), bdd.xor(bdd.not(a), c)));
+    assertEquals(Bdd.ONE, bdd.or(b, bdd.not(b)));
+    assertNull(bdd.getSatisfyingAssignment(bdd.and(a, bdd.not(a))));
+
+    final var values = bdd.getSatisfyingAssignment(bdd.and(a, bdd.not(c)));
+    assertEquals(1, values[0]);
+    assertEquals(-1, values[1]);
+    assertEquals(0, values[2]);
+  }
+
+  // (x0 x1) + (x2 x3) + ... with the pairs torn apart, the worst order for it
+  private static int pairs(Bdd bdd, int n) {
+    var f = Bdd.ZERO;
+    for (var i = 0; i < n; i++) f = bdd.or(f, bdd.and(bdd.variable(i), bdd.variable(i + n)));
+    return f;
+  }
+
+  @Test
+  void reorderingShrinksTheDiagramAndKeepsTheFunction() {
+    final var n = 8;
+    final var bdd = new Bdd(2 * n);
+    final var f = bdd.ref(pairs(bdd, n));
+    final var before = bdd.getNodeCount(f);
+
+    bdd.reorder();
+
+    assertEquals(2 * n + 2, bdd.getNodeCount(f));
+    assertTrue(before > 4 * bdd.getNodeCount(f), before + " nodes before reordering");
+    assertEquals(bdd.getNodeCount(), bdd.getNodeCount(f));
+    final var random = new Random(3);
+    final var values = new boolean[2 * n];
+    for (var k = 0; k < 1000; k++) {
+      var expected = false;
+      for (var i = 0; i < 2 * n; i++) values[i] = random.nextBoolean();
+      for (var i = 0; i < n; i++) expected |= values[i] && values[i + n];
+      assertEquals(expected, bdd.evaluate(f, values));
+    }
+    // new results are still built in the new order
+    assertEquals(f, pairs(bdd, n));
+  }
+}
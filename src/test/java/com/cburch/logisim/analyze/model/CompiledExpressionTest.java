@@ -0,0 +1,80 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+
+  private static Expression randomExpression(Random random, int inputs, int depth) {
+    if (depth == 0 || random.nextInt(4) == 0) {
+      // the name "z" is not an input, and evaluates as zero
+      return random.nextInt(8) == 0
+          ? random.nextBoolean() ? Expressions.constant(random.nextInt(2)) : Expressions.variable("z")
+          : Expressions.variable("i" + random.nextInt(inputs));
+    }
+    final var a = randomExpression(random, inputs, depth - 1);
+    if (random.nextInt(6) == 0) return Expressions.not(a);
+    final var b = randomExpression(random, inputs, depth - 1);
+    return switch (random.nextInt(5)) {
+      case 0 -> Expressions.and(a, b);
+      case 1 -> Expressions.or(a, b);
+      case 2 -> Expressions.xor(a, b);
+      case 3 -> Expressions.xnor(a, b);
+      default -> Expressions.eq(a, b);
+    };
+  }
+
+  @Test
+  void compiledColumnMatchesTheExpression() throws ParserException {
+    final var random = new Random(7);
+    for (var inputs = 1; inputs <= 8; inputs++) {
+      final var model = new AnalyzerModel();
+      for (var i = 0; i < inputs; i++) model.getInputs().add(Var.parse("i" + i));
+      final var table = model.getTruthTable();
+      for (var n = 0; n < 20; n++) {
+        final var expr = randomExpression(random, inputs, 6);
+        final var column = CompiledExpression.compile(expr, table).computeColumn(table.getRowCount());
+        final var assignments = new Assignments();
+        for (var row = 0; row < table.getRowCount(); row++) {
+          for (var col = 0; col < inputs; col++) {
+            assignments.put(table.getInputHeader(col), TruthTable.isInputSet(row, col, inputs));
+          }
+          final var expected = expr.evaluate(assignments) ? Entry.ONE : Entry.ZERO;
+          assertEquals(expected, column.get(row), expr + " in row " + row);
+        }
+      }
+    }
+  }
+
+  @Test
+  void expressionFillsTheTable() throws ParserException {
+    final var model = new AnalyzerModel();
+    for (final var variable : "a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p".split(",")) {
+      model.getInputs().add(Var.parse(variable));
+    }
+    model.getOutputs().add(Var.parse("x"));
+    model.getOutputExpressions().setExpression("x", Parser.parse("a b' + p (c ^ o)", model));
+
+    final var table = model.getTruthTable();
+    for (var row = 0; row < table.getRowCount(); row++) {
+      final var a = TruthTable.isInputSet(row, 0, 16);
+      final var b = TruthTable.isInputSet(row, 1, 16);
+      final var c = TruthTable.isInputSet(row, 2, 16);
+      final var o = TruthTable.isInputSet(row, 14, 16);
+      final var p = TruthTable.isInputSet(row, 15, 16);
+      final var expected = (a && !b) || (p && (c ^ o)) ? Entry.ONE : Entry.ZERO;
+      assertEquals(expected, table.getOutputEntry(row, 0));
+    }
+  }
+}
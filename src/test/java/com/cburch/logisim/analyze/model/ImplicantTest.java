@@ -1,13 +1,16 @@
 package com.cburch.logisim.analyze.model;
 
+import static com.cburch.logisim.analyze.Strings.S;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.stream.Stream;
 
 import javax.swing.JTextArea;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -92,4 +95,59 @@ public class ImplicantTest {
     assertEquals(cost, res.size(),
         "The amount of primes in the result does not match the expected value.");
   }
-}
\ No newline at end of file
+
+  /** Returns a model with the given inputs, separated by commas, and an output x set to expr. */
+  private static AnalyzerModel modelOf(String inputs, String expr) throws ParserException {
+    final var model = new AnalyzerModel();
+    for (final var variable : inputs.split(",")) {
+      model.getInputs().add(Var.parse(variable));
+    }
+    model.getOutputs().add(Var.parse("x"));
+    model.getOutputExpressions().setExpression("x", Parser.parse(expr, model));
+    return model;
+  }
+
+  @Test
+  public void testAutomaticMinimalFormOfTwelveInputs() throws ParserException {
+    final var model = modelOf("a,b,c,d,e,f,g,h,i,j,k,l", "a b + c d + e f + g h + i j + k l");
+
+    // Without an output area the minimal form is only computed below the automatic limit
+    final var res = Implicant.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, model, "x", null);
+
+    assertEquals(6, res.size(), "The amount of primes in the result does not match the expected value.");
+  }
+
+  @Test
+  public void testHeuristicMinimalFormOfSixteenInputs() throws ParserException {
+    final var model = modelOf("a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p",
+        "a b + c d + e f + g h + i j + k l + m n + o p");
+
+    final var outputArea = new JTextArea();
+    final var res = Implicant.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS,
+        AnalyzerModel.MINIMIZER_HEURISTIC, model, "x", outputArea);
+
+    assertEquals(8, res.size(), "The amount of cubes in the result does not match the expected value.");
+    for (final var implicant : res) {
+      assertEquals(14, Integer.bitCount(implicant.unknowns), "Each cube should hold two literals.");
+    }
+    // The report counts the literals of the cubes, so 8 cubes of two literals give 16
+    final var report = outputArea.getText();
+    var reported = false;
+    for (var pass = 1; pass <= 3; pass++) {
+      reported |= report.contains(S.fmt("implicantHeuristicPass", pass, 8, 16));
+    }
+    assertTrue(reported, "The report does not show the literals of the cover.");
+  }
+
+  @Test
+  public void testHeuristicMinimalFormWithoutOutputArea() throws ParserException {
+    final var model = modelOf("a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p",
+        "a b + c d + e f + g h + i j + k l + m n + o p");
+
+    // The automatic limit only holds for the exact minimizer
+    final var res = Implicant.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS,
+        AnalyzerModel.MINIMIZER_HEURISTIC, model, "x", null);
+
+    assertEquals(8, res.size(), "The amount of cubes in the result does not match the expected value.");
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntPredicate;
+import javax.swing.JTextArea;
+
+/**
+ * Compares the run time and the number of cubes of the exact and the heuristic minimizer on a
+ * fixed corpus of functions with 16 to {@link AnalyzerModel#MAX_INPUTS} inputs. Run it with
+ * {@code ./gradlew minimizerBenchmark}; the optional argument is the time limit of an exact run in
+ * seconds (default 60). An exact run that does not finish in time cannot be stopped, so the
+ * remaining exact runs are skipped to keep the timings of the heuristic runs honest.
+ */
+public final class MinimizerBenchmark {
+
+  private record Function(String name, int nrOfInputs, IntPredicate ones, IntPredicate dontCares) {}
+
+  private MinimizerBenchmark() {}
+
+  private static int low(int row, int bits) {
+    return row & ((1 << bits) - 1);
+  }
+
+  private static int high(int row, int bits) {
+    return row >>> bits;
+  }
+
+  private static List<Function> corpus() {
+    final var functions = new ArrayList<Function>();
+    for (var n = 16; n <= AnalyzerModel.MAX_INPUTS; n += 2) {
+      final var w = n / 2;
+      functions.add(
+          new Function(
+              "adder carry " + w + "+" + w,
+              n,
+              row -> ((low(row, w) + high(row, w)) >> w) != 0,
+              row -> false));
+      functions.add(
+          new Function(
+              "adder sum bit 3 " + w + "+" + w,
+              n,
+              row -> ((low(row, w) + high(row, w)) & 8) != 0,
+              row -> false));
+      functions.add(
+          new Function(
+              "comparator " + w + ">" + w, n, row -> high(row, w) > low(row, w), row -> false));
+    }
+    // select in the top 4 bits, data in the low 16 bits
+    functions.add(
+        new Function(
+            "multiplexer 16:1", 20, row -> ((row >> high(row, 16)) & 1) != 0, row -> false));
+    final var random = new Random(42);
+    for (var n = 16; n <= AnalyzerModel.MAX_INPUTS; n += 2) {
+      final var nrOfCubes = 4 * n;
+      final var masks = new int[nrOfCubes];
+      final var values = new int[nrOfCubes];
+      for (var i = 0; i < nrOfCubes; i++) {
+        final var literals = 6 + random.nextInt(5);
+        for (var j = 0; j < literals; j++) masks[i] |= 1 << random.nextInt(n);
+        values[i] = random.nextInt() & masks[i];
+      }
+      final var seed = random.nextLong();
+      functions.add(
+          new Function(
+              "random sparse SOP " + n,
+              n,
+              row -> {
+                for (var i = 0; i < nrOfCubes; i++) if ((row & masks[i]) == values[i]) return true;
+                return false;
+              },
+              row -> new Random(seed ^ row).nextInt(20) == 0));
+    }
+    // smallest first, so that the exact runs get as far as they can
+    functions.sort(Comparator.comparingInt(Function::nrOfInputs));
+    return functions;
+  }
+
+  private static AnalyzerModel modelOf(Function function) throws ParserException {
+    final var model = new AnalyzerModel();
+    for (var i = 0; i < function.nrOfInputs(); i++) model.getInputs().add(Var.parse("i" + i));
+    model.getOutputs().add(Var.parse("x"));
+    final var column = new Entry[1 << function.nrOfInputs()];
+    for (var row = 0; row < column.length; row++) {
+      column[row] =
+          function.dontCares().test(row)
+              ? Entry.DONT_CARE
+              : function.ones().test(row) ? Entry.ONE : Entry.ZERO;
+    }
+    model.getTruthTable().setOutputColumn(0, column);
+    return model;
+  }
+
+  private static FutureTask<List<Implicant>> start(AnalyzerModel model, int minimizer) {
+    final var task =
+        new FutureTask<>(
+            () ->
+                Implicant.computeMinimal(
+                    AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, minimizer, model, "x", new JTextArea()));
+    final var thread = new Thread(task, "minimizer");
+    thread.setDaemon(true);
+    thread.start();
+    return task;
+  }
+
+  public static void main(String[] args) throws Exception {
+    final var timeout = args.length > 0 ? Long.parseLong(args[0]) : 60;
+    var exactStuck = false;
+    System.out.printf(
+        "%-28s %6s | %10s %8s | %10s %8s%n",
+        "function", "inputs", "heur. ms", "cubes", "exact ms", "cubes");
+    for (final var function : corpus()) {
+      final var model = modelOf(function);
+      var begin = System.nanoTime();
+      final var heuristic = start(model, AnalyzerModel.MINIMIZER_HEURISTIC).get();
+      final var heuristicTime = (System.nanoTime() - begin) / 1_000_000;
+      String exactTime;
+      String exactCubes;
+      if (exactStuck) {
+        exactTime = "skipped";
+        exactCubes = "-";
+      } else {
+        begin = System.nanoTime();
+        final var task = start(model, AnalyzerModel.MINIMIZER_EXACT);
+        try {
+          final var exact = task.get(timeout, TimeUnit.SECONDS);
+          exactTime = Long.toString((System.nanoTime() - begin) / 1_000_000);
+          exactCubes = Integer.toString(exact.size());
+        } catch (TimeoutException e) {
+          exactStuck = true;
+          exactTime = "> " + timeout + " s";
+          exactCubes = "-";
+        } catch (ExecutionException e) {
+          exactTime = "failed";
+          exactCubes = e.getCause().getClass().getSimpleName();
+        }
+      }
+      System.out.printf(
+          "%-28s %6d | %10d %8d | %10s %8s%n",
+          function.name(),
+          function.nrOfInputs(),
+          heuristicTime,
+          heuristic.size(),
+          exactTime,
+          exactCubes);
+    }
+    System.exit(0);
+  }
+}
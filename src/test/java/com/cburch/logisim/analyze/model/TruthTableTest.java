@@ -0,0 +1,127 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class TruthTableTest {
+
+  private static AnalyzerModel model(int inputs, int outputs) throws ParserException {
+    final var model = new AnalyzerModel();
+    for (var i = 0; i < inputs; i++) model.getInputs().add(Var.parse("i" + i));
+    for (var i = 0; i < outputs; i++) model.getOutputs().add(Var.parse("o" + i));
+    return model;
+  }
+
+  // Checks that the visible rows partition the input combinations, each with a single output.
+  private static void assertRowsConsistent(TruthTable table) {
+    final var seen = new boolean[table.getRowCount()];
+    var previousBase = -1;
+    for (var row = 0; row < table.getVisibleRowCount(); row++) {
+      final var base = table.getVisibleRowIndex(row);
+      assertEquals(true, base > previousBase, "rows are sorted by base index");
+      previousBase = base;
+      for (final var idx : table.getVisibleRowIndexes(row)) {
+        assertEquals(false, seen[idx], "rows overlap");
+        seen[idx] = true;
+        assertEquals(row, table.findVisibleRowContaining(idx));
+        for (var col = 0; col < table.getOutputColumnCount(); col++) {
+          assertEquals(table.getVisibleOutputEntry(row, col), table.getOutputEntry(idx, col));
+        }
+      }
+    }
+    for (final var s : seen) assertEquals(true, s, "rows miss an input combination");
+  }
+
+  @Test
+  void columnsKeepAllEntries() throws ParserException {
+    final var table = model(3, 1).getTruthTable();
+    final Entry[] values = {
+      Entry.ZERO, Entry.ONE, Entry.DONT_CARE, Entry.BUS_ERROR,
+      Entry.OSCILLATE_ERROR, Entry.ONE, Entry.ZERO, Entry.OSCILLATE_ERROR
+    };
+    table.setOutputColumn(0, values);
+
+    assertArrayEquals(values, table.getOutputColumn(0));
+    table.setOutputEntry(4, 0, Entry.BUS_ERROR);
+    assertEquals(Entry.BUS_ERROR, table.getOutputEntry(4, 0));
+    assertEquals(Entry.OSCILLATE_ERROR, table.getOutputEntry(7, 0));
+  }
+
+  @Test
+  void settingAColumnSplitsCompactedRows() throws ParserException {
+    final var table = model(4, 1).getTruthTable();
+    table.compactVisibleRows();
+    assertEquals(1, table.getVisibleRowCount());
+
+    final var values = new Entry[16];
+    for (var i = 0; i < values.length; i++) values[i] = i == 13 ? Entry.ONE : Entry.ZERO;
+    table.setOutputColumn(0, values);
+
+    assertEquals(5, table.getVisibleRowCount());
+    assertRowsConsistent(table);
+    table.compactVisibleRows();
+    assertRowsConsistent(table);
+    assertArrayEquals(values, table.getOutputColumn(0));
+  }
+
+  @Test
+  void settingAnEntryGivesItARowOfItsOwn() throws ParserException {
+    final var table = model(4, 2).getTruthTable();
+    table.compactVisibleRows();
+
+    table.setOutputEntry(0, 1, Entry.ONE);
+
+    assertEquals(5, table.getVisibleRowCount());
+    assertRowsConsistent(table);
+    assertEquals(0, table.getVisibleRowDcMask(table.findVisibleRowContaining(0)));
+  }
+
+  @Test
+  void inputEntriesFollowTheRows() throws ParserException {
+    final var table = model(3, 1).getTruthTable();
+    final var values = new Entry[8];
+    for (var i = 0; i < values.length; i++) values[i] = (i & 4) != 0 ? Entry.ONE : Entry.ZERO;
+    table.setOutputColumn(0, values);
+    table.compactVisibleRows();
+
+    assertEquals(2, table.getVisibleRowCount());
+    assertEquals(Entry.ONE, table.getVisibleInputEntry(1, 0));
+    assertEquals(Entry.DONT_CARE, table.getVisibleInputEntry(1, 2));
+
+    assertEquals(true, table.setVisibleInputEntry(1, 2, Entry.ZERO, false));
+    assertEquals(3, table.getVisibleRowCount());
+    assertRowsConsistent(table);
+  }
+
+  @Test
+  void addingAndRemovingInputsKeepsTheOutputs() throws ParserException {
+    final var model = model(2, 1);
+    final var table = model.getTruthTable();
+    table.setOutputColumn(0, new Entry[] {Entry.ZERO, Entry.ONE, Entry.ONE, Entry.ZERO});
+
+    model.getInputs().add(Var.parse("i2"));
+    assertEquals(8, table.getVisibleRowCount());
+    for (var i = 0; i < 8; i++) {
+      assertEquals(((i >> 1) & 1) != (i >> 2) ? Entry.ONE : Entry.ZERO, table.getOutputEntry(i, 0));
+    }
+    assertRowsConsistent(table);
+
+    // the rows are merged first, keeping the outputs where the removed input is zero
+    model.getInputs().remove(model.getInputs().vars.get(0));
+    assertEquals(4, table.getRowCount());
+    assertArrayEquals(
+        new Entry[] {Entry.ZERO, Entry.ZERO, Entry.ONE, Entry.ONE}, table.getOutputColumn(0));
+    assertRowsConsistent(table);
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.analyze.model.AnalyzerModel;
+import com.cburch.logisim.analyze.model.Entry;
+import com.cburch.logisim.analyze.model.TruthTable;
+import com.cburch.logisim.analyze.model.Var;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.gates.GateAttributes;
+import com.cburch.logisim.std.gates.GatesLibrary;
+import com.cburch.logisim.std.plexers.Multiplexer;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class AnalyzeTest {
+  private static final GatesLibrary GATES = new GatesLibrary();
+  private static final ComponentFactory AND = factory("AND Gate");
+  private static final ComponentFactory OR = factory("OR Gate");
+  private static final ComponentFactory NOR = factory("NOR Gate");
+  private static final ComponentFactory NOT = factory("NOT Gate");
+
+  private static ComponentFactory factory(String name) {
+    return ((AddTool) GATES.getTool(name)).getFactory();
+  }
+
+  private static final class Fixture {
+    private final LogisimFile file;
+    private final Project project;
+
+    private Fixture() {
+      file = LogisimFile.createNew(new Loader(null), null);
+      project = new Project(file);
+      file.getMainCircuit().setProject(project);
+    }
+
+    private Circuit newCircuit(String name) {
+      final var circuit = new Circuit(name, file, project);
+      file.addCircuit(circuit);
+      return circuit;
+    }
+  }
+
+  private static void add(Circuit circuit, Component component) {
+    final var mutation = new CircuitMutation(circuit);
+    mutation.add(component);
+    mutation.execute();
+  }
+
+  // Adds a component, placed so that the given end lies on the given point, without wires.
+  private static Component place(
+      Circuit circuit, ComponentFactory factory, AttributeSet attrs, int end, Location point) {
+    final var origin = Location.create(0, 0, true);
+    final var probe = factory.createComponent(origin, (AttributeSet) attrs.clone());
+    final var offset = probe.getEnd(end).getLocation();
+    final var loc = point.translate(-offset.getX(), -offset.getY());
+    final var comp = factory.createComponent(loc, attrs);
+    add(circuit, comp);
+    return comp;
+  }
+
+  private static void pin(Circuit circuit, String label, boolean output, Location point) {
+    final var attrs = Pin.FACTORY.createAttributeSet();
+    attrs.setValue(StdAttr.LABEL, label);
+    if (output) attrs.setValue(Pin.ATTR_TYPE, Pin.OUTPUT);
+    place(circuit, Pin.FACTORY, attrs, 0, point);
+  }
+
+  private static Component gate(
+      Circuit circuit, ComponentFactory factory, int inputs, Location out) {
+    final var attrs = factory.createAttributeSet();
+    if (inputs > 1) attrs.setValue(GateAttributes.ATTR_INPUTS, inputs);
+    return place(circuit, factory, attrs, 0, out);
+  }
+
+  // Puts the inputs on the input ends of a gate, each through a NOT gate if asked.
+  private static void inputs(
+      Circuit circuit, Component gate, List<String> labels, boolean negate) {
+    for (var i = 0; i < labels.size(); i++) {
+      var point = gate.getEnd(i + 1).getLocation();
+      if (negate) point = gate(circuit, NOT, 1, point).getEnd(1).getLocation();
+      pin(circuit, labels.get(i), false, point);
+    }
+  }
+
+  @Test
+  void deMorganCircuitsAreEquivalent() throws AnalyzeException {
+    final var fixture = new Fixture();
+    final var labels = List.of("a", "b");
+
+    final var nand = fixture.newCircuit("nand");
+    final var and = gate(nand, AND, 2, Location.create(200, 100, true));
+    inputs(nand, and, labels, false);
+    final var not =
+        place(nand, NOT, NOT.createAttributeSet(), 1, and.getLocation());
+    pin(nand, "x", true, not.getLocation());
+
+    final var orOfNots = fixture.newCircuit("orOfNots");
+    final var or = gate(orOfNots, OR, 2, Location.create(300, 100, true));
+    inputs(orOfNots, or, labels, true);
+    pin(orOfNots, "x", true, or.getLocation());
+
+    final var nor = fixture.newCircuit("nor");
+    final var norGate = gate(nor, NOR, 2, Location.create(300, 100, true));
+    inputs(nor, norGate, labels, false);
+    pin(nor, "x", true, norGate.getLocation());
+
+    assertNull(Analyze.checkEquivalence(nand, orOfNots));
+    final var difference = Analyze.checkEquivalence(nand, nor);
+    assertNotNull(difference);
+    assertEquals("x", difference.output());
+    assertTrue(difference.inputs().get("a") ^ difference.inputs().get("b"));
+  }
+
+  @Test
+  void wideCircuitsAreCheckedWithoutTheirTruthTables() throws AnalyzeException {
+    final var fixture = new Fixture();
+    final var labels = new ArrayList<String>();
+    for (var i = 0; i < 48; i++) labels.add("i" + i);
+
+    final var and = fixture.newCircuit("and");
+    final var andGate = gate(and, AND, labels.size(), Location.create(300, 300, true));
+    inputs(and, andGate, labels, false);
+    pin(and, "x", true, andGate.getLocation());
+
+    final var nor = fixture.newCircuit("norOfNots");
+    final var norGate = gate(nor, NOR, labels.size(), Location.create(300, 300, true));
+    inputs(nor, norGate, labels, true);
+    pin(nor, "x", true, norGate.getLocation());
+
+    assertNull(Analyze.checkEquivalence(and, nor));
+  }
+
+  @Test
+  void multiplexerMatchesItsTruthTable() throws AnalyzeException {
+    final var fixture = new Fixture();
+    final var mux = fixture.newCircuit("mux");
+    final var factory = new Multiplexer();
+    final var comp =
+        place(mux, factory, factory.createAttributeSet(), 0, Location.create(200, 200, true));
+    pin(mux, "d0", false, comp.getEnd(0).getLocation());
+    pin(mux, "d1", false, comp.getEnd(1).getLocation());
+    pin(mux, "s", false, comp.getEnd(2).getLocation());
+    pin(mux, "x", true, comp.getEnd(3).getLocation());
+
+    final var model = new AnalyzerModel();
+    model.setVariables(
+        List.of(new Var("s", 1), new Var("d1", 1), new Var("d0", 1)), List.of(new Var("x", 1)));
+    final var column = new Entry[8];
+    for (var row = 0; row < 8; row++) {
+      final var s = TruthTable.isInputSet(row, 0, 3);
+      final var selected = TruthTable.isInputSet(row, s ? 1 : 2, 3);
+      column[row] = selected ? Entry.ONE : Entry.ZERO;
+    }
+    column[5] = Entry.DONT_CARE;
+    model.getTruthTable().setOutputColumn(0, column);
+    assertNull(Analyze.checkEquivalence(mux, model));
+
+    column[6] = Entry.ZERO; // s = 1, d1 = 1, d0 = 0
+    model.getTruthTable().setOutputColumn(0, column);
+    assertEquals(
+        new Analyze.Difference("x", Map.of("s", true, "d1", true, "d0", false)),
+        Analyze.checkEquivalence(mux, model));
+  }
+
+  @Test
+  void feedbackLoopsAreCircular() {
+    final var fixture = new Fixture();
+    final var ring = fixture.newCircuit("ring");
+    final var not = gate(ring, NOT, 1, Location.create(200, 100, true));
+    final var out = not.getLocation();
+    final var in = not.getEnd(1).getLocation();
+    final var below = Location.create(out.getX(), out.getY() + 20, true);
+    add(ring, Wire.create(out, below));
+    add(ring, Wire.create(below, Location.create(in.getX(), below.getY(), true)));
+    add(ring, Wire.create(Location.create(in.getX(), below.getY(), true), in));
+    pin(ring, "x", true, out);
+
+    assertThrows(AnalyzeException.Circular.class, () -> Analyze.checkEquivalence(ring, ring));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.comp.ComponentDrawContext;
+import com.cburch.logisim.proj.Project;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/** Circuits that the main circuit does not contain are only built once they are needed. */
+class DeferredCircuitLoadTest {
+
+  private static final String PROJECT =
+      """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.1.0" version="1.0">
+        <lib desc="#Wiring" name="0"/>
+        <main name="main"/>
+        <circuit name="main">
+          <comp lib="0" loc="(100,100)" name="Pin"/>
+        </circuit>
+        <circuit name="user">
+          <comp loc="(300,200)" name="sub"/>
+          <wire from="(100,100)" to="(150,100)"/>
+        </circuit>
+        <circuit name="sub">
+          <comp lib="0" loc="(100,100)" name="Pin"/>
+        </circuit>
+      </project>
+      """;
+
+  private static LogisimFile load(byte[] content) throws IOException {
+    return LogisimFile.load(new ByteArrayInputStream(content), new Loader(null));
+  }
+
+  private static LogisimFile load() throws IOException {
+    return load(PROJECT.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void circuitIsBuiltOnFirstAccess() throws IOException {
+    final var file = load();
+    assertTrue(file.getCircuit("main").isLoaded());
+    final var user = file.getCircuit("user");
+    assertFalse(user.isLoaded());
+
+    assertEquals(1, user.getNonWires().size());
+    assertTrue(user.isLoaded());
+    assertEquals(1, user.getWires().size());
+  }
+
+  @Test
+  void circuitIsBuiltWhenDrawn() throws IOException {
+    final var file = load();
+    final var user = file.getCircuit("user");
+    assertFalse(user.isLoaded());
+
+    final var image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+    final var graphics = image.createGraphics();
+    final var context = new ComponentDrawContext(null, user, null, graphics, graphics);
+    context.setShowState(false);
+    user.draw(context, null);
+    graphics.dispose();
+
+    assertTrue(user.isLoaded());
+  }
+
+  @Test
+  void renamedSubcircuitIsResolved() throws IOException {
+    final var file = load();
+    final var user = file.getCircuit("user");
+    final var sub = file.getCircuit("sub");
+    assertFalse(user.isLoaded());
+
+    sub.setName("renamed");
+    assertFalse(user.isLoaded());
+
+    final var comp = user.getNonWires().iterator().next();
+    final var factory = (SubcircuitFactory) comp.getFactory();
+    assertSame(sub, factory.getSubcircuit());
+  }
+
+  @Test
+  void subcircuitOfDeferredCircuitCannotBeRemoved() throws IOException {
+    final var file = load();
+    final var project = new Project(file);
+    final var user = file.getCircuit("user");
+    final var sub = file.getCircuit("sub");
+    assertFalse(user.isLoaded());
+
+    assertFalse(project.getDependencies().canRemove(sub));
+    assertTrue(project.getDependencies().canRemove(user));
+  }
+
+  @Test
+  void savingWritesDeferredContent() throws IOException {
+    final var loader = new Loader(null);
+    final var file = load();
+    assertFalse(file.getCircuit("user").isLoaded());
+
+    final var output = new ByteArrayOutputStream();
+    file.write(output, loader);
+
+    final var reloaded = load(output.toByteArray());
+    final var user = reloaded.getCircuit("user");
+    assertEquals(1, user.getNonWires().size());
+    assertEquals(1, user.getWires().size());
+    final var factory = (SubcircuitFactory) user.getNonWires().iterator().next().getFactory();
+    assertSame(reloaded.getCircuit("sub"), factory.getSubcircuit());
+  }
+}
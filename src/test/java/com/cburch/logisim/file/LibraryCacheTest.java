@@ -0,0 +1,109 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LibraryCacheTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void projectsShareLibraryReachedThroughDifferentPaths() throws Exception {
+    final var libraryPath = tempDir.resolve("library.circ");
+    Files.createDirectory(tempDir.resolve("sub"));
+    final var writer = new RecordingLoader();
+    save(writer, newProject(writer, "Child"), libraryPath.toFile());
+
+    final var firstLoader = new RecordingLoader();
+    final var first = load(firstLoader, libraryPath.toFile());
+    final var secondLoader = new RecordingLoader();
+    final var second = load(secondLoader, tempDir.resolve("sub/../library.circ").toFile());
+
+    assertSame(first, second);
+    assertNotNull(first.getTool("Child"));
+    assertFalse(firstLoader.hasErrors(), firstLoader.errors());
+    assertFalse(secondLoader.hasErrors(), secondLoader.errors());
+  }
+
+  @Test
+  void libraryIsReadAgainOnlyWhenItsContentChanged() throws Exception {
+    final var libraryPath = tempDir.resolve("library.circ");
+    final var replacementPath = tempDir.resolve("replacement.circ");
+    final var writer = new RecordingLoader();
+    save(writer, newProject(writer, "Child"), libraryPath.toFile());
+    save(writer, newProject(writer, "Other"), replacementPath.toFile());
+
+    final var loader = new RecordingLoader();
+    final var library = load(loader, libraryPath.toFile());
+    final var base = library.getBase();
+
+    final var file = libraryPath.toFile();
+    assertTrue(file.setLastModified(file.lastModified() + 10_000));
+    assertSame(library, load(loader, file));
+    assertSame(base, library.getBase());
+
+    Files.write(libraryPath, Files.readAllBytes(replacementPath));
+    assertTrue(file.setLastModified(file.lastModified() + 10_000));
+    assertSame(library, load(loader, file));
+    assertNotSame(base, library.getBase());
+    assertNotNull(library.getTool("Other"));
+    assertFalse(loader.hasErrors(), loader.errors());
+  }
+
+  private static LoadedLibrary load(RecordingLoader loader, File file) {
+    return assertInstanceOf(LoadedLibrary.class, loader.loadLogisimLibrary(file));
+  }
+
+  private static LogisimFile newProject(RecordingLoader loader, String circuitName) {
+    final var file = LogisimFile.createNew(loader, null);
+    file.getMainCircuit().setName(circuitName);
+    return file;
+  }
+
+  private static void save(RecordingLoader loader, LogisimFile file, File path) {
+    assertTrue(loader.save(file, path), loader.errors());
+    assertFalse(loader.hasErrors(), loader.errors());
+  }
+
+  private static class RecordingLoader extends Loader {
+    private final List<String> errors = new ArrayList<>();
+
+    RecordingLoader() {
+      super(null);
+    }
+
+    String errors() {
+      return String.join("\n", errors);
+    }
+
+    boolean hasErrors() {
+      return !errors.isEmpty();
+    }
+
+    @Override
+    public void showError(String description) {
+      errors.add(description);
+    }
+  }
+}
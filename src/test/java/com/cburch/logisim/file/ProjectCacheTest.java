@@ -0,0 +1,229 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+class ProjectCacheTest {
+
+  private static final String PROJECT =
+      """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.1.0" version="1.0">
+        This file is intended to be loaded by Logisim-evolution.
+        <lib desc="#Wiring" name="0">
+          <tool name="Pin">
+            <a name="appearance" val="classic"/>
+          </tool>
+        </lib>
+        <lib desc="#Base" name="1"/>
+        <main name="main"/>
+        <options>
+          <a name="gateUndefined" val="ignore"/>
+        </options>
+        <toolbar>
+          <tool lib="1" name="Poke Tool"/>
+          <sep/>
+        </toolbar>
+        <vhdl appearance="logisim_evolution" name="Counter">entity Counter is
+        -- a &lt; b &amp; c
+      end Counter;</vhdl>
+        <circuit name="main">
+          <a name="circuit" val="main"/>
+          <comp lib="0" loc="(100,100)" name="Pin">
+            <a name="label" val="data"/>
+            <a val="unnamed"/>
+            <a val="again"/>
+          </comp>
+          <comp lib="1" loc="( 200, 100)" name="Text">
+            <a name="text">first line
+        second line</a>
+          </comp>
+          <comp loc="(-30,040)" name="sub"/>
+          <wire from="(100,100)" to="(150,100)"/>
+          <wire from="(150,100)"/>
+        </circuit>
+        <circuit name="sub">
+          <comp lib="0" loc="(-2147483648,2147483647)" name="Pin"/>
+        </circuit>
+      </project>
+      """;
+
+  @TempDir Path tempDir;
+  private File cacheFile;
+  private byte[] hash;
+  private XmlStreamParser.Result parsed;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    final var content = PROJECT.getBytes(StandardCharsets.UTF_8);
+    cacheFile = ProjectCache.getCacheFile(tempDir.resolve("project.circ").toFile());
+    hash = ProjectCache.hash(content);
+    parsed = XmlStreamParser.parse(new ByteArrayInputStream(content));
+    // The parser coalesces CDATA sections with the text around them, but the header may hold
+    // some, for instance once it is repaired.
+    final var options = (Element) parsed.root().getElementsByTagName("options").item(0);
+    options.appendChild(parsed.document().createCDATASection("x < y && y > z"));
+  }
+
+  private static void assertSameNode(Node expected, Node actual) {
+    assertEquals(expected.getNodeType(), actual.getNodeType());
+    assertEquals(expected instanceof CDATASection, actual instanceof CDATASection);
+    assertEquals(expected.getNodeName(), actual.getNodeName());
+    assertEquals(expected.getNamespaceURI(), actual.getNamespaceURI());
+    if (!(expected instanceof Element expectedElt)) {
+      assertEquals(expected.getNodeValue(), actual.getNodeValue());
+      return;
+    }
+    final var actualElt = (Element) actual;
+    final var attrs = expectedElt.getAttributes();
+    assertEquals(attrs.getLength(), actualElt.getAttributes().getLength());
+    for (var i = 0; i < attrs.getLength(); i++) {
+      final var name = attrs.item(i).getNodeName();
+      assertEquals(expectedElt.getAttribute(name), actualElt.getAttribute(name), name);
+    }
+    final var expectedChildren = expectedElt.getChildNodes();
+    final var actualChildren = actualElt.getChildNodes();
+    assertEquals(expectedChildren.getLength(), actualChildren.getLength());
+    for (var i = 0; i < expectedChildren.getLength(); i++) {
+      assertSameNode(expectedChildren.item(i), actualChildren.item(i));
+    }
+  }
+
+  private static HashMap<String, XmlStreamParser.CircuitRecords> byName(
+      XmlStreamParser.Result result) {
+    final var ret = new HashMap<String, XmlStreamParser.CircuitRecords>();
+    for (final var entry : result.circuits().entrySet()) {
+      ret.put(entry.getKey().getAttribute("name"), entry.getValue());
+    }
+    return ret;
+  }
+
+  private static void assertSameRecords(
+      XmlStreamParser.CircuitRecords expected, XmlStreamParser.CircuitRecords actual) {
+    assertEquals(expected.components().size(), actual.components().size());
+    for (var i = 0; i < expected.components().size(); i++) {
+      final var expectedComp = expected.components().get(i);
+      final var actualComp = actual.components().get(i);
+      assertEquals(expectedComp.lib, actualComp.lib);
+      assertEquals(expectedComp.name, actualComp.name);
+      assertEquals(expectedComp.loc, actualComp.loc);
+      assertEquals(expectedComp.unnamedAttributes, actualComp.unnamedAttributes);
+      assertEquals(
+          new ArrayList<>(expectedComp.attributes.entrySet()),
+          new ArrayList<>(actualComp.attributes.entrySet()));
+    }
+    assertEquals(expected.wires(), actual.wires());
+  }
+
+  // Rewrites the CRC at the end of a cache, so that the cache is only wrong where it was changed.
+  private static void updateCrc(byte[] content) {
+    final var crc = new CRC32();
+    crc.update(content, 0, content.length - 4);
+    ByteBuffer.wrap(content).putInt(content.length - 4, (int) crc.getValue());
+  }
+
+  @Test
+  void cacheReadsBackWhatWasWritten() throws Exception {
+    ProjectCache.write(cacheFile, hash, parsed);
+    final var cached = ProjectCache.read(cacheFile, hash);
+
+    assertNotNull(cached);
+    assertSameNode(parsed.root(), cached.root());
+    assertEquals(parsed.componentCount(), cached.componentCount());
+    assertEquals(parsed.wireCount(), cached.wireCount());
+    final var expected = byName(parsed);
+    final var actual = byName(cached);
+    assertEquals(expected.keySet(), actual.keySet());
+    for (final var name : expected.keySet()) {
+      assertSameRecords(expected.get(name), actual.get(name));
+    }
+
+    final var main = actual.get("main");
+    assertEquals(2, main.components().get(0).unnamedAttributes);
+    assertEquals("first line\n  second line", main.components().get(1).attributes.get("text"));
+    assertEquals("( 200, 100)", main.components().get(1).loc);
+    assertEquals("(-30,040)", main.components().get(2).loc);
+    assertNull(main.components().get(2).lib);
+    assertNull(main.wires().get(1).to());
+    assertEquals("(-2147483648,2147483647)", actual.get("sub").components().get(0).loc);
+  }
+
+  @Test
+  void staleCacheIsIgnored() throws Exception {
+    ProjectCache.write(cacheFile, hash, parsed);
+
+    final var other = ProjectCache.hash("<project/>".getBytes(StandardCharsets.UTF_8));
+    assertNull(ProjectCache.read(cacheFile, other));
+  }
+
+  @Test
+  void cacheOfAnotherVersionIsIgnored() throws Exception {
+    ProjectCache.write(cacheFile, hash, parsed);
+    final var content = Files.readAllBytes(cacheFile.toPath());
+    // The producer follows the magic number, the format, and its one byte length.
+    content[9] ^= 1;
+    updateCrc(content);
+    Files.write(cacheFile.toPath(), content);
+
+    assertNull(ProjectCache.read(cacheFile, hash));
+  }
+
+  @Test
+  void damagedCacheIsIgnored() throws Exception {
+    ProjectCache.write(cacheFile, hash, parsed);
+    final var content = Files.readAllBytes(cacheFile.toPath());
+    content[content.length / 2] ^= 1;
+    Files.write(cacheFile.toPath(), content);
+
+    assertNull(ProjectCache.read(cacheFile, hash));
+  }
+
+  @Test
+  void missingOrTruncatedCacheIsIgnored() throws Exception {
+    assertNull(ProjectCache.read(cacheFile, hash));
+
+    ProjectCache.write(cacheFile, hash, parsed);
+    final var content = Files.readAllBytes(cacheFile.toPath());
+    Files.write(cacheFile.toPath(), Arrays.copyOf(content, 6));
+    assertNull(ProjectCache.read(cacheFile, hash));
+  }
+
+  @Test
+  void cacheIsReplaced() throws Exception {
+    final var other = ProjectCache.hash("<project/>".getBytes(StandardCharsets.UTF_8));
+    ProjectCache.write(cacheFile, other, parsed);
+    assertNull(ProjectCache.read(cacheFile, hash));
+
+    ProjectCache.write(cacheFile, hash, parsed);
+    assertNotNull(ProjectCache.read(cacheFile, hash));
+    assertTrue(Files.notExists(cacheFile.toPath().resolveSibling(cacheFile.getName() + ".tmp")));
+  }
+}
@@ -11,11 +11,39 @@ package com.cburch.logisim.file;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.cburch.logisim.Main;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.std.arith.ArithmeticLibrary;
+import com.cburch.logisim.std.arith.floating.FPArithmeticLibrary;
+import com.cburch.logisim.std.base.BaseLibrary;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.WiringLibrary;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 public class XmlReaderTest {
+  private boolean originalHeadless;
+
+  @BeforeEach
+  void makeHeadless() {
+    // files of old versions warn about the compatibility mode
+    originalHeadless = Main.headless;
+    Main.headless = true;
+  }
+
+  @AfterEach
+  void restoreHeadless() {
+    Main.headless = originalHeadless;
+  }
 
   /**
    * Test method for {@link
@@ -79,4 +107,133 @@ public class XmlReaderTest {
     assertFalse(XmlReader.labelVHDLInvalid("A13566356aA"));
     assertFalse(XmlReader.labelVHDLInvalid("a_B_c"));
   }
+
+  private static LogisimFile load(String xml) throws IOException {
+    return LogisimFile.load(
+        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), new Loader(null));
+  }
+
+  /** Returns the components of the main circuit by their location. */
+  private static Map<String, Component> componentsOf(LogisimFile file) {
+    final var components = new HashMap<String, Component>();
+    for (final var comp : file.getMainCircuit().getNonWires()) {
+      components.put(comp.getLocation().toString(), comp);
+    }
+    return components;
+  }
+
+  @Test
+  public final void testRepairOfBaseLibraryBeforeWiringLibrary() throws IOException {
+    final var file =
+        load(
+            """
+            <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+            <project source="2.5.0" version="1.0">
+              <lib desc="#Base" name="0"/>
+              <lib desc="#Gates" name="1"/>
+              <main name="main"/>
+              <circuit name="main">
+                <comp lib="0" loc="(100,100)" name="Pin">
+                  <a name="output" val="true"/>
+                </comp>
+                <comp lib="1" loc="(200,200)" name="Constant"/>
+                <comp lib="0" loc="(300,300)" name="Text">
+                  <a name="text" val="hello"/>
+                </comp>
+              </circuit>
+            </project>
+            """);
+    final var components = componentsOf(file);
+    assertEquals(3, components.size());
+    // Pins and constants moved to the wiring library, the text stays in the new base library
+    final var pin = components.get("(100,100)");
+    assertTrue(file.getLibrary(WiringLibrary._ID).contains(pin.getFactory()));
+    assertEquals(Pin.OUTPUT, pin.getAttributeSet().getValue(Pin.ATTR_TYPE));
+    final var constant = components.get("(200,200)");
+    assertTrue(file.getLibrary(WiringLibrary._ID).contains(constant.getFactory()));
+    final var text = components.get("(300,300)");
+    assertTrue(file.getLibrary(BaseLibrary._ID).contains(text.getFactory()));
+  }
+
+  @Test
+  public final void testRepairOfLegacyLibraryDeletesItsComponents() throws IOException {
+    final var file =
+        load(
+            """
+            <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+            <project source="2.5.0" version="1.0">
+              <lib desc="#Base" name="0"/>
+              <lib desc="#Legacy" name="1"/>
+              <main name="main"/>
+              <circuit name="main">
+                <comp lib="1" loc="(100,100)" name="Logisim 1.0 D/J-K Flip-Flop"/>
+                <comp lib="0" loc="(300,300)" name="Text">
+                  <a name="text" val="kept"/>
+                </comp>
+              </circuit>
+            </project>
+            """);
+    final var components = componentsOf(file);
+    assertEquals(1, components.size());
+    assertTrue(components.containsKey("(300,300)"));
+    assertEquals(
+        "Some components have been deleted. The Legacy library is not supported.",
+        file.getMessage());
+    assertNull(file.getMessage());
+  }
+
+  @Test
+  public final void testRepairOfObsoletePinAttributes() throws IOException {
+    final var file =
+        load(
+            """
+            <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+            <project source="3.8.0" version="1.0">
+              <lib desc="#Wiring" name="0"/>
+              <main name="main"/>
+              <circuit name="main">
+                <comp lib="0" loc="(100,100)" name="Pin">
+                  <a name="output" val="false"/>
+                  <a name="pull" val="down"/>
+                </comp>
+                <comp lib="0" loc="(300,100)" name="Pin">
+                  <a name="output" val="true"/>
+                  <a name="tristate" val="true"/>
+                </comp>
+              </circuit>
+            </project>
+            """);
+    final var components = componentsOf(file);
+    final var input = components.get("(100,100)").getAttributeSet();
+    assertEquals(Pin.INPUT, input.getValue(Pin.ATTR_TYPE));
+    assertEquals(Pin.PULL_DOWN, input.getValue(Pin.ATTR_BEHAVIOR));
+    final var output = components.get("(300,100)").getAttributeSet();
+    assertEquals(Pin.OUTPUT, output.getValue(Pin.ATTR_TYPE));
+    assertEquals(Pin.TRISTATE, output.getValue(Pin.ATTR_BEHAVIOR));
+  }
+
+  @Test
+  public final void testRepairMovesFloatingPointComponents() throws IOException {
+    final var file =
+        load(
+            """
+            <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+            <project source="4.0.0" version="1.0">
+              <lib desc="#Wiring" name="0"/>
+              <lib desc="#Arithmetic" name="1"/>
+              <main name="main"/>
+              <circuit name="main">
+                <comp lib="1" loc="(100,100)" name="FPAdder"/>
+                <comp lib="1" loc="(300,300)" name="Adder"/>
+              </circuit>
+            </project>
+            """);
+    final var components = componentsOf(file);
+    assertEquals(2, components.size());
+    final var floatLibrary = file.getLibrary(FPArithmeticLibrary._ID);
+    assertTrue(floatLibrary.contains(components.get("(100,100)").getFactory()));
+    final var arithmeticLibrary = file.getLibrary(ArithmeticLibrary._ID);
+    assertTrue(arithmeticLibrary.contains(components.get("(300,300)").getFactory()));
+    assertFalse(arithmeticLibrary.contains(components.get("(100,100)").getFactory()));
+  }
 }
@@ -0,0 +1,199 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.appear.AppearanceAnchor;
+import com.cburch.logisim.circuit.appear.AppearancePort;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.std.base.Text;
+import com.cburch.logisim.vhdl.base.VhdlContent;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class XmlWriterTest {
+
+  private static final String TEXT = "first line\n  a < b & \"c\"";
+
+  private static final String PROJECT =
+      """
+      <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+      <project source="4.1.0" version="1.0">
+        <lib desc="#Wiring" name="0"/>
+        <lib desc="#Base" name="1"/>
+        <main name="main"/>
+        <circuit name="main">
+          <a name="appearance" val="custom"/>
+          <appear>
+            <rect fill="none" height="40" stroke="#000000" stroke-width="2" width="30" x="50" y="50"/>
+            <text dominant-baseline="central" fill="#000000" font-family="SansSerif" \
+      font-size="12" text-anchor="middle" x="65" y="70">adder</text>
+            <circ-port dir="in" pin="100,100" x="50" y="60"/>
+            <circ-anchor facing="east" x="50" y="60"/>
+          </appear>
+          <comp lib="0" loc="(100,100)" name="Pin"/>
+          <comp lib="1" loc="(200,200)" name="Text">
+            <a name="text">first line&#10;  a &lt; b &amp; "c"</a>
+          </comp>
+          <wire from="(100,100)" to="(150,100)"/>
+          <boardmap boardname="BOARD">
+            <mc key="/Pin1" map="20,30"/>
+            <mc key="/Pin2" open="open"/>
+            <mc key="/Pin3" vconst="5"/>
+            <mc key="/Pin4" valh="1" valw="1" valx="40" valy="50"/>
+            <mc key="/Pin5" pmap="10_20_0,u,open,3"/>
+          </boardmap>
+        </circuit>
+        <circuit name="user">
+          <comp loc="(300,200)" name="main"/>
+          <comp lib="1" loc="(100,100)" name="Text">
+            <a name="text">one&#10;two&#10;three</a>
+          </comp>
+          <comp lib="1" loc="(100,200)" name="Text">
+            <a name="text" val="tab&#9;and&#13;return"/>
+          </comp>
+          <comp lib="1" loc="(100,300)" name="Text">
+            <a name="text">windows&#13;&#10;line end</a>
+          </comp>
+        </circuit>
+      </project>
+      """;
+
+  @TempDir Path tempDir;
+  private boolean headless;
+
+  @BeforeEach
+  void setUp() {
+    headless = Main.headless;
+    Main.headless = true;
+  }
+
+  @AfterEach
+  void tearDown() {
+    Main.headless = headless;
+  }
+
+  private static LogisimFile createFile() throws Exception {
+    final var loader = new Loader(null);
+    final var file =
+        LogisimFile.load(
+            new ByteArrayInputStream(PROJECT.getBytes(StandardCharsets.UTF_8)), loader);
+    file.addVhdlContent(VhdlContent.create("Counter", file));
+    return file;
+  }
+
+  private File save(LogisimFile file, String directory) throws Exception {
+    final var dir = Files.createDirectories(tempDir.resolve(directory));
+    final var dest = dir.resolve("project.circ").toFile();
+    assertTrue(new Loader(null).save(file, dest));
+    return dest;
+  }
+
+  private static String textAt(Circuit circuit, int x, int y) {
+    final var loc = Location.create(x, y, false);
+    final var text =
+        circuit.getNonWires().stream()
+            .filter(comp -> comp.getFactory() == Text.FACTORY && comp.getLocation().equals(loc))
+            .findFirst();
+    assertTrue(text.isPresent());
+    return text.get().getAttributeSet().getValue(Text.ATTR_TEXT);
+  }
+
+  @Test
+  void savedProjectReloadsTheSame() throws Exception {
+    final var file = createFile();
+    final var vhdlContent = file.getVhdlContent("Counter").getContent();
+    final var saved = save(file, "first");
+
+    final var reloaded = new Loader(null).openLogisimFile(saved);
+
+    final var main = reloaded.getCircuit("main");
+    final var text =
+        main.getNonWires().stream().filter(comp -> comp.getFactory() == Text.FACTORY).findFirst();
+    assertTrue(text.isPresent());
+    assertEquals(TEXT, text.get().getAttributeSet().getValue(Text.ATTR_TEXT));
+    final var user = reloaded.getCircuit("user");
+    assertEquals("one\ntwo\nthree", textAt(user, 100, 100));
+    // A parser reads whitespace other than spaces back as spaces, or a carriage return as a
+    // newline, unless it is escaped.
+    assertEquals("tab\tand\rreturn", textAt(user, 100, 200));
+    assertEquals("windows\r\nline end", textAt(user, 100, 300));
+
+    final var vhdl = reloaded.getVhdlContent("Counter");
+    assertNotNull(vhdl);
+    assertEquals(vhdlContent, vhdl.getContent());
+
+    final var appearance = main.getAppearance();
+    assertTrue(appearance.hasCustomAppearance());
+    final var shapes = appearance.getCustomObjectsFromBottom();
+    assertEquals(4, shapes.size());
+    assertEquals(1, shapes.stream().filter(AppearancePort.class::isInstance).count());
+    assertEquals(1, shapes.stream().filter(AppearanceAnchor.class::isInstance).count());
+
+    final var map = main.getMapInfo("BOARD");
+    assertEquals(5, map.size());
+    assertEquals(20, map.get("/Pin1").getRectangle().getXpos());
+    assertEquals(30, map.get("/Pin1").getRectangle().getYpos());
+    assertTrue(map.get("/Pin2").isOpen());
+    assertEquals(5L, (long) map.get("/Pin3").getConstValue());
+    assertTrue(map.get("/Pin4").isOldFormat());
+    assertEquals(40, map.get("/Pin4").getRectangle().getXpos());
+    assertEquals(4, map.get("/Pin5").getPinMaps().size());
+
+    // Saving what was read back writes the same file.
+    final var resaved = save(reloaded, "second");
+    assertEquals(
+        Files.readString(saved.toPath(), StandardCharsets.UTF_8),
+        Files.readString(resaved.toPath(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void sortOrderIsStableAcrossSaves() throws Exception {
+    final var file = createFile();
+    final var first = save(file, "first");
+    final var second = save(file, "second");
+
+    final var content = Files.readString(first.toPath(), StandardCharsets.UTF_8);
+    assertEquals(content, Files.readString(second.toPath(), StandardCharsets.UTF_8));
+    // The board map entries are sorted by their attributes, whatever the order of the map.
+    var previous = -1;
+    for (var pin = 1; pin <= 5; pin++) {
+      final var index = content.indexOf("key=\"/Pin" + pin + "\"");
+      assertTrue(index > previous);
+      previous = index;
+    }
+    // The components of a circuit are written before its wires.
+    assertTrue(content.indexOf("<comp") < content.indexOf("<wire"));
+  }
+
+  @Test
+  void savingThroughALinkReplacesTheLinkedFile() throws Exception {
+    final var target = save(createFile(), "target").toPath();
+    final var link = Files.createSymbolicLink(tempDir.resolve("link.circ"), target);
+    Files.writeString(target, "old");
+
+    assertTrue(new Loader(null).save(createFile(), link.toFile()));
+
+    assertTrue(Files.isSymbolicLink(link));
+    assertTrue(Files.readString(target, StandardCharsets.UTF_8).startsWith("<?xml"));
+  }
+}
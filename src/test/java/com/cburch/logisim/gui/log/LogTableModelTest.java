@@ -0,0 +1,96 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.Test;
+
+class LogTableModelTest {
+
+  // Logs a pin that is high every third step, with a history of the given number of values.
+  private static Model createModel(int steps, int historyLimit) {
+    final var file = LogisimFile.createNew(new Loader(null), null);
+    final var project = new Project(file);
+    final var circuit = file.getMainCircuit();
+    circuit.setProject(project);
+    project.setCurrentCircuit(circuit);
+    final var state = project.getCircuitState();
+    final var pin = Pin.FACTORY.createComponent(Location.create(100, 100, true), Pin.FACTORY.createAttributeSet());
+    final var mutation = new CircuitMutation(circuit);
+    mutation.add(pin);
+    mutation.execute();
+    Pin.FACTORY.driveInputPin(state.getInstanceState(pin), Value.FALSE);
+    final var model = new Model(state, System::nanoTime, true);
+    model.setHistoryLimit(historyLimit);
+    for (var i = 1; i <= steps; i++) {
+      Pin.FACTORY.driveInputPin(state.getInstanceState(pin), i % 3 == 0 ? Value.TRUE : Value.FALSE);
+      model.propagationCompleted(false, false, true);
+    }
+    return model;
+  }
+
+  // Reads rows on the event dispatch thread, waiting for the background formatting if needed.
+  private static ValueTable.Cell[][] rows(int first, int count, Model model) throws Exception {
+    final var rowData = new ValueTable.Cell[count][2];
+    final var formatted = new CountDownLatch(1);
+    final var table = new LogTableModel[1];
+    SwingUtilities.invokeAndWait(
+        () -> {
+          table[0] = new LogTableModel(model, formatted::countDown);
+          table[0].getRowData(first, count, rowData);
+        });
+    formatted.await(10, TimeUnit.SECONDS);
+    SwingUtilities.invokeAndWait(() -> table[0].getRowData(first, count, rowData));
+    return rowData;
+  }
+
+  @Test
+  void rowsStartWhereSignalsChange() throws Exception {
+    final var model = createModel(9, 0);
+    final var step = model.getTimeScale();
+    final var table = new LogTableModel(model, () -> {});
+    // high during steps 3, 6 and 9, low otherwise
+    final long[] steps = {0, 3, 4, 6, 7, 9};
+    assertEquals(steps.length, table.getRowCount());
+    final var rowData = rows(0, steps.length, model);
+    for (var r = 0; r < steps.length; r++) {
+      assertEquals(Model.formatDuration(steps[r] * step), rowData[r][0].value);
+      assertEquals(r % 2 == 0 ? "0" : "1", rowData[r][1].value);
+    }
+  }
+
+  @Test
+  void rowsBeforeHistoryLimitAreHidden() throws Exception {
+    final var model = createModel(3000, 600);
+    final var table = new LogTableModel(model, () -> {});
+    // 600 values of a signal changing twice every three steps cover the last 900 steps
+    assertEquals(600, table.getRowCount());
+    final var step = model.getTimeScale();
+    final var rowData = rows(590, 20, model);
+    // the last two rows are the changes at steps 2998 and 3000
+    assertEquals(Model.formatDuration(2998 * step), rowData[8][0].value);
+    assertEquals("0", rowData[8][1].value);
+    assertEquals(Model.formatDuration(3000 * step), rowData[9][0].value);
+    assertEquals("1", rowData[9][1].value);
+    assertNull(rowData[10][0]);
+  }
+}
@@ -11,6 +11,7 @@ package com.cburch.logisim.gui.log;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitMutation;
@@ -24,6 +25,7 @@ import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Clock;
 import com.cburch.logisim.std.wiring.Pin;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
 import org.junit.jupiter.api.Test;
 
 class ModelTest {
@@ -36,7 +38,7 @@ class ModelTest {
     final var clock = Clock.FACTORY.createComponent(Location.create(100, 100, true), attrs);
     add(fixture.circuit, clock);
 
-    final var model = new Model(fixture.state);
+    final var model = new Model(fixture.state, System::nanoTime, true);
 
     assertEquals(10_000, model.getEndTime());
     assertDoesNotThrow(() -> model.propagationCompleted(false, false, true));
@@ -50,7 +52,7 @@ class ModelTest {
     Pin.FACTORY.driveInputPin(fixture.state.getInstanceState(pin), Value.FALSE);
 
     final var now = new AtomicLong(0);
-    final var model = new Model(fixture.state, now::get);
+    final var model = new Model(fixture.state, now::get, true);
     model.setRealMode(1_000_000_000, false);
 
     now.set(20_000_000);
@@ -65,7 +67,7 @@ class ModelTest {
   @Test
   void realTimeModeInitialDurationDoesNotExceedTimeScale() {
     final var fixture = new Fixture();
-    final var model = new Model(fixture.state);
+    final var model = new Model(fixture.state, System::nanoTime, true);
 
     model.setRealMode(5, false);
 
@@ -80,7 +82,7 @@ class ModelTest {
     Pin.FACTORY.driveInputPin(fixture.state.getInstanceState(pin), Value.FALSE);
 
     final var now = new AtomicLong(0);
-    final var model = new Model(fixture.state, now::get);
+    final var model = new Model(fixture.state, now::get, true);
     model.setRealMode(5, false);
 
     now.set(1_000_000_000);
@@ -98,7 +100,7 @@ class ModelTest {
     Pin.FACTORY.driveInputPin(fixture.state.getInstanceState(pin), Value.FALSE);
 
     final var now = new AtomicLong(0);
-    final var model = new Model(fixture.state, now::get);
+    final var model = new Model(fixture.state, now::get, true);
     model.setRealMode(5, false);
 
     now.set(1_000_000_000);
@@ -107,6 +109,117 @@ class ModelTest {
     assertEquals(10, model.getEndTime());
   }
 
+  @Test
+  void stepModeSamplesCurrentValueOnEachPropagation() {
+    final var fixture = new Fixture();
+    final var pin = Pin.FACTORY.createComponent(Location.create(100, 100, true), Pin.FACTORY.createAttributeSet());
+    add(fixture.circuit, pin);
+    Pin.FACTORY.driveInputPin(fixture.state.getInstanceState(pin), Value.FALSE);
+
+    final var model = new Model(fixture.state, System::nanoTime, true);
+    for (final var v : new Value[] {Value.TRUE, Value.FALSE, Value.TRUE}) {
+      Pin.FACTORY.driveInputPin(fixture.state.getInstanceState(pin), v);
+      model.propagationCompleted(false, false, true);
+    }
+
+    final var signal = model.getSignal(0);
+    final var step = model.getTimeScale();
+    assertEquals(4 * step, model.getEndTime());
+    assertEquals(Value.FALSE, signal.getValue(0));
+    assertEquals(Value.TRUE, signal.getValue(step));
+    assertEquals(Value.FALSE, signal.getValue(2 * step));
+    assertEquals(Value.TRUE, signal.getValue(3 * step));
+  }
+
+  @Test
+  void samplesFromSimulatorThreadAreStoredOnEventThread() throws Exception {
+    final var fixture = new Fixture();
+    final var pin = Pin.FACTORY.createComponent(Location.create(100, 100, true), Pin.FACTORY.createAttributeSet());
+    add(fixture.circuit, pin);
+    Pin.FACTORY.driveInputPin(fixture.state.getInstanceState(pin), Value.FALSE);
+
+    final var model = new Model(fixture.state);
+    model.setHistoryLimit(0);
+    final var extended = new AtomicLong();
+    final var listener =
+        new Model.Listener() {
+          @Override
+          public void signalsExtended(Model.Event event) {
+            if (SwingUtilities.isEventDispatchThread()) extended.incrementAndGet();
+          }
+        };
+    model.addModelListener(listener);
+    // more steps than the ring holds, so the simulator thread has to wait for room
+    final var steps = 20_000;
+    final var simulator =
+        new Thread(
+            () -> {
+              for (var i = 1; i <= steps; i++) {
+                final var v = i % 3 == 0 ? Value.TRUE : Value.FALSE;
+                Pin.FACTORY.driveInputPin(fixture.state.getInstanceState(pin), v);
+                model.propagationCompleted(false, false, true);
+              }
+            });
+    simulator.start();
+    simulator.join();
+    SwingUtilities.invokeAndWait(() -> {});
+
+    final var signal = model.getSignal(0);
+    final var step = model.getTimeScale();
+    assertEquals((steps + 1) * step, model.getEndTime());
+    for (var i = 0; i <= steps; i += 7) {
+      assertEquals(i % 3 == 0 && i > 0 ? Value.TRUE : Value.FALSE, signal.getValue(i * step));
+    }
+    assertTrue(extended.get() > 0);
+  }
+
+  @Test
+  void fetchValueFollowsReplacedSubcircuitState() {
+    final var fixture = new Fixture();
+    final var sub = fixture.addCircuit("sub");
+    final var pin = Pin.FACTORY.createComponent(Location.create(100, 100, true), Pin.FACTORY.createAttributeSet());
+    add(sub, pin);
+    final var factory = sub.getSubcircuitFactory();
+    final var subcirc = factory.createComponent(Location.create(200, 200, true), factory.createAttributeSet());
+    add(fixture.circuit, subcirc);
+
+    final var info = new SignalInfo(fixture.circuit, new Component[] {subcirc, pin}, null);
+    final var oldState = factory.getSubstate(fixture.state, subcirc);
+    Pin.FACTORY.driveInputPin(oldState.getInstanceState(pin), Value.TRUE);
+    assertEquals(Value.TRUE, info.fetchValue(fixture.state));
+
+    // a new substate detaches the old one, which the cached binding still points to
+    final var newState = fixture.state.createCircuitSubstateFor(subcirc, sub);
+    Pin.FACTORY.driveInputPin(newState.getInstanceState(pin), Value.FALSE);
+    assertEquals(Value.FALSE, info.fetchValue(fixture.state));
+  }
+
+  @Test
+  void fetchValueResolvesAgainAfterPathChangesOrNewRoot() {
+    final var fixture = new Fixture();
+    final var sub = fixture.addCircuit("sub");
+    final var pin = Pin.FACTORY.createComponent(Location.create(100, 100, true), Pin.FACTORY.createAttributeSet());
+    add(sub, pin);
+    final var factory = sub.getSubcircuitFactory();
+    final var subcirc = factory.createComponent(Location.create(200, 200, true), factory.createAttributeSet());
+    add(fixture.circuit, subcirc);
+
+    final var info = new SignalInfo(fixture.circuit, new Component[] {subcirc, pin}, null);
+    Pin.FACTORY.driveInputPin(factory.getSubstate(fixture.state, subcirc).getInstanceState(pin), Value.TRUE);
+    assertEquals(Value.TRUE, info.fetchValue(fixture.state));
+
+    // a change to a circuit on the path drops the binding, the next fetch looks the state up again
+    add(sub, Pin.FACTORY.createComponent(Location.create(100, 200, true), Pin.FACTORY.createAttributeSet()));
+    Pin.FACTORY.driveInputPin(factory.getSubstate(fixture.state, subcirc).getInstanceState(pin), Value.FALSE);
+    assertEquals(Value.FALSE, info.fetchValue(fixture.state));
+
+    // another root state, as after a simulator reset, has substates of its own
+    final var otherRoot = CircuitState.createRootState(fixture.project, fixture.circuit);
+    Pin.FACTORY.driveInputPin(factory.getSubstate(otherRoot, subcirc).getInstanceState(pin), Value.TRUE);
+    assertEquals(Value.TRUE, info.fetchValue(otherRoot));
+    assertEquals(Value.FALSE, info.fetchValue(fixture.state));
+  }
+
   private static void add(Circuit circuit, Component component) {
     final var mutation = new CircuitMutation(circuit);
     mutation.add(component);
@@ -114,16 +227,24 @@ class ModelTest {
   }
 
   private static final class Fixture {
+    private final LogisimFile file;
+    private final Project project;
     private final Circuit circuit;
     private final CircuitState state;
 
     private Fixture() {
-      final var file = LogisimFile.createNew(new Loader(null), null);
-      final var project = new Project(file);
+      file = LogisimFile.createNew(new Loader(null), null);
+      project = new Project(file);
       circuit = file.getMainCircuit();
       circuit.setProject(project);
       project.setCurrentCircuit(circuit);
       state = project.getCircuitState();
     }
+
+    private Circuit addCircuit(String name) {
+      final var ret = new Circuit(name, file, project);
+      file.addCircuit(ret);
+      return ret;
+    }
   }
 }
@@ -10,15 +10,179 @@
 package com.cburch.logisim.gui.log;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 class SignalTest {
 
+  private static SignalInfo createInfo() {
+    return createInfo(1);
+  }
+
+  private static SignalInfo createInfo(int width) {
+    final var info = mock(SignalInfo.class);
+    when(info.getWidth()).thenReturn(width);
+    return info;
+  }
+
+  private static Value busValue(int i) {
+    // cycles through known, unknown, error and partly defined 8-bit values
+    return switch (i % 4) {
+      case 0 -> Value.createKnown(8, i & 0xff);
+      case 1 -> Value.createUnknown(BitWidth.create(8));
+      case 2 -> Value.createError(BitWidth.create(8));
+      default -> Value.createKnown(8, i & 0xff).set(i % 8, Value.UNKNOWN).set(7 - i % 8, Value.ERROR);
+    };
+  }
+
+  private static Value valueAt(long t) {
+    // the signal built by createToggling() is high during [3k + 1, 3k + 3)
+    return t % 3 == 0 ? Value.FALSE : Value.TRUE;
+  }
+
+  private static Signal createToggling(int transitions, int maxSize) {
+    final var signal = new Signal(0, createInfo(), Value.FALSE, 1, 0, maxSize);
+    for (var i = 1; i < transitions; i++) {
+      signal.extend(i % 2 == 0 ? Value.FALSE : Value.TRUE, i % 2 == 0 ? 1 : 2);
+    }
+    return signal;
+  }
+
+  @Test
+  void lookupsAfterMillionTransitions() {
+    final var transitions = 1_000_000;
+    final var signal = createToggling(transitions, 0);
+    final var end = 3L * (transitions / 2);
+    assertEquals(end, signal.getEndTime());
+    for (var t = 0L; t < end; t += 99_991) assertEquals(valueAt(t), signal.getValue(t));
+    assertEquals(valueAt(end - 1), signal.getValue(end - 1));
+    assertNull(signal.getValue(end));
+    final var iter = signal.new Iterator(1_234_567);
+    assertEquals(valueAt(1_234_567), iter.value);
+    assertEquals(1_234_567, iter.time);
+    assertEquals(1_234_567 / 3 * 2 + (1_234_567 % 3 == 0 ? 0 : 1), iter.position);
+  }
+
+  @Test
+  void iteratorAdvancesOverWrappedHistory() {
+    final var signal = createToggling(1001, 100);
+    final var end = signal.getEndTime();
+    assertEquals(end - 150, signal.omittedDataTime());
+    assertNull(signal.getValue(end - 151));
+    final var iter = signal.new Iterator(end - 150);
+    assertEquals(end - 150, iter.time);
+    for (var t = end - 150; t < end - 1; t += 7) {
+      assertEquals(valueAt(t), iter.value);
+      assertEquals(valueAt(t), signal.getValue(t));
+      iter.advance(7);
+    }
+    assertFalse(iter.advance(end));
+    assertNull(iter.value);
+  }
+
+  @Test
+  void busValuesSurviveChunkBoundaries() {
+    final var signal = new Signal(0, createInfo(8), busValue(0), 1, 0, 0);
+    for (var i = 1; i < 2000; i++) signal.extend(busValue(i), i % 3 + 1);
+    final var iter = signal.new Iterator();
+    var t = 0L;
+    for (var i = 0; i < 2000; i++) {
+      assertEquals(i, iter.position);
+      assertEquals(t, iter.time);
+      assertEquals(busValue(i), iter.value);
+      assertEquals(busValue(i), signal.getValue(t + iter.duration - 1));
+      t += i % 3 + 1;
+      assertEquals(t, iter.time + iter.duration);
+      assertEquals(i < 1999, iter.advance());
+    }
+    assertEquals(t, signal.getEndTime());
+  }
+
+  private static int classOf(Value v) {
+    if (v.getErrorMask() != 0) return Signal.SUMMARY_ERROR;
+    if (v.getUnknownMask() != 0) return Signal.SUMMARY_UNKNOWN;
+    if (v.getValueMask() == 0) return Signal.SUMMARY_LOW;
+    return v.getValueMask() == -1L >>> (64 - v.getWidth()) ? Signal.SUMMARY_HIGH : Signal.SUMMARY_MIXED;
+  }
+
+  @Test
+  void summaryMatchesValuesInRange() {
+    final var bit = new Signal(0, createInfo(), Value.FALSE, 1, 0, 1500);
+    final var bus = new Signal(1, createInfo(8), busValue(0), 1, 0, 1500);
+    for (var i = 1; i < 2000; i++) {
+      // mostly toggling, with an occasional unknown or error value
+      bit.extend(i % 97 == 0 ? Value.UNKNOWN : i % 89 == 0 ? Value.ERROR : i % 2 == 0 ? Value.FALSE : Value.TRUE, 2);
+      bus.extend(i % 5 == 0 ? Value.createKnown(8, 0xff) : busValue(i), 2);
+    }
+    bit.replaceRecent(Value.ERROR, 2);
+    final var random = new Random(1);
+    for (final var signal : new Signal[] {bit, bus}) {
+      final var start = signal.getEndTime() - 2 * 1500;
+      for (var k = 0; k < 500; k++) {
+        final var t0 = start + random.nextInt(3000);
+        final var t1 = t0 + 1 + random.nextInt(k % 2 == 0 ? 20 : 3000);
+        var expected = 0;
+        for (var t = t0; t < Math.min(t1, signal.getEndTime()); t++) expected |= classOf(signal.getValue(t));
+        assertEquals(expected, signal.summarize(t0, t1), "range " + t0 + " to " + t1);
+      }
+      assertEquals(0, signal.summarize(start - 10, start));
+    }
+    assertEquals(Signal.SUMMARY_ERROR, bit.summarize(bit.getEndTime() - 1, bit.getEndTime()));
+  }
+
+  @Test
+  void unknownAndErrorBitsArePacked() {
+    final Value[] values = {Value.TRUE, Value.UNKNOWN, Value.FALSE, Value.ERROR};
+    final var signal = new Signal(0, createInfo(), Value.FALSE, 1, 0, 0);
+    for (var i = 1; i < 1500; i++) signal.extend(values[i % values.length], 1);
+    for (var t = 0; t < 1500; t++) assertSame(t == 0 ? Value.FALSE : values[t % 4], signal.getValue(t));
+  }
+
+  @Test
+  void widthChangeUsesCurrentWidth() {
+    final var info = createInfo(4);
+    final var signal = new Signal(0, info, Value.createKnown(4, 0xa), 10, 0, 0);
+    signal.extend(Value.TRUE, 10);
+    when(info.getWidth()).thenReturn(8);
+    assertEquals(Value.createKnown(8, 0xa), signal.getValue(5));
+    assertEquals(Value.createKnown(8, 1), signal.getValue(15));
+  }
+
+  @Test
+  void replaceRecentMergesWithPreviousValue() {
+    final var signal = new Signal(0, createInfo(), Value.FALSE, 1, 0, 0);
+    signal.extend(Value.TRUE, 2);
+    signal.replaceRecent(Value.UNKNOWN, 2);
+    assertEquals(Value.UNKNOWN, signal.getValue(2));
+    signal.replaceRecent(Value.FALSE, 2);
+    assertEquals(Value.FALSE, signal.getValue(2));
+    final var iter = signal.new Iterator();
+    assertEquals(3, iter.duration);
+    assertFalse(iter.advance());
+    signal.extend(Value.TRUE, 1);
+    assertEquals(Value.TRUE, signal.getValue(3));
+  }
+
+  @Test
+  void shrinkingKeepsMostRecentValues() {
+    final var signal = createToggling(2000, 0);
+    final var end = signal.getEndTime();
+    signal.resize(10);
+    assertEquals(end - 15, signal.omittedDataTime());
+    assertNull(signal.getValue(end - 16));
+    for (var t = end - 15; t < end; t++) assertEquals(valueAt(t), signal.getValue(t));
+    signal.extend(Value.FALSE, 1);
+    assertEquals(end - 14, signal.omittedDataTime());
+  }
+
   @Test
   void resetClearsSignalStartOffset() {
     final var info = mock(SignalInfo.class);
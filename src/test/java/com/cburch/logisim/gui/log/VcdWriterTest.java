@@ -0,0 +1,112 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class VcdWriterTest {
+
+  @TempDir Path tempDir;
+
+  // A model logging a one-bit and a four-bit input pin, sampled once per step.
+  private static Model createModel(Value[] bits, Value[] buses) {
+    final var file = LogisimFile.createNew(new Loader(null), null);
+    final var project = new Project(file);
+    final var circuit = file.getMainCircuit();
+    circuit.setProject(project);
+    project.setCurrentCircuit(circuit);
+    final var state = project.getCircuitState();
+    final var bit = Pin.FACTORY.createComponent(Location.create(100, 100, true), Pin.FACTORY.createAttributeSet());
+    final var attrs = Pin.FACTORY.createAttributeSet();
+    attrs.setValue(StdAttr.WIDTH, BitWidth.create(4));
+    attrs.setValue(StdAttr.LABEL, "data bus");
+    final var bus = Pin.FACTORY.createComponent(Location.create(100, 200, true), attrs);
+    final var mutation = new CircuitMutation(circuit);
+    mutation.add(bit);
+    mutation.add(bus);
+    mutation.execute();
+
+    Pin.FACTORY.driveInputPin(state.getInstanceState(bit), bits[0]);
+    Pin.FACTORY.driveInputPin(state.getInstanceState(bus), buses[0]);
+    final var model = new Model(state, System::nanoTime, true);
+    for (var i = 1; i < bits.length; i++) {
+      Pin.FACTORY.driveInputPin(state.getInstanceState(bit), bits[i]);
+      Pin.FACTORY.driveInputPin(state.getInstanceState(bus), buses[i]);
+      model.propagationCompleted(false, false, true);
+    }
+    return model;
+  }
+
+  private static List<String> changes(List<String> lines) {
+    return lines.subList(lines.indexOf("$enddefinitions $end") + 1, lines.size());
+  }
+
+  @Test
+  void exportWritesOnlyChanges() throws Exception {
+    final var model =
+        createModel(
+            new Value[] {Value.FALSE, Value.TRUE, Value.TRUE, Value.UNKNOWN},
+            new Value[] {
+              Value.createKnown(4, 3), Value.createKnown(4, 3), Value.createKnown(4, 9),
+              Value.createError(BitWidth.create(4))
+            });
+    final var dest = tempDir.resolve("wave.vcd").toFile();
+    VcdWriter.export(model, dest);
+
+    final var lines = Files.readAllLines(dest.toPath());
+    assertTrue(lines.contains("$timescale 1ns $end"));
+    assertTrue(lines.contains("$var wire 4 \" data_bus [3:0] $end"));
+    final var step = model.getTimeScale();
+    assertEquals(
+        Arrays.asList(
+            "#0", "0!", "b11 \"",
+            "#" + step, "1!",
+            "#" + 2 * step, "b1001 \"",
+            "#" + 3 * step, "z!", "bxxxx \"",
+            "#" + 4 * step),
+        changes(lines));
+  }
+
+  @Test
+  void compressedFilesAreGzipped() throws Exception {
+    final var model =
+        createModel(
+            new Value[] {Value.FALSE, Value.TRUE},
+            new Value[] {Value.createKnown(4, 0), Value.createKnown(4, 0)});
+    final var dest = tempDir.resolve("wave.vcd.gz").toFile();
+    assertTrue(VcdWriter.isVcdFile(dest));
+    VcdWriter.export(model, dest);
+
+    try (final var in = new GZIPInputStream(Files.newInputStream(dest.toPath()))) {
+      final var text = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+      assertTrue(text.startsWith("$date"));
+      assertTrue(text.contains("#0\n0!\nb0 \"\n"));
+    }
+  }
+}
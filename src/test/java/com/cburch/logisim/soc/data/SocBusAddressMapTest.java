@@ -0,0 +1,109 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.instance.InstanceComponent;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SocBusAddressMapTest {
+
+  private record Slave(int start, int size) implements SocBusSlaveInterface {
+    @Override
+    public boolean canHandleTransaction(SocBusTransaction trans) {
+      final var addr = SocSupport.convUnsignedInt(trans.getAddress());
+      final var begin = SocSupport.convUnsignedInt(start);
+      return addr >= begin && addr < begin + SocSupport.convUnsignedInt(size);
+    }
+
+    @Override
+    public void handleTransaction(SocBusTransaction trans) {}
+
+    @Override
+    public Integer getStartAddress() {
+      return start;
+    }
+
+    @Override
+    public Integer getMemorySize() {
+      return size;
+    }
+
+    @Override
+    public String getName() {
+      return "slave";
+    }
+
+    @Override
+    public void registerListener(SocBusSlaveListener l) {}
+
+    @Override
+    public void removeListener(SocBusSlaveListener l) {}
+
+    @Override
+    public InstanceComponent getComponent() {
+      return null;
+    }
+  }
+
+  @Test
+  void routesAddressesToTheRespondingSlave() {
+    final var memory = new Slave(0, 0x10000);
+    final var pio = new Slave(0x8000_0000, 24);
+    final var top = new Slave(0xFFFF_FFF0, 16);
+    final var map = SocBusAddressMap.create(List.of(pio, memory, top));
+    assertSame(memory, map.getSlave(0));
+    assertSame(memory, map.getSlave(0xFFFC));
+    assertNull(map.getSlave(0x10000));
+    assertEquals(0, map.getNrOfResponders(0x7FFF_FFFF));
+    assertSame(pio, map.getSlave(0x8000_0000));
+    assertSame(pio, map.getSlave(0x8000_0017));
+    assertNull(map.getSlave(0x8000_0018));
+    assertSame(top, map.getSlave(0xFFFF_FFFF));
+    assertFalse(map.hasOverlaps());
+  }
+
+  @Test
+  void detectsOverlapsAtBuildTime() {
+    final var memory = new Slave(0x1000, 0x1000);
+    final var pio = new Slave(0x1800, 24);
+    final var map = SocBusAddressMap.create(List.of(memory, pio));
+    assertTrue(map.hasOverlaps());
+    assertEquals(2, map.getNrOfResponders(0x1804));
+    assertNull(map.getSlave(0x1804));
+    assertSame(memory, map.getSlave(0x1818));
+    assertSame(memory, map.getSlave(0x17FF));
+  }
+
+  @Test
+  void agreesWithCanHandleTransaction() {
+    final List<SocBusSlaveInterface> slaves =
+        List.of(new Slave(0x100, 0x100), new Slave(0x180, 8), new Slave(0x400, 4));
+    final var map = SocBusAddressMap.create(slaves);
+    for (var addr = 0; addr < 0x500; addr++) {
+      final var trans = new SocBusTransaction(SocBusTransaction.READ_TRANSACTION, addr, 0, 0, null);
+      var responders = 0;
+      for (final var slave : slaves) if (slave.canHandleTransaction(trans)) responders++;
+      assertEquals(responders, map.getNrOfResponders(addr));
+    }
+  }
+
+  @Test
+  void emptyMapHasNoResponders() {
+    assertEquals(0, SocBusAddressMap.EMPTY.getNrOfResponders(0x1234));
+    assertNull(SocBusAddressMap.EMPTY.getSlave(0xFFFF_FFFF));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import org.junit.jupiter.api.Test;
+
+class SocBusTraceTest {
+
+  private static SocBusTransaction write(int address, int value) {
+    return new SocBusTransaction(
+        SocBusTransaction.WRITE_TRANSACTION, address, value, SocBusTransaction.WORD_ACCESS, "cpu");
+  }
+
+  @Test
+  void fullTraceKeepsMostRecentTransactions() {
+    final var trace = new SocBusTrace(SocBusTrace.MIN_DEPTH);
+    final var count = 3 * SocBusTrace.MIN_DEPTH + 5;
+    for (var i = 0; i < count; i++) trace.add(write(4 * i, i), 10 + i);
+
+    assertEquals(SocBusTrace.MIN_DEPTH, trace.size());
+    assertEquals(count - SocBusTrace.MIN_DEPTH, trace.getFirstIndex());
+    for (var i = 0; i < trace.size(); i++) {
+      final var n = (int) trace.getFirstIndex() + i;
+      final var t = trace.get(i);
+      assertEquals(4 * n, t.getAddress());
+      assertEquals(n, t.getWriteData());
+      assertEquals(SocBusTransaction.WORD_ACCESS, t.getAccessType());
+      assertEquals("cpu", t.getTransactionInitiator());
+      assertEquals(10 + n, trace.getCycle(i));
+    }
+    assertNull(trace.get(trace.size()));
+  }
+
+  @Test
+  void shrinkingKeepsMostRecentTransactions() {
+    final var trace = new SocBusTrace(64);
+    for (var i = 0; i < 40; i++) trace.add(write(i, i), i);
+
+    trace.setDepth(SocBusTrace.MIN_DEPTH);
+
+    assertEquals(SocBusTrace.MIN_DEPTH, trace.size());
+    assertEquals(40 - SocBusTrace.MIN_DEPTH, trace.getFirstIndex());
+    assertEquals(39, trace.get(SocBusTrace.MIN_DEPTH - 1).getAddress());
+  }
+
+  @Test
+  void exportWritesParticipantsBeforeTransactions() throws Exception {
+    final var trace = new SocBusTrace(SocBusTrace.MIN_DEPTH);
+    final var read =
+        new SocBusTransaction(
+            SocBusTransaction.READ_TRANSACTION, 0x100, 0, SocBusTransaction.BYTE_ACCESS, "dma");
+    read.setReadData(0x5a);
+    read.setError(SocBusTransaction.NO_RESPONS_ERROR);
+    trace.add(write(0x40, 7), 3);
+    trace.add(read, 4);
+    final var bytes = new ByteArrayOutputStream();
+    trace.export(bytes);
+
+    final var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertEquals(SocBusTrace.FILE_MAGIC, in.readInt());
+    assertEquals(SocBusTrace.FILE_VERSION, in.readInt());
+    for (final var name : new String[] {"cpu", "dma"}) {
+      assertEquals(SocBusTrace.RECORD_PARTICIPANT, in.readByte());
+      in.readShort();
+      assertEquals(name, in.readUTF());
+    }
+    assertEquals(SocBusTrace.RECORD_TRANSACTION, in.readByte());
+    assertEquals(0, in.readLong());
+    assertEquals(3, in.readLong());
+    assertEquals(0x40, in.readInt());
+    assertEquals(7, in.readInt());
+    in.skipBytes(4 + 3 + 4);
+    assertEquals(SocBusTrace.RECORD_TRANSACTION, in.readByte());
+    assertEquals(1, in.readLong());
+    assertEquals(4, in.readLong());
+    assertEquals(0x100, in.readInt());
+    in.readInt();
+    assertEquals(0x5a, in.readInt());
+    assertEquals(SocBusTransaction.READ_TRANSACTION, in.readByte());
+    assertEquals(SocBusTransaction.BYTE_ACCESS, in.readByte());
+    assertEquals(SocBusTransaction.NO_RESPONS_ERROR, in.readByte());
+    assertEquals(2, in.readShort());
+    assertEquals(0, in.readShort());
+    assertEquals(-1, in.read());
+  }
+}
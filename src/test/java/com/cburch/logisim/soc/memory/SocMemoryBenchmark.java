@@ -0,0 +1,203 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.memory;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Compares the paged word storage of {@link SocMemoryState.SocMemoryInfo} with the linked list
+ * blocks it replaced, on the loads and stores an RV32 program does: a program image is stored
+ * word by word (sw), read back in scattered order (lw), and patched byte by byte (sb, a read
+ * followed by a write of the whole word, as the memory does on the bus). Run it with {@code
+ * ./gradlew socMemoryBenchmark}; the optional arguments are the image size in KB (default 256)
+ * and the number of rounds (default 3), of which the fastest one is reported.
+ */
+public final class SocMemoryBenchmark {
+
+  /** The word accesses of the memory, as used by the bus transactions. */
+  private interface Memory {
+    int getWord(int address);
+
+    void writeWord(int address, int data);
+  }
+
+  /** The storage of SocMemoryInfo before it was paged, kept here as the reference. */
+  private static final class LinkedListMemory implements Memory {
+    private final class Block {
+      private final LinkedList<Integer> contents = new LinkedList<>();
+      private int startAddress;
+
+      Block(int address, int data) {
+        startAddress = (address >> 2) << 2;
+        contents.add(data);
+      }
+
+      boolean canAddBefore(int address) {
+        final var previousAddress = startAddress - 4;
+        return (address >= previousAddress) && (address < startAddress);
+      }
+
+      boolean canAddAfter(int address) {
+        return (address >= getEndAddress()) && (address < getEndAddress() + 4);
+      }
+
+      boolean contains(int address) {
+        return (address >= startAddress) && (address < getEndAddress());
+      }
+
+      boolean canAdd(int address) {
+        return canAddBefore(address) || canAddAfter(address);
+      }
+
+      void addInfo(int address, int data) {
+        if (canAddBefore(address)) {
+          contents.addFirst(data);
+          startAddress -= 4;
+        } else if (canAddAfter(address)) {
+          contents.add(data);
+        } else if (contains(address)) {
+          contents.set((address - startAddress) >> 2, data);
+        }
+      }
+
+      int getValue(int address) {
+        final var index = (address - startAddress) >> 2;
+        return index >= contents.size() ? rand.nextInt() : contents.get(index);
+      }
+
+      int getEndAddress() {
+        return startAddress + contents.size() * 4;
+      }
+    }
+
+    private final ArrayList<Block> memInfo = new ArrayList<>();
+    private final Random rand = new Random();
+
+    @Override
+    public int getWord(int address) {
+      for (final var info : memInfo) if (info.contains(address)) return info.getValue(address);
+      return rand.nextInt();
+    }
+
+    @Override
+    public void writeWord(int address, int data) {
+      final var adders = new ArrayList<Block>();
+      for (final var info : memInfo) {
+        if (info.contains(address)) {
+          info.addInfo(address, data);
+          return;
+        }
+        if (info.canAdd(address)) adders.add(info);
+      }
+      if (adders.isEmpty()) {
+        memInfo.add(new Block(address, data));
+        return;
+      }
+      if (adders.size() == 1) {
+        adders.get(0).addInfo(address, data);
+        return;
+      }
+      final var addBefore = adders.get(0).canAddBefore(address) ? adders.get(0) : adders.get(1);
+      final var addAfter = adders.get(0).canAddAfter(address) ? adders.get(0) : adders.get(1);
+      addAfter.addInfo(address, data);
+      for (var i = addBefore.startAddress; i < addBefore.getEndAddress(); i += 4) {
+        addAfter.addInfo(i, addBefore.getValue(i));
+      }
+      memInfo.remove(addBefore);
+    }
+  }
+
+  private static final int BASE_ADDRESS = 0x1000_0000;
+  // odd, so that it walks through all words of a power of two sized image in scattered order
+  private static final int SCATTER_STRIDE = 0x9E37_79B1;
+
+  private SocMemoryBenchmark() {}
+
+  private static long store(Memory memory, int words) {
+    final var begin = System.nanoTime();
+    for (var i = 0; i < words; i++) memory.writeWord(BASE_ADDRESS + (i << 2), i ^ 0x5A5A5A5A);
+    return System.nanoTime() - begin;
+  }
+
+  private static long load(Memory memory, int words, long[] checksum) {
+    final var begin = System.nanoTime();
+    var sum = 0L;
+    for (var i = 0; i < words; i++) {
+      final var index = (i * SCATTER_STRIDE) & (words - 1);
+      sum += memory.getWord(BASE_ADDRESS + (index << 2));
+    }
+    checksum[0] += sum;
+    return System.nanoTime() - begin;
+  }
+
+  private static long patchBytes(Memory memory, int words, long[] checksum) {
+    final var begin = System.nanoTime();
+    for (var i = 0; i < words; i++) {
+      final var index = (i * SCATTER_STRIDE) & (words - 1);
+      final var address = BASE_ADDRESS + (index << 2) + (i & 3);
+      final var shift = (address & 3) << 3;
+      final var word = memory.getWord(address & ~3);
+      memory.writeWord(address & ~3, (word & ~(0xFF << shift)) | ((i & 0xFF) << shift));
+    }
+    var sum = 0L;
+    for (var i = 0; i < words; i++) sum += memory.getWord(BASE_ADDRESS + (i << 2));
+    checksum[0] += sum;
+    return System.nanoTime() - begin;
+  }
+
+  private static long[] run(Memory memory, int words, long[] checksum) {
+    return new long[] {
+      store(memory, words), load(memory, words, checksum), patchBytes(memory, words, checksum)
+    };
+  }
+
+  public static void main(String[] args) {
+    final var kiloBytes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+    final var rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    final var words = Integer.highestOneBit(kiloBytes * 1024 / 4);
+    final var paged = new long[] {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+    final var linked = new long[] {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+    final var pagedSum = new long[1];
+    final var linkedSum = new long[1];
+    for (var round = 0; round < rounds; round++) {
+      final var info = new SocMemoryState().getNewState();
+      final var pagedTimes =
+          run(
+              new Memory() {
+                @Override
+                public int getWord(int address) {
+                  return info.getWord(address);
+                }
+
+                @Override
+                public void writeWord(int address, int data) {
+                  info.writeWord(address, data);
+                }
+              },
+              words,
+              pagedSum);
+      final var linkedTimes = run(new LinkedListMemory(), words, linkedSum);
+      for (var i = 0; i < paged.length; i++) {
+        paged[i] = Math.min(paged[i], pagedTimes[i]);
+        linked[i] = Math.min(linked[i], linkedTimes[i]);
+      }
+    }
+    if (pagedSum[0] != linkedSum[0]) throw new IllegalStateException("The memories differ");
+    System.out.printf("%d KB image, fastest of %d rounds%n", words * 4 / 1024, rounds);
+    System.out.printf("%-24s | %12s %12s%n", "access", "paged ms", "linked ms");
+    final String[] names = {"sw, front to back", "lw, scattered", "sb, scattered"};
+    for (var i = 0; i < names.length; i++) {
+      System.out.printf(
+          "%-24s | %12.1f %12.1f%n", names[i], paged[i] / 1e6, linked[i] / 1e6);
+    }
+  }
+}
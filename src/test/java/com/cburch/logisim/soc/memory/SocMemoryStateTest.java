@@ -0,0 +1,89 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.memory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class SocMemoryStateTest {
+
+  @Test
+  void wordsAreStoredAcrossTheAddressSpace() {
+    final var memory = new SocMemoryState().getNewState();
+    final int[] addresses = {0, 4, 0x0FFC, 0x1000, 0x7FFF_FFFC, 0x8000_0000, 0xFFFF_FFFC};
+    for (var i = 0; i < addresses.length; i++) memory.writeWord(addresses[i], i * 0x01010101);
+    for (var i = 0; i < addresses.length; i++)
+      assertEquals(i * 0x01010101, memory.getWord(addresses[i]));
+  }
+
+  @Test
+  void sequentialLoadsAndStoresOfAProgramImage() {
+    // A program touching a few hundred KB, stored front to back and read back to front
+    final var memory = new SocMemoryState().getNewState();
+    final var words = 256 * 1024 / 4;
+    for (var i = 0; i < words; i++) memory.writeWord(0x1000_0000 + (i << 2), i ^ 0x5A5A5A5A);
+    for (var i = words - 1; i >= 0; i--)
+      assertEquals(i ^ 0x5A5A5A5A, memory.getWord(0x1000_0000 + (i << 2)));
+  }
+
+  @Test
+  void bulkLoadIsLittleEndianAndRoundTrips() {
+    final var memory = new SocMemoryState().getNewState();
+    final var section = new byte[4099];
+    for (var i = 0; i < section.length; i++) section[i] = (byte) (i * 7);
+    memory.loadBytes(0x2002, section, 0, section.length);
+    final var expected =
+        (section[2] & 0xFF)
+            | (section[3] & 0xFF) << 8
+            | (section[4] & 0xFF) << 16
+            | (section[5] & 0xFF) << 24;
+    assertEquals(expected, memory.getWord(0x2004));
+    final var dump = new byte[section.length];
+    memory.dumpBytes(0x2002, dump, 0, dump.length);
+    assertArrayEquals(section, dump);
+  }
+
+  @Test
+  void bulkLoadKeepsNeighbouringBytes() {
+    final var memory = new SocMemoryState().getNewState();
+    memory.writeWord(0x100, 0x11223344);
+    memory.loadBytes(0x101, new byte[] {(byte) 0xAA, (byte) 0xBB}, 0, 2);
+    assertEquals(0x11BBAA44, memory.getWord(0x100));
+  }
+
+  @Test
+  void blockReadMatchesWordReadsAcrossPages() {
+    final var memory = new SocMemoryState().getNewState();
+    final var words = 3000;
+    for (var i = 0; i < words; i++) memory.writeWord(0x4000_0F00 + (i << 2), i * 31);
+    final var block = new int[words + 2];
+    memory.readWords(0x4000_0F00, block, 1, words);
+    for (var i = 0; i < words; i++) assertEquals(i * 31, block[i + 1]);
+    assertEquals(0, block[0]);
+    assertEquals(0, block[words + 1]);
+  }
+
+  @Test
+  void bufferLoadSkipsPositionAndConsumesData() {
+    final var memory = new SocMemoryState().getNewState();
+    final var image = new byte[3 * 1024 + 3];
+    for (var i = 0; i < image.length; i++) image[i] = (byte) (i * 13);
+    final var buffer = ByteBuffer.wrap(image);
+    buffer.position(1);
+    memory.loadBytes(0x3001, buffer);
+    assertEquals(0, buffer.remaining());
+    final var dump = new byte[image.length - 1];
+    memory.dumpBytes(0x3001, dump, 0, dump.length);
+    for (var i = 0; i < dump.length; i++) assertEquals(image[i + 1], dump[i]);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.soc.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.soc.data.SocBusTransaction;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+class PredecodedInstructionCacheTest {
+
+  private static class ExeUnit implements AssemblerExecutionInterface {
+    private int instruction;
+
+    @Override
+    public boolean execute(Object processorState, CircuitState circuitState) {
+      return true;
+    }
+
+    @Override
+    public String getAsmInstruction() {
+      return "nop";
+    }
+
+    @Override
+    public int getBinInstruction() {
+      return instruction;
+    }
+
+    @Override
+    public boolean setAsmInstruction(AssemblerAsmInstruction instruction) {
+      return false;
+    }
+
+    @Override
+    public boolean setBinInstruction(int instr) {
+      instruction = instr;
+      return true;
+    }
+
+    @Override
+    public boolean performedJump() {
+      return false;
+    }
+
+    @Override
+    public boolean isValid() {
+      return true;
+    }
+
+    @Override
+    public String getErrorMessage() {
+      return null;
+    }
+
+    @Override
+    public ArrayList<String> getInstructions() {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public int getInstructionSizeInBytes(String instruction) {
+      return 4;
+    }
+  }
+
+  private static SocBusTransaction write(int address, int access) {
+    return new SocBusTransaction(SocBusTransaction.WRITE_TRANSACTION, address, 0, access, "test");
+  }
+
+  @Test
+  void hitRedecodesOnlyTheCachedUnit() {
+    final var cache = new PredecodedInstructionCache();
+    final var exe = new ExeUnit();
+    cache.put(0x100, 0x12345678, exe);
+    exe.setBinInstruction(0);
+    assertTrue(cache.contains(0x100));
+    assertEquals(0x12345678, cache.getInstruction(0x100));
+    assertSame(exe, cache.getExeUnit(0x100));
+    assertEquals(0x12345678, exe.getBinInstruction());
+  }
+
+  @Test
+  void aliasedPcIsNoHit() {
+    final var cache = new PredecodedInstructionCache();
+    cache.put(0x100, 1, new ExeUnit());
+    assertFalse(cache.contains(0x100 + (1 << 14)));
+    assertFalse(cache.contains(0x104));
+  }
+
+  @Test
+  void writesInvalidateTheOverwrittenWord() {
+    final var cache = new PredecodedInstructionCache();
+    cache.put(0x200, 1, new ExeUnit());
+    cache.put(0x204, 2, new ExeUnit());
+    cache.sniffTransaction(
+        new SocBusTransaction(SocBusTransaction.READ_TRANSACTION, 0x200, 0, SocBusTransaction.WORD_ACCESS, "test"));
+    assertTrue(cache.contains(0x200));
+    cache.sniffTransaction(write(0x203, SocBusTransaction.BYTE_ACCESS));
+    assertFalse(cache.contains(0x200));
+    assertTrue(cache.contains(0x204));
+    cache.sniffTransaction(write(0x204 + (1 << 14), SocBusTransaction.WORD_ACCESS));
+    assertTrue(cache.contains(0x204));
+  }
+
+  @Test
+  void misalignedPcIsNotCached() {
+    final var cache = new PredecodedInstructionCache();
+    cache.put(0x102, 1, new ExeUnit());
+    assertFalse(cache.contains(0x102));
+  }
+
+  @Test
+  void blockWritesInvalidateTheWordsTheyTouch() {
+    final var cache = new PredecodedInstructionCache();
+    for (var pc = 0x300; pc <= 0x30C; pc += 4) cache.put(pc, pc, new ExeUnit());
+    cache.sniffBlockWrite(0x306, 3);
+    assertTrue(cache.contains(0x300));
+    assertFalse(cache.contains(0x304));
+    assertFalse(cache.contains(0x308));
+    assertTrue(cache.contains(0x30C));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Logisim-evolution - digital logic design tool and simulator
+ * Copyright by the Logisim-evolution developers
+ *
+ * https://github.com/logisim-evolution/
+ *
+ * This is free software released under GNU GPLv3 license
+ */
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cburch.logisim.prefs.AppPreferences;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MemContentsTest {
+  private boolean originalStartupUnknown;
+
+  @BeforeEach
+  void enableRandomStartup() {
+    originalStartupUnknown = AppPreferences.Memory_Startup_Unknown.getBoolean();
+    AppPreferences.Memory_Startup_Unknown.setBoolean(true);
+  }
+
+  @AfterEach
+  void restoreRandomStartup() {
+    AppPreferences.Memory_Startup_Unknown.setBoolean(originalStartupUnknown);
+  }
+
+  private static MemContents createRandom(int addrBits, int width, long seed) {
+    final var contents = MemContents.create(addrBits, width, true);
+    contents.setRandomSeed(seed);
+    contents.condFillRandom();
+    return contents;
+  }
+
+  @Test
+  void randomContentsAreReproducible() {
+    final var first = createRandom(20, 32, 42);
+    final var second = createRandom(20, 32, 42);
+    // read in a different order to make sure the values do not depend on the access pattern
+    final var sample = new long[] {0xfffff, 0x12345, 0, 0x1000, 0x80000};
+    final var expected = new long[sample.length];
+    for (var i = 0; i < sample.length; i++) expected[i] = first.get(sample[i]);
+    for (var i = sample.length - 1; i >= 0; i--) assertEquals(expected[i], second.get(sample[i]));
+    assertFalse(first.isClear());
+  }
+
+  @Test
+  void resetStartsNewReproducibleSequence() {
+    final var first = createRandom(16, 16, 7);
+    final var second = createRandom(16, 16, 7);
+    final var before = first.get(0x1234);
+    first.condClear();
+    second.condClear();
+    assertEquals(first.get(0x1234), second.get(0x1234));
+    assertNotEquals(before, first.get(0x1234));
+  }
+
+  @Test
+  void memoriesStartWithDifferentContents() {
+    final var first = MemContents.create(16, 32, true);
+    final var second = MemContents.create(16, 32, true);
+    first.condFillRandom();
+    second.condFillRandom();
+    var same = 0;
+    for (var addr = 0; addr < 64; addr++) {
+      if (first.get(addr) == second.get(addr)) same++;
+    }
+    assertTrue(same < 64);
+  }
+
+  @Test
+  void memorySeedsDoNotDependOnTheRun() {
+    // the seed of a memory only depends on its index, so it is the same on every launch
+    assertEquals(MemContents.getMemorySeed(3), MemContents.getMemorySeed(3));
+    assertEquals(0xbe93263fdd9b175dL, MemContents.getMemorySeed(0));
+    assertNotEquals(MemContents.getMemorySeed(0), MemContents.getMemorySeed(1));
+  }
+
+  @Test
+  void isClearDoesNotMaterializeRandomPages() {
+    final var contents = createRandom(30, 8, 11);
+    assertFalse(contents.isClear());
+    contents.clear();
+    assertTrue(contents.isClear());
+  }
+
+  @Test
+  void writesKeepNeighboursOfRandomPage() {
+    final var contents = createRandom(14, 8, 3);
+    final var reference = createRandom(14, 8, 3);
+    contents.set(0x2001, 0);
+    assertEquals(0, contents.get(0x2001));
+    assertEquals(reference.get(0x2000), contents.get(0x2000));
+    assertEquals(reference.get(0x2002), contents.get(0x2002));
+  }
+
+  @Test
+  void clearOverridesRandomContents() {
+    final var contents = createRandom(24, 32, 5);
+    contents.clear();
+    assertEquals(0, contents.get(0xabcdef));
+    assertTrue(contents.isClear());
+  }
+
+  @Test
+  void noRandomContentsWhenNotRandomized() {
+    final var contents = MemContents.create(12, 8, false);
+    contents.condFillRandom();
+    contents.condClear();
+    assertTrue(contents.isClear());
+  }
+}